@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.benchmarks;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The Class BenchmarkRunner.
+ * <p>
+ * With arguments it is the plain JMH command line (e.g.
+ * <code>java -jar benchmarks.jar CodecBenchmark -prof gc</code>). Without
+ * arguments it runs the whole suite with the GC profiler, so every score comes
+ * with its allocation rate (<code>gc.alloc.rate.norm</code>, bytes per
+ * operation), and the pool benchmark once per thread count.
+ */
+public class BenchmarkRunner {
+
+	/** The thread counts of the pool benchmark. */
+	private static final int[] POOL_THREADS = { 1, 4, 16, 64 };
+
+	/**
+	 * The main method.
+	 *
+	 * @param args
+	 *            the arguments
+	 * @throws Exception
+	 *             the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		run(options().include(CodecBenchmark.class.getSimpleName()).include(CompressionBenchmark.class.getSimpleName())
+				.include(WriteBenchmark.class.getSimpleName())
+				.include(ReadBenchmark.class.getSimpleName()));
+
+		for (int threads : POOL_THREADS) {
+			run(options().include(PoolBenchmark.class.getSimpleName()).threads(threads));
+		}
+	}
+
+	/**
+	 * Options shared by every run.
+	 *
+	 * @return the chained options builder
+	 */
+	private static ChainedOptionsBuilder options() {
+		return new OptionsBuilder().addProfiler(GCProfiler.class).jvmArgsAppend(redisProperties());
+	}
+
+	/**
+	 * Forwards the redis system properties to the forked JVMs.
+	 *
+	 * @return the jvm arguments
+	 */
+	private static String[] redisProperties() {
+		String[] names = { "redis.hostname", "redis.port", "redis.password", "redis.backend" };
+		return Arrays.stream(names).filter(name -> System.getProperty(name) != null)
+				.map(name -> "-D" + name + "=" + System.getProperty(name)).toArray(String[]::new);
+	}
+
+	/**
+	 * Run.
+	 *
+	 * @param builder
+	 *            the builder
+	 * @throws RunnerException
+	 *             the runner exception
+	 */
+	private static void run(ChainedOptionsBuilder builder) throws RunnerException {
+		new Runner(builder.build()).run();
+	}
+
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.codec.CodecRegistry;
+import com.gbmartins.redis.dao.codec.CodecType;
+import com.gbmartins.redis.dao.codec.ValueCodec;
+import com.gbmartins.redis.service.UserBinaryCodec;
+
+/**
+ * The Class CodecBenchmark.
+ * <p>
+ * Measures what <code>RedisOperations.serializeObject</code> and
+ * <code>deserializeObject</code> do, a registry lookup followed by the codec
+ * call, for every codec a user can be stored with. Needs no Redis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	/** The codec: java, json or binary ({@link UserBinaryCodec}). */
+	@Param({ "java", "json", "binary" })
+	private String codec;
+
+	/** The codecs. */
+	private CodecRegistry codecs;
+
+	/** The user. */
+	private User user;
+
+	/** The encoded user. */
+	private byte[] encoded;
+
+	/**
+	 * Setup.
+	 *
+	 * @throws Exception
+	 *             the exception
+	 */
+	@Setup
+	public void setup() throws Exception {
+		if ("binary".equals(codec)) {
+			codecs = new CodecRegistry(CodecType.JAVA);
+			codecs.register(User.class, new UserBinaryCodec());
+		} else {
+			codecs = new CodecRegistry(CodecType.fromName(codec));
+		}
+		user = RedisFixture.user(1);
+		encoded = codecs.getCodec(User.class).encode(user);
+	}
+
+	/**
+	 * Serialize.
+	 *
+	 * @return the bytes
+	 * @throws Exception
+	 *             the exception
+	 */
+	@Benchmark
+	public byte[] serialize() throws Exception {
+		ValueCodec<User> valueCodec = codecs.getCodec(User.class);
+		return valueCodec.encode(user);
+	}
+
+	/**
+	 * Deserialize.
+	 *
+	 * @return the user
+	 * @throws Exception
+	 *             the exception
+	 */
+	@Benchmark
+	public User deserialize() throws Exception {
+		ValueCodec<User> valueCodec = codecs.getCodec(User.class);
+		return valueCodec.decode(encoded);
+	}
+
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.codec.JsonCodec;
+import com.gbmartins.redis.dao.codec.ValueCompressor;
+
+/**
+ * The Class CompressionBenchmark.
+ * <p>
+ * Measures the {@link ValueCompressor} on JSON payloads of users, the cost
+ * added to each write and read of a value above the compression threshold.
+ * The achieved ratio is printed at the end of each trial. Needs no Redis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+	/** The payload size in bytes. */
+	@Param({ "1024", "16384", "131072" })
+	private int size;
+
+	/** The compressor. */
+	private ValueCompressor compressor;
+
+	/** The payload. */
+	private byte[] payload;
+
+	/** The compressed payload. */
+	private byte[] compressed;
+
+	/**
+	 * Setup.
+	 *
+	 * @throws Exception
+	 *             the exception
+	 */
+	@Setup
+	public void setup() throws Exception {
+		JsonCodec<User> codec = new JsonCodec<>(User.class);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(size * 2);
+		for (int i = 0; out.size() < size; i++) {
+			out.write(codec.encode(RedisFixture.user(i)));
+		}
+		payload = out.toByteArray();
+		compressor = new ValueCompressor(true, 0);
+		compressed = compressor.compress(payload);
+	}
+
+	/**
+	 * Prints the ratio.
+	 */
+	@TearDown
+	public void tearDown() {
+		System.out.println(compressor);
+	}
+
+	/**
+	 * Compress.
+	 *
+	 * @return the bytes
+	 */
+	@Benchmark
+	public byte[] compress() {
+		return compressor.compress(payload);
+	}
+
+	/**
+	 * Decompress.
+	 *
+	 * @return the bytes
+	 */
+	@Benchmark
+	public byte[] decompress() {
+		return compressor.decompress(compressed);
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gbmartins.redis.dao.RedisPoolConnection;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * The Class PoolBenchmark.
+ * <p>
+ * Borrows and returns a pre-filled connection, nothing is sent to Redis, so
+ * the score is the cost of the pool itself. Run it with several thread counts
+ * (<code>-t</code>, or the default {@link BenchmarkRunner} suite) to see the
+ * contention once threads outnumber <code>poolMaxTotal</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoolBenchmark {
+
+	/** The pool max total. */
+	@Param({ "8", "64" })
+	private int poolMaxTotal;
+
+	/** The fixture. */
+	private RedisFixture fixture;
+
+	/** The pool. */
+	private RedisPoolConnection pool;
+
+	/**
+	 * Setup.
+	 */
+	@Setup
+	public void setup() {
+		fixture = new RedisFixture(poolMaxTotal);
+		pool = fixture.getPool();
+	}
+
+	/**
+	 * Tear down.
+	 */
+	@TearDown
+	public void tearDown() {
+		fixture.close();
+	}
+
+	/**
+	 * Borrow and return.
+	 *
+	 * @return the connection
+	 */
+	@Benchmark
+	public Jedis borrow() {
+		try (Jedis jedis = pool.getResource()) {
+			return jedis;
+		}
+	}
+
+}
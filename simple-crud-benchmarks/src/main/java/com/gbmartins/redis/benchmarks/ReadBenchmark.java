@@ -0,0 +1,127 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.benchmarks;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.RedisOperations;
+
+/**
+ * The Class ReadBenchmark.
+ * <p>
+ * One invocation reads <code>batchSize</code> users, either one
+ * {@link RedisOperations#getObject(String, Class)} per user or a single
+ * {@link RedisOperations#getListObject(List, Class)}. Scores are batches per
+ * second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadBenchmark {
+
+	/** The batch size. */
+	@Param({ "1", "10", "100", "1000" })
+	private int batchSize;
+
+	/** The fixture. */
+	private RedisFixture fixture;
+
+	/** The operations. */
+	private RedisOperations operations;
+
+	/** The keys. */
+	private List<String> keys;
+
+	/**
+	 * Setup.
+	 *
+	 * @throws Exception
+	 *             the exception
+	 */
+	@Setup
+	public void setup() throws Exception {
+		fixture = new RedisFixture(8);
+		operations = fixture.getOperations();
+		keys = RedisFixture.keys(batchSize);
+		Map<String, User> bulk = new LinkedHashMap<>();
+		for (int i = 0; i < batchSize; i++) {
+			bulk.put(keys.get(i), RedisFixture.user(i));
+		}
+		operations.saveOrUpdateBulkObject(bulk);
+	}
+
+	/**
+	 * Tear down.
+	 */
+	@TearDown
+	public void tearDown() {
+		operations.deleteKeys(keys.toArray(new String[keys.size()]));
+		fixture.close();
+	}
+
+	/**
+	 * One GET per user.
+	 *
+	 * @param bh
+	 *            the blackhole
+	 * @throws Exception
+	 *             the exception
+	 */
+	@Benchmark
+	public void getObject(Blackhole bh) throws Exception {
+		for (String key : keys) {
+			bh.consume(operations.getObject(key, User.class));
+		}
+	}
+
+	/**
+	 * One MGET for every user.
+	 *
+	 * @return the users
+	 * @throws Exception
+	 *             the exception
+	 */
+	@Benchmark
+	public List<User> getListObject() throws Exception {
+		return operations.getListObject(keys, User.class);
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.AbstractRedisOperations;
+import com.gbmartins.redis.dao.JedisOperations;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.RedisOperations;
+import com.gbmartins.redis.dao.RedisPoolConnection;
+import com.gbmartins.redis.dao.codec.CodecRegistry;
+import com.gbmartins.redis.dao.codec.CodecType;
+import com.gbmartins.redis.dao.memory.InMemoryOperations;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.dao.script.ScriptRegistry;
+import com.gbmartins.redis.service.UserBinaryCodec;
+
+/**
+ * The Class RedisFixture.
+ * <p>
+ * Wires the dao layer by hand, without the Spring context, against the Redis
+ * given by the <code>redis.hostname</code>, <code>redis.port</code> and
+ * <code>redis.password</code> system properties (localhost:6379 by default).
+ * With <code>redis.backend=memory</code> the operations run on the in-memory
+ * backend instead and no pool is created, so no Redis is needed. Forked
+ * benchmark JVMs only see these properties when passed with
+ * <code>-jvmArgsAppend</code>.
+ */
+public class RedisFixture {
+
+	/** The key prefix of every benchmark key. */
+	public static final String KEY_PREFIX = "bench:user:";
+
+	/** The pool, null with the in-memory backend. */
+	private final RedisPoolConnection pool;
+
+	/** The metrics. */
+	private final RedisMetrics metrics;
+
+	/** The operations. */
+	private final AbstractRedisOperations operations;
+
+	/**
+	 * Instantiates a new redis fixture.
+	 *
+	 * @param poolMaxTotal
+	 *            the pool max total
+	 */
+	public RedisFixture(int poolMaxTotal) {
+		RedisInstanceSetup setup = RedisInstanceSetup.createInstance(System.getProperty("redis.hostname", "localhost"),
+				Integer.getInteger("redis.port", 6379), System.getProperty("redis.password"));
+		setup.setCodec(CodecType.JAVA.name());
+		setup.setPoolMaxTotal(poolMaxTotal);
+		setup.setPoolMaxIdle(poolMaxTotal);
+		setup.setPoolMinIdle(poolMaxTotal);
+		setup.setPoolPrefill(true);
+
+		CodecRegistry codecs = new CodecRegistry(setup);
+		codecs.register(User.class, new UserBinaryCodec());
+
+		this.metrics = new RedisMetrics();
+		if ("memory".equals(System.getProperty("redis.backend"))) {
+			this.pool = null;
+			this.operations = new InMemoryOperations(codecs, setup, metrics);
+		} else {
+			this.pool = new RedisPoolConnection(setup);
+			this.operations = new JedisOperations(pool, codecs, new ScriptRegistry(), setup, metrics);
+		}
+	}
+
+	/**
+	 * Gets the pool.
+	 *
+	 * @return the pool
+	 * @throws IllegalStateException
+	 *             with the in-memory backend, which has no pool
+	 */
+	public RedisPoolConnection getPool() {
+		if (pool == null) {
+			throw new IllegalStateException("The in-memory backend has no Redis pool");
+		}
+		return pool;
+	}
+
+	/**
+	 * Gets the operations.
+	 *
+	 * @return the operations
+	 */
+	public RedisOperations getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Closes the operations and the pool.
+	 */
+	public void close() {
+		operations.destroy();
+		if (pool != null) {
+			pool.destroy();
+		}
+		metrics.destroy();
+	}
+
+	/**
+	 * Creates a user.
+	 *
+	 * @param i
+	 *            the index
+	 * @return the user
+	 */
+	public static User user(int i) {
+		User user = new User();
+		user.setEmail("user" + i + "@example.com");
+		user.setFirstname("John" + i);
+		user.setLastname("Doe" + i);
+		return user;
+	}
+
+	/**
+	 * Creates the benchmark keys.
+	 *
+	 * @param count
+	 *            the count
+	 * @return the keys
+	 */
+	public static List<String> keys(int count) {
+		List<String> keys = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			keys.add(KEY_PREFIX + i);
+		}
+		return keys;
+	}
+
+}
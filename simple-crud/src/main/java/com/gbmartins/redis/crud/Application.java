@@ -19,13 +19,35 @@
  */
 package com.gbmartins.redis.crud;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map.Entry;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 
 import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.RedisPoolConnection;
+import com.gbmartins.redis.dao.codec.CodecRegistry;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
 import com.gbmartins.redis.service.UserService;
+import com.gbmartins.redis.service.batch.BatchRunner;
+import com.gbmartins.redis.service.http.UserHttpServer;
+import com.gbmartins.redis.service.load.LoadGenerator;
+import com.gbmartins.redis.service.load.LoadOptions;
+import com.gbmartins.redis.service.transfer.UserExporter;
+import com.gbmartins.redis.service.transfer.UserImporter;
 
 /**
  * The Class Application.
@@ -36,6 +58,44 @@ public class Application implements CommandLineRunner {
 	@Autowired
 	private UserService service;
 
+	/** The metrics. */
+	@Autowired
+	private RedisMetrics metrics;
+
+	/** The pool. */
+	@Autowired
+	private RedisPoolConnection pool;
+
+	/** The codecs. */
+	@Autowired
+	private CodecRegistry codecs;
+
+	/** The importer. */
+	@Autowired
+	private UserImporter importer;
+
+	/** The exporter. */
+	@Autowired
+	private UserExporter exporter;
+
+	/** The batch runner. */
+	@Autowired
+	private BatchRunner batchRunner;
+
+	/** The HTTP server. */
+	@Autowired
+	private UserHttpServer httpServer;
+
+	/** The load generator. */
+	@Autowired
+	private LoadGenerator loadGenerator;
+
+	/** The argument of the batch mode, reading stdin or, with =file, the file. */
+	private static final String BATCH_ARG = "--batch";
+
+	/** The argument of the load mode, the load options being the key=value arguments. */
+	private static final String LOAD_ARG = "--load";
+
 	/** The Constant LOG. */
 	private static final Logger LOG = LogManager.getLogger(Application.class);
 
@@ -46,6 +106,23 @@ public class Application implements CommandLineRunner {
 	 */
 	@Override
 	public void run(String... arg0) throws Exception {
+		for (String arg : arg0) {
+			if (arg.equals(BATCH_ARG) || arg.startsWith(BATCH_ARG + "=")) {
+				runBatch(arg.length() > BATCH_ARG.length() ? arg.substring(BATCH_ARG.length() + 1) : null);
+				return;
+			}
+			if (arg.equals(LOAD_ARG)) {
+				runLoad(Arrays.stream(arg0).filter(option -> !option.startsWith("--")).toArray(String[]::new));
+				return;
+			}
+		}
+
+		if (System.console() == null && httpServer.isRunning()) {
+			LOG.info("No console, serving HTTP on {} until shutdown", httpServer.getAddress());
+			httpServer.awaitStop();
+			return;
+		}
+
 		boolean stay = true;
 		String command = "";
 
@@ -60,10 +137,46 @@ public class Application implements CommandLineRunner {
 			}
 		}
 
+		httpServer.stop();
 		LOG.info("Bye!");
 
 	}
 
+	/**
+	 * Runs the commands of the file, or of stdin, in batch mode. Results go
+	 * to stdout and the summary to stderr, so the output can be piped.
+	 *
+	 * @param file
+	 *            the file, null for stdin
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void runBatch(String file) throws IOException {
+		try (BufferedReader in = file != null ? Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)
+				: new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+			Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+			System.err.println(batchRunner.run(in, out));
+		}
+	}
+
+	/**
+	 * Runs a load with the options, reporting to stdout.
+	 *
+	 * @param options
+	 *            the key=value options
+	 */
+	private void runLoad(String... options) {
+		try {
+			loadGenerator.run(LoadOptions.parse(options), System.out::println);
+		} catch (IOException | IllegalArgumentException | IllegalStateException e) {
+			LOG.error("Load error", e);
+			System.err.println("Load failed: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.err.println("Load interrupted");
+		}
+	}
+
 	/**
 	 * Execute.
 	 *
@@ -89,6 +202,19 @@ public class Application implements CommandLineRunner {
 		case "D":
 			deleteUser(command);
 			break;
+		case "I":
+			importUsers(command);
+			break;
+		case "E":
+			exportUsers(command);
+			break;
+		case "L":
+			String[] options = command.trim().split("\\s+");
+			runLoad(Arrays.copyOfRange(options, 1, options.length));
+			break;
+		case "M":
+			printMetrics();
+			break;
 		case "Q":
 			result = false;
 			break;
@@ -137,38 +263,104 @@ public class Application implements CommandLineRunner {
 	}
 
 	/**
-	 * Delete user.
+	 * Delete user, or users when several emails are given.
 	 *
 	 * @param command
 	 *            the command
 	 */
 	private void deleteUser(String command) {
-		String email = getEmailFromStringCommand(command);
-		if (email == null) {
+		String[] emails = getEmailsFromStringCommand(command);
+		if (emails == null) {
 			printWarning(command);
 			return;
 		}
 
-		long number = service.deleteUser(email);
+		long number = emails.length == 1 ? service.deleteUser(emails[0]) : service.deleteUsers(emails);
 		printMsg("Number of users deleted: " + number);
 	}
 
 	/**
-	 * Read user.
+	 * Read user, or users with a single MGET when several emails are given.
 	 *
 	 * @param command
 	 *            the command
 	 */
 	private void readUser(String command) {
-		String email = getEmailFromStringCommand(command);
-		if (email == null) {
+		String[] emails = getEmailsFromStringCommand(command);
+		if (emails == null) {
+			printWarning(command);
+			return;
+		}
+
+		if (emails.length == 1) {
+			User user = service.getUserByEmail(emails[0]);
+			printMsg(user != null ? user.toString() : "not found");
+			return;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (Entry<String, User> user : service.getUsersByEmailsMap(emails).entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(System.lineSeparator());
+			}
+			sb.append(user.getValue() != null ? user.getValue().toString() : user.getKey() + " not found");
+		}
+		printMsg(sb.toString());
+	}
+
+	/**
+	 * Imports the users of a CSV, NDJSON or binary file.
+	 *
+	 * @param command
+	 *            the command
+	 */
+	private void importUsers(String command) {
+		String file = getEmailFromStringCommand(command);
+		if (file == null) {
 			printWarning(command);
 			return;
 		}
 
-		User user = service.getUserByEmail(email);
-		String userString = user != null ? user.toString() : "not found";
-		printMsg(userString);
+		try {
+			printMsg(importer.importUsers(Paths.get(file)).toString());
+		} catch (IOException | IllegalArgumentException e) {
+			LOG.error("Import error", e);
+			printMsg("Import of " + file + " failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Exports every user to a CSV, NDJSON or binary file.
+	 *
+	 * @param command
+	 *            the command
+	 */
+	private void exportUsers(String command) {
+		String file = getEmailFromStringCommand(command);
+		if (file == null) {
+			printWarning(command);
+			return;
+		}
+
+		try {
+			printMsg(exporter.exportUsers(Paths.get(file)).toString());
+		} catch (IOException | IllegalArgumentException e) {
+			LOG.error("Export error", e);
+			printMsg("Export to " + file + " failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Prints the metrics of every operation called so far and the pool state.
+	 */
+	private void printMetrics() {
+		StringBuilder sb = new StringBuilder("Operations:");
+		for (OperationMetrics operationMetrics : metrics.getAll()) {
+			sb.append(System.lineSeparator()).append(operationMetrics);
+		}
+		sb.append(System.lineSeparator()).append(System.lineSeparator()).append(pool.getStats());
+		sb.append(System.lineSeparator()).append(codecs.getCompressor());
+		printMsg(sb.toString());
 	}
 
 	/**
@@ -214,6 +406,22 @@ public class Application implements CommandLineRunner {
 		return result;
 	}
 
+	/**
+	 * Gets the emails from string command.
+	 *
+	 * @param command
+	 *            the command
+	 * @return the emails from string command, null if there is none
+	 */
+	private String[] getEmailsFromStringCommand(String command) {
+		String[] split = command.trim().split("\\s+");
+		if (split.length < 2) {
+			return null;
+		}
+
+		return Arrays.copyOfRange(split, 1, split.length);
+	}
+
 	/**
 	 * Gets the user from string command.
 	 *
@@ -250,9 +458,13 @@ public class Application implements CommandLineRunner {
 			"Commands: (email is the unique identifier)" + System.lineSeparator() + //
 			"Format: Command [Parameters]" + System.lineSeparator() + //
 			"\tCreate User: C email name lastname" + System.lineSeparator() + //
-			"\tRead User  : R email" + System.lineSeparator() + //
+			"\tRead User  : R email [email...]" + System.lineSeparator() + //
 			"\tUpdate User: U email name lastname" + System.lineSeparator() + //
-			"\tDelete User: D email" + System.lineSeparator() + System.lineSeparator() + //
+			"\tDelete User: D email [email...]" + System.lineSeparator() + //
+			"\tImport     : I file.csv|file.ndjson|file.bin" + System.lineSeparator() + //
+			"\tExport     : E file.csv|file.ndjson|file.bin" + System.lineSeparator() + //
+			"\tLoad test  : L [threads=4 seconds=30 mix=read:80,write:10,update:5,delete:5 distribution=zipfian rate=0 csv=file ...]" + System.lineSeparator() + //
+			"\tMetrics    : M" + System.lineSeparator() + System.lineSeparator() + //
 			"\tQuit       : Q" + System.lineSeparator() + System.lineSeparator();
 
 }
@@ -66,8 +66,48 @@ public class ApplicationConfiguration {
 	 */
 	@Bean(name = "redisSetup")
 	public RedisInstanceSetup redisInstanceSetup() {
-		RedisInstanceSetup.createInstance(redisSetup.getHostname(), redisSetup.getPort(), redisSetup.getPassword());
-		return RedisInstanceSetup.getInstance();
+		RedisInstanceSetup instance = RedisInstanceSetup.createInstance(redisSetup.getHostname(), redisSetup.getPort(),
+				redisSetup.getPassword());
+		instance.setCodec(redisSetup.getCodec());
+		instance.setNearCacheEnabled(redisSetup.isNearCacheEnabled());
+		instance.setNearCacheMaxSize(redisSetup.getNearCacheMaxSize());
+		instance.setNearCacheTtlMillis(redisSetup.getNearCacheTtlMillis());
+		instance.setNearCacheEviction(redisSetup.getNearCacheEviction());
+		instance.setNearCacheInvalidation(redisSetup.isNearCacheInvalidation());
+		instance.setAsyncThreads(redisSetup.getAsyncThreads());
+		instance.setAsyncQueueSize(redisSetup.getAsyncQueueSize());
+		instance.setBatchEnabled(redisSetup.isBatchEnabled());
+		instance.setBatchMaxSize(redisSetup.getBatchMaxSize());
+		instance.setBatchMaxDelayMicros(redisSetup.getBatchMaxDelayMicros());
+		instance.setBulkChunkSize(redisSetup.getBulkChunkSize());
+		instance.setBulkParallelism(redisSetup.getBulkParallelism());
+		instance.setMgetChunkSize(redisSetup.getMgetChunkSize());
+		instance.setPoolMaxTotal(redisSetup.getPoolMaxTotal());
+		instance.setPoolMaxIdle(redisSetup.getPoolMaxIdle());
+		instance.setPoolMinIdle(redisSetup.getPoolMinIdle());
+		instance.setPoolMaxWaitMillis(redisSetup.getPoolMaxWaitMillis());
+		instance.setPoolPrefill(redisSetup.isPoolPrefill());
+		instance.setConnectionTimeout(redisSetup.getConnectionTimeout());
+		instance.setSoTimeout(redisSetup.getSoTimeout());
+		instance.setMemoryStripes(redisSetup.getMemoryStripes());
+		instance.setClusterNodes(redisSetup.getClusterNodes());
+		instance.setClusterMaxRedirections(redisSetup.getClusterMaxRedirections());
+		instance.setReplicaNodes(redisSetup.getReplicaNodes());
+		instance.setReplicaSelection(redisSetup.getReplicaSelection());
+		instance.setReadYourWritesMillis(redisSetup.getReadYourWritesMillis());
+		instance.setCompressionEnabled(redisSetup.isCompressionEnabled());
+		instance.setCompressionThreshold(redisSetup.getCompressionThreshold());
+		instance.setImportBatchSize(redisSetup.getImportBatchSize());
+		instance.setImportInFlight(redisSetup.getImportInFlight());
+		instance.setExportScanCount(redisSetup.getExportScanCount());
+		instance.setTtlJitterPercent(redisSetup.getTtlJitterPercent());
+		instance.setConsoleBatchSize(redisSetup.getConsoleBatchSize());
+		instance.setHttpPort(redisSetup.getHttpPort());
+		instance.setHttpThreads(redisSetup.getHttpThreads());
+		instance.setHttpBatchSize(redisSetup.getHttpBatchSize());
+		instance.setHttpBatchDelayMicros(redisSetup.getHttpBatchDelayMicros());
+		instance.setHttpBatchFlushers(redisSetup.getHttpBatchFlushers());
+		return instance;
 	}
 
 }
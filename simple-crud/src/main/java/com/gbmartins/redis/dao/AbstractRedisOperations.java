@@ -0,0 +1,654 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gbmartins.redis.dao.codec.CodecRegistry;
+import com.gbmartins.redis.dao.codec.ValueCodec;
+import com.gbmartins.redis.dao.index.WriteCondition;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.dao.replica.ReadYourWrites;
+import com.gbmartins.redis.dao.scan.ScanIterator;
+import com.gbmartins.redis.dao.scan.ScanPage;
+import com.gbmartins.redis.dao.version.VersionHeader;
+import com.gbmartins.redis.dao.version.Versioned;
+import com.gbmartins.redis.dao.version.VersionedWrite;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The Class AbstractRedisOperations.
+ * <p>
+ * What every {@link RedisOperations} backend shares: the codecs, the async
+ * executor and the operations derived from the primitive ones.
+ */
+public abstract class AbstractRedisOperations implements RedisOperations {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(AbstractRedisOperations.class);
+
+	/** Number of values from which multi-gets are decoded in parallel. */
+	private static final int PARALLEL_DECODE_THRESHOLD = 512;
+
+	/** SET flag: only set if the key does not exist. */
+	protected static final byte[] NX = "NX".getBytes();
+
+	/** SET flag: only set if the key already exists. */
+	protected static final byte[] XX = "XX".getBytes();
+
+	/** Compare-and-set flag: the key must hold the expected value. */
+	protected static final byte[] PRESENT = "1".getBytes();
+
+	/** Compare-and-set flag: the key must not exist. */
+	protected static final byte[] ABSENT = "0".getBytes();
+
+	/** The codecs. */
+	private final CodecRegistry codecs;
+
+	/** The executor running the async operations. */
+	protected final ThreadPoolExecutor asyncExecutor;
+
+	/** The TTL jitter, in percent of the TTL. */
+	private final int ttlJitterPercent;
+
+	/** The metrics of getListObject. */
+	private final OperationMetrics getListMetrics;
+
+	/** The metrics of getMapObject. */
+	private final OperationMetrics getMapMetrics;
+
+	/** The metrics of saveOrUpdateObjectAsync. */
+	private final OperationMetrics saveAsyncMetrics;
+
+	/** The metrics of getObjectAsync. */
+	protected final OperationMetrics getAsyncMetrics;
+
+	/** The metrics of getListObjectAsync. */
+	private final OperationMetrics getListAsyncMetrics;
+
+	/** The metrics of deleteKeysAsync. */
+	private final OperationMetrics deleteAsyncMetrics;
+
+	/** The metrics of saveIndexedObjectAsync. */
+	private final OperationMetrics saveIndexedAsyncMetrics;
+
+	/** The metrics of deleteIndexedKeysAsync. */
+	private final OperationMetrics deleteIndexedAsyncMetrics;
+
+	/**
+	 * Instantiates a new abstract redis operations.
+	 *
+	 * @param codecs
+	 *            the codecs
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 * @param metrics
+	 *            the metrics
+	 */
+	protected AbstractRedisOperations(CodecRegistry codecs, RedisInstanceSetup redisInstanceSetup,
+			RedisMetrics metrics) {
+		super();
+		this.codecs = codecs;
+		this.getListMetrics = metrics.get("redis.getListObject");
+		this.getMapMetrics = metrics.get("redis.getMapObject");
+		this.saveAsyncMetrics = metrics.get("redis.saveOrUpdateObjectAsync");
+		this.getAsyncMetrics = metrics.get("redis.getObjectAsync");
+		this.getListAsyncMetrics = metrics.get("redis.getListObjectAsync");
+		this.deleteAsyncMetrics = metrics.get("redis.deleteKeysAsync");
+		this.saveIndexedAsyncMetrics = metrics.get("redis.saveIndexedObjectAsync");
+		this.deleteIndexedAsyncMetrics = metrics.get("redis.deleteIndexedKeysAsync");
+		this.ttlJitterPercent = Math.max(0, redisInstanceSetup.getTtlJitterPercent());
+		this.asyncExecutor = new ThreadPoolExecutor(redisInstanceSetup.getAsyncThreads(),
+				redisInstanceSetup.getAsyncThreads(), 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(redisInstanceSetup.getAsyncQueueSize()),
+				new ThreadFactoryBuilder().setNameFormat("redis-async-%d").setDaemon(true).build());
+		this.asyncExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Stops the async executor.
+	 */
+	@PreDestroy
+	public void destroy() {
+		asyncExecutor.shutdown();
+	}
+
+	/**
+	 * Gets the list object. Missing keys are skipped, use
+	 * {@link #multiGetObject(List, Class)} or {@link #getMapObject(List, Class)}
+	 * to know which keys were missing.
+	 *
+	 * @param <T>            the generic type
+	 * @param keys            the keys
+	 * @param type            the type
+	 * @return the list object
+	 * @throws Exception the exception
+	 */
+	@Override
+	public <T extends Serializable> List<T> getListObject(List<String> keys, Class<T> type) throws Exception {
+		long start = getListMetrics.start();
+		try {
+			List<T> values = multiGetObject(keys, type);
+			List<T> result = new ArrayList<>(values.size());
+			for (T value : values) {
+				if (value != null) {
+					result.add(value);
+				}
+			}
+			return result;
+		} catch (Exception ex) {
+			getListMetrics.error();
+			throw ex;
+		} finally {
+			getListMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Gets the objects by key, in key order. Missing keys are present in the
+	 * map with a null value.
+	 *
+	 * @param <T>            the generic type
+	 * @param keys            the keys
+	 * @param type            the type
+	 * @return the map object
+	 * @throws Exception the exception
+	 */
+	@Override
+	public <T extends Serializable> Map<String, T> getMapObject(List<String> keys, Class<T> type) throws Exception {
+		long start = getMapMetrics.start();
+		try {
+			List<T> values = multiGetObject(keys, type);
+			Map<String, T> result = new LinkedHashMap<>(keys.size() * 2);
+			for (int i = 0; i < keys.size(); i++) {
+				result.put(keys.get(i), values.get(i));
+			}
+			return result;
+		} catch (Exception ex) {
+			getMapMetrics.error();
+			throw ex;
+		} finally {
+			getMapMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Async version of {@link #saveOrUpdateObject(String, Serializable)}.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @return the completable future
+	 */
+	@Override
+	public <T extends Serializable> CompletableFuture<String> saveOrUpdateObjectAsync(String key, T object) {
+		return async(saveAsyncMetrics, () -> saveOrUpdateObject(key, object));
+	}
+
+	/**
+	 * Async version of {@link #getObject(String, Class)}.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param type the type
+	 * @return the completable future
+	 */
+	@Override
+	public <T extends Serializable> CompletableFuture<T> getObjectAsync(String key, Class<T> type) {
+		return async(getAsyncMetrics, () -> getObject(key, type));
+	}
+
+	/**
+	 * Async version of {@link #getListObject(List, Class)}.
+	 *
+	 * @param <T> the generic type
+	 * @param keys the keys
+	 * @param type the type
+	 * @return the completable future
+	 */
+	@Override
+	public <T extends Serializable> CompletableFuture<List<T>> getListObjectAsync(List<String> keys, Class<T> type) {
+		return async(getListAsyncMetrics, () -> getListObject(keys, type));
+	}
+
+	/**
+	 * Async version of {@link #deleteKeys(String...)}.
+	 *
+	 * @param keys the keys
+	 * @return the completable future
+	 */
+	@Override
+	public CompletableFuture<Long> deleteKeysAsync(String... keys) {
+		return async(deleteAsyncMetrics, () -> deleteKeys(keys));
+	}
+
+	/**
+	 * Async version of {@link #saveIndexedObject(String, Serializable, WriteCondition, Map)}.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param condition the condition
+	 * @param terms the term of each index
+	 * @return the completable future
+	 */
+	@Override
+	public <T extends Serializable> CompletableFuture<String> saveIndexedObjectAsync(String key, T object,
+			WriteCondition condition, Map<String, String> terms) {
+		return async(saveIndexedAsyncMetrics, () -> saveIndexedObject(key, object, condition, terms));
+	}
+
+	/**
+	 * Async version of {@link #deleteIndexedKeys(Collection, String...)}.
+	 *
+	 * @param indexes the indexes the keys may be in
+	 * @param keys the keys
+	 * @return the completable future
+	 */
+	@Override
+	public CompletableFuture<Long> deleteIndexedKeysAsync(Collection<String> indexes, String... keys) {
+		return async(deleteIndexedAsyncMetrics, () -> deleteIndexedKeys(indexes, keys));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveOrUpdateObject(java.lang.String, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> String saveOrUpdateObject(String key, T object) throws IOException {
+		return saveOrUpdateObject(key, object, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveOrUpdateBulkObject(java.util.Map)
+	 */
+	@Override
+	public <T extends Serializable> void saveOrUpdateBulkObject(Map<String, T> bulk) throws IOException {
+		saveOrUpdateBulkObject(bulk, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedObject(java.lang.String, java.io.Serializable, com.gbmartins.redis.dao.index.WriteCondition, java.util.Map)
+	 */
+	@Override
+	public <T extends Serializable> String saveIndexedObject(String key, T object, WriteCondition condition,
+			Map<String, String> terms) throws IOException {
+		return saveIndexedObject(key, object, condition, terms, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedBulkObject(java.util.Map, java.util.function.Function)
+	 */
+	@Override
+	public <T extends Serializable> void saveIndexedBulkObject(Map<String, T> bulk,
+			Function<? super T, Map<String, String>> terms) throws IOException {
+		saveIndexedBulkObject(bulk, terms, 0);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#deleteIndexedKeys(java.util.Collection, java.lang.String[])
+	 */
+	@Override
+	public long deleteIndexedKeys(Collection<String> indexes, String... keys) {
+		long numberDeleted = 0;
+		for (boolean deleted : deleteIndexedKeysEach(indexes, keys)) {
+			if (deleted) {
+				numberDeleted++;
+			}
+		}
+		return numberDeleted;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveVersionedObject(java.lang.String, java.io.Serializable, long)
+	 */
+	@Override
+	public <T extends Serializable> VersionedWrite<T> saveVersionedObject(String key, T object, long expectedVersion)
+			throws Exception {
+		return saveVersionedObject(key, object, expectedVersion, Collections.emptyMap());
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#streamObjects(java.lang.String, int, java.lang.Class)
+	 */
+	@Override
+	public <T extends Serializable> Stream<Entry<String, T>> streamObjects(String pattern, int count,
+			Class<T> type) {
+		ScanIterator<T> pages = new ScanIterator<>(cursor -> scanObjects(cursor, pattern, count, type));
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Registers the codec used to store values of the type.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param type
+	 *            the type
+	 * @param codec
+	 *            the codec
+	 */
+	@Override
+	public <T extends Serializable> void registerCodec(Class<T> type, ValueCodec<T> codec) {
+		codecs.register(type, codec);
+	}
+
+	/**
+	 * Decodes the values, keeping nulls in place. Large lists are decoded in
+	 * parallel on the fork/join common pool.
+	 *
+	 * @param <T> the generic type
+	 * @param values the values
+	 * @param type the type
+	 * @return the list
+	 * @throws Exception the exception
+	 */
+	protected <T extends Serializable> List<T> decodeAll(byte[][] values, Class<T> type) throws Exception {
+		List<T> result = new ArrayList<>(Collections.nCopies(values.length, (T) null));
+
+		if (values.length < PARALLEL_DECODE_THRESHOLD) {
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] != null) {
+					result.set(i, deserializeObject(values[i], type));
+				}
+			}
+			return result;
+		}
+
+		try {
+			IntStream.range(0, values.length).parallel().forEach(i -> {
+				if (values[i] != null) {
+					try {
+						result.set(i, deserializeObject(values[i], type));
+					} catch (Exception ex) {
+						throw new CompletionException(ex);
+					}
+				}
+			});
+		} catch (CompletionException ce) {
+			Throwable cause = ce.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw ce;
+		}
+		return result;
+	}
+
+	/**
+	 * Builds a scan page from the keys and their raw values, aligned, leaving
+	 * out the keys without a string value.
+	 *
+	 * @param <T> the generic type
+	 * @param keys the keys
+	 * @param values the values
+	 * @param cursor the cursor of the next page
+	 * @param type the type
+	 * @return the page
+	 * @throws Exception the exception
+	 */
+	protected <T extends Serializable> ScanPage<T> scanPage(List<String> keys, byte[][] values, String cursor,
+			Class<T> type) throws Exception {
+		List<T> objects = decodeAll(values, type);
+		Map<String, T> items = new LinkedHashMap<>();
+		for (int i = 0; i < objects.size(); i++) {
+			if (objects.get(i) != null) {
+				items.put(keys.get(i), objects.get(i));
+			}
+		}
+		return new ScanPage<>(items, cursor);
+	}
+
+	/**
+	 * Stretches the TTL by a random share of up to the configured jitter, so
+	 * keys written or touched together expire spread over a window instead
+	 * of all at once.
+	 *
+	 * @param ttlMillis the TTL in milliseconds, 0 or less for no expiry
+	 * @return the jittered TTL, 0 for no expiry
+	 */
+	protected long expiry(long ttlMillis) {
+		if (ttlMillis <= 0) {
+			return 0;
+		}
+		long spread = ttlMillis * ttlJitterPercent / 100;
+		return spread > 0 ? ttlMillis + ThreadLocalRandom.current().nextLong(spread + 1) : ttlMillis;
+	}
+
+	/**
+	 * Runs the call on the async executor, under the read-your-writes state
+	 * of the caller, and a write it makes opens the read-your-writes window
+	 * of the caller before the future completes. When the executor queue is
+	 * full the returned future fails with a
+	 * {@link RejectedExecutionException} instead of blocking the caller. The
+	 * metrics time the call from its submission to its completion, queueing
+	 * included.
+	 *
+	 * @param <R> the generic type
+	 * @param metrics the metrics of the async operation
+	 * @param call the call
+	 * @return the completable future
+	 */
+	protected <R> CompletableFuture<R> async(OperationMetrics metrics, Callable<R> call) {
+		long start = metrics.start();
+		CompletableFuture<R> future = new CompletableFuture<>();
+		Callable<R> task = ReadYourWrites.propagate(call);
+		try {
+			asyncExecutor.execute(() -> {
+				try {
+					future.complete(task.call());
+				} catch (Throwable t) {
+					future.completeExceptionally(t);
+				}
+			});
+		} catch (RejectedExecutionException ree) {
+			LOG.warn("Async operation rejected, executor queue is full");
+			future.completeExceptionally(ree);
+		}
+		return timed(metrics, start, future);
+	}
+
+	/**
+	 * Records the completion of the future in the metrics.
+	 *
+	 * @param <R> the generic type
+	 * @param metrics the metrics
+	 * @param start the start, from {@link OperationMetrics#start()}
+	 * @param future the future
+	 * @return the future completing after the metrics are recorded
+	 */
+	protected <R> CompletableFuture<R> timed(OperationMetrics metrics, long start, CompletableFuture<R> future) {
+		return future.whenComplete((result, error) -> {
+			if (error != null) {
+				metrics.error();
+			}
+			metrics.stop(start);
+		});
+	}
+
+	/**
+	 * Runs one call of an operation, the flow every backend operation shares:
+	 * the call is timed in the metrics, and its failure is counted, logged
+	 * under the logger of the backend and rethrown.
+	 *
+	 * @param <R> the generic type
+	 * @param <E> the checked exception of the call
+	 * @param metrics the metrics of the operation
+	 * @param action what the operation does, for the error log
+	 * @param call the call
+	 * @return the result of the call
+	 * @throws E the exception of the call
+	 */
+	protected <R, E extends Exception> R measured(OperationMetrics metrics, String action, OperationCall<R, E> call)
+			throws E {
+		long start = metrics.start();
+		try {
+			return call.call();
+		} catch (Exception ex) {
+			metrics.error();
+			LogManager.getLogger(getClass()).error("{} when trying to {}",
+					ex instanceof IOException ? "I/O Error" : "Error", action, ex);
+			throw ex;
+		} finally {
+			metrics.stop(start);
+		}
+	}
+
+	/**
+	 * Serialize object, compressed when the codec registry says so.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param object
+	 *            the object
+	 * @return the byte[]
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T extends Serializable> byte[] serializeObject(T object) throws IOException {
+		ValueCodec<T> codec = codecs.getCodec((Class<T>) object.getClass());
+		return codecs.getCompressor().compress(codec.encode(object));
+	}
+
+	/**
+	 * Serialize object behind the header of its version.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param object
+	 *            the object
+	 * @param version
+	 *            the version
+	 * @return the byte[]
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	protected <T extends Serializable> byte[] serializeVersioned(T object, long version) throws IOException {
+		return VersionHeader.wrap(version, serializeObject(object));
+	}
+
+	/**
+	 * Deserialize a stored value with its version.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param bytes
+	 *            the bytes, null if the key does not exist
+	 * @param type
+	 *            the type
+	 * @return the versioned object, null if the key does not exist
+	 * @throws Exception
+	 *             the exception
+	 */
+	protected <T extends Serializable> Versioned<T> deserializeVersioned(byte[] bytes, Class<T> type)
+			throws Exception {
+		if (bytes == null) {
+			return null;
+		}
+		return new Versioned<>(deserializeObject(bytes, type), VersionHeader.version(bytes));
+	}
+
+	/**
+	 * Builds the conflict of a versioned write from the stored value.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param stored
+	 *            the stored value, null if the key does not exist
+	 * @param object
+	 *            the object that was not written
+	 * @return the conflict
+	 * @throws Exception
+	 *             the exception
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T extends Serializable> VersionedWrite<T> conflict(byte[] stored, T object) throws Exception {
+		T current = stored != null ? deserializeObject(stored, (Class<T>) object.getClass()) : null;
+		return VersionedWrite.conflict(VersionHeader.version(stored), current);
+	}
+
+	/**
+	 * Deserialize object, dropping the version header and decompressing
+	 * compressed values.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param bytes
+	 *            the bytes
+	 * @param type
+	 *            the type
+	 * @return the t
+	 * @throws Exception
+	 *             the exception
+	 */
+	protected <T extends Serializable> T deserializeObject(byte[] bytes, Class<T> type) throws Exception {
+		return codecs.getCodec(type).decode(codecs.getCompressor().decompress(VersionHeader.strip(bytes)));
+	}
+
+	/**
+	 * One call of an operation, see
+	 * {@link AbstractRedisOperations#measured(OperationMetrics, String, OperationCall)}.
+	 *
+	 * @param <R> the generic type
+	 * @param <E> the checked exception of the call
+	 */
+	@FunctionalInterface
+	protected interface OperationCall<R, E extends Exception> {
+
+		/**
+		 * Runs the call.
+		 *
+		 * @return the result
+		 * @throws E the exception
+		 */
+		R call() throws E;
+
+	}
+
+}
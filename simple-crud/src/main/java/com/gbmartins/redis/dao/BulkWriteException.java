@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Class BulkWriteException.
+ * <p>
+ * Thrown when one or more chunks of a bulk write failed. Chunks are written
+ * independently, so every key outside of {@link #getFailures()} was stored.
+ */
+public class BulkWriteException extends IOException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 4508432118526421737L;
+
+	/** The number of chunks. */
+	private final int chunks;
+
+	/** The failures. */
+	private final List<ChunkFailure> failures;
+
+	/**
+	 * Instantiates a new bulk write exception.
+	 *
+	 * @param chunks
+	 *            the number of chunks
+	 * @param failures
+	 *            the failures
+	 */
+	public BulkWriteException(int chunks, List<ChunkFailure> failures) {
+		super(failures.size() + " of " + chunks + " bulk chunks failed", failures.get(0).getCause());
+		this.chunks = chunks;
+		this.failures = Collections.unmodifiableList(failures);
+	}
+
+	/**
+	 * Gets the number of chunks.
+	 *
+	 * @return the chunks
+	 */
+	public int getChunks() {
+		return chunks;
+	}
+
+	/**
+	 * Gets the failures.
+	 *
+	 * @return the failures
+	 */
+	public List<ChunkFailure> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * The Class ChunkFailure.
+	 */
+	public static class ChunkFailure implements Serializable {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = -3362911306497460131L;
+
+		/** The chunk index. */
+		private final int index;
+
+		/** The keys of the chunk. */
+		private final List<String> keys;
+
+		/** The cause. */
+		private final Throwable cause;
+
+		/**
+		 * Instantiates a new chunk failure.
+		 *
+		 * @param index
+		 *            the index
+		 * @param keys
+		 *            the keys
+		 * @param cause
+		 *            the cause
+		 */
+		public ChunkFailure(int index, List<String> keys, Throwable cause) {
+			super();
+			this.index = index;
+			this.keys = keys;
+			this.cause = cause;
+		}
+
+		/**
+		 * Gets the chunk index.
+		 *
+		 * @return the index
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * Gets the keys of the chunk.
+		 *
+		 * @return the keys
+		 */
+		public List<String> getKeys() {
+			return keys;
+		}
+
+		/**
+		 * Gets the cause.
+		 *
+		 * @return the cause
+		 */
+		public Throwable getCause() {
+			return cause;
+		}
+	}
+
+}
@@ -0,0 +1,1497 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gbmartins.redis.dao.BulkWriteException.ChunkFailure;
+import com.gbmartins.redis.dao.batch.ReadBatcher;
+import com.gbmartins.redis.dao.cache.EvictionPolicy;
+import com.gbmartins.redis.dao.cache.NearCache;
+import com.gbmartins.redis.dao.cache.NearCacheInvalidator;
+import com.gbmartins.redis.dao.codec.CodecRegistry;
+import com.gbmartins.redis.dao.index.LexIndex;
+import com.gbmartins.redis.dao.index.WriteCondition;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.dao.replica.ReplicaPools;
+import com.gbmartins.redis.dao.scan.ScanPage;
+import com.gbmartins.redis.dao.script.ScriptRegistry;
+import com.gbmartins.redis.dao.script.UpsertResult;
+import com.gbmartins.redis.dao.version.VersionHeader;
+import com.gbmartins.redis.dao.version.Versioned;
+import com.gbmartins.redis.dao.version.VersionedWrite;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * The Class JedisOperations.
+ * <p>
+ * The {@link RedisOperations} of a standalone Redis server, reached through
+ * the pooled Jedis connections. Created by {@link RedisBackendConfiguration}.
+ * <p>
+ * When replica nodes are configured, object and hash reads go to the
+ * {@link ReplicaPools} unless the calling thread is pinned to the primary
+ * by {@link com.gbmartins.redis.dao.replica.ReadYourWrites}. Writes always go
+ * to the primary. Only primary reads fill the near cache.
+ */
+public class JedisOperations extends AbstractRedisOperations {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(JedisOperations.class);
+
+	/** The status reply of a write. */
+	private static final String OK = "OK";
+
+	/** The redis factory. */
+	private RedisPoolConnection redisFactory;
+
+	/** The scripts. */
+	private final ScriptRegistry scripts;
+
+	/** The replica pools, null when reads go to the primary. */
+	private ReplicaPools replicas;
+
+	/** The near cache, null when disabled. */
+	private NearCache nearCache;
+
+	/** The near cache invalidator, null when disabled. */
+	private NearCacheInvalidator nearCacheInvalidator;
+
+	/** The read batcher, null when disabled. */
+	private ReadBatcher readBatcher;
+
+	/** The longest wait for a batched read, in milliseconds. */
+	private long batchedReadTimeoutMillis;
+
+	/** The executor writing bulk chunks. */
+	private ThreadPoolExecutor bulkExecutor;
+
+	/** The bulk chunk size. */
+	private int bulkChunkSize;
+
+	/** The multi-get chunk size. */
+	private int mgetChunkSize;
+
+	/** The metrics of saveOrUpdateObject. */
+	private final OperationMetrics saveMetrics;
+
+	/** The metrics of saveIfAbsent. */
+	private final OperationMetrics saveIfAbsentMetrics;
+
+	/** The metrics of updateIfPresent. */
+	private final OperationMetrics updateIfPresentMetrics;
+
+	/** The metrics of getObject. */
+	private final OperationMetrics getMetrics;
+
+	/** The metrics of saveOrUpdateBulkObject. */
+	private final OperationMetrics bulkMetrics;
+
+	/** The metrics of multi-gets. */
+	private final OperationMetrics multiGetMetrics;
+
+	/** The metrics of saveOrUpdateHash. */
+	private final OperationMetrics saveHashMetrics;
+
+	/** The metrics of updateHashFields. */
+	private final OperationMetrics updateHashMetrics;
+
+	/** The metrics of getHashFields. */
+	private final OperationMetrics getHashFieldsMetrics;
+
+	/** The metrics of getHash. */
+	private final OperationMetrics getHashMetrics;
+
+	/** The metrics of deleteKeys. */
+	private final OperationMetrics deleteMetrics;
+
+	/** The metrics of saveIndexedObject. */
+	private final OperationMetrics saveIndexedMetrics;
+
+	/** The metrics of saveIndexedBulkObject. */
+	private final OperationMetrics bulkIndexedMetrics;
+
+	/** The metrics of saveIndexedHash. */
+	private final OperationMetrics saveIndexedHashMetrics;
+
+	/** The metrics of deleteIndexedKeys. */
+	private final OperationMetrics deleteIndexedMetrics;
+
+	/** The metrics of index lookups. */
+	private final OperationMetrics indexRangeMetrics;
+
+	/** The metrics of getVersionedObject. */
+	private final OperationMetrics getVersionedMetrics;
+
+	/** The metrics of saveVersionedObject. */
+	private final OperationMetrics saveVersionedMetrics;
+
+	/** The metrics of upsertObject. */
+	private final OperationMetrics upsertMetrics;
+
+	/** The metrics of compareAndSet. */
+	private final OperationMetrics compareAndSetMetrics;
+
+	/** The metrics of deleteIfEquals. */
+	private final OperationMetrics deleteIfEqualsMetrics;
+
+	/** The metrics of scanObjects. */
+	private final OperationMetrics scanMetrics;
+
+	/** The metrics of getAndTouchObject. */
+	private final OperationMetrics touchMetrics;
+
+	/** The metrics of saveIndexedObjects. */
+	private final OperationMetrics saveIndexedObjectsMetrics;
+
+	/** The metrics of scriptLoad. */
+	private final OperationMetrics scriptLoadMetrics;
+
+	/**
+	 * Instantiates a new jedis operations.
+	 *
+	 * @param redisFactory
+	 *            the redis factory
+	 * @param codecs
+	 *            the codecs
+	 * @param scripts
+	 *            the scripts
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 * @param metrics
+	 *            the metrics
+	 */
+	public JedisOperations(RedisPoolConnection redisFactory, CodecRegistry codecs, ScriptRegistry scripts,
+			RedisInstanceSetup redisInstanceSetup, RedisMetrics metrics) {
+		super(codecs, redisInstanceSetup, metrics);
+		this.redisFactory = redisFactory;
+		this.scripts = scripts;
+		this.saveMetrics = metrics.get("redis.saveOrUpdateObject");
+		this.saveIfAbsentMetrics = metrics.get("redis.saveIfAbsent");
+		this.updateIfPresentMetrics = metrics.get("redis.updateIfPresent");
+		this.getMetrics = metrics.get("redis.getObject");
+		this.bulkMetrics = metrics.get("redis.saveOrUpdateBulkObject");
+		this.multiGetMetrics = metrics.get("redis.multiGetObject");
+		this.saveHashMetrics = metrics.get("redis.saveOrUpdateHash");
+		this.updateHashMetrics = metrics.get("redis.updateHashFields");
+		this.getHashFieldsMetrics = metrics.get("redis.getHashFields");
+		this.getHashMetrics = metrics.get("redis.getHash");
+		this.deleteMetrics = metrics.get("redis.deleteKeys");
+		this.saveIndexedMetrics = metrics.get("redis.saveIndexedObject");
+		this.bulkIndexedMetrics = metrics.get("redis.saveIndexedBulkObject");
+		this.saveIndexedHashMetrics = metrics.get("redis.saveIndexedHash");
+		this.deleteIndexedMetrics = metrics.get("redis.deleteIndexedKeys");
+		this.indexRangeMetrics = metrics.get("redis.indexRange");
+		this.getVersionedMetrics = metrics.get("redis.getVersionedObject");
+		this.saveVersionedMetrics = metrics.get("redis.saveVersionedObject");
+		this.upsertMetrics = metrics.get("redis.upsertObject");
+		this.compareAndSetMetrics = metrics.get("redis.compareAndSet");
+		this.deleteIfEqualsMetrics = metrics.get("redis.deleteIfEquals");
+		this.scanMetrics = metrics.get("redis.scanObjects");
+		this.touchMetrics = metrics.get("redis.getAndTouchObject");
+		this.saveIndexedObjectsMetrics = metrics.get("redis.saveIndexedObjects");
+		this.scriptLoadMetrics = metrics.get("redis.scriptLoad");
+		this.bulkChunkSize = Math.max(1, redisInstanceSetup.getBulkChunkSize());
+		this.mgetChunkSize = Math.max(1, redisInstanceSetup.getMgetChunkSize());
+		this.bulkExecutor = new ThreadPoolExecutor(redisInstanceSetup.getBulkParallelism(),
+				redisInstanceSetup.getBulkParallelism(), 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				new ThreadFactoryBuilder().setNameFormat("redis-bulk-%d").setDaemon(true).build());
+		this.bulkExecutor.allowCoreThreadTimeOut(true);
+
+		try (Jedis jedis = redisFactory.getResource()) {
+			scripts.loadAll(jedis);
+		} catch (Exception ex) {
+			LOG.warn("Could not load the scripts, they will be sent on first use", ex);
+		}
+
+		if (!Strings.isNullOrEmpty(redisInstanceSetup.getReplicaNodes())) {
+			this.replicas = new ReplicaPools(redisFactory, redisInstanceSetup);
+		}
+
+		if (redisInstanceSetup.isNearCacheEnabled()) {
+			LOG.info("Near cache enabled with Max Size: {}, TTL: {} ms, Eviction: {}",
+					redisInstanceSetup.getNearCacheMaxSize(), redisInstanceSetup.getNearCacheTtlMillis(),
+					redisInstanceSetup.getNearCacheEviction());
+			this.nearCache = new NearCache(redisInstanceSetup.getNearCacheMaxSize(),
+					redisInstanceSetup.getNearCacheTtlMillis(),
+					EvictionPolicy.fromName(redisInstanceSetup.getNearCacheEviction()));
+			if (redisInstanceSetup.isNearCacheInvalidation()) {
+				this.nearCacheInvalidator = new NearCacheInvalidator(nearCache, redisInstanceSetup);
+				this.nearCacheInvalidator.start();
+			}
+		}
+
+		if (redisInstanceSetup.isBatchEnabled()) {
+			LOG.info("Read batching enabled with Max Size: {}, Max Delay: {} us", redisInstanceSetup.getBatchMaxSize(),
+					redisInstanceSetup.getBatchMaxDelayMicros());
+			this.readBatcher = new ReadBatcher(replicas != null ? replicas::getResource : redisFactory::getResource,
+					redisInstanceSetup.getBatchMaxSize(),
+					redisInstanceSetup.getBatchMaxDelayMicros());
+			this.readBatcher.start();
+			// the batch may wait for a connection, to connect, then for the reply
+			this.batchedReadTimeoutMillis = Math.max(0, redisInstanceSetup.getPoolMaxWaitMillis())
+					+ redisInstanceSetup.getConnectionTimeout() + redisInstanceSetup.getSoTimeout()
+					+ TimeUnit.MICROSECONDS.toMillis(redisInstanceSetup.getBatchMaxDelayMicros()) + 1000;
+		}
+	}
+
+	/**
+	 * Stops the background listeners.
+	 */
+	@Override
+	@PreDestroy
+	public void destroy() {
+		if (nearCacheInvalidator != null) {
+			nearCacheInvalidator.close();
+		}
+		if (readBatcher != null) {
+			readBatcher.close();
+		}
+		bulkExecutor.shutdown();
+		super.destroy();
+		if (replicas != null) {
+			replicas.close();
+		}
+	}
+
+
+	/**
+	 * Save or update object with a plain SET, or a PSETEX (SET PX) when it
+	 * expires. Like every plain write, it drops the version header of a
+	 * record written by
+	 * {@link #saveVersionedObject(String, Serializable, long)}, which puts
+	 * the record back at version 0.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param ttlMillis the TTL in milliseconds, 0 to keep the object forever
+	 * @return the string
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public <T extends Serializable> String saveOrUpdateObject(String key, T object, long ttlMillis)
+			throws IOException {
+		return setObject(key, object, null, ttlMillis, saveMetrics);
+	}
+
+	/**
+	 * Save the object only if the key does not exist yet (SET NX). The check
+	 * and the write are a single atomic command.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @return "OK", or null if the key already exists
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public <T extends Serializable> String saveIfAbsent(String key, T object) throws IOException {
+		return setObject(key, object, NX, 0, saveIfAbsentMetrics);
+	}
+
+	/**
+	 * Update the object only if the key already exists (SET XX). The check
+	 * and the write are a single atomic command.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @return "OK", or null if the key does not exist
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public <T extends Serializable> String updateIfPresent(String key, T object) throws IOException {
+		return setObject(key, object, XX, 0, updateIfPresentMetrics);
+	}
+
+	/**
+	 * Set object.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param nxxx NX, XX or null for an unconditional SET
+	 * @param ttlMillis the TTL of an unconditional SET, 0 for none
+	 * @param metrics the metrics of the calling operation
+	 * @return the string
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private <T extends Serializable> String setObject(String key, T object, byte[] nxxx, long ttlMillis,
+			OperationMetrics metrics) throws IOException {
+		return measured(metrics, "save object", () -> {
+			byte[] bytes = serializeObject(object);
+			metrics.bytes(bytes.length);
+			String result = null;
+
+			try (Jedis jedis = redisFactory.getResource()) {
+				long ttl = expiry(ttlMillis);
+				if (nxxx == null && ttl > 0) {
+					result = jedis.psetex(key.getBytes(), ttl, bytes);
+				} else if (nxxx == null) {
+					result = jedis.set(key.getBytes(), bytes);
+				} else {
+					result = jedis.set(key.getBytes(), bytes, nxxx);
+				}
+			}
+			invalidate(key);
+			written();
+			return result;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getVersionedObject(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public <T extends Serializable> Versioned<T> getVersionedObject(String key, Class<T> type) throws Exception {
+		return measured(getVersionedMetrics, "get versioned object", () -> {
+			byte[] bytes;
+			try (Jedis jedis = redisFactory.getResource()) {
+				bytes = jedis.get(key.getBytes());
+			}
+			if (bytes != null) {
+				getVersionedMetrics.bytes(bytes.length);
+			}
+			return deserializeVersioned(bytes, type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveVersionedObject(java.lang.String, java.io.Serializable, long, java.util.Map)
+	 */
+	@Override
+	public <T extends Serializable> VersionedWrite<T> saveVersionedObject(String key, T object, long expectedVersion,
+			Map<String, String> terms) throws Exception {
+		return measured(saveVersionedMetrics, "save versioned object", () -> {
+			byte[] bytes = serializeVersioned(object, expectedVersion + 1);
+			saveVersionedMetrics.bytes(bytes.length);
+			List<byte[]> args = LexIndex.scriptArgs(LexIndex.OP_SET_VERSION, terms);
+			args.add(VersionHeader.header(expectedVersion));
+			args.add(bytes);
+
+			List<?> reply;
+			try (Jedis jedis = redisFactory.getResource()) {
+				reply = evalWrite(jedis, LexIndex.scriptKeys(key, terms.keySet(), true), args);
+			}
+			invalidate(key);
+			written();
+			if (LexIndex.written(reply)) {
+				return VersionedWrite.written(expectedVersion + 1);
+			}
+			return conflict(LexIndex.storedValue(reply), object);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#upsertObject(java.lang.String, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> UpsertResult upsertObject(String key, T object) throws IOException {
+		return measured(upsertMetrics, "upsert object", () -> {
+			byte[] bytes = serializeObject(object);
+			upsertMetrics.bytes(bytes.length);
+
+			Object reply;
+			try (Jedis jedis = redisFactory.getResource()) {
+				reply = scripts.eval(jedis, ScriptRegistry.UPSERT, Collections.singletonList(key.getBytes()),
+						Collections.singletonList(bytes));
+			}
+			invalidate(key);
+			written();
+			return UpsertResult.fromReply((Long) reply);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#compareAndSet(java.lang.String, java.io.Serializable, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> boolean compareAndSet(String key, T expected, T update) throws IOException {
+		return measured(compareAndSetMetrics, "compare and set object", () -> {
+			byte[] bytes = serializeObject(update);
+			compareAndSetMetrics.bytes(bytes.length);
+			List<byte[]> args = expected == null ? Arrays.asList(ABSENT, new byte[0], bytes)
+					: Arrays.asList(PRESENT, serializeObject(expected), bytes);
+
+			Object reply;
+			try (Jedis jedis = redisFactory.getResource()) {
+				reply = scripts.eval(jedis, ScriptRegistry.COMPARE_AND_SET, Collections.singletonList(key.getBytes()),
+						args);
+			}
+			invalidate(key);
+			written();
+			return (Long) reply == 1;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#deleteIfEquals(java.util.Map)
+	 */
+	@Override
+	public <T extends Serializable> long deleteIfEquals(Map<String, T> expected) throws IOException {
+		if (expected.isEmpty()) {
+			return 0;
+		}
+
+		return measured(deleteIfEqualsMetrics, "delete keys if equal", () -> {
+			List<byte[]> keys = new ArrayList<>(expected.size());
+			List<byte[]> args = new ArrayList<>(expected.size());
+			for (Entry<String, T> pair : expected.entrySet()) {
+				keys.add(pair.getKey().getBytes());
+				args.add(serializeObject(pair.getValue()));
+			}
+
+			Object reply;
+			try (Jedis jedis = redisFactory.getResource()) {
+				reply = scripts.eval(jedis, ScriptRegistry.DELETE_IF_EQUALS, keys, args);
+			}
+			for (String key : expected.keySet()) {
+				invalidate(key);
+			}
+			written();
+			return (Long) reply;
+		});
+	}
+
+	/**
+	 * Gets the object.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param key
+	 *            the key
+	 * @param type
+	 *            the type
+	 * @return the object
+	 * @throws Exception
+	 *             the exception
+	 */
+	@Override
+	public <T extends Serializable> T getObject(String key, Class<T> type) throws Exception {
+		return measured(getMetrics, "get object", () -> {
+			byte[] bytes = null;
+			long stamp = 0;
+			boolean pinned = pinned();
+
+			if (nearCache != null) {
+				bytes = nearCache.get(key);
+				if (bytes != null) {
+					getMetrics.bytes(bytes.length);
+					return deserializeObject(bytes, type);
+				}
+				stamp = nearCache.stamp(key);
+			}
+
+			if (readBatcher != null && !pinned) {
+				bytes = await(readBatcher.get(key));
+			} else {
+				try (Jedis jedis = reader(pinned)) {
+					bytes = jedis.get(key.getBytes());
+				}
+			}
+
+			if (nearCache != null && bytes != null && readsPrimary(pinned)) {
+				nearCache.put(key, bytes, stamp);
+			}
+
+			if (bytes == null) {
+				return null;
+			}
+
+			getMetrics.bytes(bytes.length);
+			return deserializeObject(bytes, type);
+		});
+	}
+
+	/**
+	 * Gets the object and restarts its TTL with a pipelined GET and PEXPIRE on
+	 * the primary, the near cache and the replicas are skipped: the PEXPIRE
+	 * has to reach the primary anyway.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param type the type
+	 * @param ttlMillis the TTL in milliseconds
+	 * @return the object
+	 * @throws Exception the exception
+	 */
+	@Override
+	public <T extends Serializable> T getAndTouchObject(String key, Class<T> type, long ttlMillis) throws Exception {
+		if (ttlMillis <= 0) {
+			throw new IllegalArgumentException("ttlMillis must be positive");
+		}
+
+		return measured(touchMetrics, "get and touch object", () -> {
+			Response<byte[]> response;
+			long ttl = expiry(ttlMillis);
+			try (Jedis jedis = redisFactory.getResource()) {
+				Pipeline p = jedis.pipelined();
+				response = p.get(key.getBytes());
+				p.pexpire(key.getBytes(), ttl);
+				p.pexpire(LexIndex.bytes(LexIndex.termsKey(key)), ttl);
+				p.sync();
+			}
+			byte[] bytes = response.get();
+			if (bytes == null) {
+				return null;
+			}
+			touchMetrics.bytes(bytes.length);
+			return deserializeObject(bytes, type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getTtlMillis(java.lang.String)
+	 */
+	@Override
+	public long getTtlMillis(String key) {
+		try (Jedis jedis = reader(pinned())) {
+			return jedis.pttl(key.getBytes());
+		}
+	}
+
+	/**
+	 * Save or update bulk object. Bulks larger than the configured chunk size
+	 * are split in chunks that are serialized and pipelined concurrently, each
+	 * on its own pooled connection.
+	 *
+	 * @param <T> the generic type
+	 * @param bulk the bulk
+	 * @param ttlMillis the TTL in milliseconds, 0 to keep the objects forever
+	 * @throws BulkWriteException if some chunks failed, the other chunks are stored
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public <T extends Serializable> void saveOrUpdateBulkObject(Map<String, T> bulk, long ttlMillis)
+			throws IOException {
+		writeBulk(bulk, null, ttlMillis, bulkMetrics);
+	}
+
+	/**
+	 * Save indexed bulk object, chunked and pipelined like
+	 * {@link #saveOrUpdateBulkObject(Map, long)}.
+	 *
+	 * @param <T> the generic type
+	 * @param bulk the bulk
+	 * @param terms the terms of each object
+	 * @param ttlMillis the TTL in milliseconds, 0 to keep the objects forever
+	 * @throws BulkWriteException if some chunks failed, the other chunks are stored
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public <T extends Serializable> void saveIndexedBulkObject(Map<String, T> bulk,
+			Function<? super T, Map<String, String>> terms, long ttlMillis) throws IOException {
+		if (terms == null) {
+			throw new RuntimeException("terms cannot be null");
+		}
+		writeBulk(bulk, terms, ttlMillis, bulkIndexedMetrics);
+	}
+
+	/**
+	 * Writes the bulk in chunks.
+	 *
+	 * @param <T> the generic type
+	 * @param bulk the bulk
+	 * @param terms the terms of each object, null for plain SETs
+	 * @param ttlMillis the TTL in milliseconds, 0 for none
+	 * @param metrics the metrics of the calling operation
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private <T extends Serializable> void writeBulk(Map<String, T> bulk,
+			Function<? super T, Map<String, String>> terms, long ttlMillis, OperationMetrics metrics)
+			throws IOException {
+
+		if (bulk == null) {
+			throw new RuntimeException("bulk cannot be null or empty");
+		}
+
+		try {
+			measured(metrics, "save bulk object", () -> {
+				writeChunks(bulk, terms, ttlMillis, metrics);
+				return null;
+			});
+		} finally {
+			written();
+		}
+	}
+
+	/**
+	 * Writes the bulk, in one chunk on the calling thread when it is small
+	 * enough, otherwise in chunks written concurrently on the bulk executor.
+	 *
+	 * @param <T> the generic type
+	 * @param bulk the bulk
+	 * @param terms the terms of each object, null for plain SETs
+	 * @param ttlMillis the TTL in milliseconds, 0 for none
+	 * @param metrics the metrics of the calling operation
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private <T extends Serializable> void writeChunks(Map<String, T> bulk,
+			Function<? super T, Map<String, String>> terms, long ttlMillis, OperationMetrics metrics)
+			throws IOException {
+		if (bulk.size() <= bulkChunkSize) {
+			writeChunk(bulk.entrySet(), terms, ttlMillis, metrics);
+			return;
+		}
+
+		List<List<Entry<String, T>>> chunks = Lists.partition(new ArrayList<>(bulk.entrySet()), bulkChunkSize);
+		List<Future<?>> futures = new ArrayList<>(chunks.size());
+		for (List<Entry<String, T>> chunk : chunks) {
+			futures.add(bulkExecutor.submit(() -> {
+				writeChunk(chunk, terms, ttlMillis, metrics);
+				return null;
+			}));
+		}
+
+		List<ChunkFailure> failures = new ArrayList<>();
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).get();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted when trying to save bulk object");
+			} catch (ExecutionException ee) {
+				List<String> keys = new ArrayList<>(chunks.get(i).size());
+				for (Entry<String, T> entry : chunks.get(i)) {
+					keys.add(entry.getKey());
+				}
+				failures.add(new ChunkFailure(i, keys, ee.getCause()));
+			}
+		}
+
+		if (!failures.isEmpty()) {
+			throw new BulkWriteException(chunks.size(), failures);
+		}
+	}
+
+	/**
+	 * Writes one chunk of a bulk in a single pipeline, of SETs (PSETEXs when
+	 * expiring) or of indexed write EVALSHAs. Each key gets its own jittered
+	 * TTL. The values are serialized before anything is sent, and the keys
+	 * are evicted from the near cache even when the chunk fails, as it may
+	 * have been partly written.
+	 *
+	 * @param <T> the generic type
+	 * @param chunk the chunk
+	 * @param terms the terms of each object, null for plain SETs
+	 * @param ttlMillis the TTL in milliseconds, 0 for none
+	 * @param metrics the metrics of the calling operation
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private <T extends Serializable> void writeChunk(Collection<Entry<String, T>> chunk,
+			Function<? super T, Map<String, String>> terms, long ttlMillis, OperationMetrics metrics)
+			throws IOException {
+		List<byte[]> values = new ArrayList<>(chunk.size());
+		for (Entry<String, T> pair : chunk) {
+			byte[] value = serializeObject(pair.getValue());
+			metrics.bytes(value.length);
+			values.add(value);
+		}
+
+		try (Jedis jedis = redisFactory.getResource()) {
+			int i = 0;
+			if (terms == null) {
+				Pipeline p = jedis.pipelined();
+				for (Entry<String, T> pair : chunk) {
+					byte[] value = values.get(i++);
+					long ttl = expiry(ttlMillis);
+					if (ttl > 0) {
+						p.psetex(pair.getKey().getBytes(), ttl, value);
+					} else {
+						p.set(pair.getKey().getBytes(), value);
+					}
+				}
+				p.sync();
+			} else {
+				List<List<byte[]>> keys = new ArrayList<>(chunk.size());
+				List<List<byte[]>> args = new ArrayList<>(chunk.size());
+				for (Entry<String, T> pair : chunk) {
+					Map<String, String> objectTerms = terms.apply(pair.getValue());
+					List<byte[]> objectArgs = LexIndex.scriptArgs(LexIndex.OP_SET, objectTerms);
+					LexIndex.valueArgs(objectArgs, values.get(i++), expiry(ttlMillis));
+					keys.add(LexIndex.scriptKeys(pair.getKey(), objectTerms.keySet(), true));
+					args.add(objectArgs);
+				}
+				throwFirstError(scripts.evalAll(jedis, ScriptRegistry.INDEXED_WRITE, keys, args));
+			}
+		} finally {
+			for (Entry<String, T> pair : chunk) {
+				invalidate(pair.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Gets the objects aligned to the keys: the value of <code>keys.get(i)</code>
+	 * is at index <code>i</code>, null when the key is missing.
+	 *
+	 * @param <T>            the generic type
+	 * @param keys            the keys
+	 * @param type            the type
+	 * @return the values, aligned to the keys
+	 * @throws Exception the exception
+	 */
+	@Override
+	public <T extends Serializable> List<T> multiGetObject(List<String> keys, Class<T> type) throws Exception {
+		if (keys == null || keys.isEmpty()) {
+			throw new RuntimeException("keys cannot be null or empty");
+		}
+
+		return measured(multiGetMetrics, "get list object", () -> decodeAll(fetchAll(keys), type));
+	}
+
+	/**
+	 * Fetches the raw values of the keys, aligned to the keys. Near cache
+	 * misses are read with MGET; above the configured chunk size the MGETs
+	 * run concurrently on several pooled connections. The values read fill
+	 * the near cache only when they come from the primary.
+	 *
+	 * @param keys the keys
+	 * @return the values
+	 * @throws Exception the exception
+	 */
+	private byte[][] fetchAll(List<String> keys) throws Exception {
+		boolean pinned = pinned();
+		byte[][] values = new byte[keys.size()][];
+		long[] stamps = new long[keys.size()];
+		List<Integer> misses = new ArrayList<>(keys.size());
+
+		for (int i = 0; i < keys.size(); i++) {
+			if (nearCache != null) {
+				values[i] = nearCache.get(keys.get(i));
+				stamps[i] = nearCache.stamp(keys.get(i));
+			}
+			if (values[i] == null) {
+				misses.add(i);
+			}
+		}
+
+		if (misses.isEmpty()) {
+			return values;
+		}
+
+		List<List<Integer>> chunks = Lists.partition(misses, mgetChunkSize);
+		if (chunks.size() == 1) {
+			mget(keys, misses, values, pinned);
+		} else {
+			List<Future<?>> futures = new ArrayList<>(chunks.size());
+			for (List<Integer> chunk : chunks) {
+				futures.add(bulkExecutor.submit(() -> {
+					mget(keys, chunk, values, pinned);
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException ee) {
+					Throwable cause = ee.getCause();
+					if (cause instanceof Exception) {
+						throw (Exception) cause;
+					}
+					throw ee;
+				}
+			}
+		}
+
+		if (nearCache != null && readsPrimary(pinned)) {
+			for (int i : misses) {
+				if (values[i] != null) {
+					nearCache.put(keys.get(i), values[i], stamps[i]);
+				}
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Reads the keys at the given indexes with a single MGET.
+	 *
+	 * @param keys the keys
+	 * @param indexes the indexes to read
+	 * @param values the values, filled at the same indexes
+	 * @param pinned the flag to read from the primary
+	 */
+	private void mget(List<String> keys, List<Integer> indexes, byte[][] values, boolean pinned) {
+		byte[][] raw = new byte[indexes.size()][];
+		for (int m = 0; m < raw.length; m++) {
+			raw[m] = keys.get(indexes.get(m)).getBytes();
+		}
+
+		List<byte[]> responses;
+		try (Jedis jedis = reader(pinned)) {
+			responses = jedis.mget(raw);
+		}
+
+		for (int m = 0; m < raw.length; m++) {
+			byte[] value = responses.get(m);
+			if (value != null) {
+				multiGetMetrics.bytes(value.length);
+			}
+			values[indexes.get(m)] = value;
+		}
+	}
+
+	/**
+	 * Save or update a hash, replacing every field currently stored under the
+	 * key. Null values are not stored. The delete and the write run in one
+	 * transaction.
+	 *
+	 * @param key
+	 *            the key
+	 * @param fields
+	 *            the fields
+	 */
+	@Override
+	public void saveOrUpdateHash(String key, Map<String, String> fields) {
+		if (fields == null || fields.isEmpty()) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		Map<String, String> values = new HashMap<>(fields.size());
+		for (Entry<String, String> field : fields.entrySet()) {
+			if (field.getValue() != null) {
+				values.put(field.getKey(), field.getValue());
+			}
+		}
+
+		measured(saveHashMetrics, "save hash", () -> {
+			try (Jedis jedis = redisFactory.getResource()) {
+				Transaction t = jedis.multi();
+				t.del(key);
+				if (!values.isEmpty()) {
+					t.hmset(key, values);
+				}
+				t.exec();
+			}
+			written();
+			return null;
+		});
+	}
+
+	/**
+	 * Update hash fields in place, leaving the other fields untouched. A null
+	 * value removes the field. A single non null field costs a single HSET.
+	 *
+	 * @param key
+	 *            the key
+	 * @param fields
+	 *            the fields
+	 */
+	@Override
+	public void updateHashFields(String key, Map<String, String> fields) {
+		if (fields == null || fields.isEmpty()) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		Map<String, String> values = new HashMap<>(fields.size());
+		List<String> removed = new ArrayList<>();
+		for (Entry<String, String> field : fields.entrySet()) {
+			if (field.getValue() != null) {
+				values.put(field.getKey(), field.getValue());
+			} else {
+				removed.add(field.getKey());
+			}
+		}
+
+		measured(updateHashMetrics, "update hash fields", () -> {
+			try (Jedis jedis = redisFactory.getResource()) {
+				if (removed.isEmpty() && values.size() == 1) {
+					Entry<String, String> field = values.entrySet().iterator().next();
+					jedis.hset(key, field.getKey(), field.getValue());
+				} else if (removed.isEmpty()) {
+					jedis.hmset(key, values);
+				} else {
+					Pipeline p = jedis.pipelined();
+					if (!values.isEmpty()) {
+						p.hmset(key, values);
+					}
+					p.hdel(key, removed.toArray(new String[removed.size()]));
+					p.sync();
+				}
+			}
+			written();
+			return null;
+		});
+	}
+
+	/**
+	 * Gets only the requested hash fields. Missing fields are mapped to null.
+	 *
+	 * @param key
+	 *            the key
+	 * @param fields
+	 *            the fields
+	 * @return the hash fields, in the requested order
+	 */
+	@Override
+	public Map<String, String> getHashFields(String key, String... fields) {
+		if (fields == null || fields.length == 0) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		List<String> values = measured(getHashFieldsMetrics, "get hash fields", () -> {
+			try (Jedis jedis = reader(pinned())) {
+				return jedis.hmget(key, fields);
+			}
+		});
+
+		Map<String, String> result = new LinkedHashMap<>(fields.length);
+		for (int i = 0; i < fields.length; i++) {
+			result.put(fields[i], values.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the whole hash.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the hash, empty if the key does not exist
+	 */
+	@Override
+	public Map<String, String> getHash(String key) {
+		return measured(getHashMetrics, "get hash", () -> {
+			try (Jedis jedis = reader(pinned())) {
+				return jedis.hgetAll(key);
+			}
+		});
+	}
+
+	/**
+	 * Delete keys.
+	 *
+	 * @param keys
+	 *            the keys
+	 * @return the long
+	 */
+	@Override
+	public long deleteKeys(String... keys) {
+		long numberDeleted = measured(deleteMetrics, "delete keys", () -> {
+			try (Jedis jedis = redisFactory.getResource()) {
+				return jedis.del(keys);
+			}
+		});
+		written();
+		for (String key : keys) {
+			invalidate(key);
+		}
+		return numberDeleted;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedObject(java.lang.String, java.io.Serializable, com.gbmartins.redis.dao.index.WriteCondition, java.util.Map, long)
+	 */
+	@Override
+	public <T extends Serializable> String saveIndexedObject(String key, T object, WriteCondition condition,
+			Map<String, String> terms, long ttlMillis) throws IOException {
+		return measured(saveIndexedMetrics, "save indexed object", () -> {
+			byte[] bytes = serializeObject(object);
+			saveIndexedMetrics.bytes(bytes.length);
+			List<byte[]> args = LexIndex.scriptArgs(LexIndex.op(condition), terms);
+			LexIndex.valueArgs(args, bytes, expiry(ttlMillis));
+
+			List<?> reply;
+			try (Jedis jedis = redisFactory.getResource()) {
+				reply = evalWrite(jedis, LexIndex.scriptKeys(key, terms.keySet(), true), args);
+			}
+			invalidate(key);
+			written();
+			return LexIndex.written(reply) ? OK : null;
+		});
+	}
+
+	/**
+	 * Conditional indexed writes of the whole bulk in a single pipeline, on
+	 * one connection: the caller bounds the bulk size.
+	 *
+	 * @param <T> the generic type
+	 * @param bulk the bulk
+	 * @param condition the condition
+	 * @param terms the terms of each object
+	 * @return "OK" or null for each key
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public <T extends Serializable> List<String> saveIndexedObjects(Map<String, T> bulk, WriteCondition condition,
+			Function<? super T, Map<String, String>> terms) throws IOException {
+		if (bulk == null) {
+			throw new RuntimeException("bulk cannot be null or empty");
+		}
+
+		try {
+			return measured(saveIndexedObjectsMetrics, "save indexed objects",
+					() -> writeIndexedObjects(bulk, condition, terms));
+		} finally {
+			for (String key : bulk.keySet()) {
+				invalidate(key);
+			}
+		}
+	}
+
+	/**
+	 * Writes the indexed objects in a single pipeline.
+	 *
+	 * @param <T> the generic type
+	 * @param bulk the bulk
+	 * @param condition the condition
+	 * @param terms the terms of each object
+	 * @return "OK" or null for each key
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private <T extends Serializable> List<String> writeIndexedObjects(Map<String, T> bulk, WriteCondition condition,
+			Function<? super T, Map<String, String>> terms) throws IOException {
+		List<List<byte[]>> keys = new ArrayList<>(bulk.size());
+		List<List<byte[]>> args = new ArrayList<>(bulk.size());
+		for (Entry<String, T> pair : bulk.entrySet()) {
+			byte[] value = serializeObject(pair.getValue());
+			saveIndexedObjectsMetrics.bytes(value.length);
+			Map<String, String> objectTerms = terms.apply(pair.getValue());
+			List<byte[]> objectArgs = LexIndex.scriptArgs(LexIndex.op(condition), objectTerms);
+			objectArgs.add(value);
+			keys.add(LexIndex.scriptKeys(pair.getKey(), objectTerms.keySet(), true));
+			args.add(objectArgs);
+		}
+
+		List<Object> replies;
+		try (Jedis jedis = redisFactory.getResource()) {
+			replies = throwFirstError(scripts.evalAll(jedis, ScriptRegistry.INDEXED_WRITE, keys, args));
+		}
+		written();
+
+		List<String> result = new ArrayList<>(replies.size());
+		for (Object reply : replies) {
+			result.add(LexIndex.written((List<?>) reply) ? OK : null);
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedHash(java.lang.String, java.util.Map, boolean, java.util.Map)
+	 */
+	@Override
+	public boolean saveIndexedHash(String key, Map<String, String> fields, boolean replace, Map<String, String> terms) {
+		if (fields == null || fields.isEmpty()) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		List<byte[]> args = LexIndex.scriptArgs(replace ? LexIndex.OP_REPLACE_HASH : LexIndex.OP_UPDATE_HASH, terms);
+		LexIndex.hashArgs(args, fields);
+
+		return measured(saveIndexedHashMetrics, "save indexed hash", () -> {
+			List<?> reply;
+			try (Jedis jedis = redisFactory.getResource()) {
+				reply = evalWrite(jedis, LexIndex.scriptKeys(key, terms.keySet(), true), args);
+			}
+			invalidate(key);
+			written();
+			return LexIndex.written(reply);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#deleteIndexedKeysEach(java.util.Collection, java.lang.String[])
+	 */
+	@Override
+	public List<Boolean> deleteIndexedKeysEach(Collection<String> indexes, String... keys) {
+		Map<String, String> terms = new LinkedHashMap<>(indexes.size() * 2);
+		for (String index : indexes) {
+			terms.put(index, null);
+		}
+		List<byte[]> args = LexIndex.scriptArgs(LexIndex.OP_DELETE, terms);
+
+		List<Boolean> deleted = new ArrayList<>(keys.length);
+		measured(deleteIndexedMetrics, "delete indexed keys", () -> {
+			List<List<byte[]>> scriptKeys = new ArrayList<>(keys.length);
+			for (String key : keys) {
+				scriptKeys.add(LexIndex.scriptKeys(key, indexes, true));
+			}
+			List<Object> replies;
+			try (Jedis jedis = redisFactory.getResource()) {
+				replies = scripts.evalAll(jedis, ScriptRegistry.INDEXED_WRITE, scriptKeys,
+						Collections.nCopies(keys.length, args));
+			}
+			for (Object reply : throwFirstError(replies)) {
+				deleted.add((Long) ((List<?>) reply).get(0) > 0);
+			}
+			written();
+			return null;
+		});
+		for (String key : keys) {
+			invalidate(key);
+		}
+		return deleted;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#indexPrefix(java.lang.String, java.lang.String, int, int)
+	 */
+	@Override
+	public List<String> indexPrefix(String index, String prefix, int offset, int count) {
+		return lexRange(index, LexIndex.prefixMin(prefix), LexIndex.prefixMax(prefix), offset, count);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#indexRange(java.lang.String, java.lang.String, java.lang.String, int, int)
+	 */
+	@Override
+	public List<String> indexRange(String index, String from, String to, int offset, int count) {
+		return lexRange(index, LexIndex.rangeMin(from), LexIndex.rangeMax(to), offset, count);
+	}
+
+	/**
+	 * Reads a page with SCAN and the values of its keys with one MGET on the
+	 * same connection, always on the primary: a SCAN cursor only means
+	 * something to the node that returned it, and each read may pick another
+	 * replica. The near cache is bypassed, a full scan would otherwise evict
+	 * its hot set.
+	 *
+	 * @param <T> the generic type
+	 * @param cursor the cursor
+	 * @param pattern the pattern
+	 * @param count the count
+	 * @param type the type
+	 * @return the page
+	 * @throws Exception the exception
+	 */
+	@Override
+	public <T extends Serializable> ScanPage<T> scanObjects(String cursor, String pattern, int count, Class<T> type)
+			throws Exception {
+		return measured(scanMetrics, "scan objects", () -> {
+			List<String> keys;
+			byte[][] values;
+			String next;
+			try (Jedis jedis = reader(true)) {
+				ScanResult<String> result = jedis.scan(cursor, new ScanParams().match(pattern).count(count));
+				keys = result.getResult();
+				next = result.getStringCursor();
+				values = new byte[keys.size()][];
+				if (!keys.isEmpty()) {
+					byte[][] raw = new byte[keys.size()][];
+					for (int i = 0; i < raw.length; i++) {
+						raw[i] = keys.get(i).getBytes();
+					}
+					values = jedis.mget(raw).toArray(values);
+				}
+			}
+			for (byte[] value : values) {
+				if (value != null) {
+					scanMetrics.bytes(value.length);
+				}
+			}
+			return scanPage(keys, values, next, type);
+		});
+	}
+
+	/**
+	 * Reads a page of the index with ZRANGEBYLEX, then checks its keys with
+	 * a pipeline of EXISTS on the same connection. The members of the keys
+	 * that expired are left out of the page and pruned from the index on the
+	 * primary, see {@link LexIndex#PRUNE_SCRIPT}.
+	 *
+	 * @param index the index
+	 * @param min the min
+	 * @param max the max
+	 * @param offset the offset
+	 * @param count the count
+	 * @return the keys
+	 */
+	private List<String> lexRange(String index, byte[] min, byte[] max, int offset, int count) {
+		return measured(indexRangeMetrics, "read index", () -> {
+			List<byte[]> members;
+			List<Response<Boolean>> exists = new ArrayList<>();
+			try (Jedis jedis = reader(pinned())) {
+				members = new ArrayList<>(jedis.zrangeByLex(LexIndex.bytes(index), min, max, offset, count));
+				if (!members.isEmpty()) {
+					Pipeline p = jedis.pipelined();
+					for (byte[] member : members) {
+						exists.add(p.exists(LexIndex.bytes(LexIndex.keyOf(member))));
+					}
+					p.sync();
+				}
+			}
+
+			List<String> keys = new ArrayList<>(members.size());
+			List<byte[]> pruneKeys = new ArrayList<>();
+			List<byte[]> pruneMembers = new ArrayList<>();
+			pruneKeys.add(LexIndex.bytes(index));
+			for (int i = 0; i < members.size(); i++) {
+				String key = LexIndex.keyOf(members.get(i));
+				if (exists.get(i).get()) {
+					keys.add(key);
+				} else {
+					pruneKeys.add(LexIndex.bytes(key));
+					pruneMembers.add(members.get(i));
+				}
+			}
+			if (!pruneMembers.isEmpty()) {
+				try (Jedis jedis = redisFactory.getResource()) {
+					scripts.eval(jedis, ScriptRegistry.PRUNE_INDEX, pruneKeys, pruneMembers);
+				}
+			}
+			return keys;
+		});
+	}
+
+	/**
+	 * Runs the indexed write script.
+	 *
+	 * @param jedis the jedis
+	 * @param keys the keys
+	 * @param args the args
+	 * @return the reply
+	 */
+	private List<?> evalWrite(Jedis jedis, List<byte[]> keys, List<byte[]> args) {
+		return (List<?>) scripts.eval(jedis, ScriptRegistry.INDEXED_WRITE, keys, args);
+	}
+
+	/**
+	 * Throws the first error reply of a pipeline.
+	 *
+	 * @param replies the replies
+	 * @return the replies
+	 */
+	private static List<Object> throwFirstError(List<Object> replies) {
+		for (Object reply : replies) {
+			if (reply instanceof JedisDataException) {
+				throw (JedisDataException) reply;
+			}
+		}
+		return replies;
+	}
+	
+
+	/**
+	 * Async version of {@link #getObject(String, Class)}.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param type the type
+	 * @return the completable future
+	 */
+	@Override
+	public <T extends Serializable> CompletableFuture<T> getObjectAsync(String key, Class<T> type) {
+		if (readBatcher == null || pinned()) {
+			return async(getAsyncMetrics, () -> getObject(key, type));
+		}
+
+		long stamp = 0;
+		if (nearCache != null) {
+			byte[] cached = nearCache.get(key);
+			if (cached != null) {
+				return async(getAsyncMetrics, () -> deserializeObject(cached, type));
+			}
+			stamp = nearCache.stamp(key);
+		}
+
+		long readStamp = stamp;
+		long start = getAsyncMetrics.start();
+		return timed(getAsyncMetrics, start, readBatcher.get(key).thenApplyAsync(bytes -> {
+			if (bytes == null) {
+				return null;
+			}
+			if (nearCache != null && readsPrimary(false)) {
+				nearCache.put(key, bytes, readStamp);
+			}
+			try {
+				return deserializeObject(bytes, type);
+			} catch (Exception ex) {
+				throw new CompletionException(ex);
+			}
+		}, asyncExecutor));
+	}
+
+	/**
+	 * Waits for a batched read, rethrowing the failure of the batch. The wait
+	 * is bounded, a batch stuck on a connection fails its readers with a
+	 * {@link TimeoutException}.
+	 *
+	 * @param future the future
+	 * @return the byte[]
+	 * @throws Exception the exception
+	 */
+	private byte[] await(CompletableFuture<byte[]> future) throws Exception {
+		try {
+			return future.get(batchedReadTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw ee;
+		}
+	}
+
+	/**
+	 * Script load.
+	 *
+	 * @param script
+	 *            the script
+	 * @return the string
+	 */
+	public String scriptLoad(String script) {
+		return measured(scriptLoadMetrics, "load script", () -> {
+			try (Jedis jedis = redisFactory.getResource()) {
+				return jedis.scriptLoad(script);
+			}
+		});
+	}
+
+	/**
+	 * Runs a script of the registry with EVALSHA, falling back to EVAL when
+	 * the server does not know it.
+	 *
+	 * @param name
+	 *            the name of the script
+	 * @param keys
+	 *            the keys
+	 * @param args
+	 *            the args
+	 * @return the reply
+	 */
+	public Object evalScript(String name, List<byte[]> keys, List<byte[]> args) {
+		try (Jedis jedis = redisFactory.getResource()) {
+			Object reply = scripts.eval(jedis, name, keys, args);
+			written();
+			return reply;
+		}
+	}
+
+	/**
+	 * Gets the scripts.
+	 *
+	 * @return the scripts
+	 */
+	public ScriptRegistry getScripts() {
+		return scripts;
+	}
+
+	/**
+	 * Gets the near cache.
+	 *
+	 * @return the near cache, null when disabled
+	 */
+	public NearCache getNearCache() {
+		return nearCache;
+	}
+
+	/**
+	 * Gets the replica pools.
+	 *
+	 * @return the replica pools, null when reads go to the primary
+	 */
+	public ReplicaPools getReplicas() {
+		return replicas;
+	}
+
+	/**
+	 * Checks whether the reads of the calling thread must go to the primary.
+	 *
+	 * @return true, if pinned
+	 */
+	private boolean pinned() {
+		return replicas != null && replicas.isPinned();
+	}
+
+	/**
+	 * Checks whether a read goes to the primary. Only those fill the near
+	 * cache: a replica may still return a value the primary has already
+	 * overwritten, and its invalidation would have been missed.
+	 *
+	 * @param pinned
+	 *            the pinned flag
+	 * @return true, if the read goes to the primary
+	 */
+	private boolean readsPrimary(boolean pinned) {
+		return replicas == null || pinned;
+	}
+
+	/**
+	 * Gets a connection for a read: a replica when configured and the caller
+	 * is not pinned, the primary otherwise.
+	 *
+	 * @param pinned
+	 *            the pinned flag
+	 * @return the jedis
+	 */
+	private Jedis reader(boolean pinned) {
+		return replicas != null ? replicas.getResource(pinned) : redisFactory.getResource();
+	}
+
+	/**
+	 * Records a write of the calling thread, for read-your-writes.
+	 */
+	private void written() {
+		if (replicas != null) {
+			replicas.written();
+		}
+	}
+
+	/**
+	 * Drops the key from the near cache, if enabled.
+	 *
+	 * @param key
+	 *            the key
+	 */
+	private void invalidate(String key) {
+		if (nearCache != null) {
+			nearCache.invalidate(key);
+		}
+	}
+
+}
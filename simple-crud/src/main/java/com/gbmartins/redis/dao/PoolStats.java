@@ -0,0 +1,124 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * The Class PoolStats.
+ * <p>
+ * Point in time snapshot of the connection pool.
+ */
+public class PoolStats {
+
+	/** The active connections. */
+	private final int active;
+
+	/** The idle connections. */
+	private final int idle;
+
+	/** The threads waiting for a connection. */
+	private final int waiters;
+
+	/** The mean borrow wait in milliseconds. */
+	private final long meanBorrowWaitMillis;
+
+	/** The max borrow wait in milliseconds. */
+	private final long maxBorrowWaitMillis;
+
+	/**
+	 * Instantiates a new pool stats.
+	 *
+	 * @param active
+	 *            the active
+	 * @param idle
+	 *            the idle
+	 * @param waiters
+	 *            the waiters
+	 * @param meanBorrowWaitMillis
+	 *            the mean borrow wait millis
+	 * @param maxBorrowWaitMillis
+	 *            the max borrow wait millis
+	 */
+	public PoolStats(int active, int idle, int waiters, long meanBorrowWaitMillis, long maxBorrowWaitMillis) {
+		super();
+		this.active = active;
+		this.idle = idle;
+		this.waiters = waiters;
+		this.meanBorrowWaitMillis = meanBorrowWaitMillis;
+		this.maxBorrowWaitMillis = maxBorrowWaitMillis;
+	}
+
+	/**
+	 * Gets the active connections.
+	 *
+	 * @return the active
+	 */
+	public int getActive() {
+		return active;
+	}
+
+	/**
+	 * Gets the idle connections.
+	 *
+	 * @return the idle
+	 */
+	public int getIdle() {
+		return idle;
+	}
+
+	/**
+	 * Gets the threads waiting for a connection.
+	 *
+	 * @return the waiters
+	 */
+	public int getWaiters() {
+		return waiters;
+	}
+
+	/**
+	 * Gets the mean borrow wait in milliseconds.
+	 *
+	 * @return the mean borrow wait millis
+	 */
+	public long getMeanBorrowWaitMillis() {
+		return meanBorrowWaitMillis;
+	}
+
+	/**
+	 * Gets the max borrow wait in milliseconds.
+	 *
+	 * @return the max borrow wait millis
+	 */
+	public long getMaxBorrowWaitMillis() {
+		return maxBorrowWaitMillis;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this).add("active", active).add("idle", idle).add("waiters", waiters)
+				.add("meanBorrowWaitMillis", meanBorrowWaitMillis).add("maxBorrowWaitMillis", maxBorrowWaitMillis)
+				.toString();
+	}
+
+}
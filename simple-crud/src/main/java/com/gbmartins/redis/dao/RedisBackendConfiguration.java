@@ -0,0 +1,77 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import com.gbmartins.redis.dao.cluster.ClusterOperations;
+import com.gbmartins.redis.dao.cluster.RedisClusterConnection;
+import com.gbmartins.redis.dao.codec.CodecRegistry;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.dao.script.ScriptRegistry;
+import com.google.common.base.Strings;
+
+/**
+ * The Class RedisBackendConfiguration.
+ * <p>
+ * Creates the Redis backed {@link RedisOperations}: a
+ * {@link ClusterOperations} when cluster nodes are configured, a
+ * {@link JedisOperations} on the standalone server otherwise. Off with the
+ * <code>memory</code> profile.
+ */
+@Configuration
+@Profile("!memory")
+public class RedisBackendConfiguration {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(RedisBackendConfiguration.class);
+
+	/**
+	 * Redis operations.
+	 *
+	 * @param redisFactory
+	 *            the redis factory
+	 * @param codecs
+	 *            the codecs
+	 * @param scripts
+	 *            the scripts
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 * @param metrics
+	 *            the metrics
+	 * @return the redis operations
+	 */
+	@Bean
+	public RedisOperations redisOperations(RedisPoolConnection redisFactory, CodecRegistry codecs, ScriptRegistry scripts,
+			@Qualifier("redisSetup") RedisInstanceSetup redisInstanceSetup, RedisMetrics metrics) {
+		if (!Strings.isNullOrEmpty(redisInstanceSetup.getClusterNodes())) {
+			LOG.info("Redis operations in cluster mode");
+			return new ClusterOperations(new RedisClusterConnection(redisInstanceSetup), codecs, scripts,
+					redisInstanceSetup, metrics);
+		}
+		return new JedisOperations(redisFactory, codecs, scripts, redisInstanceSetup, metrics);
+	}
+
+}
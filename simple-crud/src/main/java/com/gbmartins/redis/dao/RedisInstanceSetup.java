@@ -38,6 +38,123 @@ public class RedisInstanceSetup {
 	/** The password. */
 	private String password;
 
+	/** The default codec name. */
+	private String codec;
+
+	/** The near cache enabled flag. */
+	private boolean nearCacheEnabled;
+
+	/** The near cache max size. */
+	private int nearCacheMaxSize = 10000;
+
+	/** The near cache ttl in milliseconds. */
+	private long nearCacheTtlMillis = 60000;
+
+	/** The near cache eviction policy: lru or lfu. */
+	private String nearCacheEviction = "lru";
+
+	/** The near cache invalidation by keyspace notifications flag. */
+	private boolean nearCacheInvalidation = true;
+
+	/** The async executor threads. */
+	private int asyncThreads = 16;
+
+	/** The async executor queue size. */
+	private int asyncQueueSize = 10000;
+
+	/** The read batching enabled flag. */
+	private boolean batchEnabled;
+
+	/** The read batch max size. */
+	private int batchMaxSize = 128;
+
+	/** The read batch max delay in microseconds. */
+	private long batchMaxDelayMicros = 200;
+
+	/** The bulk write chunk size. */
+	private int bulkChunkSize = 1000;
+
+	/** The bulk write parallelism. */
+	private int bulkParallelism = 4;
+
+	/** The multi-get chunk size. */
+	private int mgetChunkSize = 1000;
+
+	/** The pool max total connections. */
+	private int poolMaxTotal = 8;
+
+	/** The pool max idle connections. */
+	private int poolMaxIdle = 8;
+
+	/** The pool min idle connections. */
+	private int poolMinIdle = 0;
+
+	/** The pool max borrow wait in milliseconds, -1 to wait forever. */
+	private long poolMaxWaitMillis = -1;
+
+	/** The pool prefill at startup flag. */
+	private boolean poolPrefill;
+
+	/** The connection timeout in milliseconds. */
+	private int connectionTimeout = 2000;
+
+	/** The socket read timeout in milliseconds. */
+	private int soTimeout = 2000;
+
+	/** The in-memory backend stripe count. */
+	private int memoryStripes = 64;
+
+	/** The cluster seed nodes, host:port separated by commas. */
+	private String clusterNodes;
+
+	/** The cluster max redirections. */
+	private int clusterMaxRedirections = 5;
+
+	/** The replica nodes, host:port separated by commas. */
+	private String replicaNodes;
+
+	/** The replica selection: round-robin or least-loaded. */
+	private String replicaSelection = "round-robin";
+
+	/** The read-your-writes window in millis, 0 to disable. */
+	private long readYourWritesMillis = 0;
+
+	/** The value compression flag. */
+	private boolean compressionEnabled = false;
+
+	/** The size in bytes from which values are compressed. */
+	private int compressionThreshold = 1024;
+
+	/** The import batch size. */
+	private int importBatchSize = 10000;
+
+	/** The import batches in flight. */
+	private int importInFlight = 4;
+
+	/** The keys visited per SCAN call of the export. */
+	private int exportScanCount = 1000;
+
+	/** The TTL jitter, in percent of the TTL. */
+	private int ttlJitterPercent = 0;
+
+	/** The console batch mode batch size. */
+	private int consoleBatchSize = 1000;
+
+	/** The HTTP port. */
+	private int httpPort = 0;
+
+	/** The HTTP threads. */
+	private int httpThreads = 4;
+
+	/** The HTTP batch size. */
+	private int httpBatchSize = 256;
+
+	/** The HTTP batch delay in microseconds. */
+	private long httpBatchDelayMicros = 200;
+
+	/** The HTTP batch flushers. */
+	private int httpBatchFlushers = 2;
+
 	/** The instance. */
 	private static RedisInstanceSetup instance;
 
@@ -123,4 +240,745 @@ public class RedisInstanceSetup {
 		return password;
 	}
 
+	/**
+	 * Gets the default codec name.
+	 *
+	 * @return the codec
+	 */
+	public String getCodec() {
+		return codec;
+	}
+
+	/**
+	 * Sets the default codec name.
+	 *
+	 * @param codec
+	 *            the new codec
+	 */
+	public void setCodec(String codec) {
+		this.codec = codec;
+	}
+
+	/**
+	 * Gets the near cache enabled flag.
+	 *
+	 * @return the near cache enabled flag
+	 */
+	public boolean isNearCacheEnabled() {
+		return nearCacheEnabled;
+	}
+
+	/**
+	 * Sets the near cache enabled flag.
+	 *
+	 * @param nearCacheEnabled
+	 *            the new near cache enabled flag
+	 */
+	public void setNearCacheEnabled(boolean nearCacheEnabled) {
+		this.nearCacheEnabled = nearCacheEnabled;
+	}
+
+	/**
+	 * Gets the near cache max size.
+	 *
+	 * @return the near cache max size
+	 */
+	public int getNearCacheMaxSize() {
+		return nearCacheMaxSize;
+	}
+
+	/**
+	 * Sets the near cache max size.
+	 *
+	 * @param nearCacheMaxSize
+	 *            the new near cache max size
+	 */
+	public void setNearCacheMaxSize(int nearCacheMaxSize) {
+		this.nearCacheMaxSize = nearCacheMaxSize;
+	}
+
+	/**
+	 * Gets the near cache ttl in milliseconds.
+	 *
+	 * @return the near cache ttl in milliseconds
+	 */
+	public long getNearCacheTtlMillis() {
+		return nearCacheTtlMillis;
+	}
+
+	/**
+	 * Sets the near cache ttl in milliseconds.
+	 *
+	 * @param nearCacheTtlMillis
+	 *            the new near cache ttl in milliseconds
+	 */
+	public void setNearCacheTtlMillis(long nearCacheTtlMillis) {
+		this.nearCacheTtlMillis = nearCacheTtlMillis;
+	}
+
+	/**
+	 * Gets the near cache eviction policy: lru or lfu.
+	 *
+	 * @return the near cache eviction policy: lru or lfu
+	 */
+	public String getNearCacheEviction() {
+		return nearCacheEviction;
+	}
+
+	/**
+	 * Sets the near cache eviction policy: lru or lfu.
+	 *
+	 * @param nearCacheEviction
+	 *            the new near cache eviction policy: lru or lfu
+	 */
+	public void setNearCacheEviction(String nearCacheEviction) {
+		this.nearCacheEviction = nearCacheEviction;
+	}
+
+	/**
+	 * Gets the near cache invalidation by keyspace notifications flag.
+	 *
+	 * @return the near cache invalidation by keyspace notifications flag
+	 */
+	public boolean isNearCacheInvalidation() {
+		return nearCacheInvalidation;
+	}
+
+	/**
+	 * Sets the near cache invalidation by keyspace notifications flag.
+	 *
+	 * @param nearCacheInvalidation
+	 *            the new near cache invalidation by keyspace notifications flag
+	 */
+	public void setNearCacheInvalidation(boolean nearCacheInvalidation) {
+		this.nearCacheInvalidation = nearCacheInvalidation;
+	}
+
+	/**
+	 * Gets the async executor threads.
+	 *
+	 * @return the async executor threads
+	 */
+	public int getAsyncThreads() {
+		return asyncThreads;
+	}
+
+	/**
+	 * Sets the async executor threads.
+	 *
+	 * @param asyncThreads
+	 *            the new async executor threads
+	 */
+	public void setAsyncThreads(int asyncThreads) {
+		this.asyncThreads = asyncThreads;
+	}
+
+	/**
+	 * Gets the async executor queue size.
+	 *
+	 * @return the async executor queue size
+	 */
+	public int getAsyncQueueSize() {
+		return asyncQueueSize;
+	}
+
+	/**
+	 * Sets the async executor queue size.
+	 *
+	 * @param asyncQueueSize
+	 *            the new async executor queue size
+	 */
+	public void setAsyncQueueSize(int asyncQueueSize) {
+		this.asyncQueueSize = asyncQueueSize;
+	}
+
+	/**
+	 * Gets the read batching enabled flag.
+	 *
+	 * @return the read batching enabled flag
+	 */
+	public boolean isBatchEnabled() {
+		return batchEnabled;
+	}
+
+	/**
+	 * Sets the read batching enabled flag.
+	 *
+	 * @param batchEnabled
+	 *            the new read batching enabled flag
+	 */
+	public void setBatchEnabled(boolean batchEnabled) {
+		this.batchEnabled = batchEnabled;
+	}
+
+	/**
+	 * Gets the read batch max size.
+	 *
+	 * @return the read batch max size
+	 */
+	public int getBatchMaxSize() {
+		return batchMaxSize;
+	}
+
+	/**
+	 * Sets the read batch max size.
+	 *
+	 * @param batchMaxSize
+	 *            the new read batch max size
+	 */
+	public void setBatchMaxSize(int batchMaxSize) {
+		this.batchMaxSize = batchMaxSize;
+	}
+
+	/**
+	 * Gets the read batch max delay in microseconds.
+	 *
+	 * @return the read batch max delay in microseconds
+	 */
+	public long getBatchMaxDelayMicros() {
+		return batchMaxDelayMicros;
+	}
+
+	/**
+	 * Sets the read batch max delay in microseconds.
+	 *
+	 * @param batchMaxDelayMicros
+	 *            the new read batch max delay in microseconds
+	 */
+	public void setBatchMaxDelayMicros(long batchMaxDelayMicros) {
+		this.batchMaxDelayMicros = batchMaxDelayMicros;
+	}
+
+	/**
+	 * Gets the bulk write chunk size.
+	 *
+	 * @return the bulk write chunk size
+	 */
+	public int getBulkChunkSize() {
+		return bulkChunkSize;
+	}
+
+	/**
+	 * Sets the bulk write chunk size.
+	 *
+	 * @param bulkChunkSize
+	 *            the new bulk write chunk size
+	 */
+	public void setBulkChunkSize(int bulkChunkSize) {
+		this.bulkChunkSize = bulkChunkSize;
+	}
+
+	/**
+	 * Gets the bulk write parallelism.
+	 *
+	 * @return the bulk write parallelism
+	 */
+	public int getBulkParallelism() {
+		return bulkParallelism;
+	}
+
+	/**
+	 * Sets the bulk write parallelism.
+	 *
+	 * @param bulkParallelism
+	 *            the new bulk write parallelism
+	 */
+	public void setBulkParallelism(int bulkParallelism) {
+		this.bulkParallelism = bulkParallelism;
+	}
+
+	/**
+	 * Gets the multi-get chunk size.
+	 *
+	 * @return the multi-get chunk size
+	 */
+	public int getMgetChunkSize() {
+		return mgetChunkSize;
+	}
+
+	/**
+	 * Sets the multi-get chunk size.
+	 *
+	 * @param mgetChunkSize
+	 *            the new multi-get chunk size
+	 */
+	public void setMgetChunkSize(int mgetChunkSize) {
+		this.mgetChunkSize = mgetChunkSize;
+	}
+
+	/**
+	 * Gets the pool max total connections.
+	 *
+	 * @return the pool max total connections
+	 */
+	public int getPoolMaxTotal() {
+		return poolMaxTotal;
+	}
+
+	/**
+	 * Sets the pool max total connections.
+	 *
+	 * @param poolMaxTotal
+	 *            the new pool max total connections
+	 */
+	public void setPoolMaxTotal(int poolMaxTotal) {
+		this.poolMaxTotal = poolMaxTotal;
+	}
+
+	/**
+	 * Gets the pool max idle connections.
+	 *
+	 * @return the pool max idle connections
+	 */
+	public int getPoolMaxIdle() {
+		return poolMaxIdle;
+	}
+
+	/**
+	 * Sets the pool max idle connections.
+	 *
+	 * @param poolMaxIdle
+	 *            the new pool max idle connections
+	 */
+	public void setPoolMaxIdle(int poolMaxIdle) {
+		this.poolMaxIdle = poolMaxIdle;
+	}
+
+	/**
+	 * Gets the pool min idle connections.
+	 *
+	 * @return the pool min idle connections
+	 */
+	public int getPoolMinIdle() {
+		return poolMinIdle;
+	}
+
+	/**
+	 * Sets the pool min idle connections.
+	 *
+	 * @param poolMinIdle
+	 *            the new pool min idle connections
+	 */
+	public void setPoolMinIdle(int poolMinIdle) {
+		this.poolMinIdle = poolMinIdle;
+	}
+
+	/**
+	 * Gets the pool max borrow wait in milliseconds, -1 to wait forever.
+	 *
+	 * @return the pool max borrow wait in milliseconds, -1 to wait forever
+	 */
+	public long getPoolMaxWaitMillis() {
+		return poolMaxWaitMillis;
+	}
+
+	/**
+	 * Sets the pool max borrow wait in milliseconds, -1 to wait forever.
+	 *
+	 * @param poolMaxWaitMillis
+	 *            the new pool max borrow wait in milliseconds, -1 to wait forever
+	 */
+	public void setPoolMaxWaitMillis(long poolMaxWaitMillis) {
+		this.poolMaxWaitMillis = poolMaxWaitMillis;
+	}
+
+	/**
+	 * Gets the pool prefill at startup flag.
+	 *
+	 * @return the pool prefill at startup flag
+	 */
+	public boolean isPoolPrefill() {
+		return poolPrefill;
+	}
+
+	/**
+	 * Sets the pool prefill at startup flag.
+	 *
+	 * @param poolPrefill
+	 *            the new pool prefill at startup flag
+	 */
+	public void setPoolPrefill(boolean poolPrefill) {
+		this.poolPrefill = poolPrefill;
+	}
+
+	/**
+	 * Gets the connection timeout in milliseconds.
+	 *
+	 * @return the connection timeout in milliseconds
+	 */
+	public int getConnectionTimeout() {
+		return connectionTimeout;
+	}
+
+	/**
+	 * Sets the connection timeout in milliseconds.
+	 *
+	 * @param connectionTimeout
+	 *            the new connection timeout in milliseconds
+	 */
+	public void setConnectionTimeout(int connectionTimeout) {
+		this.connectionTimeout = connectionTimeout;
+	}
+
+	/**
+	 * Gets the socket read timeout in milliseconds.
+	 *
+	 * @return the socket read timeout in milliseconds
+	 */
+	public int getSoTimeout() {
+		return soTimeout;
+	}
+
+	/**
+	 * Sets the socket read timeout in milliseconds.
+	 *
+	 * @param soTimeout
+	 *            the new socket read timeout in milliseconds
+	 */
+	public void setSoTimeout(int soTimeout) {
+		this.soTimeout = soTimeout;
+	}
+
+	/**
+	 * Gets the in-memory backend stripe count.
+	 *
+	 * @return the in-memory backend stripe count
+	 */
+	public int getMemoryStripes() {
+		return memoryStripes;
+	}
+
+	/**
+	 * Sets the in-memory backend stripe count.
+	 *
+	 * @param memoryStripes
+	 *            the new in-memory backend stripe count
+	 */
+	public void setMemoryStripes(int memoryStripes) {
+		this.memoryStripes = memoryStripes;
+	}
+
+	/**
+	 * Gets the cluster seed nodes, host:port separated by commas.
+	 *
+	 * @return the cluster seed nodes, host:port separated by commas
+	 */
+	public String getClusterNodes() {
+		return clusterNodes;
+	}
+
+	/**
+	 * Sets the cluster seed nodes, host:port separated by commas.
+	 *
+	 * @param clusterNodes
+	 *            the new cluster seed nodes, host:port separated by commas
+	 */
+	public void setClusterNodes(String clusterNodes) {
+		this.clusterNodes = clusterNodes;
+	}
+
+	/**
+	 * Gets the cluster max redirections.
+	 *
+	 * @return the cluster max redirections
+	 */
+	public int getClusterMaxRedirections() {
+		return clusterMaxRedirections;
+	}
+
+	/**
+	 * Sets the cluster max redirections.
+	 *
+	 * @param clusterMaxRedirections
+	 *            the new cluster max redirections
+	 */
+	public void setClusterMaxRedirections(int clusterMaxRedirections) {
+		this.clusterMaxRedirections = clusterMaxRedirections;
+	}
+
+	/**
+	 * Gets the replica nodes, host:port separated by commas.
+	 *
+	 * @return the replica nodes, host:port separated by commas
+	 */
+	public String getReplicaNodes() {
+		return replicaNodes;
+	}
+
+	/**
+	 * Sets the replica nodes, host:port separated by commas.
+	 *
+	 * @param replicaNodes
+	 *            the new replica nodes, host:port separated by commas
+	 */
+	public void setReplicaNodes(String replicaNodes) {
+		this.replicaNodes = replicaNodes;
+	}
+
+	/**
+	 * Gets the replica selection: round-robin or least-loaded.
+	 *
+	 * @return the replica selection: round-robin or least-loaded
+	 */
+	public String getReplicaSelection() {
+		return replicaSelection;
+	}
+
+	/**
+	 * Sets the replica selection: round-robin or least-loaded.
+	 *
+	 * @param replicaSelection
+	 *            the new replica selection: round-robin or least-loaded
+	 */
+	public void setReplicaSelection(String replicaSelection) {
+		this.replicaSelection = replicaSelection;
+	}
+
+	/**
+	 * Gets the read-your-writes window in millis, 0 to disable.
+	 *
+	 * @return the read-your-writes window in millis, 0 to disable
+	 */
+	public long getReadYourWritesMillis() {
+		return readYourWritesMillis;
+	}
+
+	/**
+	 * Sets the read-your-writes window in millis, 0 to disable.
+	 *
+	 * @param readYourWritesMillis
+	 *            the new read-your-writes window in millis, 0 to disable
+	 */
+	public void setReadYourWritesMillis(long readYourWritesMillis) {
+		this.readYourWritesMillis = readYourWritesMillis;
+	}
+
+	/**
+	 * Gets the value compression flag.
+	 *
+	 * @return the value compression flag
+	 */
+	public boolean isCompressionEnabled() {
+		return compressionEnabled;
+	}
+
+	/**
+	 * Sets the value compression flag.
+	 *
+	 * @param compressionEnabled
+	 *            the new value compression flag
+	 */
+	public void setCompressionEnabled(boolean compressionEnabled) {
+		this.compressionEnabled = compressionEnabled;
+	}
+
+	/**
+	 * Gets the size in bytes from which values are compressed.
+	 *
+	 * @return the size in bytes from which values are compressed
+	 */
+	public int getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	/**
+	 * Sets the size in bytes from which values are compressed.
+	 *
+	 * @param compressionThreshold
+	 *            the new size in bytes from which values are compressed
+	 */
+	public void setCompressionThreshold(int compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	/**
+	 * Gets the import batch size.
+	 *
+	 * @return the import batch size
+	 */
+	public int getImportBatchSize() {
+		return importBatchSize;
+	}
+
+	/**
+	 * Sets the import batch size.
+	 *
+	 * @param importBatchSize
+	 *            the new import batch size
+	 */
+	public void setImportBatchSize(int importBatchSize) {
+		this.importBatchSize = importBatchSize;
+	}
+
+	/**
+	 * Gets the import batches in flight.
+	 *
+	 * @return the import batches in flight
+	 */
+	public int getImportInFlight() {
+		return importInFlight;
+	}
+
+	/**
+	 * Sets the import batches in flight.
+	 *
+	 * @param importInFlight
+	 *            the new import batches in flight
+	 */
+	public void setImportInFlight(int importInFlight) {
+		this.importInFlight = importInFlight;
+	}
+
+	/**
+	 * Gets the keys visited per SCAN call of the export.
+	 *
+	 * @return the keys visited per SCAN call of the export
+	 */
+	public int getExportScanCount() {
+		return exportScanCount;
+	}
+
+	/**
+	 * Sets the keys visited per SCAN call of the export.
+	 *
+	 * @param exportScanCount
+	 *            the new keys visited per SCAN call of the export
+	 */
+	public void setExportScanCount(int exportScanCount) {
+		this.exportScanCount = exportScanCount;
+	}
+
+	/**
+	 * Gets the TTL jitter, in percent of the TTL.
+	 *
+	 * @return the TTL jitter, in percent of the TTL
+	 */
+	public int getTtlJitterPercent() {
+		return ttlJitterPercent;
+	}
+
+	/**
+	 * Sets the TTL jitter, in percent of the TTL.
+	 *
+	 * @param ttlJitterPercent
+	 *            the new TTL jitter, in percent of the TTL
+	 */
+	public void setTtlJitterPercent(int ttlJitterPercent) {
+		this.ttlJitterPercent = ttlJitterPercent;
+	}
+
+	/**
+	 * Gets the console batch mode batch size.
+	 *
+	 * @return the console batch mode batch size
+	 */
+	public int getConsoleBatchSize() {
+		return consoleBatchSize;
+	}
+
+	/**
+	 * Sets the console batch mode batch size.
+	 *
+	 * @param consoleBatchSize
+	 *            the new console batch mode batch size
+	 */
+	public void setConsoleBatchSize(int consoleBatchSize) {
+		this.consoleBatchSize = consoleBatchSize;
+	}
+
+	/**
+	 * Gets the HTTP port.
+	 *
+	 * @return the HTTP port
+	 */
+	public int getHttpPort() {
+		return httpPort;
+	}
+
+	/**
+	 * Sets the HTTP port.
+	 *
+	 * @param httpPort
+	 *            the new HTTP port
+	 */
+	public void setHttpPort(int httpPort) {
+		this.httpPort = httpPort;
+	}
+
+	/**
+	 * Gets the HTTP threads.
+	 *
+	 * @return the HTTP threads
+	 */
+	public int getHttpThreads() {
+		return httpThreads;
+	}
+
+	/**
+	 * Sets the HTTP threads.
+	 *
+	 * @param httpThreads
+	 *            the new HTTP threads
+	 */
+	public void setHttpThreads(int httpThreads) {
+		this.httpThreads = httpThreads;
+	}
+
+	/**
+	 * Gets the HTTP batch size.
+	 *
+	 * @return the HTTP batch size
+	 */
+	public int getHttpBatchSize() {
+		return httpBatchSize;
+	}
+
+	/**
+	 * Sets the HTTP batch size.
+	 *
+	 * @param httpBatchSize
+	 *            the new HTTP batch size
+	 */
+	public void setHttpBatchSize(int httpBatchSize) {
+		this.httpBatchSize = httpBatchSize;
+	}
+
+	/**
+	 * Gets the HTTP batch delay in microseconds.
+	 *
+	 * @return the HTTP batch delay in microseconds
+	 */
+	public long getHttpBatchDelayMicros() {
+		return httpBatchDelayMicros;
+	}
+
+	/**
+	 * Sets the HTTP batch delay in microseconds.
+	 *
+	 * @param httpBatchDelayMicros
+	 *            the new HTTP batch delay in microseconds
+	 */
+	public void setHttpBatchDelayMicros(long httpBatchDelayMicros) {
+		this.httpBatchDelayMicros = httpBatchDelayMicros;
+	}
+
+	/**
+	 * Gets the HTTP batch flushers.
+	 *
+	 * @return the HTTP batch flushers
+	 */
+	public int getHttpBatchFlushers() {
+		return httpBatchFlushers;
+	}
+
+	/**
+	 * Sets the HTTP batch flushers.
+	 *
+	 * @param httpBatchFlushers
+	 *            the new HTTP batch flushers
+	 */
+	public void setHttpBatchFlushers(int httpBatchFlushers) {
+		this.httpBatchFlushers = httpBatchFlushers;
+	}
+
 }
\ No newline at end of file
@@ -19,126 +19,211 @@
  */
 package com.gbmartins.redis.dao;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
-
-import redis.clients.jedis.Jedis;
-import redis.clients.jedis.Pipeline;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.gbmartins.redis.dao.codec.ValueCodec;
+import com.gbmartins.redis.dao.index.LexIndex;
+import com.gbmartins.redis.dao.index.WriteCondition;
+import com.gbmartins.redis.dao.scan.ScanPage;
+import com.gbmartins.redis.dao.script.UpsertResult;
+import com.gbmartins.redis.dao.version.Versioned;
+import com.gbmartins.redis.dao.version.VersionedWrite;
 
 /**
- * The Class RedisOperations.
+ * The Interface RedisOperations.
+ * <p>
+ * The storage contract of the services. {@link JedisOperations} talks to a
+ * Redis server and {@link com.gbmartins.redis.dao.cluster.ClusterOperations}
+ * to a Redis Cluster, see {@link RedisBackendConfiguration};
+ * {@link com.gbmartins.redis.dao.memory.InMemoryOperations}, active with the
+ * <code>memory</code> Spring profile, keeps everything in process. Every
+ * single-key operation is atomic; multi-key operations are not atomic
+ * across keys.
  */
-@Component
-public class RedisOperations {
+public interface RedisOperations {
 
-	/** The Constant LOG. */
-	private static final Logger LOG = LogManager.getLogger(RedisOperations.class);
+	/**
+	 * Save or update object.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @return the string
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	<T extends Serializable> String saveOrUpdateObject(String key, T object) throws IOException;
 
-	/** The redis factory. */
-	private RedisPoolConnection redisFactory;
+	/**
+	 * Save or update object, expiring after the TTL (SET PX). The TTL is
+	 * stretched by the configured jitter, so keys written together do not
+	 * all expire in the same instant.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param ttlMillis the TTL in milliseconds, 0 to keep the object forever
+	 * @return the string
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	<T extends Serializable> String saveOrUpdateObject(String key, T object, long ttlMillis) throws IOException;
 
 	/**
-	 * Instantiates a new redis operations.
+	 * Save the object only if the key does not exist yet (SET NX).
 	 *
-	 * @param redisFactory
-	 *            the redis factory
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @return "OK", or null if the key already exists
+	 * @throws IOException Signals that an I/O exception has occurred.
 	 */
-	@Autowired
-	public RedisOperations(RedisPoolConnection redisFactory) {
-		super();
-		this.redisFactory = redisFactory;
-	}
+	<T extends Serializable> String saveIfAbsent(String key, T object) throws IOException;
 
+	/**
+	 * Update the object only if the key already exists (SET XX).
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @return "OK", or null if the key does not exist
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	<T extends Serializable> String updateIfPresent(String key, T object) throws IOException;
 
 	/**
-	 * Save or update object.
+	 * Conditional upsert: writes the object unless the key already holds the
+	 * same encoded value, in one round trip. An unchanged value is not
+	 * rewritten, so it costs no replication traffic.
 	 *
 	 * @param <T> the generic type
 	 * @param key the key
 	 * @param object the object
-	 * @return the string
+	 * @return what the upsert did
 	 * @throws IOException Signals that an I/O exception has occurred.
 	 */
-	public <T extends Serializable> String saveOrUpdateObject(String key, T object) throws IOException {
+	<T extends Serializable> UpsertResult upsertObject(String key, T object) throws IOException;
 
-		try {
+	/**
+	 * Compare-and-set: writes the update only if the key holds the encoded
+	 * expected value, checked and written atomically. The values are compared
+	 * encoded, so the codec must encode equal objects to equal bytes. The
+	 * version of a record written by
+	 * {@link #saveVersionedObject(String, Serializable, long)} is not compared,
+	 * the update is stored under the next version.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param expected the expected object, null if the key must not exist
+	 * @param update the new object
+	 * @return true, if the update was written
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	<T extends Serializable> boolean compareAndSet(String key, T expected, T update) throws IOException;
 
-			byte[] bytes = serializeObject(object);
-			String result = null;
+	/**
+	 * Multi-key conditional delete: deletes each key that still holds its
+	 * encoded expected value, so a key someone rewrote in the meantime
+	 * survives. The version header of a versioned record is not compared.
+	 * Each key is checked and deleted atomically.
+	 *
+	 * @param <T> the generic type
+	 * @param expected the expected object of each key
+	 * @return the number of deleted keys
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	<T extends Serializable> long deleteIfEquals(Map<String, T> expected) throws IOException;
 
-			try (Jedis jedis = redisFactory.getResource()) {
-				result = jedis.set(key.getBytes(), bytes);
-			}
-			
-			return result;
+	/**
+	 * Gets the object.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param type the type
+	 * @return the object, null if the key does not exist
+	 * @throws Exception the exception
+	 */
+	<T extends Serializable> T getObject(String key, Class<T> type) throws Exception;
 
-		} catch (IOException ex) {
-			LOG.error("I/O Error when trying to save object", ex);
-			throw ex;
-		} catch (Exception ex) {
-			LOG.error("Unknown Error when trying to save object", ex);
-			throw ex;
-		}
+	/**
+	 * Gets the object and restarts its TTL, a sliding expiration: a key read
+	 * at least once per TTL never expires. The GET and the PEXPIREs of the
+	 * key and of its index terms are pipelined in one round trip to the
+	 * primary.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param type the type
+	 * @param ttlMillis the TTL in milliseconds, jittered like on write
+	 * @return the object, null if the key does not exist
+	 * @throws Exception the exception
+	 */
+	<T extends Serializable> T getAndTouchObject(String key, Class<T> type, long ttlMillis) throws Exception;
 
-	}
-		
+	/**
+	 * Gets the remaining TTL of the key (PTTL).
+	 *
+	 * @param key the key
+	 * @return the TTL in milliseconds, -1 if the key does not expire, -2 if it
+	 *         does not exist
+	 */
+	long getTtlMillis(String key);
 
 	/**
-	 * Gets the object.
+	 * Gets the object with its version, read from the primary: the version
+	 * is meant for a {@link #saveVersionedObject(String, Serializable, long)}
+	 * right after, which a lagging replica would make fail.
 	 *
-	 * @param <T>
-	 *            the generic type
-	 * @param key
-	 *            the key
-	 * @param type
-	 *            the type
-	 * @return the object
-	 * @throws Exception
-	 *             the exception
-	 */
-	public <T extends Serializable> T getObject(String key, Class<T> type) throws Exception {
-
-		try {
-
-			byte[] bytes = null;
-
-			try (Jedis jedis = redisFactory.getResource()) {
-				bytes = jedis.get(key.getBytes());
-			}
-			
-			if (bytes == null) {
-				return null;
-			}
-
-			return deserializeObject(bytes, type);
-		} catch (IOException | ClassNotFoundException cne) {
-			LOG.error("I/O Error or Class Not Found when trying to get object", cne);
-			throw cne;
-		} catch (IllegalArgumentException iae) {
-			LOG.error("Illegal Argument when trying to get object", iae);
-			throw iae;
-		} catch (Exception ex) {
-			LOG.error("Unknown Error when trying to save object", ex);
-			throw ex;
-		}
-
-	}
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param type the type
+	 * @return the versioned object, null if the key does not exist
+	 * @throws Exception the exception
+	 */
+	<T extends Serializable> Versioned<T> getVersionedObject(String key, Class<T> type) throws Exception;
+
+	/**
+	 * Optimistic update: writes the object at version
+	 * <code>expectedVersion + 1</code> only if the stored record is still at
+	 * the expected version, checked and written by the server in one round
+	 * trip. Version 0 stands for a missing record or one never written by this
+	 * method. The in-place updates, {@link #upsertObject(String, Serializable)}
+	 * and {@link #compareAndSet(String, Serializable, Serializable)}, store
+	 * under the next version. The plain writes reset the version: they store
+	 * the value without header, which puts the record back at version 0, so
+	 * a key written both ways may see a version again (ABA).
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param expectedVersion the version the object was read at
+	 * @return the new version, or the conflict with the stored record
+	 * @throws Exception the exception
+	 */
+	<T extends Serializable> VersionedWrite<T> saveVersionedObject(String key, T object, long expectedVersion)
+			throws Exception;
+
+	/**
+	 * Indexed version of {@link #saveVersionedObject(String, Serializable, long)}:
+	 * on success the key also moves to the given terms of the indexes, like
+	 * {@link #saveIndexedObject(String, Serializable, WriteCondition, Map)}.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param expectedVersion the version the object was read at
+	 * @param terms the term of each index
+	 * @return the new version, or the conflict with the stored record
+	 * @throws Exception the exception
+	 */
+	<T extends Serializable> VersionedWrite<T> saveVersionedObject(String key, T object, long expectedVersion,
+			Map<String, String> terms) throws Exception;
 
 	/**
 	 * Save or update bulk object.
@@ -147,205 +232,335 @@ public class RedisOperations {
 	 * @param bulk the bulk
 	 * @throws IOException Signals that an I/O exception has occurred.
 	 */
-	public <T extends Serializable> void saveOrUpdateBulkObject(Map<String, T> bulk) throws IOException {
+	<T extends Serializable> void saveOrUpdateBulkObject(Map<String, T> bulk) throws IOException;
+
+	/**
+	 * Save or update bulk object, each key expiring after its own jittered
+	 * TTL. The TTL rides on the pipelined SETs, it costs no extra command.
+	 *
+	 * @param <T> the generic type
+	 * @param bulk the bulk
+	 * @param ttlMillis the TTL in milliseconds, 0 to keep the objects forever
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	<T extends Serializable> void saveOrUpdateBulkObject(Map<String, T> bulk, long ttlMillis) throws IOException;
+
+	/**
+	 * Gets the list object. Missing keys are skipped.
+	 *
+	 * @param <T> the generic type
+	 * @param keys the keys
+	 * @param type the type
+	 * @return the list object
+	 * @throws Exception the exception
+	 */
+	<T extends Serializable> List<T> getListObject(List<String> keys, Class<T> type) throws Exception;
+
+	/**
+	 * Gets the objects aligned to the keys: the value of <code>keys.get(i)</code>
+	 * is at index <code>i</code>, null when the key is missing.
+	 *
+	 * @param <T> the generic type
+	 * @param keys the keys
+	 * @param type the type
+	 * @return the values, aligned to the keys
+	 * @throws Exception the exception
+	 */
+	<T extends Serializable> List<T> multiGetObject(List<String> keys, Class<T> type) throws Exception;
+
+	/**
+	 * Gets the objects by key, in key order. Missing keys are present in the
+	 * map with a null value.
+	 *
+	 * @param <T> the generic type
+	 * @param keys the keys
+	 * @param type the type
+	 * @return the map object
+	 * @throws Exception the exception
+	 */
+	<T extends Serializable> Map<String, T> getMapObject(List<String> keys, Class<T> type) throws Exception;
+
+	/**
+	 * Save or update a hash, replacing every field currently stored under the
+	 * key. Null values are not stored.
+	 *
+	 * @param key the key
+	 * @param fields the fields
+	 */
+	void saveOrUpdateHash(String key, Map<String, String> fields);
+
+	/**
+	 * Update hash fields in place, leaving the other fields untouched. A null
+	 * value removes the field.
+	 *
+	 * @param key the key
+	 * @param fields the fields
+	 */
+	void updateHashFields(String key, Map<String, String> fields);
+
+	/**
+	 * Gets only the requested hash fields. Missing fields are mapped to null.
+	 *
+	 * @param key the key
+	 * @param fields the fields
+	 * @return the hash fields, in the requested order
+	 */
+	Map<String, String> getHashFields(String key, String... fields);
+
+	/**
+	 * Gets the whole hash.
+	 *
+	 * @param key the key
+	 * @return the hash, empty if the key does not exist
+	 */
+	Map<String, String> getHash(String key);
+
+	/**
+	 * Delete keys.
+	 *
+	 * @param keys the keys
+	 * @return the number of keys deleted
+	 */
+	long deleteKeys(String... keys);
+
+	/**
+	 * Writes the object and moves the key to the given terms of the
+	 * lexicographic indexes, see {@link LexIndex}, as one atomic step. Indexes
+	 * missing from the terms are left untouched, a null term removes the key
+	 * from that index. When the condition fails nothing changes.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param condition the condition
+	 * @param terms the term of each index
+	 * @return "OK", or null if the condition failed
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	<T extends Serializable> String saveIndexedObject(String key, T object, WriteCondition condition,
+			Map<String, String> terms) throws IOException;
+
+	/**
+	 * Indexed write of an object expiring after the TTL. The terms of the key
+	 * expire with the record, and the lookups prune the index entries of the
+	 * keys that expired.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param condition the condition
+	 * @param terms the term of each index
+	 * @param ttlMillis the TTL in milliseconds, 0 to keep the object forever
+	 * @return "OK", or null if the condition failed
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @see #saveIndexedObject(String, Serializable, WriteCondition, Map)
+	 */
+	<T extends Serializable> String saveIndexedObject(String key, T object, WriteCondition condition,
+			Map<String, String> terms, long ttlMillis) throws IOException;
+
+	/**
+	 * Bulk version of {@link #saveIndexedObject(String, Serializable, WriteCondition, Map)}
+	 * with {@link WriteCondition#ALWAYS}. Each key is written atomically with
+	 * its index terms, the bulk is not atomic.
+	 *
+	 * @param <T> the generic type
+	 * @param bulk the bulk
+	 * @param terms the terms of each object
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	<T extends Serializable> void saveIndexedBulkObject(Map<String, T> bulk, Function<? super T, Map<String, String>> terms)
+			throws IOException;
 
-		if (bulk == null) {
-			throw new RuntimeException("bulk cannot be null or empty");
-		}
+	/**
+	 * Bulk version of
+	 * {@link #saveIndexedObject(String, Serializable, WriteCondition, Map, long)}
+	 * with {@link WriteCondition#ALWAYS}.
+	 *
+	 * @param <T> the generic type
+	 * @param bulk the bulk
+	 * @param terms the terms of each object
+	 * @param ttlMillis the TTL in milliseconds, 0 to keep the objects forever
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	<T extends Serializable> void saveIndexedBulkObject(Map<String, T> bulk,
+			Function<? super T, Map<String, String>> terms, long ttlMillis) throws IOException;
 
-		try {
+	/**
+	 * Bulk version of {@link #saveIndexedObject(String, Serializable, WriteCondition, Map)}
+	 * telling the outcome of each write: the writes are pipelined, each one
+	 * is atomic and checks its own condition.
+	 *
+	 * @param <T> the generic type
+	 * @param bulk the bulk
+	 * @param condition the condition
+	 * @param terms the terms of each object
+	 * @return "OK", or null if the condition failed, for each key in the bulk
+	 *         order
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	<T extends Serializable> List<String> saveIndexedObjects(Map<String, T> bulk, WriteCondition condition,
+			Function<? super T, Map<String, String>> terms) throws IOException;
 
-			try (Jedis jedis = redisFactory.getResource()) {
-				Pipeline p = jedis.pipelined();
+	/**
+	 * Writes the hash and moves the key to the given terms of the indexes, as
+	 * one atomic step.
+	 *
+	 * @param key the key
+	 * @param fields the fields, a null value removes the field
+	 * @param replace true to replace the whole hash like
+	 *            {@link #saveOrUpdateHash(String, Map)}, false to update the
+	 *            fields like {@link #updateHashFields(String, Map)}, only if
+	 *            the key exists
+	 * @param terms the term of each index
+	 * @return true, if written; false if the fields were to be updated and
+	 *         the key does not exist
+	 */
+	boolean saveIndexedHash(String key, Map<String, String> fields, boolean replace, Map<String, String> terms);
 
-				Iterator<Entry<String, T>> it = bulk.entrySet().iterator();
-				while (it.hasNext()) {
-					Map.Entry<String, T> pair = (Map.Entry<String, T>) it.next();
-					byte[] key = pair.getKey().getBytes();
-					byte[] value = serializeObject(pair.getValue());
-					p.set(key, value);
-				}
-				p.sync();
-			}
+	/**
+	 * Deletes the keys and removes them from the indexes, each key atomically.
+	 *
+	 * @param indexes the indexes the keys may be in
+	 * @param keys the keys
+	 * @return the number of deleted keys
+	 */
+	long deleteIndexedKeys(Collection<String> indexes, String... keys);
 
-		} catch (IOException ex) {
-			LOG.error("I/O Error when trying to save bulk object", ex);
-			throw ex;
-		} catch (Exception ex) {
-			LOG.error("Error when trying to save bulk object", ex);
-			throw ex;
-		}
+	/**
+	 * Like {@link #deleteIndexedKeys(Collection, String...)}, telling which
+	 * keys existed.
+	 *
+	 * @param indexes the indexes the keys may be in
+	 * @param keys the keys
+	 * @return true for each deleted key, in the key order
+	 */
+	List<Boolean> deleteIndexedKeysEach(Collection<String> indexes, String... keys);
 
-	}
+	/**
+	 * Gets a page of the keys indexed under a term starting with the prefix,
+	 * in term order. The keys that expired are left out and pruned from the
+	 * index, so a page may hold fewer keys than asked.
+	 *
+	 * @param index the index
+	 * @param prefix the prefix, null or empty for every term
+	 * @param offset the offset
+	 * @param count the page size
+	 * @return the keys
+	 */
+	List<String> indexPrefix(String index, String prefix, int offset, int count);
 
 	/**
-	 * Gets the list object.
+	 * Gets a page of the keys indexed under a term between from and to, both
+	 * inclusive, in term order. The keys that expired are left out and
+	 * pruned from the index, so a page may hold fewer keys than asked.
 	 *
-	 * @param <T>            the generic type
-	 * @param keys            the keys
-	 * @param type            the type
-	 * @return the list object
-	 * @throws Exception the exception
+	 * @param index the index
+	 * @param from the first term, null for unbounded
+	 * @param to the last term, null for unbounded
+	 * @param offset the offset
+	 * @param count the page size
+	 * @return the keys
 	 */
-	public <T extends Serializable> List<T> getListObject(List<String> keys, Class<T> type) throws Exception {
-		if (keys == null || keys.isEmpty()) {
-			throw new RuntimeException("keys cannot be null or empty");
-		}
+	List<String> indexRange(String index, String from, String to, int offset, int count);
 
-		List<T> result = new ArrayList<>(keys.size());
-		List<Object> responses = new ArrayList<>(keys.size());
+	/**
+	 * Reads one page of a SCAN over the keyspace: the string values of the
+	 * keys matching the pattern, decoded as the type. Keys holding other
+	 * types, hashes or indexes, are skipped. The count is a hint of the keys
+	 * visited per call, a page may hold fewer objects, even none, and a key
+	 * may show up on more than one page if the keyspace is resized meanwhile.
+	 *
+	 * @param <T> the generic type
+	 * @param cursor the cursor, {@link ScanPage#START} for the first page
+	 * @param pattern the glob-style pattern of the keys
+	 * @param count the keys visited per call
+	 * @param type the type
+	 * @return the page, with the cursor of the next one
+	 * @throws Exception the exception
+	 */
+	<T extends Serializable> ScanPage<T> scanObjects(String cursor, String pattern, int count, Class<T> type)
+			throws Exception;
 
-		try {
+	/**
+	 * Streams the objects of the keys matching the pattern, reading a page
+	 * with {@link #scanObjects(String, String, int, Class)} only as the stream
+	 * is consumed, so at most one page is held in memory.
+	 *
+	 * @param <T> the generic type
+	 * @param pattern the glob-style pattern of the keys
+	 * @param count the keys visited per call
+	 * @param type the type
+	 * @return the lazy stream of objects by key
+	 */
+	<T extends Serializable> Stream<Entry<String, T>> streamObjects(String pattern, int count, Class<T> type);
 
-			try (Jedis jedis = redisFactory.getResource()) {
-				Pipeline p = jedis.pipelined();
+	/**
+	 * Async version of {@link #saveOrUpdateObject(String, Serializable)}.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @return the completable future
+	 */
+	<T extends Serializable> CompletableFuture<String> saveOrUpdateObjectAsync(String key, T object);
 
-				for (String k : keys) {
-					p.get(k.getBytes());
-				}
-				responses = p.syncAndReturnAll();
-			}
+	/**
+	 * Async version of {@link #getObject(String, Class)}.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param type the type
+	 * @return the completable future
+	 */
+	<T extends Serializable> CompletableFuture<T> getObjectAsync(String key, Class<T> type);
 
-			for (Object o : responses) {
-				if (o != null) {
-					result.add(deserializeObject((byte[]) o, type));
-				}
-			}
+	/**
+	 * Async version of {@link #getListObject(List, Class)}.
+	 *
+	 * @param <T> the generic type
+	 * @param keys the keys
+	 * @param type the type
+	 * @return the completable future
+	 */
+	<T extends Serializable> CompletableFuture<List<T>> getListObjectAsync(List<String> keys, Class<T> type);
 
-			return result;
+	/**
+	 * Async version of {@link #deleteKeys(String...)}.
+	 *
+	 * @param keys the keys
+	 * @return the completable future
+	 */
+	CompletableFuture<Long> deleteKeysAsync(String... keys);
 
-		} catch (IOException ex) {
-			LOG.error("I/O Error when trying to save bulk object", ex);
-			throw ex;
-		} catch (Exception ex) {
-			LOG.error("Error when trying to save bulk object", ex);
-			throw ex;
-		}
-	}
+	/**
+	 * Async version of {@link #saveIndexedObject(String, Serializable, WriteCondition, Map)}.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param condition the condition
+	 * @param terms the term of each index
+	 * @return the completable future
+	 */
+	<T extends Serializable> CompletableFuture<String> saveIndexedObjectAsync(String key, T object,
+			WriteCondition condition, Map<String, String> terms);
 
 	/**
-	 * Delete keys.
+	 * Async version of {@link #deleteIndexedKeys(Collection, String...)}.
 	 *
-	 * @param keys
-	 *            the keys
-	 * @return the long
+	 * @param indexes the indexes the keys may be in
+	 * @param keys the keys
+	 * @return the completable future
 	 */
-	public long deleteKeys(String... keys) {
-		long numberDeleted = 0;
-		try (Jedis jedis = redisFactory.getResource()) {
-			numberDeleted = jedis.del(keys);
-		}
-		return numberDeleted;
-	}
-	
+	CompletableFuture<Long> deleteIndexedKeysAsync(Collection<String> indexes, String... keys);
 
 	/**
-	 * Script load.
+	 * Registers the codec used to store values of the type.
 	 *
-	 * @param script
-	 *            the script
-	 * @return the string
+	 * @param <T> the generic type
+	 * @param type the type
+	 * @param codec the codec
 	 */
-	public String scriptLoad(String script) {
-		String sha = null;
-		try (Jedis jedis = redisFactory.getResource()) {
-			sha = jedis.scriptLoad(script);
-		}
-		return sha;
-	}
-
-	/**
-	 * Serialize object.
-	 *
-	 * @param <T>
-	 *            the generic type
-	 * @param object
-	 *            the object
-	 * @return the byte[]
-	 * @throws IOException
-	 *             Signals that an I/O exception has occurred.
-	 */
-	private <T extends Serializable> byte[] serializeObject(T object) throws IOException {
-
-		ByteArrayOutputStream bos = new ByteArrayOutputStream();
-		ObjectOutput out = null;
-
-		try {
-
-			out = new ObjectOutputStream(bos);
-			out.writeObject(object);
-
-			byte[] bytes = bos.toByteArray();
-
-			return bytes;
-		} catch (Exception ex) {
-			LOG.error("Unknown Error when trying to serialize Object", ex);
-			throw ex;
-		} finally {
-			try {
-				if (out != null) {
-					out.close();
-				}
-			} catch (Exception eex) {
-				// ignore
-			}
-
-			try {
-				bos.close();
-			} catch (Exception eeex) {
-				/// ignore
-			}
-		}
-
-	}
-
-	/**
-	 * Deserialize object.
-	 *
-	 * @param <T>
-	 *            the generic type
-	 * @param bytes
-	 *            the bytes
-	 * @param type
-	 *            the type
-	 * @return the t
-	 * @throws Exception
-	 *             the exception
-	 */
-	@SuppressWarnings("unchecked")
-	private <T extends Serializable> T deserializeObject(byte[] bytes, Class<T> type) throws Exception {
-
-		ByteArrayInputStream bis = null;
-		ObjectInput in = null;
-
-		try {
-			bis = new ByteArrayInputStream(bytes);
-			in = new ObjectInputStream(bis);
-			Object o = in.readObject();
-			if (type.isInstance(o)) {
-				return (T) o;
-			} else {
-				throw new IllegalArgumentException("Object is not " + type.getCanonicalName());
-			}
-		} catch (Exception ex) {
-			LOG.error("Error when trying to deserializeObject", ex);
-			throw ex;
-		} finally {
-			try {
-				if (in != null) {
-					in.close();
-				}
-			} catch (Exception eex) {
-				// ignore
-			}
-
-			try {
-				bis.close();
-			} catch (Exception eeex) {
-				/// ignore
-			}
-		}
-
-	}
+	<T extends Serializable> void registerCodec(Class<T> type, ValueCodec<T> codec);
 
 }
@@ -19,6 +19,7 @@
  */
 package com.gbmartins.redis.dao;
 
+import javax.annotation.PreDestroy;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -33,6 +34,7 @@ import com.google.common.base.Strings;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Protocol;
 
 /**
  * The Class RedisPoolConnection.
@@ -57,9 +59,65 @@ public class RedisPoolConnection {
 		LOG.info("Redis Factory initialized with Hostname: {}, Port {}, Password: {}", redisInstanceSetup.getHostname(),
 				redisInstanceSetup.getPort(),
 				Strings.isNullOrEmpty(redisInstanceSetup.getPassword()) ? "<empty>" : "*******");
+		LOG.info("Redis Pool configured with Max Total: {}, Max Idle: {}, Min Idle: {}, Max Wait: {} ms, "
+				+ "Connection Timeout: {} ms, Socket Timeout: {} ms", redisInstanceSetup.getPoolMaxTotal(),
+				redisInstanceSetup.getPoolMaxIdle(), redisInstanceSetup.getPoolMinIdle(),
+				redisInstanceSetup.getPoolMaxWaitMillis(), redisInstanceSetup.getConnectionTimeout(),
+				redisInstanceSetup.getSoTimeout());
+
 		JedisPoolConfig config = new JedisPoolConfig();
-		pool = new JedisPool(config, redisInstanceSetup.getHostname(), redisInstanceSetup.getPort(), 0,
-				redisInstanceSetup.getPassword());
+		config.setMaxTotal(redisInstanceSetup.getPoolMaxTotal());
+		config.setMaxIdle(redisInstanceSetup.getPoolMaxIdle());
+		config.setMinIdle(redisInstanceSetup.getPoolMinIdle());
+		config.setMaxWaitMillis(redisInstanceSetup.getPoolMaxWaitMillis());
+		config.setJmxNamePrefix("redis-pool");
+		pool = new JedisPool(config, redisInstanceSetup.getHostname(), redisInstanceSetup.getPort(),
+				redisInstanceSetup.getConnectionTimeout(), redisInstanceSetup.getSoTimeout(),
+				Strings.emptyToNull(redisInstanceSetup.getPassword()), Protocol.DEFAULT_DATABASE, null, false, null,
+				null, null);
+
+		if (redisInstanceSetup.isPoolPrefill()) {
+			prefill(redisInstanceSetup.getPoolMinIdle());
+		}
+	}
+
+	/**
+	 * Opens the connections up front, so the first requests after startup do
+	 * not pay for the connection setup.
+	 *
+	 * @param count
+	 *            the number of connections
+	 */
+	private void prefill(int count) {
+		if (count <= 0) {
+			LOG.warn("Redis Pool prefill skipped, min idle is {}", count);
+			return;
+		}
+
+		try {
+			pool.addObjects(count);
+			LOG.info("Redis Pool prefilled with {} connections", pool.getNumIdle());
+		} catch (Exception ex) {
+			LOG.warn("Redis Pool prefill failed, connections will be opened on demand", ex);
+		}
+	}
+
+	/**
+	 * Gets a snapshot of the pool usage.
+	 *
+	 * @return the stats
+	 */
+	public PoolStats getStats() {
+		return new PoolStats(pool.getNumActive(), pool.getNumIdle(), pool.getNumWaiters(),
+				pool.getMeanBorrowWaitTimeMillis(), pool.getMaxBorrowWaitTimeMillis());
+	}
+
+	/**
+	 * Closes the pool.
+	 */
+	@PreDestroy
+	public void destroy() {
+		pool.close();
 	}
 
 	/**
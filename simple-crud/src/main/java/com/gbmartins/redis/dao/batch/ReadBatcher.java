@@ -0,0 +1,300 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.batch;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * The Class ReadBatcher.
+ * <p>
+ * Coalesces concurrent single key reads into one MGET. Callers enqueue a key
+ * and get a future back; a single flusher thread waits for the first request,
+ * keeps collecting until the batch is full or the maximum delay has passed,
+ * and resolves every waiting future from one reply on one connection. Callers
+ * asking for the same key in the same window share a slot of the MGET.
+ * <p>
+ * While a batch is on the wire the next one is already filling up, so under
+ * load throughput grows with the batch size rather than with the pool size.
+ * Closing fails the requests not sent yet, and the ones made afterwards.
+ */
+public class ReadBatcher implements Runnable, Closeable {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(ReadBatcher.class);
+
+	/** The connections the batches are read from. */
+	private final Supplier<Jedis> connections;
+
+	/** The max batch size. */
+	private final int maxBatchSize;
+
+	/** The max delay in nanos. */
+	private final long maxDelayNanos;
+
+	/** The pending requests. */
+	private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+	/** The thread. */
+	private final Thread thread;
+
+	/** The batches. */
+	private final LongAdder batches = new LongAdder();
+
+	/** The requests. */
+	private final LongAdder requests = new LongAdder();
+
+	/** The running. */
+	private volatile boolean running = true;
+
+	/**
+	 * Instantiates a new read batcher.
+	 *
+	 * @param connections
+	 *            the connections the batches are read from, the primary pool
+	 *            or the replicas
+	 * @param maxBatchSize
+	 *            the max batch size
+	 * @param maxDelayMicros
+	 *            the max latency added to a read while its batch fills up
+	 */
+	public ReadBatcher(Supplier<Jedis> connections, int maxBatchSize, long maxDelayMicros) {
+		if (maxBatchSize <= 0) {
+			throw new IllegalArgumentException("maxBatchSize must be positive");
+		}
+
+		this.connections = connections;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+		this.thread = new Thread(this, "redis-read-batcher");
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts the flusher.
+	 */
+	public void start() {
+		thread.start();
+	}
+
+	/**
+	 * Queues the read of a key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the future value, completed with null when the key is missing
+	 */
+	public CompletableFuture<byte[]> get(String key) {
+		CompletableFuture<byte[]> future = new CompletableFuture<>();
+		if (!running) {
+			future.completeExceptionally(new IllegalStateException("ReadBatcher is closed"));
+			return future;
+		}
+
+		requests.increment();
+		Request request = new Request(key, future);
+		queue.add(request);
+		if (!running && queue.remove(request)) {
+			// closed meanwhile, the flusher may have drained the queue already
+			future.completeExceptionally(closed());
+		}
+		return future;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		List<Request> batch = new ArrayList<>(maxBatchSize);
+
+		while (running) {
+			try {
+				Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+
+				batch.add(first);
+				long deadline = System.nanoTime() + maxDelayNanos;
+				while (batch.size() < maxBatchSize) {
+					if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+						continue;
+					}
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						break;
+					}
+					Request next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+
+				flush(batch);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				break;
+			} finally {
+				// no-op for the flushed requests, fails the ones collected
+				// when interrupted
+				for (Request request : batch) {
+					request.future.completeExceptionally(closed());
+				}
+				batch.clear();
+			}
+		}
+
+		failPending();
+	}
+
+	/**
+	 * Fails the requests still queued.
+	 */
+	private void failPending() {
+		Request pending;
+		while ((pending = queue.poll()) != null) {
+			pending.future.completeExceptionally(closed());
+		}
+	}
+
+	/**
+	 * Gets the error of the requests made or left pending after close.
+	 *
+	 * @return the exception
+	 */
+	private static IllegalStateException closed() {
+		return new IllegalStateException("ReadBatcher is closed");
+	}
+
+	/**
+	 * Flushes the batch as one MGET.
+	 *
+	 * @param batch
+	 *            the batch
+	 */
+	private void flush(List<Request> batch) {
+		Map<String, List<CompletableFuture<byte[]>>> waiters = new LinkedHashMap<>(batch.size() * 2);
+		for (Request request : batch) {
+			waiters.computeIfAbsent(request.key, k -> new ArrayList<>(1)).add(request.future);
+		}
+
+		byte[][] keys = new byte[waiters.size()][];
+		int i = 0;
+		for (String key : waiters.keySet()) {
+			keys[i++] = key.getBytes();
+		}
+
+		try {
+			List<byte[]> values;
+			try (Jedis jedis = connections.get()) {
+				values = jedis.mget(keys);
+			}
+			batches.increment();
+
+			i = 0;
+			for (List<CompletableFuture<byte[]>> futures : waiters.values()) {
+				byte[] value = values.get(i++);
+				for (CompletableFuture<byte[]> future : futures) {
+					future.complete(value);
+				}
+			}
+		} catch (Exception ex) {
+			LOG.error("Error when trying to flush batch of {} keys", keys.length, ex);
+			for (Request request : batch) {
+				request.future.completeExceptionally(ex);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		running = false;
+		thread.interrupt();
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(1));
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		failPending();
+	}
+
+	/**
+	 * Gets the number of batches sent.
+	 *
+	 * @return the batches
+	 */
+	public long getBatches() {
+		return batches.sum();
+	}
+
+	/**
+	 * Gets the number of reads queued.
+	 *
+	 * @return the requests
+	 */
+	public long getRequests() {
+		return requests.sum();
+	}
+
+	/**
+	 * The Class Request.
+	 */
+	private static final class Request {
+
+		/** The key. */
+		private final String key;
+
+		/** The future. */
+		private final CompletableFuture<byte[]> future;
+
+		/**
+		 * Instantiates a new request.
+		 *
+		 * @param key
+		 *            the key
+		 * @param future
+		 *            the future
+		 */
+		private Request(String key, CompletableFuture<byte[]> future) {
+			this.key = key;
+			this.future = future;
+		}
+	}
+
+}
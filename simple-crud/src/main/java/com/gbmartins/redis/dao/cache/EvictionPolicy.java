@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.cache;
+
+/**
+ * The Enum EvictionPolicy.
+ */
+public enum EvictionPolicy {
+
+	/** Evicts the least recently used entry. */
+	LRU,
+
+	/**
+	 * Evicts the least frequently used entry among a small sample of the
+	 * oldest entries, the same approximation Redis uses for its own LFU.
+	 */
+	LFU;
+
+	/**
+	 * Parses the policy name, case insensitive. Empty names resolve to
+	 * {@link #LRU}.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the eviction policy
+	 */
+	public static EvictionPolicy fromName(String name) {
+		if (name == null || name.trim().isEmpty()) {
+			return LRU;
+		}
+		return valueOf(name.trim().toUpperCase());
+	}
+}
@@ -0,0 +1,392 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Class NearCache.
+ * <p>
+ * Size bounded, in-process cache of raw values keyed by Redis key. Values are
+ * kept encoded, so every hit returns a fresh decoded object and callers cannot
+ * corrupt the cache by mutating what they get back.
+ * <p>
+ * The cache is split in segments, each guarded by its own lock, so concurrent
+ * readers of different keys do not contend. Every invalidation bumps the
+ * segment epoch: a reader takes a {@link #stamp(String)} before going to Redis
+ * and {@link #put(String, byte[], long)} drops the value if the segment was
+ * invalidated in the meantime, so a slow read never re-caches a value that
+ * another node already replaced.
+ */
+public class NearCache {
+
+	/** The Constant LFU_SAMPLE. */
+	private static final int LFU_SAMPLE = 16;
+
+	/** The segments. */
+	private final Segment[] segments;
+
+	/** The segment mask. */
+	private final int mask;
+
+	/** The ttl in nanos, 0 for no expiration. */
+	private final long ttlNanos;
+
+	/** The policy. */
+	private final EvictionPolicy policy;
+
+	/** The hits. */
+	private final LongAdder hits = new LongAdder();
+
+	/** The misses. */
+	private final LongAdder misses = new LongAdder();
+
+	/** The evictions. */
+	private final LongAdder evictions = new LongAdder();
+
+	/** The invalidations. */
+	private final LongAdder invalidations = new LongAdder();
+
+	/**
+	 * Instantiates a new near cache.
+	 *
+	 * @param maxSize
+	 *            the max number of entries
+	 * @param ttlMillis
+	 *            the time to live in milliseconds, 0 for no expiration
+	 * @param policy
+	 *            the eviction policy
+	 */
+	public NearCache(int maxSize, long ttlMillis, EvictionPolicy policy) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+
+		int count = 1;
+		while (count < 16 && count * 64 < maxSize) {
+			count <<= 1;
+		}
+
+		this.segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(Math.max(1, maxSize / count), policy);
+		}
+		this.mask = count - 1;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.policy = policy;
+	}
+
+	/**
+	 * Gets the cached value.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value, null on miss
+	 */
+	public byte[] get(String key) {
+		byte[] value = segmentFor(key).get(key, System.nanoTime());
+		if (value == null) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Stamp taken before reading the key from Redis.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the stamp
+	 */
+	public long stamp(String key) {
+		return segmentFor(key).epoch;
+	}
+
+	/**
+	 * Caches the value, unless the key segment was invalidated after the stamp
+	 * was taken.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @param stamp
+	 *            the stamp
+	 */
+	public void put(String key, byte[] value, long stamp) {
+		long expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : Long.MAX_VALUE;
+		if (segmentFor(key).put(key, value, expiresAt, stamp)) {
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * Invalidates the key.
+	 *
+	 * @param key
+	 *            the key
+	 */
+	public void invalidate(String key) {
+		segmentFor(key).invalidate(key);
+		invalidations.increment();
+	}
+
+	/**
+	 * Invalidates every key.
+	 */
+	public void invalidateAll() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+		invalidations.increment();
+	}
+
+	/**
+	 * Gets the number of entries.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Gets the hits.
+	 *
+	 * @return the hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the misses.
+	 *
+	 * @return the misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the evictions.
+	 *
+	 * @return the evictions
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Gets the invalidations.
+	 *
+	 * @return the invalidations
+	 */
+	public long getInvalidations() {
+		return invalidations.sum();
+	}
+
+	/**
+	 * Gets the policy.
+	 *
+	 * @return the policy
+	 */
+	public EvictionPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Segment for.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the segment
+	 */
+	private Segment segmentFor(String key) {
+		int h = key.hashCode();
+		return segments[(h ^ (h >>> 16)) & mask];
+	}
+
+	/**
+	 * The Class Entry.
+	 */
+	private static final class Entry {
+
+		/** The value. */
+		private final byte[] value;
+
+		/** The expires at. */
+		private final long expiresAt;
+
+		/** The frequency. */
+		private int frequency;
+
+		/**
+		 * Instantiates a new entry.
+		 *
+		 * @param value
+		 *            the value
+		 * @param expiresAt
+		 *            the expires at
+		 */
+		private Entry(byte[] value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * The Class Segment.
+	 */
+	private static final class Segment {
+
+		/** The max size. */
+		private final int maxSize;
+
+		/** The policy. */
+		private final EvictionPolicy policy;
+
+		/** The entries, in access order for LRU and insertion order for LFU. */
+		private final LinkedHashMap<String, Entry> entries;
+
+		/** The epoch. */
+		private volatile long epoch;
+
+		/**
+		 * Instantiates a new segment.
+		 *
+		 * @param maxSize
+		 *            the max size
+		 * @param policy
+		 *            the policy
+		 */
+		private Segment(int maxSize, EvictionPolicy policy) {
+			this.maxSize = maxSize;
+			this.policy = policy;
+			this.entries = new LinkedHashMap<>(16, 0.75f, policy == EvictionPolicy.LRU);
+		}
+
+		/**
+		 * Gets the value.
+		 *
+		 * @param key
+		 *            the key
+		 * @param now
+		 *            the now
+		 * @return the byte[]
+		 */
+		private synchronized byte[] get(String key, long now) {
+			Entry entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (entry.expiresAt - now < 0) {
+				entries.remove(key);
+				return null;
+			}
+			if (entry.frequency < Integer.MAX_VALUE) {
+				entry.frequency++;
+			}
+			return entry.value;
+		}
+
+		/**
+		 * Put.
+		 *
+		 * @param key
+		 *            the key
+		 * @param value
+		 *            the value
+		 * @param expiresAt
+		 *            the expires at
+		 * @param stamp
+		 *            the stamp
+		 * @return true, if an entry was evicted
+		 */
+		private synchronized boolean put(String key, byte[] value, long expiresAt, long stamp) {
+			if (stamp != epoch) {
+				return false;
+			}
+
+			entries.put(key, new Entry(value, expiresAt));
+			if (entries.size() <= maxSize) {
+				return false;
+			}
+
+			Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+			if (policy == EvictionPolicy.LRU) {
+				it.next();
+				it.remove();
+				return true;
+			}
+
+			String victim = null;
+			int lowest = Integer.MAX_VALUE;
+			for (int i = 0; i < LFU_SAMPLE && it.hasNext(); i++) {
+				Map.Entry<String, Entry> candidate = it.next();
+				if (!candidate.getKey().equals(key) && candidate.getValue().frequency < lowest) {
+					victim = candidate.getKey();
+					lowest = candidate.getValue().frequency;
+				}
+			}
+			entries.remove(victim);
+			return true;
+		}
+
+		/**
+		 * Invalidate.
+		 *
+		 * @param key
+		 *            the key
+		 */
+		private synchronized void invalidate(String key) {
+			epoch++;
+			entries.remove(key);
+		}
+
+		/**
+		 * Clear.
+		 */
+		private synchronized void clear() {
+			epoch++;
+			entries.clear();
+		}
+
+		/**
+		 * Size.
+		 *
+		 * @return the int
+		 */
+		private synchronized int size() {
+			return entries.size();
+		}
+	}
+
+}
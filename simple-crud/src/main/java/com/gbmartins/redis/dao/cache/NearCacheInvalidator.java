@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.cache;
+
+import java.io.Closeable;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.google.common.base.Strings;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * The Class NearCacheInvalidator.
+ * <p>
+ * Listens to Redis keyspace notifications on a dedicated connection and drops
+ * the near cache entry of every key written or expired by any client. While
+ * the subscription is down the cache cannot tell what changed, so it is
+ * cleared when the connection is lost and again once each subscription is
+ * active, when the notifications written meanwhile can no longer be missed.
+ */
+public class NearCacheInvalidator implements Runnable, Closeable {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(NearCacheInvalidator.class);
+
+	/** The Constant PATTERN. */
+	private static final String PATTERN = "__keyspace@*__:*";
+
+	/** The Constant RETRY_MILLIS. */
+	private static final long RETRY_MILLIS = 1000;
+
+	/** The cache. */
+	private final NearCache cache;
+
+	/** The redis instance setup. */
+	private final RedisInstanceSetup redisInstanceSetup;
+
+	/** The subscriber. */
+	private final Subscriber subscriber = new Subscriber();
+
+	/** The thread. */
+	private final Thread thread;
+
+	/** The running. */
+	private volatile boolean running = true;
+
+	/**
+	 * Instantiates a new near cache invalidator.
+	 *
+	 * @param cache
+	 *            the cache
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 */
+	public NearCacheInvalidator(NearCache cache, RedisInstanceSetup redisInstanceSetup) {
+		super();
+		this.cache = cache;
+		this.redisInstanceSetup = redisInstanceSetup;
+		this.thread = new Thread(this, "near-cache-invalidator");
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts listening.
+	 */
+	public void start() {
+		thread.start();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		while (running) {
+			try (Jedis jedis = new Jedis(redisInstanceSetup.getHostname(), redisInstanceSetup.getPort())) {
+				if (!Strings.isNullOrEmpty(redisInstanceSetup.getPassword())) {
+					jedis.auth(redisInstanceSetup.getPassword());
+				}
+				enableNotifications(jedis);
+				jedis.psubscribe(subscriber, PATTERN);
+			} catch (Exception ex) {
+				if (running) {
+					LOG.warn("Near cache invalidation connection lost, retrying in {} ms", RETRY_MILLIS, ex);
+					cache.invalidateAll();
+					sleep();
+				}
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		running = false;
+		try {
+			if (subscriber.isSubscribed()) {
+				subscriber.punsubscribe();
+			}
+		} catch (Exception ex) {
+			// ignore
+		}
+		thread.interrupt();
+	}
+
+	/**
+	 * Makes sure the server publishes keyspace events for generic and string
+	 * commands. Managed servers often forbid CONFIG, in that case the setting
+	 * has to be done on the server side.
+	 *
+	 * @param jedis
+	 *            the jedis
+	 */
+	private void enableNotifications(Jedis jedis) {
+		try {
+			List<String> config = jedis.configGet("notify-keyspace-events");
+			String flags = config.size() > 1 ? config.get(1) : "";
+			if (!flags.contains("K") || !(flags.contains("A") || flags.contains("$") && flags.contains("g"))) {
+				jedis.configSet("notify-keyspace-events", flags + "K$gx");
+			}
+		} catch (Exception ex) {
+			LOG.warn("Keyspace notifications could not be enabled, near cache relies on TTL only", ex);
+		}
+	}
+
+	/**
+	 * Sleep.
+	 */
+	private void sleep() {
+		try {
+			Thread.sleep(RETRY_MILLIS);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * The Class Subscriber.
+	 */
+	private class Subscriber extends JedisPubSub {
+
+		/* (non-Javadoc)
+		 * @see redis.clients.jedis.JedisPubSub#onPSubscribe(java.lang.String, int)
+		 */
+		@Override
+		public void onPSubscribe(String pattern, int subscribedChannels) {
+			cache.invalidateAll();
+		}
+
+		/* (non-Javadoc)
+		 * @see redis.clients.jedis.JedisPubSub#onPMessage(java.lang.String, java.lang.String, java.lang.String)
+		 */
+		@Override
+		public void onPMessage(String pattern, String channel, String message) {
+			int separator = channel.indexOf("__:");
+			if (separator > 0) {
+				cache.invalidate(channel.substring(separator + 3));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,1230 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.cluster;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gbmartins.redis.dao.AbstractRedisOperations;
+import com.gbmartins.redis.dao.BulkWriteException;
+import com.gbmartins.redis.dao.BulkWriteException.ChunkFailure;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.codec.CodecRegistry;
+import com.gbmartins.redis.dao.index.LexIndex;
+import com.gbmartins.redis.dao.index.WriteCondition;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.dao.scan.ScanPage;
+import com.gbmartins.redis.dao.script.RedisScript;
+import com.gbmartins.redis.dao.script.ScriptRegistry;
+import com.gbmartins.redis.dao.script.UpsertResult;
+import com.gbmartins.redis.dao.version.VersionHeader;
+import com.gbmartins.redis.dao.version.Versioned;
+import com.gbmartins.redis.dao.version.VersionedWrite;
+import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.jedis.exceptions.JedisRedirectionException;
+import redis.clients.util.JedisClusterCRC16;
+
+/**
+ * The Class ClusterOperations.
+ * <p>
+ * The {@link com.gbmartins.redis.dao.RedisOperations} of a Redis Cluster,
+ * used when <code>redis.cluster-nodes</code> is set. Single key operations go
+ * to the master of the key slot. Multi-key operations are split by master,
+ * and then in chunks, each chunk sent as one pipeline, all chunks in parallel.
+ * Multi-key commands (MGET, DEL of several keys) are not used, a cluster
+ * rejects them when the keys live in different slots. The near cache and the
+ * read batcher are not used in cluster mode.
+ * <p>
+ * Indexed writes are atomic for the key and its terms hash, which share a
+ * slot. The index sorted sets live in other slots and are updated right after
+ * the write, so a lookup may briefly miss a key or still return it under its
+ * previous term.
+ */
+public class ClusterOperations extends AbstractRedisOperations {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(ClusterOperations.class);
+
+	/** The cluster. */
+	private final RedisClusterConnection cluster;
+
+	/** The scripts. */
+	private final ScriptRegistry scripts;
+
+	/** The executor running the per-node pipelines. */
+	private final ThreadPoolExecutor nodeExecutor;
+
+	/** The bulk chunk size. */
+	private final int bulkChunkSize;
+
+	/** The multi-get chunk size. */
+	private final int mgetChunkSize;
+
+	/** The metrics of saveOrUpdateObject. */
+	private final OperationMetrics saveMetrics;
+
+	/** The metrics of saveIfAbsent. */
+	private final OperationMetrics saveIfAbsentMetrics;
+
+	/** The metrics of updateIfPresent. */
+	private final OperationMetrics updateIfPresentMetrics;
+
+	/** The metrics of getObject. */
+	private final OperationMetrics getMetrics;
+
+	/** The metrics of saveOrUpdateBulkObject. */
+	private final OperationMetrics bulkMetrics;
+
+	/** The metrics of multi-gets. */
+	private final OperationMetrics multiGetMetrics;
+
+	/** The metrics of saveOrUpdateHash. */
+	private final OperationMetrics saveHashMetrics;
+
+	/** The metrics of updateHashFields. */
+	private final OperationMetrics updateHashMetrics;
+
+	/** The metrics of getHashFields. */
+	private final OperationMetrics getHashFieldsMetrics;
+
+	/** The metrics of getHash. */
+	private final OperationMetrics getHashMetrics;
+
+	/** The metrics of deleteKeys. */
+	private final OperationMetrics deleteMetrics;
+
+	/** The metrics of saveIndexedObject. */
+	private final OperationMetrics saveIndexedMetrics;
+
+	/** The metrics of saveIndexedBulkObject. */
+	private final OperationMetrics bulkIndexedMetrics;
+
+	/** The metrics of saveIndexedHash. */
+	private final OperationMetrics saveIndexedHashMetrics;
+
+	/** The metrics of deleteIndexedKeys. */
+	private final OperationMetrics deleteIndexedMetrics;
+
+	/** The metrics of index lookups. */
+	private final OperationMetrics indexRangeMetrics;
+
+	/** The metrics of getVersionedObject. */
+	private final OperationMetrics getVersionedMetrics;
+
+	/** The metrics of saveVersionedObject. */
+	private final OperationMetrics saveVersionedMetrics;
+
+	/** The metrics of upsertObject. */
+	private final OperationMetrics upsertMetrics;
+
+	/** The metrics of compareAndSet. */
+	private final OperationMetrics compareAndSetMetrics;
+
+	/** The metrics of deleteIfEquals. */
+	private final OperationMetrics deleteIfEqualsMetrics;
+
+	/** The metrics of scanObjects. */
+	private final OperationMetrics scanMetrics;
+
+	/** The metrics of getAndTouchObject. */
+	private final OperationMetrics touchMetrics;
+
+	/** The metrics of saveIndexedObjects. */
+	private final OperationMetrics saveIndexedObjectsMetrics;
+
+	/**
+	 * Instantiates a new cluster operations.
+	 *
+	 * @param cluster
+	 *            the cluster
+	 * @param codecs
+	 *            the codecs
+	 * @param scripts
+	 *            the scripts
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 * @param metrics
+	 *            the metrics
+	 */
+	public ClusterOperations(RedisClusterConnection cluster, CodecRegistry codecs, ScriptRegistry scripts,
+			RedisInstanceSetup redisInstanceSetup, RedisMetrics metrics) {
+		super(codecs, redisInstanceSetup, metrics);
+		this.cluster = cluster;
+		this.scripts = scripts;
+		this.bulkChunkSize = Math.max(1, redisInstanceSetup.getBulkChunkSize());
+		this.mgetChunkSize = Math.max(1, redisInstanceSetup.getMgetChunkSize());
+		this.nodeExecutor = new ThreadPoolExecutor(redisInstanceSetup.getBulkParallelism(),
+				redisInstanceSetup.getBulkParallelism(), 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				new ThreadFactoryBuilder().setNameFormat("redis-cluster-%d").setDaemon(true).build());
+		this.nodeExecutor.allowCoreThreadTimeOut(true);
+		this.saveMetrics = metrics.get("redis.saveOrUpdateObject");
+		this.saveIfAbsentMetrics = metrics.get("redis.saveIfAbsent");
+		this.updateIfPresentMetrics = metrics.get("redis.updateIfPresent");
+		this.getMetrics = metrics.get("redis.getObject");
+		this.bulkMetrics = metrics.get("redis.saveOrUpdateBulkObject");
+		this.multiGetMetrics = metrics.get("redis.multiGetObject");
+		this.saveHashMetrics = metrics.get("redis.saveOrUpdateHash");
+		this.updateHashMetrics = metrics.get("redis.updateHashFields");
+		this.getHashFieldsMetrics = metrics.get("redis.getHashFields");
+		this.getHashMetrics = metrics.get("redis.getHash");
+		this.deleteMetrics = metrics.get("redis.deleteKeys");
+		this.saveIndexedMetrics = metrics.get("redis.saveIndexedObject");
+		this.bulkIndexedMetrics = metrics.get("redis.saveIndexedBulkObject");
+		this.saveIndexedHashMetrics = metrics.get("redis.saveIndexedHash");
+		this.deleteIndexedMetrics = metrics.get("redis.deleteIndexedKeys");
+		this.indexRangeMetrics = metrics.get("redis.indexRange");
+		this.getVersionedMetrics = metrics.get("redis.getVersionedObject");
+		this.saveVersionedMetrics = metrics.get("redis.saveVersionedObject");
+		this.upsertMetrics = metrics.get("redis.upsertObject");
+		this.compareAndSetMetrics = metrics.get("redis.compareAndSet");
+		this.deleteIfEqualsMetrics = metrics.get("redis.deleteIfEquals");
+		this.scanMetrics = metrics.get("redis.scanObjects");
+		this.touchMetrics = metrics.get("redis.getAndTouchObject");
+		this.saveIndexedObjectsMetrics = metrics.get("redis.saveIndexedObjects");
+
+		for (Entry<String, JedisPool> node : cluster.getNodes().entrySet()) {
+			try (Jedis jedis = node.getValue().getResource()) {
+				scripts.loadAll(jedis);
+			} catch (Exception ex) {
+				LOG.warn("Could not load the scripts on {}, they will be sent on first use", node.getKey(), ex);
+			}
+		}
+
+		if (redisInstanceSetup.isNearCacheEnabled() || redisInstanceSetup.isBatchEnabled()) {
+			LOG.warn("Near cache and read batching are not supported in cluster mode and are ignored");
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.AbstractRedisOperations#destroy()
+	 */
+	@Override
+	public void destroy() {
+		nodeExecutor.shutdown();
+		cluster.close();
+		super.destroy();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveOrUpdateObject(java.lang.String, java.io.Serializable, long)
+	 */
+	@Override
+	public <T extends Serializable> String saveOrUpdateObject(String key, T object, long ttlMillis)
+			throws IOException {
+		return setObject(key, object, null, ttlMillis, saveMetrics);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIfAbsent(java.lang.String, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> String saveIfAbsent(String key, T object) throws IOException {
+		return setObject(key, object, NX, 0, saveIfAbsentMetrics);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#updateIfPresent(java.lang.String, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> String updateIfPresent(String key, T object) throws IOException {
+		return setObject(key, object, XX, 0, updateIfPresentMetrics);
+	}
+
+	/**
+	 * Set object.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param nxxx NX, XX or null for an unconditional SET
+	 * @param ttlMillis the TTL of an unconditional SET, 0 for none
+	 * @param metrics the metrics of the calling operation
+	 * @return the string
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private <T extends Serializable> String setObject(String key, T object, byte[] nxxx, long ttlMillis,
+			OperationMetrics metrics) throws IOException {
+		return measured(metrics, "save object", () -> {
+			byte[] bytes = serializeObject(object);
+			metrics.bytes(bytes.length);
+			byte[] rawKey = key.getBytes();
+			long ttl = expiry(ttlMillis);
+			if (nxxx == null && ttl > 0) {
+				return cluster.execute(key, jedis -> jedis.psetex(rawKey, ttl, bytes));
+			}
+			return cluster.execute(key, jedis -> nxxx == null ? jedis.set(rawKey, bytes) : jedis.set(rawKey, bytes, nxxx));
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getVersionedObject(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public <T extends Serializable> Versioned<T> getVersionedObject(String key, Class<T> type) throws Exception {
+		return measured(getVersionedMetrics, "get versioned object", () -> {
+			byte[] bytes = cluster.execute(key, jedis -> jedis.get(key.getBytes()));
+			if (bytes != null) {
+				getVersionedMetrics.bytes(bytes.length);
+			}
+			return deserializeVersioned(bytes, type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveVersionedObject(java.lang.String, java.io.Serializable, long, java.util.Map)
+	 */
+	@Override
+	public <T extends Serializable> VersionedWrite<T> saveVersionedObject(String key, T object, long expectedVersion,
+			Map<String, String> terms) throws Exception {
+		return measured(saveVersionedMetrics, "save versioned object", () -> {
+			byte[] bytes = serializeVersioned(object, expectedVersion + 1);
+			saveVersionedMetrics.bytes(bytes.length);
+			List<byte[]> args = LexIndex.scriptArgs(LexIndex.OP_SET_VERSION, terms);
+			args.add(VersionHeader.header(expectedVersion));
+			args.add(bytes);
+
+			List<?> reply = (List<?>) cluster.execute(key, jedis -> scripts.eval(jedis, ScriptRegistry.INDEXED_WRITE,
+					LexIndex.scriptKeys(key, terms.keySet(), false), args));
+			if (!LexIndex.written(reply)) {
+				return conflict(LexIndex.storedValue(reply), object);
+			}
+			moveTerms(Collections.singletonList(key), Collections.singletonList(terms), new Object[] { reply });
+			return VersionedWrite.written(expectedVersion + 1);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#upsertObject(java.lang.String, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> UpsertResult upsertObject(String key, T object) throws IOException {
+		return measured(upsertMetrics, "upsert object", () -> {
+			byte[] bytes = serializeObject(object);
+			upsertMetrics.bytes(bytes.length);
+			Object reply = cluster.execute(key, jedis -> scripts.eval(jedis, ScriptRegistry.UPSERT,
+					Collections.singletonList(key.getBytes()), Collections.singletonList(bytes)));
+			return UpsertResult.fromReply((Long) reply);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#compareAndSet(java.lang.String, java.io.Serializable, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> boolean compareAndSet(String key, T expected, T update) throws IOException {
+		return measured(compareAndSetMetrics, "compare and set object", () -> {
+			byte[] bytes = serializeObject(update);
+			compareAndSetMetrics.bytes(bytes.length);
+			List<byte[]> args = expected == null ? Arrays.asList(ABSENT, new byte[0], bytes)
+					: Arrays.asList(PRESENT, serializeObject(expected), bytes);
+			Object reply = cluster.execute(key, jedis -> scripts.eval(jedis, ScriptRegistry.COMPARE_AND_SET,
+					Collections.singletonList(key.getBytes()), args));
+			return (Long) reply == 1;
+		});
+	}
+
+	/**
+	 * Deletes each key that still holds its expected value. The script runs
+	 * once per hash slot, the only multi-key scope a cluster accepts, so the
+	 * delete is atomic per slot.
+	 *
+	 * @param <T> the generic type
+	 * @param expected the expected object of each key
+	 * @return the number of deleted keys
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public <T extends Serializable> long deleteIfEquals(Map<String, T> expected) throws IOException {
+		return measured(deleteIfEqualsMetrics, "delete keys if equal", () -> {
+			Map<Integer, List<String>> slots = new HashMap<>();
+			for (String key : expected.keySet()) {
+				slots.computeIfAbsent(JedisClusterCRC16.getSlot(key), x -> new ArrayList<>()).add(key);
+			}
+
+			long numberDeleted = 0;
+			for (List<String> slotKeys : slots.values()) {
+				List<byte[]> keys = new ArrayList<>(slotKeys.size());
+				List<byte[]> args = new ArrayList<>(slotKeys.size());
+				for (String key : slotKeys) {
+					keys.add(key.getBytes());
+					args.add(serializeObject(expected.get(key)));
+				}
+				numberDeleted += (Long) cluster.execute(slotKeys.get(0),
+						jedis -> scripts.eval(jedis, ScriptRegistry.DELETE_IF_EQUALS, keys, args));
+			}
+			return numberDeleted;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getObject(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public <T extends Serializable> T getObject(String key, Class<T> type) throws Exception {
+		return measured(getMetrics, "get object", () -> {
+			byte[] bytes = cluster.execute(key, jedis -> jedis.get(key.getBytes()));
+			if (bytes == null) {
+				return null;
+			}
+			getMetrics.bytes(bytes.length);
+			return deserializeObject(bytes, type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getAndTouchObject(java.lang.String, java.lang.Class, long)
+	 */
+	@Override
+	public <T extends Serializable> T getAndTouchObject(String key, Class<T> type, long ttlMillis) throws Exception {
+		if (ttlMillis <= 0) {
+			throw new IllegalArgumentException("ttlMillis must be positive");
+		}
+
+		return measured(touchMetrics, "get and touch object", () -> {
+			byte[] rawKey = key.getBytes();
+			long ttl = expiry(ttlMillis);
+			byte[] bytes = cluster.execute(key, jedis -> {
+				Pipeline p = jedis.pipelined();
+				Response<byte[]> response = p.get(rawKey);
+				p.pexpire(rawKey, ttl);
+				p.pexpire(LexIndex.bytes(LexIndex.termsKey(key)), ttl);
+				p.sync();
+				return response.get();
+			});
+			if (bytes == null) {
+				return null;
+			}
+			touchMetrics.bytes(bytes.length);
+			return deserializeObject(bytes, type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getTtlMillis(java.lang.String)
+	 */
+	@Override
+	public long getTtlMillis(String key) {
+		return cluster.execute(key, jedis -> jedis.pttl(key.getBytes()));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveOrUpdateBulkObject(java.util.Map, long)
+	 */
+	@Override
+	public <T extends Serializable> void saveOrUpdateBulkObject(Map<String, T> bulk, long ttlMillis)
+			throws IOException {
+		if (bulk == null) {
+			throw new RuntimeException("bulk cannot be null or empty");
+		}
+
+		measured(bulkMetrics, "save bulk object", () -> {
+			List<String> keys = new ArrayList<>(bulk.keySet());
+			byte[][] values = new byte[keys.size()][];
+			long[] ttls = new long[keys.size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = serializeObject(bulk.get(keys.get(i)));
+				ttls[i] = expiry(ttlMillis);
+				bulkMetrics.bytes(values[i].length);
+			}
+
+			List<Chunk> chunks = submit(keys, bulkChunkSize, new KeyCommand() {
+				@Override
+				public void pipelined(Pipeline pipeline, int index) {
+					if (ttls[index] > 0) {
+						pipeline.psetex(keys.get(index).getBytes(), ttls[index], values[index]);
+					} else {
+						pipeline.set(keys.get(index).getBytes(), values[index]);
+					}
+				}
+
+				@Override
+				public Object single(Jedis jedis, int index) {
+					if (ttls[index] > 0) {
+						return jedis.psetex(keys.get(index).getBytes(), ttls[index], values[index]);
+					}
+					return jedis.set(keys.get(index).getBytes(), values[index]);
+				}
+			}, new Object[keys.size()]);
+
+			List<ChunkFailure> failures = await(chunks, keys);
+			if (!failures.isEmpty()) {
+				throw new BulkWriteException(chunks.size(), failures);
+			}
+			return null;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#multiGetObject(java.util.List, java.lang.Class)
+	 */
+	@Override
+	public <T extends Serializable> List<T> multiGetObject(List<String> keys, Class<T> type) throws Exception {
+		if (keys == null || keys.isEmpty()) {
+			throw new RuntimeException("keys cannot be null or empty");
+		}
+
+		return measured(multiGetMetrics, "get list object", () -> {
+			Object[] replies = run(keys, mgetChunkSize, new KeyCommand() {
+				@Override
+				public void pipelined(Pipeline pipeline, int index) {
+					pipeline.get(keys.get(index).getBytes());
+				}
+
+				@Override
+				public Object single(Jedis jedis, int index) {
+					return jedis.get(keys.get(index).getBytes());
+				}
+			});
+
+			byte[][] values = new byte[replies.length][];
+			for (int i = 0; i < replies.length; i++) {
+				values[i] = (byte[]) replies[i];
+				if (values[i] != null) {
+					multiGetMetrics.bytes(values[i].length);
+				}
+			}
+			return decodeAll(values, type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveOrUpdateHash(java.lang.String, java.util.Map)
+	 */
+	@Override
+	public void saveOrUpdateHash(String key, Map<String, String> fields) {
+		if (fields == null || fields.isEmpty()) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		List<byte[]> args = new ArrayList<>(fields.size() * 2);
+		for (Entry<String, String> field : fields.entrySet()) {
+			if (field.getValue() != null) {
+				args.add(LexIndex.bytes(field.getKey()));
+				args.add(LexIndex.bytes(field.getValue()));
+			}
+		}
+
+		measured(saveHashMetrics, "save hash", () -> cluster.execute(key, jedis -> scripts.eval(jedis,
+				ScriptRegistry.REPLACE_HASH, Collections.singletonList(LexIndex.bytes(key)), args)));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#updateHashFields(java.lang.String, java.util.Map)
+	 */
+	@Override
+	public void updateHashFields(String key, Map<String, String> fields) {
+		if (fields == null || fields.isEmpty()) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		Map<String, String> values = new HashMap<>(fields.size());
+		List<String> removed = new ArrayList<>();
+		for (Entry<String, String> field : fields.entrySet()) {
+			if (field.getValue() != null) {
+				values.put(field.getKey(), field.getValue());
+			} else {
+				removed.add(field.getKey());
+			}
+		}
+
+		measured(updateHashMetrics, "update hash fields", () -> {
+			if (!values.isEmpty()) {
+				cluster.execute(key, jedis -> jedis.hmset(key, values));
+			}
+			if (!removed.isEmpty()) {
+				cluster.execute(key, jedis -> jedis.hdel(key, removed.toArray(new String[removed.size()])));
+			}
+			return null;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getHashFields(java.lang.String, java.lang.String[])
+	 */
+	@Override
+	public Map<String, String> getHashFields(String key, String... fields) {
+		if (fields == null || fields.length == 0) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		List<String> values = measured(getHashFieldsMetrics, "get hash fields",
+				() -> cluster.execute(key, jedis -> jedis.hmget(key, fields)));
+		Map<String, String> result = new LinkedHashMap<>(fields.length);
+		for (int i = 0; i < fields.length; i++) {
+			result.put(fields[i], values.get(i));
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getHash(java.lang.String)
+	 */
+	@Override
+	public Map<String, String> getHash(String key) {
+		return measured(getHashMetrics, "get hash", () -> cluster.execute(key, jedis -> jedis.hgetAll(key)));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#deleteKeys(java.lang.String[])
+	 */
+	@Override
+	public long deleteKeys(String... keys) {
+		List<String> keyList = Lists.newArrayList(keys);
+		try {
+			return measured(deleteMetrics, "delete keys", () -> {
+				Object[] replies = run(keyList, bulkChunkSize, new KeyCommand() {
+					@Override
+					public void pipelined(Pipeline pipeline, int index) {
+						pipeline.del(keys[index]);
+					}
+
+					@Override
+					public Object single(Jedis jedis, int index) {
+						return jedis.del(keys[index]);
+					}
+				});
+
+				long numberDeleted = 0;
+				for (Object reply : replies) {
+					numberDeleted += (Long) reply;
+				}
+				return numberDeleted;
+			});
+		} catch (InterruptedIOException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedObject(java.lang.String, java.io.Serializable, com.gbmartins.redis.dao.index.WriteCondition, java.util.Map, long)
+	 */
+	@Override
+	public <T extends Serializable> String saveIndexedObject(String key, T object, WriteCondition condition,
+			Map<String, String> terms, long ttlMillis) throws IOException {
+		return measured(saveIndexedMetrics, "save indexed object", () -> {
+			byte[] bytes = serializeObject(object);
+			saveIndexedMetrics.bytes(bytes.length);
+			List<byte[]> args = LexIndex.scriptArgs(LexIndex.op(condition), terms);
+			LexIndex.valueArgs(args, bytes, expiry(ttlMillis));
+
+			Object reply = cluster.execute(key, jedis -> scripts.eval(jedis, ScriptRegistry.INDEXED_WRITE,
+					LexIndex.scriptKeys(key, terms.keySet(), false), args));
+			moveTerms(Collections.singletonList(key), Collections.singletonList(terms), new Object[] { reply });
+			return LexIndex.written((List<?>) reply) ? "OK" : null;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedBulkObject(java.util.Map, java.util.function.Function, long)
+	 */
+	@Override
+	public <T extends Serializable> void saveIndexedBulkObject(Map<String, T> bulk,
+			Function<? super T, Map<String, String>> terms, long ttlMillis) throws IOException {
+		if (bulk == null) {
+			throw new RuntimeException("bulk cannot be null or empty");
+		}
+
+		measured(bulkIndexedMetrics, "save indexed bulk object", () -> {
+			List<String> keys = new ArrayList<>(bulk.keySet());
+			List<Map<String, String>> keyTerms = new ArrayList<>(keys.size());
+			List<List<byte[]>> args = new ArrayList<>(keys.size());
+			for (String key : keys) {
+				T object = bulk.get(key);
+				Map<String, String> objectTerms = terms.apply(object);
+				byte[] bytes = serializeObject(object);
+				bulkIndexedMetrics.bytes(bytes.length);
+				List<byte[]> objectArgs = LexIndex.scriptArgs(LexIndex.OP_SET, objectTerms);
+				LexIndex.valueArgs(objectArgs, bytes, expiry(ttlMillis));
+				keyTerms.add(objectTerms);
+				args.add(objectArgs);
+			}
+
+			Object[] replies = new Object[keys.size()];
+			List<Chunk> chunks = submit(keys, bulkChunkSize, writeCommand(keys, keyTerms, args), replies);
+			List<ChunkFailure> failures = await(chunks, keys);
+			moveTerms(keys, keyTerms, replies);
+
+			if (!failures.isEmpty()) {
+				throw new BulkWriteException(chunks.size(), failures);
+			}
+			return null;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedObjects(java.util.Map, com.gbmartins.redis.dao.index.WriteCondition, java.util.function.Function)
+	 */
+	@Override
+	public <T extends Serializable> List<String> saveIndexedObjects(Map<String, T> bulk, WriteCondition condition,
+			Function<? super T, Map<String, String>> terms) throws IOException {
+		if (bulk == null) {
+			throw new RuntimeException("bulk cannot be null or empty");
+		}
+
+		return measured(saveIndexedObjectsMetrics, "save indexed objects", () -> {
+			List<String> keys = new ArrayList<>(bulk.keySet());
+			List<Map<String, String>> keyTerms = new ArrayList<>(keys.size());
+			List<List<byte[]>> args = new ArrayList<>(keys.size());
+			for (String key : keys) {
+				T object = bulk.get(key);
+				Map<String, String> objectTerms = terms.apply(object);
+				byte[] bytes = serializeObject(object);
+				saveIndexedObjectsMetrics.bytes(bytes.length);
+				List<byte[]> objectArgs = LexIndex.scriptArgs(LexIndex.op(condition), objectTerms);
+				objectArgs.add(bytes);
+				keyTerms.add(objectTerms);
+				args.add(objectArgs);
+			}
+
+			Object[] replies = new Object[keys.size()];
+			List<Chunk> chunks = submit(keys, bulkChunkSize, writeCommand(keys, keyTerms, args), replies);
+			List<ChunkFailure> failures = await(chunks, keys);
+			moveTerms(keys, keyTerms, replies);
+
+			if (!failures.isEmpty()) {
+				throw new BulkWriteException(chunks.size(), failures);
+			}
+
+			List<String> result = new ArrayList<>(keys.size());
+			for (Object reply : replies) {
+				result.add(LexIndex.written((List<?>) reply) ? "OK" : null);
+			}
+			return result;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedHash(java.lang.String, java.util.Map, boolean, java.util.Map)
+	 */
+	@Override
+	public boolean saveIndexedHash(String key, Map<String, String> fields, boolean replace, Map<String, String> terms) {
+		if (fields == null || fields.isEmpty()) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		List<byte[]> args = LexIndex.scriptArgs(replace ? LexIndex.OP_REPLACE_HASH : LexIndex.OP_UPDATE_HASH, terms);
+		LexIndex.hashArgs(args, fields);
+
+		return measured(saveIndexedHashMetrics, "save indexed hash", () -> {
+			Object reply = cluster.execute(key, jedis -> scripts.eval(jedis, ScriptRegistry.INDEXED_WRITE,
+					LexIndex.scriptKeys(key, terms.keySet(), false), args));
+			moveTerms(Collections.singletonList(key), Collections.singletonList(terms), new Object[] { reply });
+			return LexIndex.written((List<?>) reply);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#deleteIndexedKeysEach(java.util.Collection, java.lang.String[])
+	 */
+	@Override
+	public List<Boolean> deleteIndexedKeysEach(Collection<String> indexes, String... keys) {
+		Map<String, String> terms = new LinkedHashMap<>(indexes.size() * 2);
+		for (String index : indexes) {
+			terms.put(index, null);
+		}
+		List<String> keyList = Lists.newArrayList(keys);
+		List<Map<String, String>> keyTerms = Collections.nCopies(keys.length, terms);
+		List<List<byte[]>> args = Collections.nCopies(keys.length, LexIndex.scriptArgs(LexIndex.OP_DELETE, terms));
+
+		try {
+			return measured(deleteIndexedMetrics, "delete indexed keys", () -> {
+				Object[] replies = new Object[keys.length];
+				List<ChunkFailure> failures = await(
+						submit(keyList, bulkChunkSize, writeCommand(keyList, keyTerms, args), replies), keyList);
+				moveTerms(keyList, keyTerms, replies);
+				if (!failures.isEmpty()) {
+					Throwable cause = failures.get(0).getCause();
+					throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+				}
+
+				List<Boolean> deleted = new ArrayList<>(keys.length);
+				for (Object reply : replies) {
+					deleted.add((Long) ((List<?>) reply).get(0) > 0);
+				}
+				return deleted;
+			});
+		} catch (InterruptedIOException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#indexPrefix(java.lang.String, java.lang.String, int, int)
+	 */
+	@Override
+	public List<String> indexPrefix(String index, String prefix, int offset, int count) {
+		return measured(indexRangeMetrics, "read index",
+				() -> lexRange(index, LexIndex.prefixMin(prefix), LexIndex.prefixMax(prefix), offset, count));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#indexRange(java.lang.String, java.lang.String, java.lang.String, int, int)
+	 */
+	@Override
+	public List<String> indexRange(String index, String from, String to, int offset, int count) {
+		return measured(indexRangeMetrics, "read index",
+				() -> lexRange(index, LexIndex.rangeMin(from), LexIndex.rangeMax(to), offset, count));
+	}
+
+	/**
+	 * Reads a page with SCAN on one master at a time, in node order, and the
+	 * values of its keys with pipelined GETs on the same connection, MGET
+	 * would need the keys in one slot. The cursor is
+	 * <code>host:port:cursor</code>, the node cursor prefixed by its node.
+	 *
+	 * @param <T> the generic type
+	 * @param cursor the cursor
+	 * @param pattern the pattern
+	 * @param count the count
+	 * @param type the type
+	 * @return the page
+	 * @throws Exception the exception
+	 */
+	@Override
+	public <T extends Serializable> ScanPage<T> scanObjects(String cursor, String pattern, int count, Class<T> type)
+			throws Exception {
+		return measured(scanMetrics, "scan objects", () -> {
+			NavigableMap<String, JedisPool> masters = cluster.getMasters();
+			String node;
+			String nodeCursor;
+			if (ScanPage.START.equals(cursor)) {
+				node = masters.firstKey();
+				nodeCursor = ScanPage.START;
+			} else {
+				int split = cursor.lastIndexOf(':');
+				if (split < 0 || !masters.containsKey(cursor.substring(0, split))) {
+					throw new IllegalArgumentException("Cursor " + cursor + " does not belong to a master");
+				}
+				node = cursor.substring(0, split);
+				nodeCursor = cursor.substring(split + 1);
+			}
+
+			List<String> keys;
+			byte[][] values;
+			String next;
+			try (Jedis jedis = masters.get(node).getResource()) {
+				ScanResult<String> result = jedis.scan(nodeCursor, new ScanParams().match(pattern).count(count));
+				keys = result.getResult();
+				next = result.getStringCursor();
+				values = new byte[keys.size()][];
+				if (!keys.isEmpty()) {
+					Pipeline pipeline = jedis.pipelined();
+					for (String key : keys) {
+						pipeline.get(key.getBytes());
+					}
+					List<Object> replies = pipeline.syncAndReturnAll();
+					for (int i = 0; i < values.length; i++) {
+						Object reply = replies.get(i);
+						if (reply instanceof byte[]) {
+							values[i] = (byte[]) reply;
+							scanMetrics.bytes(values[i].length);
+						}
+					}
+				}
+			}
+
+			if (ScanPage.START.equals(next)) {
+				String higher = masters.higherKey(node);
+				next = higher == null ? ScanPage.START : higher + ":" + ScanPage.START;
+			} else {
+				next = node + ":" + next;
+			}
+			return scanPage(keys, values, next, type);
+		});
+	}
+
+	/**
+	 * Reads a page of the index with ZRANGEBYLEX on the master of its slot,
+	 * then checks its keys with pipelines of EXISTS on their masters. The
+	 * members of the keys that expired are left out of the page and pruned
+	 * from the index.
+	 *
+	 * @param index the index
+	 * @param min the min
+	 * @param max the max
+	 * @param offset the offset
+	 * @param count the count
+	 * @return the keys
+	 */
+	private List<String> lexRange(String index, byte[] min, byte[] max, int offset, int count) {
+		List<byte[]> members = new ArrayList<>(cluster.execute(index,
+				jedis -> jedis.zrangeByLex(LexIndex.bytes(index), min, max, offset, count)));
+		List<String> found = new ArrayList<>(members.size());
+		for (byte[] member : members) {
+			found.add(LexIndex.keyOf(member));
+		}
+		if (found.isEmpty()) {
+			return found;
+		}
+
+		Object[] exists;
+		try {
+			exists = run(found, mgetChunkSize, new KeyCommand() {
+				@Override
+				public void pipelined(Pipeline pipeline, int index) {
+					pipeline.exists(LexIndex.bytes(found.get(index)));
+				}
+
+				@Override
+				public Object single(Jedis jedis, int index) {
+					return jedis.exists(LexIndex.bytes(found.get(index)));
+				}
+			});
+		} catch (InterruptedIOException ex) {
+			throw new RuntimeException(ex);
+		}
+
+		List<String> keys = new ArrayList<>(found.size());
+		List<byte[]> missing = new ArrayList<>();
+		for (int i = 0; i < exists.length; i++) {
+			if (Boolean.FALSE.equals(exists[i])) {
+				missing.add(members.get(i));
+			} else {
+				keys.add(found.get(i));
+			}
+		}
+		if (!missing.isEmpty()) {
+			prune(index, missing);
+		}
+		return keys;
+	}
+
+	/**
+	 * Removes the members of the missing keys from the index. The keys live
+	 * in other slots, so unlike {@link LexIndex#PRUNE_SCRIPT} the removal
+	 * cannot check them in the same step: a key written again meanwhile gets
+	 * its member back when its terms hash holds the term, which the write
+	 * script sets before the index is updated.
+	 *
+	 * @param index the index
+	 * @param members the members of the missing keys
+	 */
+	private void prune(String index, List<byte[]> members) {
+		byte[] rawIndex = LexIndex.bytes(index);
+		cluster.execute(index, jedis -> jedis.zrem(rawIndex, members.toArray(new byte[members.size()][])));
+		for (byte[] member : members) {
+			String key = LexIndex.keyOf(member);
+			boolean written = cluster.execute(key, jedis -> {
+				Pipeline p = jedis.pipelined();
+				Response<Boolean> exists = p.exists(LexIndex.bytes(key));
+				Response<String> term = p.hget(LexIndex.termsKey(key), index);
+				p.sync();
+				return exists.get() && LexIndex.termOf(member).equals(term.get());
+			});
+			if (written) {
+				cluster.execute(index, jedis -> jedis.zadd(rawIndex, 0, member));
+			}
+		}
+	}
+
+	/**
+	 * The command running the indexed write script on each key, without the
+	 * index sorted sets, which live in other slots.
+	 *
+	 * @param keys the keys
+	 * @param terms the terms of each key
+	 * @param args the script args of each key
+	 * @return the key command
+	 */
+	private KeyCommand writeCommand(List<String> keys, List<Map<String, String>> terms, List<List<byte[]>> args) {
+		RedisScript write = scripts.get(ScriptRegistry.INDEXED_WRITE);
+		return new KeyCommand() {
+			@Override
+			public void pipelined(Pipeline pipeline, int index) {
+				pipeline.evalsha(write.getShaBytes(),
+						LexIndex.scriptKeys(keys.get(index), terms.get(index).keySet(), false), args.get(index));
+			}
+
+			@Override
+			public Object single(Jedis jedis, int index) {
+				return scripts.eval(jedis, ScriptRegistry.INDEXED_WRITE,
+						LexIndex.scriptKeys(keys.get(index), terms.get(index).keySet(), false), args.get(index));
+			}
+		};
+	}
+
+	/**
+	 * Moves the written keys from their previous terms, returned by the
+	 * write script, to the new ones in the index sorted sets. One ZREM and
+	 * one ZADD per index and chunk, on the master of the index.
+	 *
+	 * @param keys the keys
+	 * @param terms the new terms of each key
+	 * @param replies the script replies, null where the write failed
+	 */
+	private void moveTerms(List<String> keys, List<Map<String, String>> terms, Object[] replies) {
+		Map<String, List<byte[]>> removed = new HashMap<>();
+		Map<String, List<byte[]>> added = new HashMap<>();
+
+		for (int k = 0; k < keys.size(); k++) {
+			List<?> reply = (List<?>) replies[k];
+			if (reply == null || !LexIndex.written(reply)) {
+				continue;
+			}
+			int i = 0;
+			for (Entry<String, String> term : terms.get(k).entrySet()) {
+				String previous = LexIndex.previousTerm(reply, i++);
+				String next = Strings.emptyToNull(term.getValue());
+				if (Objects.equals(previous, next)) {
+					continue;
+				}
+				if (previous != null) {
+					removed.computeIfAbsent(term.getKey(), x -> new ArrayList<>())
+							.add(LexIndex.member(previous, keys.get(k)));
+				}
+				if (next != null) {
+					added.computeIfAbsent(term.getKey(), x -> new ArrayList<>())
+							.add(LexIndex.member(next, keys.get(k)));
+				}
+			}
+		}
+
+		for (Entry<String, List<byte[]>> index : removed.entrySet()) {
+			byte[] rawIndex = LexIndex.bytes(index.getKey());
+			for (List<byte[]> members : Lists.partition(index.getValue(), bulkChunkSize)) {
+				cluster.execute(index.getKey(), jedis -> jedis.zrem(rawIndex, members.toArray(new byte[0][])));
+			}
+		}
+		for (Entry<String, List<byte[]>> index : added.entrySet()) {
+			byte[] rawIndex = LexIndex.bytes(index.getKey());
+			for (List<byte[]> members : Lists.partition(index.getValue(), bulkChunkSize)) {
+				Map<byte[], Double> scores = new LinkedHashMap<>(members.size() * 2);
+				for (byte[] member : members) {
+					scores.put(member, 0d);
+				}
+				cluster.execute(index.getKey(), jedis -> jedis.zadd(rawIndex, scores));
+			}
+		}
+	}
+
+	/**
+	 * Waits for every chunk of a bulk, collecting the failed ones.
+	 *
+	 * @param chunks the chunks
+	 * @param keys the keys
+	 * @return the failures
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	private static List<ChunkFailure> await(List<Chunk> chunks, List<String> keys) throws InterruptedIOException {
+		List<ChunkFailure> failures = new ArrayList<>();
+		for (int i = 0; i < chunks.size(); i++) {
+			try {
+				chunks.get(i).future.get();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the chunks");
+			} catch (ExecutionException ee) {
+				List<String> failed = new ArrayList<>(chunks.get(i).indexes.size());
+				for (int index : chunks.get(i).indexes) {
+					failed.add(keys.get(index));
+				}
+				failures.add(new ChunkFailure(i, failed, ee.getCause()));
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Runs the command for every key and waits for every chunk, rethrowing
+	 * the first failure.
+	 *
+	 * @param keys the keys
+	 * @param chunkSize the chunk size
+	 * @param command the command
+	 * @return the replies, aligned to the keys
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	private Object[] run(List<String> keys, int chunkSize, KeyCommand command) throws InterruptedIOException {
+		Object[] replies = new Object[keys.size()];
+		for (Chunk chunk : submit(keys, chunkSize, command, replies)) {
+			try {
+				chunk.future.get();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the chunks");
+			} catch (ExecutionException ee) {
+				Throwables.throwIfUnchecked(ee.getCause());
+				throw new RuntimeException(ee.getCause());
+			}
+		}
+		return replies;
+	}
+
+	/**
+	 * Splits the keys by master and then in chunks, and sends every chunk as
+	 * one pipeline on the node executor.
+	 *
+	 * @param keys the keys
+	 * @param chunkSize the chunk size
+	 * @param command the command
+	 * @param replies the replies, filled at the key indexes
+	 * @return the chunks
+	 */
+	private List<Chunk> submit(List<String> keys, int chunkSize, KeyCommand command, Object[] replies) {
+		List<Chunk> chunks = new ArrayList<>();
+		for (Entry<JedisPool, List<Integer>> group : cluster.partition(keys).entrySet()) {
+			JedisPool pool = group.getKey();
+			for (List<Integer> indexes : Lists.partition(group.getValue(), chunkSize)) {
+				Future<?> future = nodeExecutor.submit(() -> {
+					if (pool == null) {
+						for (int index : indexes) {
+							replies[index] = cluster.execute(keys.get(index), jedis -> command.single(jedis, index));
+						}
+					} else {
+						pipeline(pool, indexes, keys, command, replies);
+					}
+					return null;
+				});
+				chunks.add(new Chunk(indexes, future));
+			}
+		}
+		return chunks;
+	}
+
+	/**
+	 * Sends the chunk as one pipeline to the master. Commands answered with a
+	 * redirection, because the slot moved in the meantime, or with NOSCRIPT,
+	 * because the master lost its scripts, are sent again one by one through
+	 * the redirection handling of the cluster connection.
+	 *
+	 * @param pool the pool of the master
+	 * @param indexes the key indexes
+	 * @param keys the keys
+	 * @param command the command
+	 * @param replies the replies, filled at the key indexes
+	 */
+	private void pipeline(JedisPool pool, List<Integer> indexes, List<String> keys, KeyCommand command,
+			Object[] replies) {
+		List<Object> results;
+		try (Jedis jedis = pool.getResource()) {
+			Pipeline pipeline = jedis.pipelined();
+			for (int index : indexes) {
+				command.pipelined(pipeline, index);
+			}
+			results = pipeline.syncAndReturnAll();
+		}
+
+		List<Integer> redirected = new ArrayList<>();
+		boolean moved = false;
+		for (int n = 0; n < indexes.size(); n++) {
+			Object result = results.get(n);
+			if (result instanceof JedisRedirectionException) {
+				moved |= result instanceof JedisMovedDataException;
+				redirected.add(indexes.get(n));
+			} else if (result instanceof JedisDataException && ScriptRegistry.isNoScript((JedisDataException) result)) {
+				redirected.add(indexes.get(n));
+			} else if (result instanceof JedisDataException) {
+				throw (JedisDataException) result;
+			} else {
+				replies[indexes.get(n)] = result;
+			}
+		}
+
+		if (moved) {
+			cluster.renewSlotCache();
+		}
+		for (int index : redirected) {
+			replies[index] = cluster.execute(keys.get(index), jedis -> command.single(jedis, index));
+		}
+	}
+
+	/**
+	 * A command on the key at an index, sent in a pipeline or alone.
+	 */
+	private interface KeyCommand {
+
+		/**
+		 * Queues the command in the pipeline.
+		 *
+		 * @param pipeline the pipeline
+		 * @param index the key index
+		 */
+		void pipelined(Pipeline pipeline, int index);
+
+		/**
+		 * Sends the command alone.
+		 *
+		 * @param jedis the jedis
+		 * @param index the key index
+		 * @return the reply
+		 */
+		Object single(Jedis jedis, int index);
+
+	}
+
+	/**
+	 * The Class Chunk. The key indexes sent in one pipeline and its future.
+	 */
+	private static class Chunk {
+
+		/** The indexes. */
+		private final List<Integer> indexes;
+
+		/** The future. */
+		private final Future<?> future;
+
+		/**
+		 * Instantiates a new chunk.
+		 *
+		 * @param indexes the indexes
+		 * @param future the future
+		 */
+		Chunk(List<Integer> indexes, Future<?> future) {
+			this.indexes = indexes;
+			this.future = future;
+		}
+
+	}
+
+}
@@ -0,0 +1,264 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.cluster;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+
+import redis.clients.jedis.HostAndPort;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisSlotBasedConnectionHandler;
+import redis.clients.jedis.exceptions.JedisAskDataException;
+import redis.clients.jedis.exceptions.JedisClusterMaxRedirectionsException;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+import redis.clients.jedis.exceptions.JedisMovedDataException;
+import redis.clients.util.JedisClusterCRC16;
+
+/**
+ * The Class RedisClusterConnection.
+ * <p>
+ * Routes commands to the master owning the hash slot of their key, with one
+ * connection pool per master. A MOVED reply refreshes the slot map and retries
+ * on the new owner, an ASK reply retries once on the migrating target after
+ * ASKING, up to the configured number of redirections.
+ */
+public class RedisClusterConnection {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(RedisClusterConnection.class);
+
+	/** The handler. */
+	private final SlotHandler handler;
+
+	/** The max redirections. */
+	private final int maxRedirections;
+
+	/**
+	 * Instantiates a new redis cluster connection.
+	 *
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 */
+	public RedisClusterConnection(RedisInstanceSetup redisInstanceSetup) {
+		Set<HostAndPort> nodes = parseNodes(redisInstanceSetup.getClusterNodes());
+		LOG.info("Redis Cluster initialized with Nodes: {}, Max Redirections: {}", nodes,
+				redisInstanceSetup.getClusterMaxRedirections());
+
+		JedisPoolConfig config = new JedisPoolConfig();
+		config.setMaxTotal(redisInstanceSetup.getPoolMaxTotal());
+		config.setMaxIdle(redisInstanceSetup.getPoolMaxIdle());
+		config.setMinIdle(redisInstanceSetup.getPoolMinIdle());
+		config.setMaxWaitMillis(redisInstanceSetup.getPoolMaxWaitMillis());
+		config.setJmxNamePrefix("redis-cluster-pool");
+		this.handler = new SlotHandler(nodes, config, redisInstanceSetup.getConnectionTimeout(),
+				redisInstanceSetup.getSoTimeout(), Strings.emptyToNull(redisInstanceSetup.getPassword()));
+		this.maxRedirections = redisInstanceSetup.getClusterMaxRedirections();
+	}
+
+	/**
+	 * Runs the command on the master of the key, following the redirections.
+	 *
+	 * @param <R>
+	 *            the generic type
+	 * @param key
+	 *            the key
+	 * @param command
+	 *            the command
+	 * @return the result of the command
+	 */
+	public <R> R execute(String key, Function<Jedis, R> command) {
+		int slot = JedisClusterCRC16.getSlot(key);
+		HostAndPort askTarget = null;
+		RuntimeException last = null;
+
+		for (int attempt = 0; attempt <= maxRedirections; attempt++) {
+			boolean asking = askTarget != null;
+			try (Jedis jedis = asking ? handler.getConnectionFromNode(askTarget) : handler.getConnectionFromSlot(slot)) {
+				if (asking) {
+					jedis.asking();
+				}
+				return command.apply(jedis);
+			} catch (JedisMovedDataException moved) {
+				LOG.debug("Slot {} moved to {}", moved.getSlot(), moved.getTargetNode());
+				handler.renewSlotCache();
+				askTarget = null;
+				last = moved;
+			} catch (JedisAskDataException ask) {
+				askTarget = ask.getTargetNode();
+				last = ask;
+			} catch (JedisConnectionException jce) {
+				LOG.warn("Connection to the owner of slot {} failed, refreshing the slot map", slot);
+				handler.renewSlotCache();
+				askTarget = null;
+				last = jce;
+			}
+		}
+
+		throw new JedisClusterMaxRedirectionsException("Too many cluster redirections for key " + key, last);
+	}
+
+	/**
+	 * Groups the key indexes by the master owning their slot, so each group
+	 * can be sent as one pipeline. Keys of slots not mapped yet are grouped
+	 * under null, they must be sent one by one with
+	 * {@link #execute(String, Function)}.
+	 *
+	 * @param keys
+	 *            the keys
+	 * @return the key indexes by master pool
+	 */
+	public Map<JedisPool, List<Integer>> partition(List<String> keys) {
+		Map<JedisPool, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < keys.size(); i++) {
+			JedisPool pool = handler.getSlotPool(JedisClusterCRC16.getSlot(keys.get(i)));
+			groups.computeIfAbsent(pool, p -> new ArrayList<>()).add(i);
+		}
+		return groups;
+	}
+
+	/**
+	 * Refreshes the slot map, after redirections were seen in a pipeline.
+	 */
+	public void renewSlotCache() {
+		handler.renewSlotCache();
+	}
+
+	/**
+	 * Gets the master pools by node.
+	 *
+	 * @return the nodes
+	 */
+	public Map<String, JedisPool> getNodes() {
+		return handler.getNodes();
+	}
+
+	/**
+	 * Gets the pools of the nodes owning slots, the masters, sorted by node.
+	 * Replicas are left out, they hold the same keys as their master.
+	 *
+	 * @return the master pools by node
+	 */
+	public NavigableMap<String, JedisPool> getMasters() {
+		Set<JedisPool> owners = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int slot = 0; slot < JedisCluster.HASHSLOTS; slot++) {
+			JedisPool pool = handler.getSlotPool(slot);
+			if (pool != null) {
+				owners.add(pool);
+			}
+		}
+
+		NavigableMap<String, JedisPool> masters = new TreeMap<>();
+		for (Entry<String, JedisPool> node : handler.getNodes().entrySet()) {
+			if (owners.contains(node.getValue())) {
+				masters.put(node.getKey(), node.getValue());
+			}
+		}
+		return masters;
+	}
+
+	/**
+	 * Closes every node pool.
+	 */
+	public void close() {
+		handler.close();
+	}
+
+	/**
+	 * Parses the seed nodes.
+	 *
+	 * @param clusterNodes
+	 *            host:port separated by commas
+	 * @return the nodes
+	 */
+	private static Set<HostAndPort> parseNodes(String clusterNodes) {
+		Set<HostAndPort> nodes = new HashSet<>();
+		for (String node : Splitter.on(',').trimResults().omitEmptyStrings().split(clusterNodes)) {
+			int colon = node.lastIndexOf(':');
+			if (colon <= 0) {
+				throw new IllegalArgumentException("Cluster node must be host:port, found: " + node);
+			}
+			nodes.add(new HostAndPort(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1))));
+		}
+		if (nodes.isEmpty()) {
+			throw new IllegalArgumentException("No cluster node configured");
+		}
+		return nodes;
+	}
+
+	/**
+	 * The Class SlotHandler. Exposes the slot to pool mapping of the Jedis
+	 * handler, needed to build the per-node pipelines.
+	 */
+	private static class SlotHandler extends JedisSlotBasedConnectionHandler {
+
+		/**
+		 * Instantiates a new slot handler.
+		 *
+		 * @param nodes
+		 *            the nodes
+		 * @param config
+		 *            the config
+		 * @param connectionTimeout
+		 *            the connection timeout
+		 * @param soTimeout
+		 *            the so timeout
+		 * @param password
+		 *            the password, null when the nodes need no AUTH
+		 */
+		SlotHandler(Set<HostAndPort> nodes, GenericObjectPoolConfig config, int connectionTimeout, int soTimeout,
+				String password) {
+			super(nodes, config, connectionTimeout, soTimeout, password);
+		}
+
+		/**
+		 * Gets the pool of the slot owner.
+		 *
+		 * @param slot
+		 *            the slot
+		 * @return the pool, null if the slot is not mapped
+		 */
+		JedisPool getSlotPool(int slot) {
+			return cache.getSlotPool(slot);
+		}
+
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.codec;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+
+/**
+ * The Class CodecRegistry.
+ * <p>
+ * Resolves the codec used for a type. Codecs registered for a specific type
+ * win, every other type uses the default codec configured in
+ * {@link RedisInstanceSetup#getCodec()}. The encoded values then go through
+ * the {@link ValueCompressor}.
+ */
+@Component
+public class CodecRegistry {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(CodecRegistry.class);
+
+	/** The default codec type. */
+	private final CodecType defaultType;
+
+	/** The compressor. */
+	private final ValueCompressor compressor;
+
+	/** The codecs. */
+	private final ConcurrentMap<Class<?>, ValueCodec<?>> codecs = new ConcurrentHashMap<>();
+
+	/**
+	 * Instantiates a new codec registry.
+	 *
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 */
+	@Autowired
+	public CodecRegistry(@Qualifier("redisSetup") RedisInstanceSetup redisInstanceSetup) {
+		this(CodecType.fromName(redisInstanceSetup.getCodec()), new ValueCompressor(
+				redisInstanceSetup.isCompressionEnabled(), redisInstanceSetup.getCompressionThreshold()));
+	}
+
+	/**
+	 * Instantiates a new codec registry.
+	 *
+	 * @param defaultType
+	 *            the default type
+	 */
+	public CodecRegistry(CodecType defaultType) {
+		this(defaultType, new ValueCompressor(false, 0));
+	}
+
+	/**
+	 * Instantiates a new codec registry.
+	 *
+	 * @param defaultType
+	 *            the default type
+	 * @param compressor
+	 *            the compressor
+	 */
+	public CodecRegistry(CodecType defaultType, ValueCompressor compressor) {
+		super();
+		this.defaultType = defaultType;
+		this.compressor = compressor;
+		LOG.info("Codec Registry initialized with default codec: {}, Compression: {}, Threshold: {} bytes",
+				defaultType, compressor.isEnabled(), compressor.getThreshold());
+	}
+
+	/**
+	 * Registers the codec for the type, replacing the current one.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param type
+	 *            the type
+	 * @param codec
+	 *            the codec
+	 */
+	public <T> void register(Class<T> type, ValueCodec<T> codec) {
+		LOG.debug("Codec {} registered for {}", codec.getClass().getSimpleName(), type.getName());
+		codecs.put(type, codec);
+	}
+
+	/**
+	 * Gets the codec.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param type
+	 *            the type
+	 * @return the codec
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> ValueCodec<T> getCodec(Class<T> type) {
+		ValueCodec<?> codec = codecs.get(type);
+		if (codec == null) {
+			codec = codecs.computeIfAbsent(type, defaultType::create);
+		}
+		return (ValueCodec<T>) codec;
+	}
+
+	/**
+	 * Gets the default type.
+	 *
+	 * @return the default type
+	 */
+	public CodecType getDefaultType() {
+		return defaultType;
+	}
+
+	/**
+	 * Gets the compressor.
+	 *
+	 * @return the compressor
+	 */
+	public ValueCompressor getCompressor() {
+		return compressor;
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.codec;
+
+/**
+ * The Enum CodecType.
+ * <p>
+ * Codecs that can be used for any type, selected through the
+ * <code>redis.codec</code> property.
+ */
+public enum CodecType {
+
+	/** Java serialization. */
+	JAVA {
+		@Override
+		public <T> ValueCodec<T> create(Class<T> type) {
+			return new JavaSerializationCodec<>(type);
+		}
+	},
+
+	/** JSON through Jackson. */
+	JSON {
+		@Override
+		public <T> ValueCodec<T> create(Class<T> type) {
+			return new JsonCodec<>(type);
+		}
+	};
+
+	/**
+	 * Creates a codec for the type.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param type
+	 *            the type
+	 * @return the value codec
+	 */
+	public abstract <T> ValueCodec<T> create(Class<T> type);
+
+	/**
+	 * Parses the codec name, case insensitive. Empty names resolve to
+	 * {@link #JAVA}.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the codec type
+	 */
+	public static CodecType fromName(String name) {
+		if (name == null || name.trim().isEmpty()) {
+			return JAVA;
+		}
+		return valueOf(name.trim().toUpperCase());
+	}
+}
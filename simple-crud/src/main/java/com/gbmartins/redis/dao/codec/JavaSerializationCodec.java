@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The Class JavaSerializationCodec.
+ * <p>
+ * Plain Java serialization. It works for any {@link Serializable} type but
+ * writes full class descriptors on every value, so it is only used as the
+ * fallback when no faster codec is available for a type.
+ *
+ * @param <T>
+ *            the generic type
+ */
+public class JavaSerializationCodec<T> implements ValueCodec<T> {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(JavaSerializationCodec.class);
+
+	/** The type. */
+	private final Class<T> type;
+
+	/**
+	 * Instantiates a new java serialization codec.
+	 *
+	 * @param type
+	 *            the type
+	 */
+	public JavaSerializationCodec(Class<T> type) {
+		super();
+		this.type = type;
+	}
+
+	/**
+	 * Checks if the bytes start with the Java serialization stream magic.
+	 *
+	 * @param bytes
+	 *            the bytes
+	 * @return true, if is java serialized
+	 */
+	public static boolean isJavaSerialized(byte[] bytes) {
+		return bytes != null && bytes.length > 1 && bytes[0] == (byte) 0xAC && bytes[1] == (byte) 0xED;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.codec.ValueCodec#encode(java.lang.Object)
+	 */
+	@Override
+	public byte[] encode(T value) throws IOException {
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutput out = null;
+
+		try {
+
+			out = new ObjectOutputStream(bos);
+			out.writeObject(value);
+
+			byte[] bytes = bos.toByteArray();
+
+			return bytes;
+		} catch (Exception ex) {
+			LOG.error("Unknown Error when trying to serialize Object", ex);
+			throw ex;
+		} finally {
+			try {
+				if (out != null) {
+					out.close();
+				}
+			} catch (Exception eex) {
+				// ignore
+			}
+
+			try {
+				bos.close();
+			} catch (Exception eeex) {
+				/// ignore
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.codec.ValueCodec#decode(byte[])
+	 */
+	@Override
+	public T decode(byte[] bytes) throws IOException, ClassNotFoundException {
+
+		ByteArrayInputStream bis = null;
+		ObjectInput in = null;
+
+		try {
+			bis = new ByteArrayInputStream(bytes);
+			in = new ObjectInputStream(bis);
+			Object o = in.readObject();
+			if (type.isInstance(o)) {
+				return type.cast(o);
+			} else {
+				throw new IllegalArgumentException("Object is not " + type.getCanonicalName());
+			}
+		} catch (Exception ex) {
+			LOG.error("Error when trying to deserializeObject", ex);
+			throw ex;
+		} finally {
+			try {
+				if (in != null) {
+					in.close();
+				}
+			} catch (Exception eex) {
+				// ignore
+			}
+
+			try {
+				bis.close();
+			} catch (Exception eeex) {
+				/// ignore
+			}
+		}
+	}
+
+}
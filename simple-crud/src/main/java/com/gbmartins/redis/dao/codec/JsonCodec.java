@@ -0,0 +1,88 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.codec;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * The Class JsonCodec.
+ * <p>
+ * Stores values as UTF-8 JSON using bean properties. The reader and writer are
+ * resolved once per type, so encoding does not pay for reflection lookups on
+ * each call.
+ *
+ * @param <T>
+ *            the generic type
+ */
+public class JsonCodec<T> implements ValueCodec<T> {
+
+	/** The Constant MAPPER. */
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	/** The type. */
+	private final Class<T> type;
+
+	/** The reader. */
+	private final ObjectReader reader;
+
+	/** The writer. */
+	private final ObjectWriter writer;
+
+	/**
+	 * Instantiates a new json codec.
+	 *
+	 * @param type
+	 *            the type
+	 */
+	public JsonCodec(Class<T> type) {
+		super();
+		this.type = type;
+		this.reader = MAPPER.readerFor(type);
+		this.writer = MAPPER.writerFor(type);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.codec.ValueCodec#encode(java.lang.Object)
+	 */
+	@Override
+	public byte[] encode(T value) throws IOException {
+		return writer.writeValueAsBytes(value);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.codec.ValueCodec#decode(byte[])
+	 */
+	@Override
+	public T decode(byte[] bytes) throws IOException {
+		try {
+			return reader.readValue(bytes);
+		} catch (JsonProcessingException jpe) {
+			throw new IllegalArgumentException("Object is not " + type.getCanonicalName(), jpe);
+		}
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.codec;
+
+import java.io.IOException;
+
+/**
+ * The Interface ValueCodec.
+ * <p>
+ * Converts values of a single type to and from the raw bytes stored in Redis.
+ * Implementations must be thread safe, a single instance is shared by every
+ * operation on that type.
+ *
+ * @param <T>
+ *            the generic type
+ */
+public interface ValueCodec<T> {
+
+	/**
+	 * Encode.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the byte[]
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	byte[] encode(T value) throws IOException;
+
+	/**
+	 * Decode.
+	 *
+	 * @param bytes
+	 *            the bytes
+	 * @return the t
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException
+	 *             the class not found exception
+	 * @throws IllegalArgumentException
+	 *             if the bytes do not hold a value of the codec type
+	 */
+	T decode(byte[] bytes) throws IOException, ClassNotFoundException;
+
+}
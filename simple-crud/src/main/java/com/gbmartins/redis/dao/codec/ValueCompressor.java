@@ -0,0 +1,283 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.codec;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.MoreObjects;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * The Class ValueCompressor.
+ * <p>
+ * Compresses encoded values with LZ4 on the way to Redis. Values smaller than
+ * the threshold, and values LZ4 cannot shrink, are stored as they are. A
+ * compressed value starts with a {@link #MAGIC} header followed by the
+ * uncompressed length, so reads tell both forms apart: values written before
+ * compression was enabled, or by an instance with compression disabled, stay
+ * readable. Codecs must not produce values starting with the magic bytes.
+ */
+public class ValueCompressor {
+
+	/** The magic bytes of a compressed value. */
+	static final byte[] MAGIC = { 0x00, 'L', 'Z', '4' };
+
+	/** The header length: magic and uncompressed length. */
+	static final int HEADER_LENGTH = MAGIC.length + 4;
+
+	/** The most an LZ4 block can expand on decompression. */
+	private static final int MAX_EXPANSION = 255;
+
+	/** The Constant FACTORY. */
+	private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+	/** The compressor, thread safe. */
+	private final LZ4Compressor compressor = FACTORY.fastCompressor();
+
+	/** The decompressor, thread safe. */
+	private final LZ4SafeDecompressor decompressor = FACTORY.safeDecompressor();
+
+	/** The enabled flag. */
+	private final boolean enabled;
+
+	/** The threshold. */
+	private final int threshold;
+
+	/** The values compressed. */
+	private final LongAdder compressed = new LongAdder();
+
+	/** The values left uncompressed because LZ4 could not shrink them. */
+	private final LongAdder incompressible = new LongAdder();
+
+	/** The bytes of the compressed values before compression. */
+	private final LongAdder rawBytes = new LongAdder();
+
+	/** The bytes of the compressed values after compression. */
+	private final LongAdder storedBytes = new LongAdder();
+
+	/**
+	 * Instantiates a new value compressor.
+	 *
+	 * @param enabled
+	 *            the enabled flag, when false values are only decompressed
+	 * @param threshold
+	 *            the size in bytes from which values are compressed
+	 */
+	public ValueCompressor(boolean enabled, int threshold) {
+		super();
+		this.enabled = enabled;
+		this.threshold = Math.max(HEADER_LENGTH, threshold);
+	}
+
+	/**
+	 * Compresses the value if enabled, above the threshold and worth it.
+	 *
+	 * @param value
+	 *            the encoded value
+	 * @return the bytes to store
+	 */
+	public byte[] compress(byte[] value) {
+		if (!enabled || value.length < threshold) {
+			return value;
+		}
+
+		int maxLength = compressor.maxCompressedLength(value.length);
+		byte[] buffer = new byte[HEADER_LENGTH + maxLength];
+		int length = compressor.compress(value, 0, value.length, buffer, HEADER_LENGTH, maxLength);
+		if (HEADER_LENGTH + length >= value.length) {
+			incompressible.increment();
+			return value;
+		}
+
+		System.arraycopy(MAGIC, 0, buffer, 0, MAGIC.length);
+		writeInt(buffer, MAGIC.length, value.length);
+		compressed.increment();
+		rawBytes.add(value.length);
+		storedBytes.add(HEADER_LENGTH + length);
+
+		byte[] stored = new byte[HEADER_LENGTH + length];
+		System.arraycopy(buffer, 0, stored, 0, stored.length);
+		return stored;
+	}
+
+	/**
+	 * Decompresses the stored bytes if they are compressed, whatever the
+	 * enabled flag.
+	 *
+	 * @param stored
+	 *            the stored bytes
+	 * @return the encoded value
+	 * @throws IllegalArgumentException
+	 *             if the compressed bytes are corrupted
+	 */
+	public byte[] decompress(byte[] stored) {
+		if (!isCompressed(stored)) {
+			return stored;
+		}
+
+		int length = readInt(stored, MAGIC.length);
+		if (length < 0 || length > (long) (stored.length - HEADER_LENGTH) * MAX_EXPANSION) {
+			throw new IllegalArgumentException("Corrupted compressed value, length " + length);
+		}
+		byte[] value = new byte[length];
+		try {
+			int read = decompressor.decompress(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH, value, 0,
+					length);
+			if (read != length) {
+				throw new IllegalArgumentException(
+						"Corrupted compressed value, expected " + length + " bytes, found " + read);
+			}
+		} catch (LZ4Exception ex) {
+			throw new IllegalArgumentException("Corrupted compressed value", ex);
+		}
+		return value;
+	}
+
+	/**
+	 * Checks if the stored bytes hold a compressed value.
+	 *
+	 * @param stored
+	 *            the stored bytes
+	 * @return true, if compressed
+	 */
+	public static boolean isCompressed(byte[] stored) {
+		if (stored.length < HEADER_LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (stored[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if is enabled.
+	 *
+	 * @return true, if is enabled
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Gets the threshold.
+	 *
+	 * @return the threshold
+	 */
+	public int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * Gets the values compressed.
+	 *
+	 * @return the compressed
+	 */
+	public long getCompressed() {
+		return compressed.sum();
+	}
+
+	/**
+	 * Gets the values left uncompressed because LZ4 could not shrink them.
+	 *
+	 * @return the incompressible
+	 */
+	public long getIncompressible() {
+		return incompressible.sum();
+	}
+
+	/**
+	 * Gets the bytes of the compressed values before compression.
+	 *
+	 * @return the raw bytes
+	 */
+	public long getRawBytes() {
+		return rawBytes.sum();
+	}
+
+	/**
+	 * Gets the bytes of the compressed values after compression, header
+	 * included.
+	 *
+	 * @return the stored bytes
+	 */
+	public long getStoredBytes() {
+		return storedBytes.sum();
+	}
+
+	/**
+	 * Gets the compression ratio of the compressed values, raw bytes over
+	 * stored bytes.
+	 *
+	 * @return the ratio, 0 if nothing was compressed
+	 */
+	public double getRatio() {
+		long stored = storedBytes.sum();
+		return stored == 0 ? 0 : (double) rawBytes.sum() / stored;
+	}
+
+	/**
+	 * Writes a big endian int.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @param offset
+	 *            the offset
+	 * @param value
+	 *            the value
+	 */
+	private static void writeInt(byte[] buffer, int offset, int value) {
+		buffer[offset] = (byte) (value >>> 24);
+		buffer[offset + 1] = (byte) (value >>> 16);
+		buffer[offset + 2] = (byte) (value >>> 8);
+		buffer[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * Reads a big endian int.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @param offset
+	 *            the offset
+	 * @return the int
+	 */
+	private static int readInt(byte[] buffer, int offset) {
+		return (buffer[offset] & 0xFF) << 24 | (buffer[offset + 1] & 0xFF) << 16 | (buffer[offset + 2] & 0xFF) << 8
+				| buffer[offset + 3] & 0xFF;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this).add("enabled", enabled).add("threshold", threshold)
+				.add("compressed", getCompressed()).add("incompressible", getIncompressible())
+				.add("rawBytes", getRawBytes()).add("storedBytes", getStoredBytes())
+				.add("ratio", String.format("%.2f", getRatio())).toString();
+	}
+}
@@ -0,0 +1,487 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.gbmartins.redis.dao.version.VersionHeader;
+
+/**
+ * The Class LexIndex.
+ * <p>
+ * The layout of the lexicographic secondary indexes shared by the backends.
+ * An index is a sorted set where every member scores 0 and reads
+ * <code>term \0 key</code>, so ZRANGEBYLEX walks it in term order and a
+ * prefix or range lookup costs O(log N) plus the page size. The terms a key
+ * is currently indexed under are kept in the hash {@link #termsKey(String)}
+ * next to the key, so a write can drop the old member without reading the
+ * record back.
+ * <p>
+ * {@link #WRITE_SCRIPT} updates the record, its terms hash and the indexes in
+ * one step. In cluster mode the indexes live in other slots, so the script
+ * is run without them and returns the previous terms for the caller to fix
+ * the indexes right after.
+ */
+public final class LexIndex {
+
+	/** The separator between the term and the key of a member. */
+	public static final byte SEPARATOR = 0;
+
+	/** The op of an unconditional SET. */
+	public static final String OP_SET = "set";
+
+	/** The op of SET NX. */
+	public static final String OP_SET_NX = "nx";
+
+	/** The op of SET XX. */
+	public static final String OP_SET_XX = "xx";
+
+	/** The op of a SET checking the version header of the stored value. */
+	public static final String OP_SET_VERSION = "ver";
+
+	/** The op replacing a whole hash. */
+	public static final String OP_REPLACE_HASH = "hset";
+
+	/** The op updating hash fields. */
+	public static final String OP_UPDATE_HASH = "hupdate";
+
+	/** The op deleting the key. */
+	public static final String OP_DELETE = "del";
+
+	/**
+	 * The indexed write.
+	 * <p>
+	 * KEYS: the key, its terms hash, then the index sorted sets when the
+	 * script maintains them. ARGV: the op, the number of indexes n, n index
+	 * names, n terms ('' removes the key from the index), then the payload of
+	 * the op: the value of a SET, then its TTL in milliseconds if it expires;
+	 * the expected version header ('' for version 0), the value and the
+	 * optional TTL of a versioned SET; the number of fields m, m field value
+	 * pairs and the fields to remove of a hash write. A field update, like
+	 * XX, only writes a key that exists. A SET other than the versioned one
+	 * drops the version header, see {@link VersionHeader}. The terms
+	 * hash gets the TTL of the SET, so it expires with the record; the index
+	 * members left behind are dropped by the lookups, see
+	 * {@link #PRUNE_SCRIPT}.
+	 * <p>
+	 * Returns 0 when the NX, XX or field update condition fails, 0 and the stored value
+	 * ('' if none) when the version does not match, otherwise 1 (the number
+	 * of deleted keys for a delete) followed by the previous term of each
+	 * index, '' if none. Registered as
+	 * {@link com.gbmartins.redis.dao.script.ScriptRegistry#INDEXED_WRITE}.
+	 */
+	public static final String WRITE_SCRIPT = VersionHeader.LUA
+			+ "local key = KEYS[1] "
+			+ "local op = ARGV[1] "
+			+ "local n = tonumber(ARGV[2]) "
+			+ "local zsets = #KEYS > 2 "
+			+ "local exists = redis.call('EXISTS', key) == 1 "
+			+ "local v = 3 + 2 * n "
+			+ "if (op == 'nx' and exists) or ((op == 'xx' or op == 'hupdate') and not exists) then return {0} end "
+			+ "if op == 'ver' then "
+			+ "  local old = redis.call('GET', key) "
+			+ "  local header = '' "
+			+ "  if versioned(old) then header = string.sub(old, 1, 12) end "
+			+ "  if header ~= ARGV[v] then return {0, old or ''} end "
+			+ "end "
+			+ "local result = {1} "
+			+ "for i = 1, n do "
+			+ "  local index = ARGV[2 + i] "
+			+ "  local term = ARGV[2 + n + i] "
+			+ "  local old = redis.call('HGET', KEYS[2], index) "
+			+ "  result[i + 1] = old or '' "
+			+ "  if zsets and old then redis.call('ZREM', KEYS[2 + i], old .. '\\0' .. key) end "
+			+ "  if term == '' then "
+			+ "    redis.call('HDEL', KEYS[2], index) "
+			+ "  else "
+			+ "    redis.call('HSET', KEYS[2], index, term) "
+			+ "    if zsets then redis.call('ZADD', KEYS[2 + i], 0, term .. '\\0' .. key) end "
+			+ "  end "
+			+ "end "
+			+ "if op == 'del' then "
+			+ "  result[1] = redis.call('DEL', key) "
+			+ "elseif op == 'hset' or op == 'hupdate' then "
+			+ "  if op == 'hset' then redis.call('DEL', key) end "
+			+ "  local m = tonumber(ARGV[v]) "
+			+ "  if m > 0 then redis.call('HMSET', key, unpack(ARGV, v + 1, v + 2 * m)) end "
+			+ "  if #ARGV > v + 2 * m then redis.call('HDEL', key, unpack(ARGV, v + 2 * m + 1)) end "
+			+ "else "
+			+ "  local p = v "
+			+ "  if op == 'ver' then p = v + 1 end "
+			+ "  if ARGV[p + 1] then "
+			+ "    redis.call('SET', key, ARGV[p], 'PX', ARGV[p + 1]) "
+			+ "    redis.call('PEXPIRE', KEYS[2], ARGV[p + 1]) "
+			+ "  else "
+			+ "    redis.call('SET', key, ARGV[p]) "
+			+ "    redis.call('PERSIST', KEYS[2]) "
+			+ "  end "
+			+ "end "
+			+ "return result";
+
+	/**
+	 * The index pruning.
+	 * <p>
+	 * KEYS: the index sorted set, then the keys a lookup found missing.
+	 * ARGV: the member of each key. Removes the member of each key that
+	 * still does not exist, checked on the primary in the same step, so a
+	 * key written again meanwhile keeps its member. Returns the number of
+	 * removed members. Registered as
+	 * {@link com.gbmartins.redis.dao.script.ScriptRegistry#PRUNE_INDEX}.
+	 */
+	public static final String PRUNE_SCRIPT = ""
+			+ "local n = 0 "
+			+ "for i = 2, #KEYS do "
+			+ "  if redis.call('EXISTS', KEYS[i]) == 0 then n = n + redis.call('ZREM', KEYS[1], ARGV[i - 1]) end "
+			+ "end "
+			+ "return n";
+
+	/** The smallest lexicographic bound. */
+	private static final byte[] MIN = { '-' };
+
+	/** The largest lexicographic bound. */
+	private static final byte[] MAX = { '+' };
+
+	/** A byte above every byte of an UTF-8 string. */
+	private static final byte HIGHEST = (byte) 0xFF;
+
+	/**
+	 * Instantiates a new lex index.
+	 */
+	private LexIndex() {
+	}
+
+	/**
+	 * Gets the key of the hash holding the terms the key is indexed under. The
+	 * key is used as hash tag, so both live in the same cluster slot.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the terms key
+	 */
+	public static String termsKey(String key) {
+		return "{" + key + "}:terms";
+	}
+
+	/**
+	 * Gets the condition as script op.
+	 *
+	 * @param condition
+	 *            the condition
+	 * @return the op
+	 */
+	public static String op(WriteCondition condition) {
+		switch (condition) {
+		case IF_ABSENT:
+			return OP_SET_NX;
+		case IF_PRESENT:
+			return OP_SET_XX;
+		default:
+			return OP_SET;
+		}
+	}
+
+	/**
+	 * Gets the KEYS of the write script.
+	 *
+	 * @param key
+	 *            the key
+	 * @param indexes
+	 *            the indexes, in the order of the terms
+	 * @param withIndexes
+	 *            whether the script maintains the index sorted sets
+	 * @return the keys
+	 */
+	public static List<byte[]> scriptKeys(String key, Collection<String> indexes, boolean withIndexes) {
+		List<byte[]> keys = new ArrayList<>(2 + indexes.size());
+		keys.add(bytes(key));
+		keys.add(bytes(termsKey(key)));
+		if (withIndexes) {
+			for (String index : indexes) {
+				keys.add(bytes(index));
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Gets the ARGV of the write script up to the payload, which the caller
+	 * appends.
+	 *
+	 * @param op
+	 *            the op
+	 * @param terms
+	 *            the term of each index, null to remove the key from it
+	 * @return the args
+	 */
+	public static List<byte[]> scriptArgs(String op, Map<String, String> terms) {
+		List<byte[]> args = new ArrayList<>(4 + terms.size() * 2);
+		args.add(bytes(op));
+		args.add(bytes(Integer.toString(terms.size())));
+		for (String index : terms.keySet()) {
+			args.add(bytes(index));
+		}
+		for (Entry<String, String> term : terms.entrySet()) {
+			args.add(bytes(checkTerm(term.getValue())));
+		}
+		return args;
+	}
+
+	/**
+	 * Appends the SET payload to the script args: the value and, when it
+	 * expires, the TTL.
+	 *
+	 * @param args
+	 *            the args
+	 * @param value
+	 *            the value
+	 * @param ttlMillis
+	 *            the TTL in milliseconds, 0 to keep the value forever
+	 */
+	public static void valueArgs(List<byte[]> args, byte[] value, long ttlMillis) {
+		args.add(value);
+		if (ttlMillis > 0) {
+			args.add(bytes(Long.toString(ttlMillis)));
+		}
+	}
+
+	/**
+	 * Appends the hash payload to the script args.
+	 *
+	 * @param args
+	 *            the args
+	 * @param fields
+	 *            the fields, a null value removes the field
+	 */
+	public static void hashArgs(List<byte[]> args, Map<String, String> fields) {
+		List<byte[]> removed = new ArrayList<>();
+		int countIndex = args.size();
+		args.add(null);
+		int count = 0;
+		for (Entry<String, String> field : fields.entrySet()) {
+			if (field.getValue() != null) {
+				args.add(bytes(field.getKey()));
+				args.add(bytes(field.getValue()));
+				count++;
+			} else {
+				removed.add(bytes(field.getKey()));
+			}
+		}
+		args.set(countIndex, bytes(Integer.toString(count)));
+		args.addAll(removed);
+	}
+
+	/**
+	 * Checks if the script wrote, the NX, XX or version condition held.
+	 *
+	 * @param reply
+	 *            the script reply
+	 * @return true, if written
+	 */
+	public static boolean written(List<?> reply) {
+		return ((Long) reply.get(0)) != 0;
+	}
+
+	/**
+	 * Gets the stored value returned by a versioned write that did not match.
+	 *
+	 * @param reply
+	 *            the script reply
+	 * @return the stored value, null if the key does not exist
+	 */
+	public static byte[] storedValue(List<?> reply) {
+		if (reply.size() < 2) {
+			return null;
+		}
+		byte[] value = (byte[]) reply.get(1);
+		return value.length > 0 ? value : null;
+	}
+
+	/**
+	 * Gets the previous term of an index from the script reply.
+	 *
+	 * @param reply
+	 *            the script reply
+	 * @param i
+	 *            the position of the index in the terms
+	 * @return the previous term, null if none
+	 */
+	public static String previousTerm(List<?> reply, int i) {
+		if (reply.size() <= i + 1) {
+			return null;
+		}
+		String term = new String((byte[]) reply.get(i + 1), StandardCharsets.UTF_8);
+		return term.isEmpty() ? null : term;
+	}
+
+	/**
+	 * Gets the sorted set member of the key under the term.
+	 *
+	 * @param term
+	 *            the term
+	 * @param key
+	 *            the key
+	 * @return the member
+	 */
+	public static byte[] member(String term, String key) {
+		byte[] t = bytes(term);
+		byte[] k = bytes(key);
+		byte[] member = new byte[t.length + 1 + k.length];
+		System.arraycopy(t, 0, member, 0, t.length);
+		member[t.length] = SEPARATOR;
+		System.arraycopy(k, 0, member, t.length + 1, k.length);
+		return member;
+	}
+
+	/**
+	 * Gets the key of a sorted set member.
+	 *
+	 * @param member
+	 *            the member
+	 * @return the key
+	 */
+	public static String keyOf(byte[] member) {
+		for (int i = 0; i < member.length; i++) {
+			if (member[i] == SEPARATOR) {
+				return new String(member, i + 1, member.length - i - 1, StandardCharsets.UTF_8);
+			}
+		}
+		throw new IllegalArgumentException("Not an index member: " + new String(member, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Gets the term of a sorted set member.
+	 *
+	 * @param member
+	 *            the member
+	 * @return the term
+	 */
+	public static String termOf(byte[] member) {
+		for (int i = 0; i < member.length; i++) {
+			if (member[i] == SEPARATOR) {
+				return new String(member, 0, i, StandardCharsets.UTF_8);
+			}
+		}
+		throw new IllegalArgumentException("Not an index member: " + new String(member, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Gets the ZRANGEBYLEX min of the terms starting with the prefix.
+	 *
+	 * @param prefix
+	 *            the prefix, null or empty for every term
+	 * @return the min
+	 */
+	public static byte[] prefixMin(String prefix) {
+		return prefix == null || prefix.isEmpty() ? MIN : inclusive(bytes(prefix), false);
+	}
+
+	/**
+	 * Gets the ZRANGEBYLEX max of the terms starting with the prefix.
+	 *
+	 * @param prefix
+	 *            the prefix, null or empty for every term
+	 * @return the max
+	 */
+	public static byte[] prefixMax(String prefix) {
+		return prefix == null || prefix.isEmpty() ? MAX : inclusive(bytes(prefix), true);
+	}
+
+	/**
+	 * Gets the ZRANGEBYLEX min of the terms from the given one, inclusive.
+	 *
+	 * @param from
+	 *            the first term, null for unbounded
+	 * @return the min
+	 */
+	public static byte[] rangeMin(String from) {
+		return from == null ? MIN : inclusive(bytes(from), false);
+	}
+
+	/**
+	 * Gets the ZRANGEBYLEX max of the terms up to the given one, inclusive:
+	 * every key indexed under exactly that term is in the range.
+	 *
+	 * @param to
+	 *            the last term, null for unbounded
+	 * @return the max
+	 */
+	public static byte[] rangeMax(String to) {
+		if (to == null) {
+			return MAX;
+		}
+		byte[] term = bytes(to);
+		byte[] bound = new byte[term.length + 1];
+		System.arraycopy(term, 0, bound, 0, term.length);
+		bound[term.length] = SEPARATOR;
+		return inclusive(bound, true);
+	}
+
+	/**
+	 * Builds an inclusive bound: '[' then the value, then 0xFF when upper.
+	 *
+	 * @param value
+	 *            the value
+	 * @param upper
+	 *            the upper flag
+	 * @return the bound
+	 */
+	private static byte[] inclusive(byte[] value, boolean upper) {
+		byte[] bound = new byte[value.length + (upper ? 2 : 1)];
+		bound[0] = '[';
+		System.arraycopy(value, 0, bound, 1, value.length);
+		if (upper) {
+			bound[bound.length - 1] = HIGHEST;
+		}
+		return bound;
+	}
+
+	/**
+	 * Checks the term can be stored in a member.
+	 *
+	 * @param term
+	 *            the term, null for none
+	 * @return the term, '' for none
+	 */
+	private static String checkTerm(String term) {
+		if (term == null) {
+			return "";
+		}
+		if (term.indexOf(SEPARATOR) >= 0) {
+			throw new IllegalArgumentException("Index term cannot contain \\0: " + term);
+		}
+		return term;
+	}
+
+	/**
+	 * UTF-8 bytes.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the bytes
+	 */
+	public static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.memory;
+
+import java.util.regex.Pattern;
+
+/**
+ * The Class GlobPattern.
+ * <p>
+ * Translates the glob-style patterns of SCAN MATCH to regular expressions:
+ * <code>*</code>, <code>?</code>, <code>[abc]</code>, <code>[^abc]</code>,
+ * <code>[a-z]</code> and <code>\</code> to escape the next character.
+ */
+public final class GlobPattern {
+
+	/**
+	 * Instantiates a new glob pattern.
+	 */
+	private GlobPattern() {
+		super();
+	}
+
+	/**
+	 * Compiles the glob.
+	 *
+	 * @param glob
+	 *            the glob, null or empty matches every key
+	 * @return the pattern
+	 */
+	public static Pattern compile(String glob) {
+		if (glob == null || glob.isEmpty()) {
+			return Pattern.compile(".*", Pattern.DOTALL);
+		}
+
+		StringBuilder regex = new StringBuilder();
+		int classStart = -1;
+		for (int i = 0; i < glob.length(); i++) {
+			char c = glob.charAt(i);
+			if (classStart >= 0) {
+				if (c == ']' && i > classStart + 1) {
+					regex.append(']');
+					classStart = -1;
+				} else if (c == '-' || (c == '^' && i == classStart + 1)) {
+					regex.append(c);
+				} else {
+					if (c == '\\' && i + 1 < glob.length()) {
+						c = glob.charAt(++i);
+					}
+					regex.append(Character.isLetterOrDigit(c) ? String.valueOf(c) : "\\" + c);
+				}
+			} else if (c == '\\' && i + 1 < glob.length()) {
+				regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+			} else if (c == '*') {
+				regex.append(".*");
+			} else if (c == '?') {
+				regex.append('.');
+			} else if (c == '[' && glob.indexOf(']', i + 2) > 0) {
+				regex.append('[');
+				classStart = i;
+			} else {
+				regex.append(Pattern.quote(String.valueOf(c)));
+			}
+		}
+		return Pattern.compile(regex.toString(), Pattern.DOTALL);
+	}
+
+}
@@ -0,0 +1,667 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.memory;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.gbmartins.redis.dao.AbstractRedisOperations;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.codec.CodecRegistry;
+import com.gbmartins.redis.dao.index.LexIndex;
+import com.gbmartins.redis.dao.index.WriteCondition;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.dao.scan.ScanPage;
+import com.gbmartins.redis.dao.script.UpsertResult;
+import com.gbmartins.redis.dao.version.VersionHeader;
+import com.gbmartins.redis.dao.version.Versioned;
+import com.gbmartins.redis.dao.version.VersionedWrite;
+
+/**
+ * The Class InMemoryOperations.
+ * <p>
+ * The {@link com.gbmartins.redis.dao.RedisOperations} of a
+ * {@link StripedStore} living in this JVM, active with the <code>memory</code>
+ * profile. Values go through the same codecs as with Redis, so what is read
+ * back is a copy, and every precondition and answer ("OK", null, counts) is
+ * the one of {@link com.gbmartins.redis.dao.JedisOperations}. Nothing is
+ * persisted.
+ */
+@Component
+@Profile("memory")
+public class InMemoryOperations extends AbstractRedisOperations {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(InMemoryOperations.class);
+
+	/** The reply of a successful SET. */
+	private static final String OK = "OK";
+
+	/** The store. */
+	private final StripedStore store;
+
+	/** The indexes. */
+	private final LexIndexes indexes = new LexIndexes();
+
+	/** The metrics of saveOrUpdateObject. */
+	private final OperationMetrics saveMetrics;
+
+	/** The metrics of saveIfAbsent. */
+	private final OperationMetrics saveIfAbsentMetrics;
+
+	/** The metrics of updateIfPresent. */
+	private final OperationMetrics updateIfPresentMetrics;
+
+	/** The metrics of getObject. */
+	private final OperationMetrics getMetrics;
+
+	/** The metrics of saveOrUpdateBulkObject. */
+	private final OperationMetrics bulkMetrics;
+
+	/** The metrics of multi-gets. */
+	private final OperationMetrics multiGetMetrics;
+
+	/** The metrics of saveOrUpdateHash. */
+	private final OperationMetrics saveHashMetrics;
+
+	/** The metrics of updateHashFields. */
+	private final OperationMetrics updateHashMetrics;
+
+	/** The metrics of getHashFields. */
+	private final OperationMetrics getHashFieldsMetrics;
+
+	/** The metrics of getHash. */
+	private final OperationMetrics getHashMetrics;
+
+	/** The metrics of deleteKeys. */
+	private final OperationMetrics deleteMetrics;
+
+	/** The metrics of saveIndexedObject. */
+	private final OperationMetrics saveIndexedMetrics;
+
+	/** The metrics of saveIndexedBulkObject. */
+	private final OperationMetrics bulkIndexedMetrics;
+
+	/** The metrics of saveIndexedHash. */
+	private final OperationMetrics saveIndexedHashMetrics;
+
+	/** The metrics of deleteIndexedKeys. */
+	private final OperationMetrics deleteIndexedMetrics;
+
+	/** The metrics of index lookups. */
+	private final OperationMetrics indexRangeMetrics;
+
+	/** The metrics of getVersionedObject. */
+	private final OperationMetrics getVersionedMetrics;
+
+	/** The metrics of saveVersionedObject. */
+	private final OperationMetrics saveVersionedMetrics;
+
+	/** The metrics of upsertObject. */
+	private final OperationMetrics upsertMetrics;
+
+	/** The metrics of compareAndSet. */
+	private final OperationMetrics compareAndSetMetrics;
+
+	/** The metrics of deleteIfEquals. */
+	private final OperationMetrics deleteIfEqualsMetrics;
+
+	/** The metrics of scanObjects. */
+	private final OperationMetrics scanMetrics;
+
+	/** The metrics of getAndTouchObject. */
+	private final OperationMetrics touchMetrics;
+
+	/** The metrics of saveIndexedObjects. */
+	private final OperationMetrics saveIndexedObjectsMetrics;
+
+	/**
+	 * Instantiates a new in memory operations.
+	 *
+	 * @param codecs
+	 *            the codecs
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 * @param metrics
+	 *            the metrics
+	 */
+	@Autowired
+	public InMemoryOperations(CodecRegistry codecs, @Qualifier("redisSetup") RedisInstanceSetup redisInstanceSetup,
+			RedisMetrics metrics) {
+		super(codecs, redisInstanceSetup, metrics);
+		this.store = new StripedStore(redisInstanceSetup.getMemoryStripes());
+		this.saveMetrics = metrics.get("redis.saveOrUpdateObject");
+		this.saveIfAbsentMetrics = metrics.get("redis.saveIfAbsent");
+		this.updateIfPresentMetrics = metrics.get("redis.updateIfPresent");
+		this.getMetrics = metrics.get("redis.getObject");
+		this.bulkMetrics = metrics.get("redis.saveOrUpdateBulkObject");
+		this.multiGetMetrics = metrics.get("redis.multiGetObject");
+		this.saveHashMetrics = metrics.get("redis.saveOrUpdateHash");
+		this.updateHashMetrics = metrics.get("redis.updateHashFields");
+		this.getHashFieldsMetrics = metrics.get("redis.getHashFields");
+		this.getHashMetrics = metrics.get("redis.getHash");
+		this.deleteMetrics = metrics.get("redis.deleteKeys");
+		this.saveIndexedMetrics = metrics.get("redis.saveIndexedObject");
+		this.bulkIndexedMetrics = metrics.get("redis.saveIndexedBulkObject");
+		this.saveIndexedHashMetrics = metrics.get("redis.saveIndexedHash");
+		this.deleteIndexedMetrics = metrics.get("redis.deleteIndexedKeys");
+		this.indexRangeMetrics = metrics.get("redis.indexRange");
+		this.getVersionedMetrics = metrics.get("redis.getVersionedObject");
+		this.saveVersionedMetrics = metrics.get("redis.saveVersionedObject");
+		this.upsertMetrics = metrics.get("redis.upsertObject");
+		this.compareAndSetMetrics = metrics.get("redis.compareAndSet");
+		this.deleteIfEqualsMetrics = metrics.get("redis.deleteIfEquals");
+		this.scanMetrics = metrics.get("redis.scanObjects");
+		this.touchMetrics = metrics.get("redis.getAndTouchObject");
+		this.saveIndexedObjectsMetrics = metrics.get("redis.saveIndexedObjects");
+		LOG.info("In-memory operations enabled with {} stripes", redisInstanceSetup.getMemoryStripes());
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveOrUpdateObject(java.lang.String, java.io.Serializable, long)
+	 */
+	@Override
+	public <T extends Serializable> String saveOrUpdateObject(String key, T object, long ttlMillis)
+			throws IOException {
+		return setObject(key, object, false, false, ttlMillis, saveMetrics);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIfAbsent(java.lang.String, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> String saveIfAbsent(String key, T object) throws IOException {
+		return setObject(key, object, true, false, 0, saveIfAbsentMetrics);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#updateIfPresent(java.lang.String, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> String updateIfPresent(String key, T object) throws IOException {
+		return setObject(key, object, false, true, 0, updateIfPresentMetrics);
+	}
+
+	/**
+	 * Set object.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param nx only set if the key does not exist
+	 * @param xx only set if the key exists
+	 * @param ttlMillis the TTL, 0 for none
+	 * @param metrics the metrics of the calling operation
+	 * @return "OK", or null if the condition did not hold
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private <T extends Serializable> String setObject(String key, T object, boolean nx, boolean xx, long ttlMillis,
+			OperationMetrics metrics) throws IOException {
+		return measured(metrics, "save object", () -> {
+			byte[] bytes = serializeObject(object);
+			metrics.bytes(bytes.length);
+			return store.set(key, bytes, nx, xx, expiry(ttlMillis)) ? OK : null;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getVersionedObject(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public <T extends Serializable> Versioned<T> getVersionedObject(String key, Class<T> type) throws Exception {
+		return measured(getVersionedMetrics, "get versioned object", () -> {
+			byte[] bytes = store.get(key);
+			if (bytes != null) {
+				getVersionedMetrics.bytes(bytes.length);
+			}
+			return deserializeVersioned(bytes, type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveVersionedObject(java.lang.String, java.io.Serializable, long, java.util.Map)
+	 */
+	@Override
+	public <T extends Serializable> VersionedWrite<T> saveVersionedObject(String key, T object, long expectedVersion,
+			Map<String, String> terms) throws Exception {
+		return measured(saveVersionedMetrics, "save versioned object", () -> {
+			byte[] bytes = serializeVersioned(object, expectedVersion + 1);
+			saveVersionedMetrics.bytes(bytes.length);
+			byte[][] previous = new byte[1][];
+			boolean written = indexes.write(key, terms, () -> {
+				previous[0] = store.replaceIf(key, value -> VersionHeader.version(value) == expectedVersion, bytes);
+				return VersionHeader.version(previous[0]) == expectedVersion;
+			});
+			return written ? VersionedWrite.written(expectedVersion + 1) : conflict(previous[0], object);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#upsertObject(java.lang.String, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> UpsertResult upsertObject(String key, T object) throws IOException {
+		return measured(upsertMetrics, "upsert object", () -> {
+			byte[] bytes = serializeObject(object);
+			upsertMetrics.bytes(bytes.length);
+			return store.upsert(key, bytes);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#compareAndSet(java.lang.String, java.io.Serializable, java.io.Serializable)
+	 */
+	@Override
+	public <T extends Serializable> boolean compareAndSet(String key, T expected, T update) throws IOException {
+		return measured(compareAndSetMetrics, "compare and set object", () -> {
+			byte[] bytes = serializeObject(update);
+			compareAndSetMetrics.bytes(bytes.length);
+			return store.compareAndSet(key, expected != null ? serializeObject(expected) : null, bytes);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#deleteIfEquals(java.util.Map)
+	 */
+	@Override
+	public <T extends Serializable> long deleteIfEquals(Map<String, T> expected) throws IOException {
+		return measured(deleteIfEqualsMetrics, "delete keys if equal", () -> {
+			long numberDeleted = 0;
+			for (Entry<String, T> pair : expected.entrySet()) {
+				if (store.deleteIfEquals(pair.getKey(), serializeObject(pair.getValue()))) {
+					numberDeleted++;
+				}
+			}
+			return numberDeleted;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getObject(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public <T extends Serializable> T getObject(String key, Class<T> type) throws Exception {
+		return measured(getMetrics, "get object", () -> {
+			byte[] bytes = store.get(key);
+			if (bytes == null) {
+				return null;
+			}
+			getMetrics.bytes(bytes.length);
+			return deserializeObject(bytes, type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getAndTouchObject(java.lang.String, java.lang.Class, long)
+	 */
+	@Override
+	public <T extends Serializable> T getAndTouchObject(String key, Class<T> type, long ttlMillis) throws Exception {
+		if (ttlMillis <= 0) {
+			throw new IllegalArgumentException("ttlMillis must be positive");
+		}
+
+		return measured(touchMetrics, "get and touch object", () -> {
+			byte[] bytes = store.getAndExpire(key, expiry(ttlMillis));
+			if (bytes == null) {
+				return null;
+			}
+			touchMetrics.bytes(bytes.length);
+			return deserializeObject(bytes, type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getTtlMillis(java.lang.String)
+	 */
+	@Override
+	public long getTtlMillis(String key) {
+		return store.pttl(key);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveOrUpdateBulkObject(java.util.Map, long)
+	 */
+	@Override
+	public <T extends Serializable> void saveOrUpdateBulkObject(Map<String, T> bulk, long ttlMillis)
+			throws IOException {
+		if (bulk == null) {
+			throw new RuntimeException("bulk cannot be null or empty");
+		}
+
+		measured(bulkMetrics, "save bulk object", () -> {
+			for (Entry<String, T> pair : bulk.entrySet()) {
+				byte[] bytes = serializeObject(pair.getValue());
+				bulkMetrics.bytes(bytes.length);
+				store.set(pair.getKey(), bytes, false, false, expiry(ttlMillis));
+			}
+			return null;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#multiGetObject(java.util.List, java.lang.Class)
+	 */
+	@Override
+	public <T extends Serializable> List<T> multiGetObject(List<String> keys, Class<T> type) throws Exception {
+		if (keys == null || keys.isEmpty()) {
+			throw new RuntimeException("keys cannot be null or empty");
+		}
+
+		return measured(multiGetMetrics, "get list object", () -> {
+			byte[][] values = new byte[keys.size()][];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = store.getIfString(keys.get(i));
+				if (values[i] != null) {
+					multiGetMetrics.bytes(values[i].length);
+				}
+			}
+			return decodeAll(values, type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveOrUpdateHash(java.lang.String, java.util.Map)
+	 */
+	@Override
+	public void saveOrUpdateHash(String key, Map<String, String> fields) {
+		if (fields == null || fields.isEmpty()) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		measured(saveHashMetrics, "save hash", () -> {
+			replaceHash(key, fields);
+			return null;
+		});
+	}
+
+	/**
+	 * Replaces the hash with the fields that have a value.
+	 *
+	 * @param key the key
+	 * @param fields the fields
+	 */
+	private void replaceHash(String key, Map<String, String> fields) {
+		Map<String, String> values = new HashMap<>(fields.size());
+		for (Entry<String, String> field : fields.entrySet()) {
+			if (field.getValue() != null) {
+				values.put(field.getKey(), field.getValue());
+			}
+		}
+		store.replaceHash(key, values);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#updateHashFields(java.lang.String, java.util.Map)
+	 */
+	@Override
+	public void updateHashFields(String key, Map<String, String> fields) {
+		if (fields == null || fields.isEmpty()) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		measured(updateHashMetrics, "update hash fields", () -> {
+			store.updateHash(key, fields);
+			return null;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getHashFields(java.lang.String, java.lang.String[])
+	 */
+	@Override
+	public Map<String, String> getHashFields(String key, String... fields) {
+		if (fields == null || fields.length == 0) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		return measured(getHashFieldsMetrics, "get hash fields", () -> store.getHashFields(key, fields));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#getHash(java.lang.String)
+	 */
+	@Override
+	public Map<String, String> getHash(String key) {
+		return measured(getHashMetrics, "get hash", () -> store.getHash(key));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#deleteKeys(java.lang.String[])
+	 */
+	@Override
+	public long deleteKeys(String... keys) {
+		return measured(deleteMetrics, "delete keys", () -> {
+			long numberDeleted = 0;
+			for (String key : keys) {
+				if (store.delete(key)) {
+					numberDeleted++;
+				}
+			}
+			return numberDeleted;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedObject(java.lang.String, java.io.Serializable, com.gbmartins.redis.dao.index.WriteCondition, java.util.Map, long)
+	 */
+	@Override
+	public <T extends Serializable> String saveIndexedObject(String key, T object, WriteCondition condition,
+			Map<String, String> terms, long ttlMillis) throws IOException {
+		return measured(saveIndexedMetrics, "save indexed object",
+				() -> writeIndexed(key, object, condition, terms, ttlMillis, saveIndexedMetrics));
+	}
+
+	/**
+	 * Writes the object and its index terms.
+	 *
+	 * @param <T> the generic type
+	 * @param key the key
+	 * @param object the object
+	 * @param condition the condition
+	 * @param terms the terms
+	 * @param ttlMillis the TTL in milliseconds, 0 for none
+	 * @param metrics the metrics of the calling operation
+	 * @return "OK", or null if the condition did not hold
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private <T extends Serializable> String writeIndexed(String key, T object, WriteCondition condition,
+			Map<String, String> terms, long ttlMillis, OperationMetrics metrics) throws IOException {
+		byte[] bytes = serializeObject(object);
+		metrics.bytes(bytes.length);
+		boolean nx = condition == WriteCondition.IF_ABSENT;
+		boolean xx = condition == WriteCondition.IF_PRESENT;
+		long ttl = expiry(ttlMillis);
+		return indexes.write(key, terms, () -> store.set(key, bytes, nx, xx, ttl)) ? OK : null;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedBulkObject(java.util.Map, java.util.function.Function, long)
+	 */
+	@Override
+	public <T extends Serializable> void saveIndexedBulkObject(Map<String, T> bulk,
+			Function<? super T, Map<String, String>> terms, long ttlMillis) throws IOException {
+		if (bulk == null) {
+			throw new RuntimeException("bulk cannot be null or empty");
+		}
+
+		measured(bulkIndexedMetrics, "save bulk object", () -> {
+			for (Entry<String, T> pair : bulk.entrySet()) {
+				writeIndexed(pair.getKey(), pair.getValue(), WriteCondition.ALWAYS, terms.apply(pair.getValue()),
+						ttlMillis, bulkIndexedMetrics);
+			}
+			return null;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedObjects(java.util.Map, com.gbmartins.redis.dao.index.WriteCondition, java.util.function.Function)
+	 */
+	@Override
+	public <T extends Serializable> List<String> saveIndexedObjects(Map<String, T> bulk, WriteCondition condition,
+			Function<? super T, Map<String, String>> terms) throws IOException {
+		if (bulk == null) {
+			throw new RuntimeException("bulk cannot be null or empty");
+		}
+
+		return measured(saveIndexedObjectsMetrics, "save indexed objects", () -> {
+			List<String> result = new ArrayList<>(bulk.size());
+			for (Entry<String, T> pair : bulk.entrySet()) {
+				result.add(writeIndexed(pair.getKey(), pair.getValue(), condition, terms.apply(pair.getValue()), 0,
+						saveIndexedObjectsMetrics));
+			}
+			return result;
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#saveIndexedHash(java.lang.String, java.util.Map, boolean, java.util.Map)
+	 */
+	@Override
+	public boolean saveIndexedHash(String key, Map<String, String> fields, boolean replace, Map<String, String> terms) {
+		if (fields == null || fields.isEmpty()) {
+			throw new RuntimeException("fields cannot be null or empty");
+		}
+
+		return measured(saveIndexedHashMetrics, "save indexed hash", () -> indexes.write(key, terms, () -> {
+			if (replace) {
+				replaceHash(key, fields);
+				return true;
+			}
+			return store.updateHash(key, fields, true);
+		}));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#deleteIndexedKeysEach(java.util.Collection, java.lang.String[])
+	 */
+	@Override
+	public List<Boolean> deleteIndexedKeysEach(Collection<String> indexNames, String... keys) {
+		Map<String, String> terms = new HashMap<>(indexNames.size() * 2);
+		for (String index : indexNames) {
+			terms.put(index, null);
+		}
+
+		return measured(deleteIndexedMetrics, "delete indexed keys", () -> {
+			List<Boolean> result = new ArrayList<>(keys.length);
+			for (String key : keys) {
+				boolean[] deleted = new boolean[1];
+				indexes.write(key, terms, () -> {
+					deleted[0] = store.delete(key);
+					return true;
+				});
+				result.add(deleted[0]);
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * Reads a page visiting whole stripes, the cursor is the index of the
+	 * next stripe.
+	 *
+	 * @param <T> the generic type
+	 * @param cursor the cursor
+	 * @param pattern the pattern
+	 * @param count the count
+	 * @param type the type
+	 * @return the page
+	 * @throws Exception the exception
+	 */
+	@Override
+	public <T extends Serializable> ScanPage<T> scanObjects(String cursor, String pattern, int count, Class<T> type)
+			throws Exception {
+		int from;
+		try {
+			from = Integer.parseInt(cursor);
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Invalid cursor " + cursor, ex);
+		}
+
+		return measured(scanMetrics, "scan objects", () -> {
+			Pattern match = GlobPattern.compile(pattern);
+			Map<String, byte[]> found = new LinkedHashMap<>();
+			int next = store.scan(from, key -> match.matcher(key).matches(), count, found);
+
+			List<String> keys = new ArrayList<>(found.keySet());
+			byte[][] values = found.values().toArray(new byte[found.size()][]);
+			for (byte[] value : values) {
+				scanMetrics.bytes(value.length);
+			}
+			return scanPage(keys, values, next >= store.getStripeCount() ? ScanPage.START : String.valueOf(next),
+					type);
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#indexPrefix(java.lang.String, java.lang.String, int, int)
+	 */
+	@Override
+	public List<String> indexPrefix(String index, String prefix, int offset, int count) {
+		return measured(indexRangeMetrics, "read index",
+				() -> live(indexes.range(index, LexIndex.prefixMin(prefix), LexIndex.prefixMax(prefix), offset, count)));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.RedisOperations#indexRange(java.lang.String, java.lang.String, java.lang.String, int, int)
+	 */
+	@Override
+	public List<String> indexRange(String index, String from, String to, int offset, int count) {
+		return measured(indexRangeMetrics, "read index",
+				() -> live(indexes.range(index, LexIndex.rangeMin(from), LexIndex.rangeMax(to), offset, count)));
+	}
+
+	/**
+	 * Leaves the expired keys out of an index page and prunes them from the
+	 * indexes, like the Redis backends do.
+	 *
+	 * @param keys
+	 *            the keys of the page
+	 * @return the keys that exist
+	 */
+	private List<String> live(List<String> keys) {
+		List<String> live = new ArrayList<>(keys.size());
+		for (String key : keys) {
+			if (store.exists(key)) {
+				live.add(key);
+			} else {
+				indexes.prune(key, () -> !store.exists(key));
+			}
+		}
+		return live;
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.memory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+import com.gbmartins.redis.dao.index.LexIndex;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * The Class LexIndexes.
+ * <p>
+ * The in-memory counterpart of the sorted sets described in {@link LexIndex}:
+ * members are compared byte by byte like Redis does. Writes run the record
+ * write and the index update under one lock, so lookups never see an index
+ * half updated.
+ */
+public class LexIndexes {
+
+	/** The lock. */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** The indexes by name. */
+	private final Map<String, NavigableSet<byte[]>> indexes = new HashMap<>();
+
+	/** The current terms of each key, by index. */
+	private final Map<String, Map<String, String>> terms = new HashMap<>();
+
+	/**
+	 * Runs the record write and, if it happened, moves the key to the terms.
+	 *
+	 * @param key
+	 *            the key
+	 * @param newTerms
+	 *            the term of each index, null or empty to remove the key
+	 *            from it
+	 * @param write
+	 *            the record write, false if its condition failed
+	 * @return the result of the record write
+	 */
+	public boolean write(String key, Map<String, String> newTerms, BooleanSupplier write) {
+		lock.writeLock().lock();
+		try {
+			if (!write.getAsBoolean()) {
+				return false;
+			}
+
+			Map<String, String> current = terms.computeIfAbsent(key, k -> new HashMap<>());
+			for (Entry<String, String> entry : newTerms.entrySet()) {
+				String index = entry.getKey();
+				String term = entry.getValue();
+				boolean remove = term == null || term.isEmpty();
+				String old = remove ? current.remove(index) : current.put(index, term);
+
+				NavigableSet<byte[]> set = indexes.computeIfAbsent(index,
+						k -> new TreeSet<>(UnsignedBytes.lexicographicalComparator()));
+				if (old != null) {
+					set.remove(LexIndex.member(old, key));
+				}
+				if (!remove) {
+					set.add(LexIndex.member(term, key));
+				}
+				if (set.isEmpty()) {
+					indexes.remove(index);
+				}
+			}
+			if (current.isEmpty()) {
+				terms.remove(key);
+			}
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the key from every index, if it is still missing: the check
+	 * runs under the lock of the writes, so a key written again meanwhile
+	 * keeps its terms.
+	 *
+	 * @param key
+	 *            the key
+	 * @param missing
+	 *            checks that the key does not exist
+	 */
+	public void prune(String key, BooleanSupplier missing) {
+		lock.writeLock().lock();
+		try {
+			Map<String, String> current = terms.get(key);
+			if (current == null || !missing.getAsBoolean()) {
+				return;
+			}
+			for (Entry<String, String> entry : current.entrySet()) {
+				NavigableSet<byte[]> set = indexes.get(entry.getKey());
+				if (set != null) {
+					set.remove(LexIndex.member(entry.getValue(), key));
+					if (set.isEmpty()) {
+						indexes.remove(entry.getKey());
+					}
+				}
+			}
+			terms.remove(key);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads a page of the index, with the bounds of ZRANGEBYLEX.
+	 *
+	 * @param index
+	 *            the index
+	 * @param min
+	 *            the min, '-' or inclusive
+	 * @param max
+	 *            the max, '+' or inclusive
+	 * @param offset
+	 *            the offset
+	 * @param count
+	 *            the count, negative for every key after the offset
+	 * @return the keys
+	 */
+	public List<String> range(String index, byte[] min, byte[] max, int offset, int count) {
+		lock.readLock().lock();
+		try {
+			NavigableSet<byte[]> view = indexes.get(index);
+			if (view == null) {
+				return Collections.emptyList();
+			}
+			if (min[0] == '[') {
+				view = view.tailSet(bound(min), true);
+			}
+			if (max[0] == '[') {
+				view = view.headSet(bound(max), true);
+			}
+
+			List<String> keys = new ArrayList<>();
+			Iterator<byte[]> it = view.iterator();
+			for (int i = 0; i < offset && it.hasNext(); i++) {
+				it.next();
+			}
+			while (it.hasNext() && (count < 0 || keys.size() < count)) {
+				keys.add(LexIndex.keyOf(it.next()));
+			}
+			return keys;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Strips the '[' of an inclusive bound.
+	 *
+	 * @param bound
+	 *            the bound
+	 * @return the value
+	 */
+	private static byte[] bound(byte[] bound) {
+		byte[] value = new byte[bound.length - 1];
+		System.arraycopy(bound, 1, value, 0, value.length);
+		return value;
+	}
+}
@@ -0,0 +1,569 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.memory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Predicate;
+
+import com.gbmartins.redis.dao.script.UpsertResult;
+import com.gbmartins.redis.dao.version.VersionHeader;
+
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * The Class StripedStore.
+ * <p>
+ * The keyspace of the in-memory backend: keys are spread over a power of two
+ * number of stripes, each a plain map guarded by its own monitor, so
+ * operations on different stripes never contend. A value is either a
+ * <code>byte[]</code> (a string) or a <code>Map&lt;String, String&gt;</code>
+ * (a hash); using a key as the other kind fails with the same
+ * {@link JedisDataException} Redis answers.
+ * <p>
+ * Keys may carry a deadline, which is checked lazily: an expired key is
+ * dropped by the first operation that touches it, and a scan skips it.
+ * Replacing a string clears its deadline, as SET does.
+ */
+public class StripedStore {
+
+	/** The WRONGTYPE error of Redis. */
+	private static final String WRONGTYPE = "WRONGTYPE Operation against a key holding the wrong kind of value";
+
+	/** The stripes. */
+	private final Stripe[] stripes;
+
+	/** The stripe mask. */
+	private final int mask;
+
+	/**
+	 * Instantiates a new striped store.
+	 *
+	 * @param stripeCount
+	 *            the stripe count, rounded up to a power of two
+	 */
+	public StripedStore(int stripeCount) {
+		int count = 1;
+		while (count < stripeCount) {
+			count <<= 1;
+		}
+		this.stripes = new Stripe[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new Stripe();
+		}
+		this.mask = count - 1;
+	}
+
+	/**
+	 * Gets the string value like MGET does: null when the key holds another
+	 * type.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value, null if the key does not exist or is not a string
+	 */
+	public byte[] getIfString(String key) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			Object value = stripe.get(key);
+			return value instanceof byte[] ? (byte[]) value : null;
+		}
+	}
+
+	/**
+	 * Checks if the key exists, whatever its type.
+	 *
+	 * @param key
+	 *            the key
+	 * @return true, if the key exists and has not expired
+	 */
+	public boolean exists(String key) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			return stripe.get(key) != null;
+		}
+	}
+
+	/**
+	 * Gets the string value.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the value, null if the key does not exist
+	 */
+	public byte[] get(String key) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			return string(stripe.get(key));
+		}
+	}
+
+	/**
+	 * Gets the string value and moves its deadline, like GET followed by
+	 * PEXPIRE.
+	 *
+	 * @param key
+	 *            the key
+	 * @param ttlMillis
+	 *            the new TTL in milliseconds
+	 * @return the value, null if the key does not exist
+	 */
+	public byte[] getAndExpire(String key, long ttlMillis) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			byte[] value = string(stripe.get(key));
+			if (value != null) {
+				stripe.expires.put(key, System.currentTimeMillis() + ttlMillis);
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Gets the remaining TTL, PTTL semantics.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the TTL in milliseconds, -1 if the key has no deadline, -2 if
+	 *         it does not exist
+	 */
+	public long pttl(String key) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			if (stripe.get(key) == null) {
+				return -2;
+			}
+			Long deadline = stripe.expires.get(key);
+			return deadline != null ? Math.max(0, deadline - System.currentTimeMillis()) : -1;
+		}
+	}
+
+	/**
+	 * Sets the string value, SET semantics.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @param nx
+	 *            only set if the key does not exist
+	 * @param xx
+	 *            only set if the key exists
+	 * @param ttlMillis
+	 *            the TTL in milliseconds, 0 to keep the value forever
+	 * @return true, if the value was set
+	 */
+	public boolean set(String key, byte[] value, boolean nx, boolean xx, long ttlMillis) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			boolean exists = stripe.get(key) != null;
+			if ((nx && exists) || (xx && !exists)) {
+				return false;
+			}
+			stripe.put(key, value);
+			if (ttlMillis > 0) {
+				stripe.expires.put(key, System.currentTimeMillis() + ttlMillis);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Sets the string value unless the key already holds it, keeping the
+	 * deadline and the version of the key like the upsert script.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 * @return what the upsert did
+	 */
+	public UpsertResult upsert(String key, byte[] value) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			byte[] old = string(stripe.get(key));
+			if (old != null && Arrays.equals(VersionHeader.strip(old), value)) {
+				return UpsertResult.UNCHANGED;
+			}
+			stripe.replace(key, VersionHeader.carry(old, value));
+			return old == null ? UpsertResult.CREATED : UpsertResult.UPDATED;
+		}
+	}
+
+	/**
+	 * Sets the string value only if the key holds the expected one, keeping
+	 * the deadline and the version of the key like the compare-and-set
+	 * script.
+	 *
+	 * @param key
+	 *            the key
+	 * @param expected
+	 *            the expected value, null if the key must not exist
+	 * @param update
+	 *            the new value
+	 * @return true, if the value was set
+	 */
+	public boolean compareAndSet(String key, byte[] expected, byte[] update) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			byte[] old = string(stripe.get(key));
+			if (old == null ? expected != null : !Arrays.equals(VersionHeader.strip(old), expected)) {
+				return false;
+			}
+			stripe.replace(key, VersionHeader.carry(old, update));
+			return true;
+		}
+	}
+
+	/**
+	 * Sets the string value only if the condition holds on the current one.
+	 * The caller tells whether it was set by testing the condition on the
+	 * returned value.
+	 *
+	 * @param key
+	 *            the key
+	 * @param condition
+	 *            the condition on the current value, null if the key does
+	 *            not exist
+	 * @param value
+	 *            the value
+	 * @return the previous value, null if the key did not exist
+	 */
+	public byte[] replaceIf(String key, Predicate<byte[]> condition, byte[] value) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			byte[] previous = string(stripe.get(key));
+			if (condition.test(previous)) {
+				stripe.put(key, value);
+			}
+			return previous;
+		}
+	}
+
+	/**
+	 * Deletes the key only if it holds the expected string value, compared
+	 * without its version header.
+	 *
+	 * @param key
+	 *            the key
+	 * @param expected
+	 *            the expected value
+	 * @return true, if the key was deleted
+	 */
+	public boolean deleteIfEquals(String key, byte[] expected) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			Object value = stripe.get(key);
+			if (!(value instanceof byte[]) || !Arrays.equals(VersionHeader.strip((byte[]) value), expected)) {
+				return false;
+			}
+			stripe.remove(key);
+			return true;
+		}
+	}
+
+	/**
+	 * Deletes the key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return true, if the key existed
+	 */
+	public boolean delete(String key) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			return stripe.get(key) != null && stripe.remove(key) != null;
+		}
+	}
+
+	/**
+	 * Replaces the whole hash. An empty hash deletes the key, as in Redis.
+	 *
+	 * @param key
+	 *            the key
+	 * @param fields
+	 *            the fields, without null values
+	 */
+	public void replaceHash(String key, Map<String, String> fields) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			if (fields.isEmpty()) {
+				stripe.remove(key);
+			} else {
+				stripe.put(key, new HashMap<>(fields));
+			}
+		}
+	}
+
+	/**
+	 * Updates the hash in place: null values remove the field. A hash left
+	 * without fields deletes the key.
+	 *
+	 * @param key
+	 *            the key
+	 * @param fields
+	 *            the fields
+	 */
+	public void updateHash(String key, Map<String, String> fields) {
+		updateHash(key, fields, false);
+	}
+
+	/**
+	 * Updates the hash in place like {@link #updateHash(String, Map)},
+	 * optionally only if the key exists.
+	 *
+	 * @param key
+	 *            the key
+	 * @param fields
+	 *            the fields
+	 * @param xx
+	 *            true to update only an existing key
+	 * @return true, if updated
+	 */
+	public boolean updateHash(String key, Map<String, String> fields, boolean xx) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			Map<String, String> hash = hash(stripe.get(key));
+			if (hash == null) {
+				if (xx) {
+					return false;
+				}
+				hash = new HashMap<>();
+			}
+			for (Entry<String, String> field : fields.entrySet()) {
+				if (field.getValue() != null) {
+					hash.put(field.getKey(), field.getValue());
+				} else {
+					hash.remove(field.getKey());
+				}
+			}
+			if (hash.isEmpty()) {
+				stripe.remove(key);
+			} else {
+				stripe.map.put(key, hash);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Gets the requested hash fields, null for the missing ones.
+	 *
+	 * @param key
+	 *            the key
+	 * @param fields
+	 *            the fields
+	 * @return the fields, in the requested order
+	 */
+	public Map<String, String> getHashFields(String key, String... fields) {
+		Map<String, String> result = new LinkedHashMap<>(fields.length);
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			Map<String, String> hash = hash(stripe.get(key));
+			for (String field : fields) {
+				result.put(field, hash != null ? hash.get(field) : null);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets a copy of the whole hash.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the hash, empty if the key does not exist
+	 */
+	public Map<String, String> getHash(String key) {
+		Stripe stripe = stripe(key);
+		synchronized (stripe) {
+			Map<String, String> hash = hash(stripe.get(key));
+			return hash != null ? new HashMap<>(hash) : new HashMap<>();
+		}
+	}
+
+	/**
+	 * Visits the stripes from the given one, collecting the string values of
+	 * the matching keys, until at least <code>count</code> keys were visited
+	 * or the last stripe is done. At least one stripe is visited per call,
+	 * expired keys are skipped.
+	 *
+	 * @param from
+	 *            the first stripe
+	 * @param match
+	 *            the key filter
+	 * @param count
+	 *            the keys to visit
+	 * @param out
+	 *            the values by key, filled
+	 * @return the next stripe, the stripe count once every stripe was visited
+	 */
+	public int scan(int from, Predicate<String> match, int count, Map<String, byte[]> out) {
+		int visited = 0;
+		int next = from;
+		while (next < stripes.length && (next == from || visited < count)) {
+			Stripe stripe = stripes[next++];
+			synchronized (stripe) {
+				visited += stripe.map.size();
+				long now = System.currentTimeMillis();
+				for (Entry<String, Object> entry : stripe.map.entrySet()) {
+					if (entry.getValue() instanceof byte[] && match.test(entry.getKey())
+							&& !stripe.isExpired(entry.getKey(), now)) {
+						out.put(entry.getKey(), (byte[]) entry.getValue());
+					}
+				}
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Gets the stripe count.
+	 *
+	 * @return the stripe count
+	 */
+	public int getStripeCount() {
+		return stripes.length;
+	}
+
+	/**
+	 * Gets the stripe of the key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the stripe
+	 */
+	private Stripe stripe(String key) {
+		int h = key.hashCode();
+		return stripes[(h ^ (h >>> 16)) & mask];
+	}
+
+	/**
+	 * Casts the value to a string value.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the byte[]
+	 */
+	private static byte[] string(Object value) {
+		if (value == null || value instanceof byte[]) {
+			return (byte[]) value;
+		}
+		throw new JedisDataException(WRONGTYPE);
+	}
+
+	/**
+	 * Casts the value to a hash.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the map
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, String> hash(Object value) {
+		if (value == null || value instanceof Map) {
+			return (Map<String, String>) value;
+		}
+		throw new JedisDataException(WRONGTYPE);
+	}
+
+	/**
+	 * The Class Stripe.
+	 */
+	private static final class Stripe {
+
+		/** The map. */
+		private final Map<String, Object> map = new HashMap<>();
+
+		/** The deadlines of the keys having one, in epoch milliseconds. */
+		private final Map<String, Long> expires = new HashMap<>();
+
+		/**
+		 * Gets the value, dropping the key first if it has expired.
+		 *
+		 * @param key
+		 *            the key
+		 * @return the value, null if the key does not exist
+		 */
+		private Object get(String key) {
+			if (isExpired(key, System.currentTimeMillis())) {
+				remove(key);
+				return null;
+			}
+			return map.get(key);
+		}
+
+		/**
+		 * Replaces the value, clearing the deadline.
+		 *
+		 * @param key
+		 *            the key
+		 * @param value
+		 *            the value
+		 */
+		private void put(String key, Object value) {
+			map.put(key, value);
+			expires.remove(key);
+		}
+
+		/**
+		 * Puts the value, keeping the deadline of the key.
+		 *
+		 * @param key
+		 *            the key
+		 * @param value
+		 *            the value
+		 */
+		private void replace(String key, Object value) {
+			map.put(key, value);
+		}
+
+		/**
+		 * Removes the key and its deadline.
+		 *
+		 * @param key
+		 *            the key
+		 * @return the previous value
+		 */
+		private Object remove(String key) {
+			expires.remove(key);
+			return map.remove(key);
+		}
+
+		/**
+		 * Checks if the key has expired.
+		 *
+		 * @param key
+		 *            the key
+		 * @param now
+		 *            the current time, in epoch milliseconds
+		 * @return true, if the key has a deadline not after now
+		 */
+		private boolean isExpired(String key, long now) {
+			Long deadline = expires.get(key);
+			return deadline != null && deadline <= now;
+		}
+
+	}
+
+}
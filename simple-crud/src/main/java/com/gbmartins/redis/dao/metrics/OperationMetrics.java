@@ -0,0 +1,208 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+
+/**
+ * The Class OperationMetrics.
+ * <p>
+ * Latency histogram and counters of one operation. The histogram range is
+ * fixed up front, so recording never resizes or allocates and can stay on in
+ * production. Usage:
+ *
+ * <pre>
+ * long start = metrics.start();
+ * try {
+ * 	...
+ * } catch (Exception ex) {
+ * 	metrics.error();
+ * 	throw ex;
+ * } finally {
+ * 	metrics.stop(start);
+ * }
+ * </pre>
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+	/** The Constant MAX_MICROS. */
+	private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+	/** The name. */
+	private final String name;
+
+	/** The histogram. */
+	private final ConcurrentHistogram histogram = new ConcurrentHistogram(1, MAX_MICROS, 3);
+
+	/** The calls. */
+	private final LongAdder calls = new LongAdder();
+
+	/** The errors. */
+	private final LongAdder errors = new LongAdder();
+
+	/** The bytes. */
+	private final LongAdder bytes = new LongAdder();
+
+	/**
+	 * Instantiates a new operation metrics.
+	 *
+	 * @param name
+	 *            the name
+	 */
+	public OperationMetrics(String name) {
+		super();
+		this.name = name;
+	}
+
+	/**
+	 * Starts timing a call.
+	 *
+	 * @return the start time
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Records a finished call.
+	 *
+	 * @param start
+	 *            the start time
+	 */
+	public void stop(long start) {
+		long micros = (System.nanoTime() - start) / 1000;
+		histogram.recordValue(Math.min(Math.max(micros, 1), MAX_MICROS));
+		calls.increment();
+	}
+
+	/**
+	 * Records a failed call.
+	 */
+	public void error() {
+		errors.increment();
+	}
+
+	/**
+	 * Records value bytes written or read.
+	 *
+	 * @param count
+	 *            the count
+	 */
+	public void bytes(long count) {
+		bytes.add(count);
+	}
+
+	/**
+	 * Gets the name.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.metrics.OperationMetricsMBean#getCalls()
+	 */
+	@Override
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.metrics.OperationMetricsMBean#getErrors()
+	 */
+	@Override
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.metrics.OperationMetricsMBean#getBytes()
+	 */
+	@Override
+	public long getBytes() {
+		return bytes.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.metrics.OperationMetricsMBean#getMeanMicros()
+	 */
+	@Override
+	public double getMeanMicros() {
+		return histogram.getMean();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.metrics.OperationMetricsMBean#getP50Micros()
+	 */
+	@Override
+	public long getP50Micros() {
+		return histogram.getValueAtPercentile(50);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.metrics.OperationMetricsMBean#getP99Micros()
+	 */
+	@Override
+	public long getP99Micros() {
+		return histogram.getValueAtPercentile(99);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.metrics.OperationMetricsMBean#getP999Micros()
+	 */
+	@Override
+	public long getP999Micros() {
+		return histogram.getValueAtPercentile(99.9);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.metrics.OperationMetricsMBean#getMaxMicros()
+	 */
+	@Override
+	public long getMaxMicros() {
+		return histogram.getMaxValue();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.metrics.OperationMetricsMBean#reset()
+	 */
+	@Override
+	public void reset() {
+		histogram.reset();
+		calls.reset();
+		errors.reset();
+		bytes.reset();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("%-28s calls=%-9d errors=%-6d bytes=%-11d p50=%-6d p99=%-6d p999=%-6d max=%d (us)", name,
+				getCalls(), getErrors(), getBytes(), getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.metrics;
+
+/**
+ * The Interface OperationMetricsMBean.
+ * <p>
+ * JMX view of one instrumented operation. Latencies are in microseconds.
+ */
+public interface OperationMetricsMBean {
+
+	/**
+	 * Gets the number of calls.
+	 *
+	 * @return the calls
+	 */
+	long getCalls();
+
+	/**
+	 * Gets the number of failed calls.
+	 *
+	 * @return the errors
+	 */
+	long getErrors();
+
+	/**
+	 * Gets the number of value bytes written or read.
+	 *
+	 * @return the bytes
+	 */
+	long getBytes();
+
+	/**
+	 * Gets the mean latency.
+	 *
+	 * @return the mean micros
+	 */
+	double getMeanMicros();
+
+	/**
+	 * Gets the median latency.
+	 *
+	 * @return the p50 micros
+	 */
+	long getP50Micros();
+
+	/**
+	 * Gets the 99th percentile latency.
+	 *
+	 * @return the p99 micros
+	 */
+	long getP99Micros();
+
+	/**
+	 * Gets the 99.9th percentile latency.
+	 *
+	 * @return the p999 micros
+	 */
+	long getP999Micros();
+
+	/**
+	 * Gets the max latency.
+	 *
+	 * @return the max micros
+	 */
+	long getMaxMicros();
+
+	/**
+	 * Resets the counters and the histogram.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PreDestroy;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+/**
+ * The Class RedisMetrics.
+ * <p>
+ * Registry of the {@link OperationMetrics} of every instrumented operation,
+ * each one published as an MBean under
+ * <code>com.gbmartins.redis:type=Operation,name=&lt;operation&gt;</code>.
+ * Callers look their metrics up once and keep the reference, the registry is
+ * not meant to be hit on every call.
+ */
+@Component
+public class RedisMetrics {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(RedisMetrics.class);
+
+	/** The Constant DOMAIN. */
+	private static final String DOMAIN = "com.gbmartins.redis";
+
+	/** The metrics. */
+	private final ConcurrentMap<String, OperationMetrics> metrics = new ConcurrentHashMap<>();
+
+	/** The registered names. */
+	private final List<ObjectName> registered = new ArrayList<>();
+
+	/**
+	 * Gets the metrics of the operation, creating and registering them on first
+	 * use.
+	 *
+	 * @param name
+	 *            the operation name
+	 * @return the operation metrics
+	 */
+	public OperationMetrics get(String name) {
+		return metrics.computeIfAbsent(name, this::create);
+	}
+
+	/**
+	 * Gets every operation metrics.
+	 *
+	 * @return the all
+	 */
+	public Collection<OperationMetrics> getAll() {
+		return metrics.values();
+	}
+
+	/**
+	 * Unregisters the MBeans.
+	 */
+	@PreDestroy
+	public synchronized void destroy() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName objectName : registered) {
+			try {
+				server.unregisterMBean(objectName);
+			} catch (Exception ex) {
+				// ignore
+			}
+		}
+		registered.clear();
+	}
+
+	/**
+	 * Creates and registers the metrics.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the operation metrics
+	 */
+	private synchronized OperationMetrics create(String name) {
+		OperationMetrics operationMetrics = new OperationMetrics(name);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=Operation,name=" + ObjectName.quote(name));
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(operationMetrics, objectName);
+			registered.add(objectName);
+		} catch (Exception ex) {
+			LOG.warn("Metrics of {} could not be registered over JMX", name, ex);
+		}
+		return operationMetrics;
+	}
+
+}
@@ -0,0 +1,172 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.replica;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The Class ReadYourWrites.
+ * <p>
+ * Tracks, per thread, whether reads must go to the primary instead of a
+ * replica. A thread is pinned while inside a {@link #pinToPrimary()} scope,
+ * or for a short window after its own last write so it does not read a
+ * replica that has not caught up yet.
+ * <p>
+ * Example:
+ *
+ * <pre>
+ * try (ReadYourWrites.Pin pin = ReadYourWrites.pinToPrimary()) {
+ * 	user = redisOperations.getObject(key, User.class);
+ * }
+ * </pre>
+ */
+public final class ReadYourWrites {
+
+	/** The state of the current thread. */
+	private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+	/**
+	 * Instantiates a new read your writes.
+	 */
+	private ReadYourWrites() {
+	}
+
+	/**
+	 * Pins the reads of the current thread to the primary until the returned
+	 * pin is closed. Pins nest.
+	 *
+	 * @return the pin
+	 */
+	public static Pin pinToPrimary() {
+		State state = STATE.get();
+		state.pins++;
+		return new Pin(state);
+	}
+
+	/**
+	 * Records a write made by the current thread.
+	 */
+	public static void recordWrite() {
+		STATE.get().lastWrite = System.nanoTime();
+	}
+
+	/**
+	 * Checks whether the current thread must read from the primary.
+	 *
+	 * @param windowNanos
+	 *            how long reads stay on the primary after a write, 0 to only
+	 *            honour explicit pins
+	 * @return true, if pinned
+	 */
+	public static boolean isPinned(long windowNanos) {
+		State state = STATE.get();
+		if (state.pins > 0) {
+			return true;
+		}
+		return windowNanos > 0 && state.lastWrite != 0 && System.nanoTime() - state.lastWrite < windowNanos;
+	}
+
+	/**
+	 * Wraps a task handed to another thread, so it reads under the pins and
+	 * the last write of the calling thread. A write made by the task is
+	 * handed back to the calling thread before the task returns, so the
+	 * caller reads its own async writes from the primary too.
+	 *
+	 * @param <V>
+	 *            the value type
+	 * @param task
+	 *            the task
+	 * @return the wrapped task
+	 */
+	public static <V> Callable<V> propagate(Callable<V> task) {
+		State caller = STATE.get();
+		int pins = caller.pins;
+		long lastWrite = caller.lastWrite;
+
+		return () -> {
+			State state = STATE.get();
+			if (state == caller) {
+				return task.call();
+			}
+
+			int savedPins = state.pins;
+			long savedWrite = state.lastWrite;
+			state.pins += pins;
+			state.lastWrite = lastWrite;
+			try {
+				return task.call();
+			} finally {
+				if (state.lastWrite != lastWrite && state.lastWrite - caller.lastWrite > 0) {
+					caller.lastWrite = state.lastWrite;
+				}
+				state.pins = savedPins;
+				state.lastWrite = savedWrite;
+			}
+		};
+	}
+
+	/**
+	 * The Class State.
+	 */
+	private static class State {
+
+		/** The open pins. */
+		private int pins;
+
+		/**
+		 * The nano time of the last write, 0 if none. Volatile, as the tasks
+		 * the thread hands to other threads record their writes here.
+		 */
+		private volatile long lastWrite;
+	}
+
+	/**
+	 * The Class Pin.
+	 */
+	public static final class Pin implements AutoCloseable {
+
+		/** The state. */
+		private final State state;
+
+		/** The closed flag. */
+		private boolean closed;
+
+		/**
+		 * Instantiates a new pin.
+		 *
+		 * @param state
+		 *            the state
+		 */
+		private Pin(State state) {
+			this.state = state;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.AutoCloseable#close()
+		 */
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				state.pins--;
+			}
+		}
+	}
+}
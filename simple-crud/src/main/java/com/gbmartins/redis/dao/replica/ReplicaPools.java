@@ -0,0 +1,265 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.replica;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gbmartins.redis.dao.PoolStats;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.RedisPoolConnection;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+/**
+ * The Class ReplicaPools.
+ * <p>
+ * One connection pool per read replica, sized like the primary pool. Reads
+ * borrow from the replica picked by the configured {@link ReplicaSelection},
+ * unless {@link ReadYourWrites} pins the calling thread to the primary. When
+ * the picked replica cannot hand out a connection the read falls back to the
+ * primary rather than failing, and the replica is skipped for a short
+ * cooldown.
+ * <p>
+ * Replicas are asynchronous: a read routed to them may miss a write made a
+ * moment ago by another client, or by this one when the read-your-writes
+ * window is disabled.
+ */
+public class ReplicaPools implements Closeable {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(ReplicaPools.class);
+
+	/** How long a replica that failed to hand out a connection is skipped. */
+	private static final long COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/** The primary. */
+	private final RedisPoolConnection primary;
+
+	/** The replica pools. */
+	private final List<JedisPool> pools = new ArrayList<>();
+
+	/** The replica addresses, same order as the pools. */
+	private final List<String> nodes = new ArrayList<>();
+
+	/** The selection. */
+	private final ReplicaSelection selection;
+
+	/** The read-your-writes window in nanos. */
+	private final long windowNanos;
+
+	/** The nano time until each replica is skipped, 0 when available. */
+	private final AtomicLongArray downUntil;
+
+	/** The round robin cursor. */
+	private final AtomicInteger next = new AtomicInteger();
+
+	/** The reads served by a replica. */
+	private final LongAdder replicaReads = new LongAdder();
+
+	/** The reads served by the primary. */
+	private final LongAdder primaryReads = new LongAdder();
+
+	/**
+	 * Instantiates a new replica pools.
+	 *
+	 * @param primary
+	 *            the primary
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 */
+	public ReplicaPools(RedisPoolConnection primary, RedisInstanceSetup redisInstanceSetup) {
+		this.primary = primary;
+		this.selection = ReplicaSelection.fromName(redisInstanceSetup.getReplicaSelection());
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, redisInstanceSetup.getReadYourWritesMillis()));
+
+		JedisPoolConfig config = new JedisPoolConfig();
+		config.setMaxTotal(redisInstanceSetup.getPoolMaxTotal());
+		config.setMaxIdle(redisInstanceSetup.getPoolMaxIdle());
+		config.setMinIdle(redisInstanceSetup.getPoolMinIdle());
+		config.setMaxWaitMillis(redisInstanceSetup.getPoolMaxWaitMillis());
+		config.setJmxNamePrefix("redis-replica-pool");
+
+		for (String node : Splitter.on(',').trimResults().omitEmptyStrings()
+				.split(Strings.nullToEmpty(redisInstanceSetup.getReplicaNodes()))) {
+			int colon = node.lastIndexOf(':');
+			if (colon <= 0) {
+				throw new IllegalArgumentException("Replica node must be host:port, found: " + node);
+			}
+			pools.add(new JedisPool(config, node.substring(0, colon), Integer.parseInt(node.substring(colon + 1)),
+					redisInstanceSetup.getConnectionTimeout(), redisInstanceSetup.getSoTimeout(),
+					Strings.emptyToNull(redisInstanceSetup.getPassword()), Protocol.DEFAULT_DATABASE, null, false,
+					null, null, null));
+			nodes.add(node);
+		}
+		if (pools.isEmpty()) {
+			throw new IllegalArgumentException("No replica node configured");
+		}
+		this.downUntil = new AtomicLongArray(pools.size());
+
+		LOG.info("Replica reads enabled on {} with Selection: {}, Read Your Writes: {} ms", nodes, selection,
+				redisInstanceSetup.getReadYourWritesMillis());
+	}
+
+	/**
+	 * Checks whether the calling thread must read from the primary.
+	 *
+	 * @return true, if pinned
+	 */
+	public boolean isPinned() {
+		return ReadYourWrites.isPinned(windowNanos);
+	}
+
+	/**
+	 * Records a write of the calling thread, starting its read-your-writes
+	 * window.
+	 */
+	public void written() {
+		if (windowNanos > 0) {
+			ReadYourWrites.recordWrite();
+		}
+	}
+
+	/**
+	 * Gets a connection for a read, from a replica or from the primary.
+	 *
+	 * @param pinned
+	 *            the pinned flag, see {@link #isPinned()}
+	 * @return the resource
+	 */
+	public Jedis getResource(boolean pinned) {
+		int index = pinned ? -1 : select();
+		if (index >= 0) {
+			try {
+				Jedis jedis = pools.get(index).getResource();
+				replicaReads.increment();
+				return jedis;
+			} catch (JedisConnectionException ex) {
+				downUntil.set(index, System.nanoTime() + COOLDOWN_NANOS);
+				LOG.warn("Replica {} unavailable, reading from the primary: {}", nodes.get(index), ex.getMessage());
+			}
+		}
+		primaryReads.increment();
+		return primary.getResource();
+	}
+
+	/**
+	 * Gets a connection for a read of the calling thread.
+	 *
+	 * @return the resource
+	 */
+	public Jedis getResource() {
+		return getResource(isPinned());
+	}
+
+	/**
+	 * Picks the replica of the next read, skipping the replicas in cooldown.
+	 *
+	 * @return the index of the replica pool, -1 if none is available
+	 */
+	private int select() {
+		int start = Math.floorMod(next.getAndIncrement(), pools.size());
+		long now = System.nanoTime();
+
+		int best = -1;
+		int bestActive = Integer.MAX_VALUE;
+		for (int i = 0; i < pools.size(); i++) {
+			int index = (start + i) % pools.size();
+			long until = downUntil.get(index);
+			if (until != 0 && now - until < 0) {
+				continue;
+			}
+			if (selection == ReplicaSelection.ROUND_ROBIN) {
+				return index;
+			}
+			int active = pools.get(index).getNumActive();
+			if (active < bestActive) {
+				best = index;
+				bestActive = active;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Gets a snapshot of the usage of each replica pool.
+	 *
+	 * @return the stats, same order as the configured nodes
+	 */
+	public List<PoolStats> getStats() {
+		List<PoolStats> stats = new ArrayList<>(pools.size());
+		for (JedisPool pool : pools) {
+			stats.add(new PoolStats(pool.getNumActive(), pool.getNumIdle(), pool.getNumWaiters(),
+					pool.getMeanBorrowWaitTimeMillis(), pool.getMaxBorrowWaitTimeMillis()));
+		}
+		return stats;
+	}
+
+	/**
+	 * Gets the replica nodes.
+	 *
+	 * @return the nodes
+	 */
+	public List<String> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Gets the reads served by a replica.
+	 *
+	 * @return the replica reads
+	 */
+	public long getReplicaReads() {
+		return replicaReads.sum();
+	}
+
+	/**
+	 * Gets the reads served by the primary.
+	 *
+	 * @return the primary reads
+	 */
+	public long getPrimaryReads() {
+		return primaryReads.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		for (JedisPool pool : pools) {
+			pool.close();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.replica;
+
+/**
+ * The Enum ReplicaSelection.
+ */
+public enum ReplicaSelection {
+
+	/** Cycles through the replicas. */
+	ROUND_ROBIN,
+
+	/**
+	 * Picks the replica with the fewest borrowed connections, ties resolved
+	 * round robin.
+	 */
+	LEAST_LOADED;
+
+	/**
+	 * Parses the selection name, case insensitive, dashes allowed. Empty
+	 * names resolve to {@link #ROUND_ROBIN}.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the replica selection
+	 */
+	public static ReplicaSelection fromName(String name) {
+		if (name == null || name.trim().isEmpty()) {
+			return ROUND_ROBIN;
+		}
+		return valueOf(name.trim().replace('-', '_').toUpperCase());
+	}
+}
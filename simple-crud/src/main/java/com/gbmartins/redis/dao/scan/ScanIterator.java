@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.scan;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+/**
+ * The Class ScanIterator.
+ * <p>
+ * Walks a scan page by page, reading the next page only when the current one
+ * is consumed, so at most one page is held in memory whatever the size of
+ * the keyspace. Like SCAN, a key may be returned more than once and keys
+ * written during the walk may or may not be returned.
+ *
+ * @param <T>
+ *            the generic type
+ */
+public class ScanIterator<T> implements Iterator<Entry<String, T>> {
+
+	/** The page reader. */
+	private final PageReader<T> reader;
+
+	/** The entries of the current page. */
+	private Iterator<Entry<String, T>> page = Collections.emptyIterator();
+
+	/** The cursor of the next page. */
+	private String cursor = ScanPage.START;
+
+	/** True once the last page was read. */
+	private boolean finished;
+
+	/**
+	 * Instantiates a new scan iterator.
+	 *
+	 * @param reader
+	 *            the page reader
+	 */
+	public ScanIterator(PageReader<T> reader) {
+		super();
+		this.reader = reader;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() {
+		while (!page.hasNext() && !finished) {
+			ScanPage<T> next;
+			try {
+				next = reader.read(cursor);
+			} catch (RuntimeException ex) {
+				throw ex;
+			} catch (Exception ex) {
+				throw new RuntimeException(ex);
+			}
+			page = next.getItems().entrySet().iterator();
+			cursor = next.getCursor();
+			finished = next.isFinished();
+		}
+		return page.hasNext();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public Entry<String, T> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page.next();
+	}
+
+	/**
+	 * Reads the page at a cursor.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 */
+	@FunctionalInterface
+	public interface PageReader<T> {
+
+		/**
+		 * Reads the page.
+		 *
+		 * @param cursor
+		 *            the cursor
+		 * @return the page
+		 * @throws Exception
+		 *             the exception
+		 */
+		ScanPage<T> read(String cursor) throws Exception;
+	}
+}
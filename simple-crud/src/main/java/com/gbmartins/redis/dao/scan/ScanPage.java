@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.scan;
+
+import java.util.Map;
+
+/**
+ * The Class ScanPage. One step of a keyspace scan: the objects found and
+ * the cursor to pass to get the next page. The cursor is an opaque token,
+ * {@link #START} to begin and back to {@link #START} once the whole keyspace
+ * was walked.
+ *
+ * @param <T>
+ *            the generic type
+ */
+public final class ScanPage<T> {
+
+	/** The cursor of the first page, and of a finished scan. */
+	public static final String START = "0";
+
+	/** The objects by key, in scan order. */
+	private final Map<String, T> items;
+
+	/** The cursor of the next page. */
+	private final String cursor;
+
+	/**
+	 * Instantiates a new scan page.
+	 *
+	 * @param items
+	 *            the objects by key
+	 * @param cursor
+	 *            the cursor of the next page
+	 */
+	public ScanPage(Map<String, T> items, String cursor) {
+		super();
+		this.items = items;
+		this.cursor = cursor;
+	}
+
+	/**
+	 * Gets the objects by key, in scan order. A page may be empty while the
+	 * scan is not finished.
+	 *
+	 * @return the items
+	 */
+	public Map<String, T> getItems() {
+		return items;
+	}
+
+	/**
+	 * Gets the cursor of the next page.
+	 *
+	 * @return the cursor
+	 */
+	public String getCursor() {
+		return cursor;
+	}
+
+	/**
+	 * Checks if the scan is finished.
+	 *
+	 * @return true, if there is no next page
+	 */
+	public boolean isFinished() {
+		return START.equals(cursor);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "ScanPage [items=" + items.size() + ", cursor=" + cursor + "]";
+	}
+}
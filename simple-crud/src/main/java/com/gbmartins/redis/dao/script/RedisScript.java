@@ -0,0 +1,135 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.script;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.google.common.io.BaseEncoding;
+
+/**
+ * The Class RedisScript.
+ * <p>
+ * A named Lua script with its SHA1, the name EVALSHA knows it by once the
+ * server has loaded it.
+ */
+public final class RedisScript {
+
+	/** The name. */
+	private final String name;
+
+	/** The source. */
+	private final String source;
+
+	/** The SHA1 of the source. */
+	private final String sha;
+
+	/** The source as bytes. */
+	private final byte[] sourceBytes;
+
+	/** The SHA1 as bytes. */
+	private final byte[] shaBytes;
+
+	/**
+	 * Instantiates a new redis script.
+	 *
+	 * @param name
+	 *            the name
+	 * @param source
+	 *            the source
+	 */
+	public RedisScript(String name, String source) {
+		super();
+		this.name = name;
+		this.source = source;
+		this.sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+		this.sha = sha1(sourceBytes);
+		this.shaBytes = sha.getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the name.
+	 *
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the source.
+	 *
+	 * @return the source
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the SHA1 of the source.
+	 *
+	 * @return the sha
+	 */
+	public String getSha() {
+		return sha;
+	}
+
+	/**
+	 * Gets the source as bytes, for EVAL.
+	 *
+	 * @return the source bytes
+	 */
+	public byte[] getSourceBytes() {
+		return sourceBytes;
+	}
+
+	/**
+	 * Gets the SHA1 as bytes, for EVALSHA.
+	 *
+	 * @return the sha bytes
+	 */
+	public byte[] getShaBytes() {
+		return shaBytes;
+	}
+
+	/**
+	 * Computes the SHA1 of the source, in lower case hex like the server.
+	 *
+	 * @param source
+	 *            the source bytes
+	 * @return the sha
+	 */
+	private static String sha1(byte[] source) {
+		try {
+			return BaseEncoding.base16().lowerCase().encode(MessageDigest.getInstance("SHA-1").digest(source));
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-1 is not available", ex);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return name + " (" + sha + ")";
+	}
+}
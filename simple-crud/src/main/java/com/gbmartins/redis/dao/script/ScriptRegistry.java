@@ -0,0 +1,293 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.script;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import com.gbmartins.redis.dao.index.LexIndex;
+import com.gbmartins.redis.dao.version.VersionHeader;
+
+import redis.clients.jedis.BinaryScriptingCommands;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * The Class ScriptRegistry.
+ * <p>
+ * The Lua scripts of the compound operations, by name. The Redis backends
+ * load them when they start and then call them with EVALSHA, so a call sends
+ * the 40 byte SHA1 instead of the source. A server that lost its script
+ * cache (restart, failover, SCRIPT FLUSH) answers NOSCRIPT: the call is then
+ * retried with EVAL, which runs the source and caches it again on that
+ * server, so the next EVALSHA hits.
+ */
+@Component
+public class ScriptRegistry {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(ScriptRegistry.class);
+
+	/** The name of the indexed write, see {@link LexIndex#WRITE_SCRIPT}. */
+	public static final String INDEXED_WRITE = "indexed-write";
+
+	/** The name of the index pruning, see {@link LexIndex#PRUNE_SCRIPT}. */
+	public static final String PRUNE_INDEX = "prune-index";
+
+	/**
+	 * The name of the hash replacement: deletes KEYS[1] then HMSETs the ARGV
+	 * field value pairs, the MULTI of the standalone mode in cluster mode.
+	 */
+	public static final String REPLACE_HASH = "replace-hash";
+
+	/**
+	 * The name of the conditional upsert: SETs KEYS[1] to ARGV[1] unless it
+	 * already holds that value, keeping its TTL and version, see
+	 * {@link #KEEP}. Returns 0 unchanged, 1 created, 2 updated.
+	 */
+	public static final String UPSERT = "upsert";
+
+	/**
+	 * The name of the compare-and-set: SETs KEYS[1] to ARGV[3] only if it
+	 * holds ARGV[2], or does not exist when ARGV[1] is '0', keeping its TTL
+	 * and version, see {@link #KEEP}. Returns 1 when written, 0 otherwise.
+	 */
+	public static final String COMPARE_AND_SET = "compare-and-set";
+
+	/**
+	 * The name of the multi-key conditional delete: deletes each KEYS[i]
+	 * that holds ARGV[i], without its version header. Keys of another type
+	 * are skipped. Returns the number of deleted keys.
+	 */
+	public static final String DELETE_IF_EQUALS = "delete-if-equals";
+
+	/**
+	 * The Lua helpers of the scripts updating a stored value in place, see
+	 * {@link VersionHeader#LUA}: the scripts compare <code>body(old)</code>,
+	 * the value without its version header, and <code>keep(key, old,
+	 * value)</code> SETs the value with the remaining TTL of the key and the
+	 * version of the old value carried over.
+	 */
+	private static final String KEEP = VersionHeader.LUA
+			+ "local function keep(key, old, value) "
+			+ "  local ttl = redis.call('PTTL', key) "
+			+ "  if ttl > 0 then return redis.call('SET', key, carry(old, value), 'PX', ttl) end "
+			+ "  return redis.call('SET', key, carry(old, value)) "
+			+ "end ";
+
+	/** The scripts by name. */
+	private final ConcurrentMap<String, RedisScript> scripts = new ConcurrentHashMap<>();
+
+	/** The number of EVALSHA that missed the script cache of the server. */
+	private final AtomicLong reloads = new AtomicLong();
+
+	/**
+	 * Instantiates a new script registry with the scripts of the compound
+	 * operations.
+	 */
+	public ScriptRegistry() {
+		super();
+		register(INDEXED_WRITE, LexIndex.WRITE_SCRIPT);
+		register(PRUNE_INDEX, LexIndex.PRUNE_SCRIPT);
+		register(REPLACE_HASH, ""
+				+ "redis.call('DEL', KEYS[1]) "
+				+ "if #ARGV > 0 then redis.call('HMSET', KEYS[1], unpack(ARGV)) end "
+				+ "return 1");
+		register(UPSERT, KEEP
+				+ "local old = redis.call('GET', KEYS[1]) "
+				+ "if body(old) == ARGV[1] then return 0 end "
+				+ "keep(KEYS[1], old, ARGV[1]) "
+				+ "if old then return 2 end "
+				+ "return 1");
+		register(COMPARE_AND_SET, KEEP
+				+ "local old = redis.call('GET', KEYS[1]) "
+				+ "if ARGV[1] == '0' then "
+				+ "  if old then return 0 end "
+				+ "elseif body(old) ~= ARGV[2] then "
+				+ "  return 0 "
+				+ "end "
+				+ "keep(KEYS[1], old, ARGV[3]) "
+				+ "return 1");
+		register(DELETE_IF_EQUALS, VersionHeader.LUA
+				+ "local n = 0 "
+				+ "for i, key in ipairs(KEYS) do "
+				+ "  if body(redis.pcall('GET', key)) == ARGV[i] then n = n + redis.call('DEL', key) end "
+				+ "end "
+				+ "return n");
+	}
+
+	/**
+	 * Registers the script under the name, replacing the current one.
+	 *
+	 * @param name
+	 *            the name
+	 * @param source
+	 *            the source
+	 * @return the script
+	 */
+	public RedisScript register(String name, String source) {
+		RedisScript script = new RedisScript(name, source);
+		scripts.put(name, script);
+		LOG.debug("Script {} registered", script);
+		return script;
+	}
+
+	/**
+	 * Gets the script.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the script
+	 */
+	public RedisScript get(String name) {
+		RedisScript script = scripts.get(name);
+		if (script == null) {
+			throw new IllegalArgumentException("Unknown script: " + name);
+		}
+		return script;
+	}
+
+	/**
+	 * Gets the scripts.
+	 *
+	 * @return the scripts
+	 */
+	public Collection<RedisScript> getScripts() {
+		return new ArrayList<>(scripts.values());
+	}
+
+	/**
+	 * Loads every script on the server with SCRIPT LOAD.
+	 *
+	 * @param commands
+	 *            the connection to the server
+	 */
+	public void loadAll(BinaryScriptingCommands commands) {
+		for (RedisScript script : scripts.values()) {
+			commands.scriptLoad(script.getSourceBytes());
+		}
+		LOG.info("{} scripts loaded", scripts.size());
+	}
+
+	/**
+	 * Runs the script with EVALSHA, or with EVAL when the server does not
+	 * know it.
+	 *
+	 * @param commands
+	 *            the connection to the server
+	 * @param name
+	 *            the name
+	 * @param keys
+	 *            the keys
+	 * @param args
+	 *            the args
+	 * @return the reply
+	 */
+	public Object eval(BinaryScriptingCommands commands, String name, List<byte[]> keys, List<byte[]> args) {
+		RedisScript script = get(name);
+		try {
+			return commands.evalsha(script.getShaBytes(), keys, args);
+		} catch (JedisDataException ex) {
+			if (!isNoScript(ex)) {
+				throw ex;
+			}
+			reloads.incrementAndGet();
+			LOG.debug("Script {} missing on the server, sending the source", script);
+			return commands.eval(script.getSourceBytes(), keys, args);
+		}
+	}
+
+	/**
+	 * Runs the script once per key list in one pipeline of EVALSHAs. The calls
+	 * that got NOSCRIPT did not run, so they are pipelined again after a
+	 * SCRIPT LOAD: the extra round trips are only paid when the server lost
+	 * the script.
+	 *
+	 * @param jedis
+	 *            the connection to the server
+	 * @param name
+	 *            the name
+	 * @param keys
+	 *            the keys of each call
+	 * @param args
+	 *            the args of each call
+	 * @return the reply of each call, the error replies as
+	 *         {@link JedisDataException}
+	 */
+	public List<Object> evalAll(Jedis jedis, String name, List<List<byte[]>> keys, List<List<byte[]>> args) {
+		RedisScript script = get(name);
+		Pipeline p = jedis.pipelined();
+		for (int i = 0; i < keys.size(); i++) {
+			p.evalsha(script.getShaBytes(), keys.get(i), args.get(i));
+		}
+		List<Object> replies = new ArrayList<>(p.syncAndReturnAll());
+
+		List<Integer> missed = new ArrayList<>();
+		for (int i = 0; i < replies.size(); i++) {
+			Object reply = replies.get(i);
+			if (reply instanceof JedisDataException && isNoScript((JedisDataException) reply)) {
+				missed.add(i);
+			}
+		}
+		if (!missed.isEmpty()) {
+			reloads.incrementAndGet();
+			LOG.debug("Script {} missing on the server, loading it", script);
+			jedis.scriptLoad(script.getSourceBytes());
+			p = jedis.pipelined();
+			for (int i : missed) {
+				p.evalsha(script.getShaBytes(), keys.get(i), args.get(i));
+			}
+			List<Object> retried = p.syncAndReturnAll();
+			for (int i = 0; i < missed.size(); i++) {
+				replies.set(missed.get(i), retried.get(i));
+			}
+		}
+		return replies;
+	}
+
+	/**
+	 * Gets the number of EVALSHA that missed the script cache of the server.
+	 *
+	 * @return the reloads
+	 */
+	public long getReloads() {
+		return reloads.get();
+	}
+
+	/**
+	 * Checks if the error is a NOSCRIPT reply.
+	 *
+	 * @param ex
+	 *            the error
+	 * @return true, if the server does not know the script
+	 */
+	public static boolean isNoScript(JedisDataException ex) {
+		return ex.getMessage() != null && ex.getMessage().startsWith("NOSCRIPT");
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.script;
+
+/**
+ * The Enum UpsertResult. What a conditional upsert did to the key.
+ */
+public enum UpsertResult {
+
+	/** The key did not exist and was written. */
+	CREATED,
+
+	/** The key held another value and was overwritten. */
+	UPDATED,
+
+	/** The key already held the value, nothing was written. */
+	UNCHANGED;
+
+	/**
+	 * Reads the reply of the upsert script: 0 unchanged, 1 created, 2
+	 * updated.
+	 *
+	 * @param reply
+	 *            the reply
+	 * @return the upsert result
+	 */
+	public static UpsertResult fromReply(long reply) {
+		if (reply == 1) {
+			return CREATED;
+		}
+		return reply == 2 ? UPDATED : UNCHANGED;
+	}
+}
@@ -0,0 +1,179 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.version;
+
+import java.util.Arrays;
+
+/**
+ * The Class VersionHeader.
+ * <p>
+ * The version of a versioned record travels in front of its value:
+ * {@link #MAGIC} followed by the version as a big-endian long. The header is
+ * compared as bytes by the write script, so the server checks the version
+ * without decoding anything. Values without the header are at version 0.
+ * The in-place updates keep the header of a versioned value and store under
+ * the next version. The plain writes store the value without header, which
+ * resets the record to version 0.
+ */
+public final class VersionHeader {
+
+	/** The magic bytes opening a versioned value. */
+	public static final byte[] MAGIC = { 0, 'V', 'E', 'R' };
+
+	/** The header length. */
+	public static final int LENGTH = MAGIC.length + Long.BYTES;
+
+	/**
+	 * The Lua functions of the scripts writing over stored values, the
+	 * counterparts of {@link #isVersioned(byte[])}, {@link #strip(byte[])}
+	 * and {@link #carry(byte[], byte[])}: <code>versioned(old)</code>,
+	 * <code>body(old)</code> and <code>carry(old, value)</code>. The old
+	 * value may be false (missing key) or an error table (another type).
+	 */
+	public static final String LUA = ""
+			+ "local function versioned(old) "
+			+ "  return type(old) == 'string' and #old >= 12 and string.sub(old, 1, 4) == '\0VER' "
+			+ "end "
+			+ "local function body(old) "
+			+ "  if versioned(old) then return string.sub(old, 13) end "
+			+ "  return old "
+			+ "end "
+			+ "local function carry(old, value) "
+			+ "  if not versioned(old) then return value end "
+			+ "  local b = {string.byte(old, 5, 12)} "
+			+ "  for i = 8, 1, -1 do "
+			+ "    b[i] = (b[i] + 1) % 256 "
+			+ "    if b[i] ~= 0 then break end "
+			+ "  end "
+			+ "  return '\0VER' .. string.char(unpack(b)) .. value "
+			+ "end ";
+
+	/**
+	 * Instantiates a new version header.
+	 */
+	private VersionHeader() {
+		super();
+	}
+
+	/**
+	 * Gets the header of a version, empty for version 0, the version of a
+	 * missing or unversioned record.
+	 *
+	 * @param version
+	 *            the version
+	 * @return the header
+	 */
+	public static byte[] header(long version) {
+		if (version < 0) {
+			throw new IllegalArgumentException("version cannot be negative: " + version);
+		}
+		if (version == 0) {
+			return new byte[0];
+		}
+		byte[] header = Arrays.copyOf(MAGIC, LENGTH);
+		for (int i = LENGTH - 1; i >= MAGIC.length; i--) {
+			header[i] = (byte) version;
+			version >>>= 8;
+		}
+		return header;
+	}
+
+	/**
+	 * Puts the header of the version in front of the value.
+	 *
+	 * @param version
+	 *            the version, at least 1
+	 * @param value
+	 *            the value
+	 * @return the versioned value
+	 */
+	public static byte[] wrap(long version, byte[] value) {
+		if (version < 1) {
+			throw new IllegalArgumentException("version must be positive: " + version);
+		}
+		byte[] versioned = Arrays.copyOf(header(version), LENGTH + value.length);
+		System.arraycopy(value, 0, versioned, LENGTH, value.length);
+		return versioned;
+	}
+
+	/**
+	 * Gets the value an in-place update stores over the stored one: the value
+	 * under the next version when the stored value is versioned, so a
+	 * versioned writer still holding the previous version gets a conflict,
+	 * the value as is otherwise.
+	 *
+	 * @param stored
+	 *            the stored value, null if the key does not exist
+	 * @param value
+	 *            the new value
+	 * @return the value to store
+	 */
+	public static byte[] carry(byte[] stored, byte[] value) {
+		return isVersioned(stored) ? wrap(version(stored) + 1, value) : value;
+	}
+
+	/**
+	 * Checks if the value starts with a version header.
+	 *
+	 * @param value
+	 *            the value
+	 * @return true, if versioned
+	 */
+	public static boolean isVersioned(byte[] value) {
+		if (value == null || value.length < LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (value[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the version of a stored value.
+	 *
+	 * @param value
+	 *            the value, null if the key does not exist
+	 * @return the version, 0 if missing or unversioned
+	 */
+	public static long version(byte[] value) {
+		if (!isVersioned(value)) {
+			return 0;
+		}
+		long version = 0;
+		for (int i = MAGIC.length; i < LENGTH; i++) {
+			version = (version << 8) | (value[i] & 0xFF);
+		}
+		return version;
+	}
+
+	/**
+	 * Removes the version header, if any.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the value without header
+	 */
+	public static byte[] strip(byte[] value) {
+		return isVersioned(value) ? Arrays.copyOfRange(value, LENGTH, value.length) : value;
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.dao.version;
+
+/**
+ * The Class VersionedWrite. The result of a compare-and-set write on the
+ * version of a record. A conflict carries the record as it is stored, so the
+ * caller can merge and retry without reading it again.
+ *
+ * @param <T>
+ *            the generic type
+ */
+public final class VersionedWrite<T> {
+
+	/** True if the write happened. */
+	private final boolean written;
+
+	/** The version after the write, or the stored one on a conflict. */
+	private final long version;
+
+	/** The stored object on a conflict. */
+	private final T current;
+
+	/**
+	 * Instantiates a new versioned write.
+	 *
+	 * @param written
+	 *            true if the write happened
+	 * @param version
+	 *            the version
+	 * @param current
+	 *            the stored object on a conflict
+	 */
+	private VersionedWrite(boolean written, long version, T current) {
+		super();
+		this.written = written;
+		this.version = version;
+		this.current = current;
+	}
+
+	/**
+	 * A write that happened.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param version
+	 *            the new version
+	 * @return the versioned write
+	 */
+	public static <T> VersionedWrite<T> written(long version) {
+		return new VersionedWrite<>(true, version, null);
+	}
+
+	/**
+	 * A write refused because the stored version was not the expected one.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param version
+	 *            the stored version
+	 * @param current
+	 *            the stored object, null if the key does not exist
+	 * @return the versioned write
+	 */
+	public static <T> VersionedWrite<T> conflict(long version, T current) {
+		return new VersionedWrite<>(false, version, current);
+	}
+
+	/**
+	 * Checks if the write happened.
+	 *
+	 * @return true, if written
+	 */
+	public boolean isWritten() {
+		return written;
+	}
+
+	/**
+	 * Checks if the write was refused.
+	 *
+	 * @return true, if the stored version was not the expected one
+	 */
+	public boolean isConflict() {
+		return !written;
+	}
+
+	/**
+	 * Gets the version: the new one when written, the stored one on a
+	 * conflict.
+	 *
+	 * @return the version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Gets the stored object of a conflict.
+	 *
+	 * @return the current object, null when written or if the key does not
+	 *         exist
+	 */
+	public T getCurrent() {
+		return current;
+	}
+
+	/**
+	 * Gets the stored object of a conflict with its version, the input of the
+	 * next attempt.
+	 *
+	 * @return the versioned current object, null when written or if the key
+	 *         does not exist
+	 */
+	public Versioned<T> getCurrentVersioned() {
+		return current != null ? new Versioned<>(current, version) : null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "VersionedWrite [written=" + written + ", version=" + version + "]";
+	}
+}
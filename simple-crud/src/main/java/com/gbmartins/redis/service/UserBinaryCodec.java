@@ -0,0 +1,239 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.codec.JavaSerializationCodec;
+import com.gbmartins.redis.dao.codec.ValueCodec;
+
+/**
+ * The Class UserBinaryCodec.
+ * <p>
+ * Compact binary layout for {@link User}: one format byte followed by email,
+ * firstname and lastname, each written as a varint of <code>length + 1</code>
+ * (0 meaning null) and the UTF-8 bytes. The output array is sized exactly up
+ * front, so encoding allocates nothing else.
+ * <p>
+ * Values written with Java serialization before this codec was introduced are
+ * still decoded through {@link JavaSerializationCodec}.
+ */
+public class UserBinaryCodec implements ValueCodec<User> {
+
+	/** The Constant FORMAT_V1. */
+	static final byte FORMAT_V1 = 0x01;
+
+	/** The legacy codec. */
+	private final JavaSerializationCodec<User> legacy = new JavaSerializationCodec<>(User.class);
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.codec.ValueCodec#encode(java.lang.Object)
+	 */
+	@Override
+	public byte[] encode(User user) throws IOException {
+		String email = user.getEmail();
+		String firstname = user.getFirstname();
+		String lastname = user.getLastname();
+
+		int emailLength = utf8Length(email);
+		int firstnameLength = utf8Length(firstname);
+		int lastnameLength = utf8Length(lastname);
+
+		byte[] bytes = new byte[1 + fieldSize(emailLength) + fieldSize(firstnameLength) + fieldSize(lastnameLength)];
+		bytes[0] = FORMAT_V1;
+
+		int position = writeField(bytes, 1, email, emailLength);
+		position = writeField(bytes, position, firstname, firstnameLength);
+		writeField(bytes, position, lastname, lastnameLength);
+
+		return bytes;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.gbmartins.redis.dao.codec.ValueCodec#decode(byte[])
+	 */
+	@Override
+	public User decode(byte[] bytes) throws IOException, ClassNotFoundException {
+		if (JavaSerializationCodec.isJavaSerialized(bytes)) {
+			return legacy.decode(bytes);
+		}
+
+		if (bytes.length == 0 || bytes[0] != FORMAT_V1) {
+			throw new IllegalArgumentException("Object is not " + User.class.getCanonicalName());
+		}
+
+		int[] position = { 1 };
+		User user = new User();
+		user.setEmail(readField(bytes, position));
+		user.setFirstname(readField(bytes, position));
+		user.setLastname(readField(bytes, position));
+
+		if (position[0] != bytes.length) {
+			throw new IllegalArgumentException("Object is not " + User.class.getCanonicalName());
+		}
+
+		return user;
+	}
+
+	/**
+	 * Size of a field with its length prefix.
+	 *
+	 * @param length
+	 *            the UTF-8 length, -1 for null
+	 * @return the int
+	 */
+	private static int fieldSize(int length) {
+		return varintSize(length + 1) + Math.max(length, 0);
+	}
+
+	/**
+	 * Writes a field.
+	 *
+	 * @param bytes
+	 *            the bytes
+	 * @param position
+	 *            the position
+	 * @param value
+	 *            the value
+	 * @param length
+	 *            the UTF-8 length, -1 for null
+	 * @return the position after the field
+	 */
+	private static int writeField(byte[] bytes, int position, String value, int length) {
+		int prefix = length + 1;
+		while ((prefix & ~0x7F) != 0) {
+			bytes[position++] = (byte) ((prefix & 0x7F) | 0x80);
+			prefix >>>= 7;
+		}
+		bytes[position++] = (byte) prefix;
+
+		if (value == null) {
+			return position;
+		}
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				bytes[position++] = (byte) c;
+			} else if (c < 0x800) {
+				bytes[position++] = (byte) (0xC0 | (c >> 6));
+				bytes[position++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, value.charAt(++i));
+				bytes[position++] = (byte) (0xF0 | (cp >> 18));
+				bytes[position++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+				bytes[position++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+				bytes[position++] = (byte) (0x80 | (cp & 0x3F));
+			} else {
+				bytes[position++] = (byte) (0xE0 | (c >> 12));
+				bytes[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				bytes[position++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Reads a field.
+	 *
+	 * @param bytes
+	 *            the bytes
+	 * @param position
+	 *            the position, advanced past the field
+	 * @return the string
+	 */
+	private static String readField(byte[] bytes, int[] position) {
+		int p = position[0];
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			if (p >= bytes.length || shift > 28) {
+				throw new IllegalArgumentException("Object is not " + User.class.getCanonicalName());
+			}
+			b = bytes[p++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+
+		if (value == 0) {
+			position[0] = p;
+			return null;
+		}
+
+		int length = value - 1;
+		if (length > bytes.length - p) {
+			throw new IllegalArgumentException("Object is not " + User.class.getCanonicalName());
+		}
+
+		position[0] = p + length;
+		return new String(bytes, p, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * UTF-8 length of the string.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the length, -1 for null
+	 */
+	private static int utf8Length(String value) {
+		if (value == null) {
+			return -1;
+		}
+
+		int length = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Varint size.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the int
+	 */
+	private static int varintSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+}
@@ -21,9 +21,18 @@ package com.gbmartins.redis.service;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -32,6 +41,12 @@ import org.springframework.stereotype.Service;
 
 import com.gbmartins.redis.crud.dto.User;
 import com.gbmartins.redis.dao.RedisOperations;
+import com.gbmartins.redis.dao.index.WriteCondition;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.dao.scan.ScanPage;
+import com.gbmartins.redis.dao.version.Versioned;
+import com.gbmartins.redis.dao.version.VersionedWrite;
 import com.google.common.collect.Lists;
 
 /**
@@ -40,22 +55,142 @@ import com.google.common.collect.Lists;
 @Service
 public class UserService {
 
+	/** The email hash field. */
+	public static final String FIELD_EMAIL = "email";
+
+	/** The firstname hash field. */
+	public static final String FIELD_FIRSTNAME = "firstname";
+
+	/** The lastname hash field. */
+	public static final String FIELD_LASTNAME = "lastname";
+
+	/** The index of the users by lastname. */
+	public static final String INDEX_LASTNAME = "idx:user:lastname";
+
+	/** The index of the users by firstname. */
+	public static final String INDEX_FIRSTNAME = "idx:user:firstname";
+
+	/** The pattern of the user keys, their emails. */
+	public static final String USER_PATTERN = "*@*";
+
+	/** The keys visited per SCAN call by default. */
+	public static final int DEFAULT_SCAN_COUNT = 100;
+
+	/** The indexes of the users. */
+	private static final List<String> INDEXES = Arrays.asList(INDEX_LASTNAME, INDEX_FIRSTNAME);
+
 	/** The operations. */
 	private RedisOperations operations;
 
 	/** The Constant LOG. */
 	private static final Logger LOG = LogManager.getLogger(UserService.class);
 
+	/** The metrics of saveOrUpdateUser. */
+	private final OperationMetrics saveOrUpdateUserMetrics;
+
+	/** The metrics of saveUser. */
+	private final OperationMetrics saveUserMetrics;
+
+	/** The metrics of updateUser. */
+	private final OperationMetrics updateUserMetrics;
+
+	/** The metrics of the versioned updateUser. */
+	private final OperationMetrics updateVersionedUserMetrics;
+
+	/** The metrics of getVersionedUser. */
+	private final OperationMetrics getVersionedUserMetrics;
+
+	/** The metrics of deleteUser. */
+	private final OperationMetrics deleteUserMetrics;
+
+	/** The metrics of deleteUsers. */
+	private final OperationMetrics deleteUsersMetrics;
+
+	/** The metrics of getUserByEmail. */
+	private final OperationMetrics getUserByEmailMetrics;
+
+	/** The metrics of getUsersByEmails. */
+	private final OperationMetrics getUsersByEmailsMetrics;
+
+	/** The metrics of getUsersByEmailsMap. */
+	private final OperationMetrics getUsersByEmailsMapMetrics;
+
+	/** The metrics of saveOrUpdateUserHash. */
+	private final OperationMetrics saveOrUpdateUserHashMetrics;
+
+	/** The metrics of getUserHashByEmail. */
+	private final OperationMetrics getUserHashByEmailMetrics;
+
+	/** The metrics of updateUserFields. */
+	private final OperationMetrics updateUserFieldsMetrics;
+
+	/** The metrics of getUserFields. */
+	private final OperationMetrics getUserFieldsMetrics;
+
+	/** The metrics of saveOrUpdateUsers. */
+	private final OperationMetrics saveOrUpdateUsersMetrics;
+
+	/** The metrics of the name lookups. */
+	private final OperationMetrics findUsersMetrics;
+
+	/** The metrics of saveUsers. */
+	private final OperationMetrics saveUsersMetrics;
+
+	/** The metrics of updateUsers. */
+	private final OperationMetrics updateUsersMetrics;
+
+	/** The metrics of listUsers. */
+	private final OperationMetrics listUsersMetrics;
+
+	/** The metrics of saveOrUpdateUserAsync. */
+	private final OperationMetrics saveOrUpdateUserAsyncMetrics;
+
+	/** The metrics of getUserByEmailAsync. */
+	private final OperationMetrics getUserByEmailAsyncMetrics;
+
+	/** The metrics of getUsersByEmailsAsync. */
+	private final OperationMetrics getUsersByEmailsAsyncMetrics;
+
+	/** The metrics of deleteUsersAsync. */
+	private final OperationMetrics deleteUsersAsyncMetrics;
+
 	/**
-	 * Instantiates a new user service.
+	 * Instantiates a new user service. Users are always stored with the
+	 * compact {@link UserBinaryCodec}, whatever the default codec is.
 	 *
 	 * @param operations
 	 *            the operations
+	 * @param metrics
+	 *            the metrics
 	 */
 	@Autowired
-	public UserService(RedisOperations operations) {
+	public UserService(RedisOperations operations, RedisMetrics metrics) {
 		super();
 		this.operations = operations;
+		this.saveOrUpdateUserMetrics = metrics.get("user.saveOrUpdateUser");
+		this.saveUserMetrics = metrics.get("user.saveUser");
+		this.updateUserMetrics = metrics.get("user.updateUser");
+		this.updateVersionedUserMetrics = metrics.get("user.updateVersionedUser");
+		this.getVersionedUserMetrics = metrics.get("user.getVersionedUser");
+		this.deleteUserMetrics = metrics.get("user.deleteUser");
+		this.deleteUsersMetrics = metrics.get("user.deleteUsers");
+		this.getUserByEmailMetrics = metrics.get("user.getUserByEmail");
+		this.getUsersByEmailsMetrics = metrics.get("user.getUsersByEmails");
+		this.getUsersByEmailsMapMetrics = metrics.get("user.getUsersByEmailsMap");
+		this.saveOrUpdateUserHashMetrics = metrics.get("user.saveOrUpdateUserHash");
+		this.getUserHashByEmailMetrics = metrics.get("user.getUserHashByEmail");
+		this.updateUserFieldsMetrics = metrics.get("user.updateUserFields");
+		this.getUserFieldsMetrics = metrics.get("user.getUserFields");
+		this.saveOrUpdateUsersMetrics = metrics.get("user.saveOrUpdateUsers");
+		this.findUsersMetrics = metrics.get("user.findUsers");
+		this.listUsersMetrics = metrics.get("user.listUsers");
+		this.saveUsersMetrics = metrics.get("user.saveUsers");
+		this.updateUsersMetrics = metrics.get("user.updateUsers");
+		this.saveOrUpdateUserAsyncMetrics = metrics.get("user.saveOrUpdateUserAsync");
+		this.getUserByEmailAsyncMetrics = metrics.get("user.getUserByEmailAsync");
+		this.getUsersByEmailsAsyncMetrics = metrics.get("user.getUsersByEmailsAsync");
+		this.deleteUsersAsyncMetrics = metrics.get("user.deleteUsersAsync");
+		this.operations.registerCodec(User.class, new UserBinaryCodec());
 	}
 
 	/**
@@ -66,50 +201,210 @@ public class UserService {
 	 * @return the string
 	 */
 	public String saveOrUpdateUser(User user) {
+		return saveOrUpdateUser(user, 0);
+	}
+
+	/**
+	 * Save or update user, expiring the record after the given TTL. The
+	 * index terms of the user expire with the record, and the name lookups
+	 * skip and prune the index entries left behind by an expired user.
+	 *
+	 * @param user
+	 *            the user
+	 * @param ttlMillis
+	 *            the TTL in milliseconds, 0 to keep the user forever
+	 * @return the string
+	 */
+	public String saveOrUpdateUser(User user, long ttlMillis) {
+		long start = saveOrUpdateUserMetrics.start();
 		try {
-			return operations.saveOrUpdateObject(user.getEmail(), user);
+			return operations.saveIndexedObject(user.getEmail(), user, WriteCondition.ALWAYS, terms(user), ttlMillis);
 		} catch (IOException e) {
+			saveOrUpdateUserMetrics.error();
 			LOG.error("Save User error");
 			throw new RuntimeException(e);
+		} finally {
+			saveOrUpdateUserMetrics.stop(start);
 		}
 	}
 	
 
 	/**
-	 * Save user.
+	 * Save user, only if no user with the same email exists. Done in a single
+	 * atomic round trip.
 	 *
 	 * @param user the user
-	 * @return the string
+	 * @return the string, null if the user already exists
 	 */
 	public String saveUser(User user) {
+		long start = saveUserMetrics.start();
 		try {
-			if (operations.getObject(user.getEmail(), User.class) == null) {
-				return operations.saveOrUpdateObject(user.getEmail(), user);
-			}
-			return null;
+			return operations.saveIndexedObject(user.getEmail(), user, WriteCondition.IF_ABSENT, terms(user));
 		} catch (Exception e) {
-			LOG.error("Update User error");
+			saveUserMetrics.error();
+			LOG.error("Save User error");
 			throw new RuntimeException(e);
+		} finally {
+			saveUserMetrics.stop(start);
 		}
 	}
 
 
 	/**
-	 * Update an existent user.
+	 * Update an existent user. Done in a single atomic round trip.
 	 *
 	 * @param user
 	 *            the user
-	 * @return the string
+	 * @return the string, null if the user does not exist
 	 */
 	public String updateUser(User user) {
+		long start = updateUserMetrics.start();
 		try {
-			if (operations.getObject(user.getEmail(), User.class) != null) {
-				return operations.saveOrUpdateObject(user.getEmail(), user);
-			}
-			return null;
+			return operations.saveIndexedObject(user.getEmail(), user, WriteCondition.IF_PRESENT, terms(user));
 		} catch (Exception e) {
+			updateUserMetrics.error();
 			LOG.error("Update User error");
 			throw new RuntimeException(e);
+		} finally {
+			updateUserMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Save users, each one only if no user with the same email exists. The
+	 * writes go pipelined, each one is atomic.
+	 *
+	 * @param users
+	 *            the users, with distinct emails
+	 * @return for each user in order, "OK" or null if it already exists
+	 */
+	public List<String> saveUsers(List<User> users) {
+		return writeUsers(users, WriteCondition.IF_ABSENT, saveUsersMetrics);
+	}
+
+	/**
+	 * Update existent users. The writes go pipelined, each one is atomic.
+	 *
+	 * @param users
+	 *            the users, with distinct emails
+	 * @return for each user in order, "OK" or null if it does not exist
+	 */
+	public List<String> updateUsers(List<User> users) {
+		return writeUsers(users, WriteCondition.IF_PRESENT, updateUsersMetrics);
+	}
+
+	/**
+	 * Save or update users, telling the outcome of each write. The writes go
+	 * pipelined, each one is atomic.
+	 *
+	 * @param users
+	 *            the users, with distinct emails
+	 * @return "OK" for each user, in order
+	 */
+	public List<String> saveOrUpdateUsersEach(List<User> users) {
+		return writeUsers(users, WriteCondition.ALWAYS, saveOrUpdateUsersMetrics);
+	}
+
+	/**
+	 * Pipelined conditional writes of the users.
+	 *
+	 * @param users
+	 *            the users
+	 * @param condition
+	 *            the condition
+	 * @param metrics
+	 *            the metrics of the calling operation
+	 * @return the outcome of each write
+	 */
+	private List<String> writeUsers(List<User> users, WriteCondition condition, OperationMetrics metrics) {
+		long start = metrics.start();
+		try {
+			Map<String, User> map = new LinkedHashMap<>(users.size() * 2);
+			for (User user : users) {
+				map.put(user.getEmail(), user);
+			}
+			return operations.saveIndexedObjects(map, condition, this::terms);
+		} catch (Exception e) {
+			metrics.error();
+			LOG.error("Write Users error");
+			throw new RuntimeException(e);
+		} finally {
+			metrics.stop(start);
+		}
+	}
+
+	/**
+	 * Update the user only if it is still at the version it was read at, see
+	 * {@link #getVersionedUser(String)}. Done in a single atomic round trip,
+	 * without locks: a concurrent update makes this one fail with a conflict.
+	 *
+	 * @param user
+	 *            the user
+	 * @param expectedVersion
+	 *            the version the user was read at
+	 * @return the new version, or the conflict with the stored user
+	 */
+	public VersionedWrite<User> updateUser(User user, long expectedVersion) {
+		long start = updateVersionedUserMetrics.start();
+		try {
+			return operations.saveVersionedObject(user.getEmail(), user, expectedVersion, terms(user));
+		} catch (Exception e) {
+			updateVersionedUserMetrics.error();
+			LOG.error("Update Versioned User error");
+			throw new RuntimeException(e);
+		} finally {
+			updateVersionedUserMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Read-modify-write of a user with optimistic concurrency. The change is
+	 * applied to the stored user and written with
+	 * {@link #updateUser(User, long)}; on a conflict it is applied again to
+	 * the user returned by the conflict, so a retry costs a single round
+	 * trip.
+	 *
+	 * @param email
+	 *            the email
+	 * @param change
+	 *            the change, applied to a fresh copy of the stored user on
+	 *            each attempt
+	 * @param maxAttempts
+	 *            the max attempts
+	 * @return the last write, a conflict if every attempt lost; null if the
+	 *         user does not exist
+	 */
+	public VersionedWrite<User> updateUser(String email, UnaryOperator<User> change, int maxAttempts) {
+		Versioned<User> current = getVersionedUser(email);
+		VersionedWrite<User> result = null;
+		for (int attempt = 0; attempt < maxAttempts && current != null; attempt++) {
+			result = updateUser(change.apply(current.getValue()), current.getVersion());
+			if (result.isWritten()) {
+				return result;
+			}
+			current = result.getCurrentVersioned();
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the user with its version, the one
+	 * {@link #updateUser(User, long)} expects.
+	 *
+	 * @param email
+	 *            the email
+	 * @return the versioned user, null if it does not exist
+	 */
+	public Versioned<User> getVersionedUser(String email) {
+		long start = getVersionedUserMetrics.start();
+		try {
+			return operations.getVersionedObject(email, User.class);
+		} catch (Exception e) {
+			getVersionedUserMetrics.error();
+			LOG.error("Get Versioned User error");
+			throw new RuntimeException(e);
+		} finally {
+			getVersionedUserMetrics.stop(start);
 		}
 	}
 
@@ -121,22 +416,40 @@ public class UserService {
 	 * @return the list
 	 */
 	public List<User> saveOrUpdateUsers(User... users) {
+		return saveOrUpdateUsers(0, users);
+	}
+
+	/**
+	 * Save or update users, expiring each record after the given TTL, set in
+	 * the same pipelined write.
+	 *
+	 * @param ttlMillis
+	 *            the TTL in milliseconds, 0 to keep the users forever
+	 * @param users
+	 *            the users
+	 * @return the list
+	 */
+	public List<User> saveOrUpdateUsers(long ttlMillis, User... users) {
 
 		List<User> result = null;
 
 		if (users != null) {
 
+			long start = saveOrUpdateUsersMetrics.start();
 			try {
 				Map<String, User> map = new HashMap<>();
 
 				for (User user : users) {
 					map.put(user.getEmail(), user);
 				}
-				operations.saveOrUpdateBulkObject(map);
+				operations.saveIndexedBulkObject(map, this::terms, ttlMillis);
 
 			} catch (Exception e) {
+				saveOrUpdateUsersMetrics.error();
 				LOG.error("Save Users error");
 				throw new RuntimeException(e);
+			} finally {
+				saveOrUpdateUsersMetrics.stop(start);
 			}
 
 		} else {
@@ -154,11 +467,15 @@ public class UserService {
 	 * @return the long
 	 */
 	public long deleteUser(String email) {
+		long start = deleteUserMetrics.start();
 		try {
-			return operations.deleteKeys(email);
+			return operations.deleteIndexedKeys(INDEXES, email);
 		} catch (Exception e) {
+			deleteUserMetrics.error();
 			LOG.error("Delete User error");
 			throw new RuntimeException(e);
+		} finally {
+			deleteUserMetrics.stop(start);
 		}
 	}
 
@@ -170,11 +487,35 @@ public class UserService {
 	 * @return the long
 	 */
 	public long deleteUsers(String... emails) {
+		long start = deleteUsersMetrics.start();
+		try {
+			return operations.deleteIndexedKeys(INDEXES, emails);
+		} catch (Exception e) {
+			deleteUsersMetrics.error();
+			LOG.error("Delete Users error");
+			throw new RuntimeException(e);
+		} finally {
+			deleteUsersMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Delete users, telling which ones existed.
+	 *
+	 * @param emails
+	 *            the emails
+	 * @return for each email in order, true if the user was deleted
+	 */
+	public List<Boolean> deleteUsersEach(String... emails) {
+		long start = deleteUsersMetrics.start();
 		try {
-			return operations.deleteKeys(emails);
+			return operations.deleteIndexedKeysEach(INDEXES, emails);
 		} catch (Exception e) {
+			deleteUsersMetrics.error();
 			LOG.error("Delete Users error");
 			throw new RuntimeException(e);
+		} finally {
+			deleteUsersMetrics.stop(start);
 		}
 	}
 
@@ -186,11 +527,38 @@ public class UserService {
 	 * @return the user by email
 	 */
 	public User getUserByEmail(String email) {
+		long start = getUserByEmailMetrics.start();
 		try {
 			return operations.getObject(email, User.class);
 		} catch (Exception e) {
+			getUserByEmailMetrics.error();
 			LOG.error("Get User error");
 			throw new RuntimeException(e);
+		} finally {
+			getUserByEmailMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Gets the user by email with sliding expiry: the read pushes the TTL of
+	 * the record back to the given one, in the same round trip.
+	 *
+	 * @param email
+	 *            the email
+	 * @param slidingTtlMillis
+	 *            the TTL in milliseconds the user gets on read
+	 * @return the user by email, null if it does not exist or has expired
+	 */
+	public User getUserByEmail(String email, long slidingTtlMillis) {
+		long start = getUserByEmailMetrics.start();
+		try {
+			return operations.getAndTouchObject(email, User.class, slidingTtlMillis);
+		} catch (Exception e) {
+			getUserByEmailMetrics.error();
+			LOG.error("Get User error");
+			throw new RuntimeException(e);
+		} finally {
+			getUserByEmailMetrics.stop(start);
 		}
 	}
 
@@ -202,11 +570,462 @@ public class UserService {
 	 * @return the users by emails
 	 */
 	public List<User> getUsersByEmails(String... emails) {
+		long start = getUsersByEmailsMetrics.start();
 		try {
 			return operations.getListObject(Lists.newArrayList(emails), User.class);
 		} catch (Exception e) {
+			getUsersByEmailsMetrics.error();
+			LOG.error("Get Users error");
+			throw new RuntimeException(e);
+		} finally {
+			getUsersByEmailsMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Gets the users by emails. Every email is a key of the map, in the given
+	 * order, mapped to null when there is no such user.
+	 *
+	 * @param emails
+	 *            the emails
+	 * @return the users by email
+	 */
+	public Map<String, User> getUsersByEmailsMap(String... emails) {
+		long start = getUsersByEmailsMapMetrics.start();
+		try {
+			return operations.getMapObject(Lists.newArrayList(emails), User.class);
+		} catch (Exception e) {
+			getUsersByEmailsMapMetrics.error();
 			LOG.error("Get Users error");
 			throw new RuntimeException(e);
+		} finally {
+			getUsersByEmailsMapMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Async version of {@link #saveOrUpdateUser(User)}.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the completable future
+	 */
+	public CompletableFuture<String> saveOrUpdateUserAsync(User user) {
+		return timed(saveOrUpdateUserAsyncMetrics, "Save User error",
+				() -> operations.saveIndexedObjectAsync(user.getEmail(), user, WriteCondition.ALWAYS, terms(user)));
+	}
+
+	/**
+	 * Async version of {@link #getUserByEmail(String)}.
+	 *
+	 * @param email
+	 *            the email
+	 * @return the completable future
+	 */
+	public CompletableFuture<User> getUserByEmailAsync(String email) {
+		return timed(getUserByEmailAsyncMetrics, "Get User error", () -> operations.getObjectAsync(email, User.class));
+	}
+
+	/**
+	 * Async version of {@link #getUsersByEmails(String...)}.
+	 *
+	 * @param emails
+	 *            the emails
+	 * @return the completable future
+	 */
+	public CompletableFuture<List<User>> getUsersByEmailsAsync(String... emails) {
+		return timed(getUsersByEmailsAsyncMetrics, "Get Users error",
+				() -> operations.getListObjectAsync(Lists.newArrayList(emails), User.class));
+	}
+
+	/**
+	 * Async version of {@link #deleteUsers(String...)}.
+	 *
+	 * @param emails
+	 *            the emails
+	 * @return the completable future
+	 */
+	public CompletableFuture<Long> deleteUsersAsync(String... emails) {
+		return timed(deleteUsersAsyncMetrics, "Delete Users error",
+				() -> operations.deleteIndexedKeysAsync(INDEXES, emails));
+	}
+
+	/**
+	 * Starts an async operation and records it in the metrics, timed from its
+	 * submission to its completion. The error it fails with, if any, is
+	 * counted and logged.
+	 *
+	 * @param <R>
+	 *            the result type
+	 * @param metrics
+	 *            the metrics of the operation
+	 * @param message
+	 *            the error message
+	 * @param call
+	 *            starts the operation
+	 * @return the future completing after the metrics are recorded
+	 */
+	private <R> CompletableFuture<R> timed(OperationMetrics metrics, String message,
+			Supplier<CompletableFuture<R>> call) {
+		long start = metrics.start();
+		CompletableFuture<R> future;
+		try {
+			future = call.get();
+		} catch (RuntimeException e) {
+			metrics.error();
+			metrics.stop(start);
+			LOG.error(message, e);
+			throw e;
+		}
+		return future.whenComplete((r, e) -> {
+			if (e != null) {
+				metrics.error();
+				LOG.error(message, e);
+			}
+			metrics.stop(start);
+		});
+	}
+
+	/**
+	 * Save or update the user as a hash, one field per property. Users stored
+	 * as a hash must be read and updated through the hash methods.
+	 *
+	 * @param user
+	 *            the user
+	 */
+	public void saveOrUpdateUserHash(User user) {
+		long start = saveOrUpdateUserHashMetrics.start();
+		try {
+			operations.saveIndexedHash(user.getEmail(), toHash(user), true, terms(user));
+		} catch (Exception e) {
+			saveOrUpdateUserHashMetrics.error();
+			LOG.error("Save User Hash error");
+			throw new RuntimeException(e);
+		} finally {
+			saveOrUpdateUserHashMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Gets the user stored as a hash.
+	 *
+	 * @param email
+	 *            the email
+	 * @return the user, null if not found
+	 */
+	public User getUserHashByEmail(String email) {
+		long start = getUserHashByEmailMetrics.start();
+		try {
+			Map<String, String> hash = operations.getHash(email);
+			if (hash.isEmpty()) {
+				return null;
+			}
+
+			User user = new User();
+			user.setEmail(email);
+			user.setFirstname(hash.get(FIELD_FIRSTNAME));
+			user.setLastname(hash.get(FIELD_LASTNAME));
+			return user;
+		} catch (Exception e) {
+			getUserHashByEmailMetrics.error();
+			LOG.error("Get User Hash error");
+			throw new RuntimeException(e);
+		} finally {
+			getUserHashByEmailMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Updates only the given fields of a user stored as a hash.
+	 *
+	 * @param email
+	 *            the email
+	 * @param fields
+	 *            the fields, {@link #FIELD_FIRSTNAME} and/or
+	 *            {@link #FIELD_LASTNAME}
+	 * @return true, if updated; false if the user does not exist
+	 */
+	public boolean updateUserFields(String email, Map<String, String> fields) {
+		for (String field : fields.keySet()) {
+			checkField(field);
+			if (FIELD_EMAIL.equals(field)) {
+				throw new IllegalArgumentException("The email is the key and cannot be updated");
+			}
+		}
+
+		Map<String, String> terms = new HashMap<>();
+		if (fields.containsKey(FIELD_LASTNAME)) {
+			terms.put(INDEX_LASTNAME, term(fields.get(FIELD_LASTNAME)));
+		}
+		if (fields.containsKey(FIELD_FIRSTNAME)) {
+			terms.put(INDEX_FIRSTNAME, term(fields.get(FIELD_FIRSTNAME)));
+		}
+
+		long start = updateUserFieldsMetrics.start();
+		try {
+			return operations.saveIndexedHash(email, fields, false, terms);
+		} catch (Exception e) {
+			updateUserFieldsMetrics.error();
+			LOG.error("Update User Fields error");
+			throw new RuntimeException(e);
+		} finally {
+			updateUserFieldsMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Updates a single field of a user stored as a hash.
+	 *
+	 * @param email
+	 *            the email
+	 * @param field
+	 *            the field
+	 * @param value
+	 *            the value
+	 * @return true, if updated; false if the user does not exist
+	 */
+	public boolean updateUserField(String email, String field, String value) {
+		return updateUserFields(email, Collections.singletonMap(field, value));
+	}
+
+	/**
+	 * Gets only the given fields of a user stored as a hash.
+	 *
+	 * @param email
+	 *            the email
+	 * @param fields
+	 *            the fields
+	 * @return the user fields
+	 */
+	public Map<String, String> getUserFields(String email, String... fields) {
+		for (String field : fields) {
+			checkField(field);
+		}
+
+		long start = getUserFieldsMetrics.start();
+		try {
+			return operations.getHashFields(email, fields);
+		} catch (Exception e) {
+			getUserFieldsMetrics.error();
+			LOG.error("Get User Fields error");
+			throw new RuntimeException(e);
+		} finally {
+			getUserFieldsMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Gets the firstname of a user stored as a hash.
+	 *
+	 * @param email
+	 *            the email
+	 * @return the firstname, null if not found
+	 */
+	public String getUserFirstname(String email) {
+		return getUserFields(email, FIELD_FIRSTNAME).get(FIELD_FIRSTNAME);
+	}
+
+	/**
+	 * Finds the users whose lastname starts with the prefix, case insensitive,
+	 * ordered by lastname. The page is taken from the index, users stored as
+	 * hashes or deleted meanwhile are skipped, so a page may come back short.
+	 *
+	 * @param prefix
+	 *            the prefix, empty for every user
+	 * @param offset
+	 *            the offset
+	 * @param count
+	 *            the page size
+	 * @return the users
+	 */
+	public List<User> findUsersByLastnamePrefix(String prefix, int offset, int count) {
+		return findUsers(() -> operations.indexPrefix(INDEX_LASTNAME, term(prefix), offset, count));
+	}
+
+	/**
+	 * Finds the users whose lastname is between from and to, both inclusive
+	 * and case insensitive, ordered by lastname.
+	 *
+	 * @param from
+	 *            the first lastname, null for unbounded
+	 * @param to
+	 *            the last lastname, null for unbounded
+	 * @param offset
+	 *            the offset
+	 * @param count
+	 *            the page size
+	 * @return the users
+	 * @see #findUsersByLastnamePrefix(String, int, int)
+	 */
+	public List<User> findUsersByLastnameRange(String from, String to, int offset, int count) {
+		return findUsers(() -> operations.indexRange(INDEX_LASTNAME, term(from), term(to), offset, count));
+	}
+
+	/**
+	 * Finds the users whose firstname starts with the prefix.
+	 *
+	 * @param prefix
+	 *            the prefix, empty for every user
+	 * @param offset
+	 *            the offset
+	 * @param count
+	 *            the page size
+	 * @return the users
+	 * @see #findUsersByLastnamePrefix(String, int, int)
+	 */
+	public List<User> findUsersByFirstnamePrefix(String prefix, int offset, int count) {
+		return findUsers(() -> operations.indexPrefix(INDEX_FIRSTNAME, term(prefix), offset, count));
+	}
+
+	/**
+	 * Finds the users whose firstname is between from and to.
+	 *
+	 * @param from
+	 *            the first firstname, null for unbounded
+	 * @param to
+	 *            the last firstname, null for unbounded
+	 * @param offset
+	 *            the offset
+	 * @param count
+	 *            the page size
+	 * @return the users
+	 * @see #findUsersByLastnameRange(String, String, int, int)
+	 */
+	public List<User> findUsersByFirstnameRange(String from, String to, int offset, int count) {
+		return findUsers(() -> operations.indexRange(INDEX_FIRSTNAME, term(from), term(to), offset, count));
+	}
+
+	/**
+	 * Loads the users of an index page.
+	 *
+	 * @param page
+	 *            the index lookup
+	 * @return the users, in the index order
+	 */
+	private List<User> findUsers(Supplier<List<String>> page) {
+		long start = findUsersMetrics.start();
+		try {
+			List<String> emails = page.get();
+			if (emails.isEmpty()) {
+				return new ArrayList<>();
+			}
+
+			List<User> users = new ArrayList<>(emails.size());
+			for (User user : operations.getListObject(emails, User.class)) {
+				if (user != null) {
+					users.add(user);
+				}
+			}
+			return users;
+		} catch (Exception e) {
+			findUsersMetrics.error();
+			LOG.error("Find Users error");
+			throw new RuntimeException(e);
+		} finally {
+			findUsersMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Lists a page of every user, in no particular order, with one SCAN call.
+	 * Users stored as hashes are skipped, a page may come back short or even
+	 * empty while the listing is not finished.
+	 *
+	 * @param cursor
+	 *            the cursor, {@link ScanPage#START} for the first page
+	 * @param count
+	 *            the keys visited
+	 * @return the page, with the cursor of the next one
+	 */
+	public ScanPage<User> listUsers(String cursor, int count) {
+		long start = listUsersMetrics.start();
+		try {
+			return operations.scanObjects(cursor, USER_PATTERN, count, User.class);
+		} catch (Exception e) {
+			listUsersMetrics.error();
+			LOG.error("List Users error");
+			throw new RuntimeException(e);
+		} finally {
+			listUsersMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Streams every user, reading the pages lazily as the stream is consumed.
+	 * A user may show up twice if the keyspace is resized during the scan.
+	 *
+	 * @param count
+	 *            the keys visited per SCAN call
+	 * @return the users
+	 */
+	public Stream<User> streamUsers(int count) {
+		return operations.streamObjects(USER_PATTERN, count, User.class).map(Entry::getValue);
+	}
+
+	/**
+	 * Streams every user, {@link #DEFAULT_SCAN_COUNT} keys per SCAN call.
+	 *
+	 * @return the users
+	 * @see #streamUsers(int)
+	 */
+	public Stream<User> streamUsers() {
+		return streamUsers(DEFAULT_SCAN_COUNT);
+	}
+
+	/**
+	 * Gets the index terms of the user.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the terms
+	 */
+	private Map<String, String> terms(User user) {
+		Map<String, String> terms = new HashMap<>();
+		terms.put(INDEX_LASTNAME, term(user.getLastname()));
+		terms.put(INDEX_FIRSTNAME, term(user.getFirstname()));
+		return terms;
+	}
+
+	/**
+	 * Normalizes a name to its index term: trimmed and lower case, null when
+	 * blank.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the term
+	 */
+	private static String term(String name) {
+		if (name == null) {
+			return null;
+		}
+		String term = name.trim().toLowerCase(Locale.ROOT).replace("\0", "");
+		return term.isEmpty() ? null : term;
+	}
+
+	/**
+	 * To hash.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the map
+	 */
+	private Map<String, String> toHash(User user) {
+		Map<String, String> hash = new HashMap<>();
+		hash.put(FIELD_EMAIL, user.getEmail());
+		hash.put(FIELD_FIRSTNAME, user.getFirstname());
+		hash.put(FIELD_LASTNAME, user.getLastname());
+		return hash;
+	}
+
+	/**
+	 * Check field.
+	 *
+	 * @param field
+	 *            the field
+	 */
+	private void checkField(String field) {
+		if (!FIELD_FIRSTNAME.equals(field) && !FIELD_LASTNAME.equals(field) && !FIELD_EMAIL.equals(field)) {
+			throw new IllegalArgumentException("Unknown user field: " + field);
 		}
 	}
 
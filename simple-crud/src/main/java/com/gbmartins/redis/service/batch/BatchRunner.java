@@ -0,0 +1,378 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.service.UserService;
+
+/**
+ * The Class BatchRunner.
+ * <p>
+ * Runs the console commands non-interactively, one per line:
+ * <code>C email name lastname</code>, <code>U email name lastname</code>,
+ * <code>R email...</code> and <code>D email...</code>; <code>Q</code> stops
+ * the run, blank lines and lines starting with <code>#</code> are skipped.
+ * Consecutive commands of the same kind, up to <code>batchSize</code> of
+ * them, go to Redis as one pipelined multi-key operation, so a script costs
+ * a round trip per group instead of per command. A group is cut before a
+ * write of a key it already writes, each key of a group being written once.
+ * One result line per command (per email for <code>R</code>) is written in
+ * the input order, flushed after every group.
+ */
+@Service
+public class BatchRunner {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(BatchRunner.class);
+
+	/** The service. */
+	private final UserService service;
+
+	/** The batch size. */
+	private final int batchSize;
+
+	/** The metrics of run. */
+	private final OperationMetrics runMetrics;
+
+	/**
+	 * Instantiates a new batch runner.
+	 *
+	 * @param service
+	 *            the service
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 * @param metrics
+	 *            the metrics
+	 */
+	@Autowired
+	public BatchRunner(UserService service, RedisInstanceSetup redisInstanceSetup, RedisMetrics metrics) {
+		super();
+		this.service = service;
+		this.batchSize = Math.max(1, redisInstanceSetup.getConsoleBatchSize());
+		this.runMetrics = metrics.get("user.batch");
+	}
+
+	/**
+	 * Runs the commands of the input until its end or a <code>Q</code>.
+	 * A failed operation fails only the commands of its group, each gets an
+	 * <code>ERROR</code> line.
+	 *
+	 * @param in
+	 *            the commands
+	 * @param out
+	 *            the results
+	 * @return the summary
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred while reading
+	 *             or writing
+	 */
+	public BatchSummary run(BufferedReader in, Writer out) throws IOException {
+		long start = runMetrics.start();
+		long begin = System.nanoTime();
+		Group group = new Group();
+		long commands = 0;
+		long invalid = 0;
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				String[] split = line.split("\\s+");
+				String kind = split[0].toUpperCase(Locale.ROOT);
+				if ("Q".equals(kind)) {
+					break;
+				}
+				if (!isValid(kind, split)) {
+					flush(group, out);
+					out.write("\"" + line + "\" is not valid" + System.lineSeparator());
+					invalid++;
+					continue;
+				}
+
+				if (!group.accepts(kind, split)) {
+					flush(group, out);
+				}
+				group.add(kind, split);
+				commands++;
+			}
+			flush(group, out);
+		} catch (IOException e) {
+			runMetrics.error();
+			LOG.error("Batch error", e);
+			throw e;
+		} finally {
+			runMetrics.stop(start);
+		}
+
+		long elapsedMillis = (System.nanoTime() - begin) / 1000000;
+		BatchSummary summary = new BatchSummary(commands, group.operations, invalid, group.failed, elapsedMillis);
+		LOG.info(summary);
+		return summary;
+	}
+
+	/**
+	 * Checks if the command is valid.
+	 *
+	 * @param kind
+	 *            the kind
+	 * @param split
+	 *            the command words
+	 * @return true, if valid
+	 */
+	private static boolean isValid(String kind, String[] split) {
+		switch (kind) {
+		case "C":
+		case "U":
+			return split.length == 4;
+		case "R":
+		case "D":
+			return split.length >= 2;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Runs the group as one operation and writes its results.
+	 *
+	 * @param group
+	 *            the group
+	 * @param out
+	 *            the results
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void flush(Group group, Writer out) throws IOException {
+		if (group.commands.isEmpty()) {
+			return;
+		}
+
+		List<String> results;
+		try {
+			results = execute(group);
+		} catch (RuntimeException e) {
+			LOG.error("Batch operation error", e);
+			results = new ArrayList<>(group.commands.size());
+			for (int i = 0; i < group.commands.size(); i++) {
+				results.add("ERROR " + e.getMessage());
+			}
+			group.failed += group.commands.size();
+		}
+
+		for (String result : results) {
+			out.write(result);
+			out.write(System.lineSeparator());
+		}
+		out.flush();
+		group.operations++;
+		group.clear();
+	}
+
+	/**
+	 * Executes the group.
+	 *
+	 * @param group
+	 *            the group
+	 * @return the results, in the command order
+	 */
+	private List<String> execute(Group group) {
+		List<String> results = new ArrayList<>(group.commands.size());
+		switch (group.kind) {
+		case "C":
+		case "U": {
+			List<User> users = new ArrayList<>(group.commands.size());
+			for (String[] split : group.commands) {
+				User user = new User();
+				user.setEmail(split[1]);
+				user.setFirstname(split[2]);
+				user.setLastname(split[3]);
+				users.add(user);
+			}
+			boolean create = "C".equals(group.kind);
+			List<String> written = create ? service.saveUsers(users) : service.updateUsers(users);
+			for (int i = 0; i < users.size(); i++) {
+				String result = written.get(i);
+				if (result == null) {
+					result = create ? "User with key " + users.get(i).getEmail() + " already exists" : "User not found";
+				}
+				results.add(result);
+			}
+			break;
+		}
+		case "R": {
+			Map<String, User> users = service.getUsersByEmailsMap(group.emails());
+			for (String[] split : group.commands) {
+				for (int i = 1; i < split.length; i++) {
+					User user = users.get(split[i]);
+					results.add(user != null ? user.toString() : "not found");
+				}
+			}
+			break;
+		}
+		default: {
+			List<Boolean> deleted = service.deleteUsersEach(group.emails());
+			int k = 0;
+			for (String[] split : group.commands) {
+				long number = 0;
+				for (int i = 1; i < split.length; i++) {
+					if (deleted.get(k++)) {
+						number++;
+					}
+				}
+				results.add("Number of users deleted: " + number);
+			}
+			break;
+		}
+		}
+		return results;
+	}
+
+	/**
+	 * The Class Group.
+	 * <p>
+	 * The consecutive commands sent as one operation, and the counters of the
+	 * run.
+	 */
+	private final class Group {
+
+		/** The kind of the commands. */
+		private String kind;
+
+		/** The commands, split in words. */
+		private final List<String[]> commands = new ArrayList<>();
+
+		/** The keys written by the group. */
+		private final Set<String> written = new HashSet<>();
+
+		/** The operations sent so far. */
+		private long operations;
+
+		/** The commands failed so far. */
+		private long failed;
+
+		/**
+		 * Checks if the command can join the group.
+		 *
+		 * @param commandKind
+		 *            the command kind
+		 * @param split
+		 *            the command words
+		 * @return true, if it can
+		 */
+		private boolean accepts(String commandKind, String[] split) {
+			if (commands.isEmpty()) {
+				return true;
+			}
+			if (!commandKind.equals(kind) || commands.size() >= batchSize) {
+				return false;
+			}
+			for (int i = 1; i < writtenEnd(kind, split); i++) {
+				if (written.contains(split[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Adds the command.
+		 *
+		 * @param commandKind
+		 *            the command kind
+		 * @param split
+		 *            the command words
+		 */
+		private void add(String commandKind, String[] split) {
+			kind = commandKind;
+			commands.add(split);
+			for (int i = 1; i < writtenEnd(kind, split); i++) {
+				written.add(split[i]);
+			}
+		}
+
+		/**
+		 * Gets the end of the written keys among the command words, which
+		 * start at index 1: none for a read, the email for a create or an
+		 * update, every email for a delete.
+		 *
+		 * @param commandKind
+		 *            the command kind
+		 * @param split
+		 *            the command words
+		 * @return the index after the last written key
+		 */
+		private int writtenEnd(String commandKind, String[] split) {
+			switch (commandKind) {
+			case "R":
+				return 1;
+			case "D":
+				return split.length;
+			default:
+				return 2;
+			}
+		}
+
+		/**
+		 * Gets the emails of every command, in order.
+		 *
+		 * @return the emails
+		 */
+		private String[] emails() {
+			List<String> emails = new ArrayList<>();
+			for (String[] split : commands) {
+				for (int i = 1; i < split.length; i++) {
+					emails.add(split[i]);
+				}
+			}
+			return emails.toArray(new String[emails.size()]);
+		}
+
+		/**
+		 * Clears the commands.
+		 */
+		private void clear() {
+			commands.clear();
+			written.clear();
+		}
+
+	}
+
+}
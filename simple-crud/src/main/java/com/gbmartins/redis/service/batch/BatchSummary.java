@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.batch;
+
+/**
+ * The Class BatchSummary.
+ * <p>
+ * The outcome of a batch run: every command read is either executed, in one
+ * of the pipelined operations, or rejected as invalid.
+ */
+public final class BatchSummary {
+
+	/** The commands executed. */
+	private final long commands;
+
+	/** The pipelined operations sent. */
+	private final long operations;
+
+	/** The invalid commands. */
+	private final long invalid;
+
+	/** The commands whose operation failed. */
+	private final long failed;
+
+	/** The elapsed time in milliseconds. */
+	private final long elapsedMillis;
+
+	/**
+	 * Instantiates a new batch summary.
+	 *
+	 * @param commands
+	 *            the commands executed
+	 * @param operations
+	 *            the pipelined operations sent
+	 * @param invalid
+	 *            the invalid commands
+	 * @param failed
+	 *            the commands whose operation failed
+	 * @param elapsedMillis
+	 *            the elapsed millis
+	 */
+	public BatchSummary(long commands, long operations, long invalid, long failed, long elapsedMillis) {
+		super();
+		this.commands = commands;
+		this.operations = operations;
+		this.invalid = invalid;
+		this.failed = failed;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Gets the commands executed, failed ones included.
+	 *
+	 * @return the commands
+	 */
+	public long getCommands() {
+		return commands;
+	}
+
+	/**
+	 * Gets the pipelined operations sent.
+	 *
+	 * @return the operations
+	 */
+	public long getOperations() {
+		return operations;
+	}
+
+	/**
+	 * Gets the invalid commands.
+	 *
+	 * @return the invalid
+	 */
+	public long getInvalid() {
+		return invalid;
+	}
+
+	/**
+	 * Gets the commands whose operation failed.
+	 *
+	 * @return the failed
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * Gets the elapsed time in milliseconds.
+	 *
+	 * @return the elapsed millis
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * Gets the commands executed per second.
+	 *
+	 * @return the throughput
+	 */
+	public double getThroughput() {
+		return elapsedMillis == 0 ? commands : commands * 1000.0 / elapsedMillis;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("Batch [commands=%d, operations=%d, invalid=%d, failed=%d, elapsed=%dms, %.0f commands/s]",
+				commands, operations, invalid, failed, elapsedMillis, getThroughput());
+	}
+
+}
@@ -0,0 +1,590 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.http;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.service.UserService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The Class UserHttpServer.
+ * <p>
+ * An HTTP/JSON front end of {@link UserService}, on the HTTP server of the
+ * JDK, started when <code>http-port</code> is set. Connections are accepted
+ * and read by the selector thread of the server; handlers run on
+ * <code>http-threads</code> worker threads. The single user requests do not
+ * hold a worker while Redis answers: they are queued to a
+ * {@link UserRequestBatcher}, which merges the concurrent ones into
+ * pipelined multi-key operations, and the response is written when the
+ * batch completes.
+ * <ul>
+ * <li><code>GET /users/{email}</code>: the user, 404 if missing</li>
+ * <li><code>POST /users</code>: creates the user of the body, 409 if it
+ * exists</li>
+ * <li><code>PUT /users/{email}</code>: writes the user of the body</li>
+ * <li><code>DELETE /users/{email}</code>: deletes the user, 404 if
+ * missing</li>
+ * <li><code>POST /users/_mget</code>: the users of a JSON array of emails,
+ * null for the missing ones</li>
+ * <li><code>POST /users/_bulk</code>: writes the users of an NDJSON body, in
+ * pipelined chunks</li>
+ * <li><code>GET /users?lastname=prefix&amp;offset=0&amp;count=100</code>: a
+ * page of the lastname index, <code>firstname</code> likewise</li>
+ * <li><code>GET /users</code>: every user, streamed as chunked NDJSON while
+ * the keyspace is scanned</li>
+ * </ul>
+ */
+@Service
+public class UserHttpServer {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(UserHttpServer.class);
+
+	/** The path of the users. */
+	private static final String USERS = "/users";
+
+	/** The JSON content type. */
+	private static final String JSON_TYPE = "application/json";
+
+	/** The NDJSON content type. */
+	private static final String NDJSON_TYPE = "application/x-ndjson";
+
+	/** The buffer size of the streamed responses. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The default page size of the index lookups. */
+	private static final int DEFAULT_PAGE = 100;
+
+	/**
+	 * The property of the JDK server enabling TCP_NODELAY: it flushes the
+	 * headers and the body of a response in two writes, which Nagle's
+	 * algorithm would hold until the client's delayed ACK.
+	 */
+	private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+	/** The Constant MAPPER. */
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	/** The service. */
+	private final UserService service;
+
+	/** The redis instance setup. */
+	private final RedisInstanceSetup redisInstanceSetup;
+
+	/** The server, null when stopped. */
+	private HttpServer server;
+
+	/** The workers. */
+	private ThreadPoolExecutor workers;
+
+	/** The batcher. */
+	private UserRequestBatcher batcher;
+
+	/** Released when the server stops. */
+	private final CountDownLatch stopped = new CountDownLatch(1);
+
+	/**
+	 * Instantiates a new user http server.
+	 *
+	 * @param service
+	 *            the service
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 */
+	@Autowired
+	public UserHttpServer(UserService service, RedisInstanceSetup redisInstanceSetup) {
+		super();
+		this.service = service;
+		this.redisInstanceSetup = redisInstanceSetup;
+	}
+
+	/**
+	 * Starts the server if <code>http-port</code> is set.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@PostConstruct
+	public void init() throws IOException {
+		if (redisInstanceSetup.getHttpPort() > 0) {
+			start(new InetSocketAddress(redisInstanceSetup.getHttpPort()));
+		}
+	}
+
+	/**
+	 * Starts the server.
+	 *
+	 * @param address
+	 *            the address, port 0 for any free port
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public synchronized void start(InetSocketAddress address) throws IOException {
+		if (server != null) {
+			throw new IllegalStateException("Server already started on " + server.getAddress());
+		}
+
+		int threads = Math.max(1, redisInstanceSetup.getHttpThreads());
+		workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				new ThreadFactoryBuilder().setNameFormat("user-http-%d").setDaemon(true).build());
+		batcher = new UserRequestBatcher(service, Math.max(1, redisInstanceSetup.getHttpBatchSize()),
+				redisInstanceSetup.getHttpBatchDelayMicros(), Math.max(1, redisInstanceSetup.getHttpBatchFlushers()));
+		batcher.start();
+
+		if (System.getProperty(NODELAY) == null) {
+			System.setProperty(NODELAY, "true");
+		}
+		server = HttpServer.create(address, 0);
+		server.setExecutor(workers);
+		server.createContext(USERS, this::handle);
+		server.start();
+		LOG.info("HTTP server listening on {}", server.getAddress());
+	}
+
+	/**
+	 * Stops the server, letting the exchanges in progress end for a second.
+	 */
+	@PreDestroy
+	public synchronized void stop() {
+		if (server == null) {
+			return;
+		}
+
+		server.stop(1);
+		batcher.close();
+		workers.shutdown();
+		LOG.info("HTTP server stopped, {} requests in {} batches", batcher.getRequests(), batcher.getBatches());
+		server = null;
+		stopped.countDown();
+	}
+
+	/**
+	 * Checks if the server is running.
+	 *
+	 * @return true, if running
+	 */
+	public synchronized boolean isRunning() {
+		return server != null;
+	}
+
+	/**
+	 * Gets the address the server listens on.
+	 *
+	 * @return the address, null when stopped
+	 */
+	public synchronized InetSocketAddress getAddress() {
+		return server != null ? server.getAddress() : null;
+	}
+
+	/**
+	 * Waits until the server stops.
+	 *
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	public void awaitStop() throws InterruptedException {
+		stopped.await();
+	}
+
+	/**
+	 * Routes the exchange.
+	 *
+	 * @param exchange
+	 *            the exchange
+	 */
+	private void handle(HttpExchange exchange) {
+		try {
+			String path = exchange.getRequestURI().getRawPath();
+			String method = exchange.getRequestMethod();
+			String rest = path.length() > USERS.length() + 1 ? path.substring(USERS.length() + 1) : "";
+			if (!path.equals(USERS) && !path.startsWith(USERS + "/")) {
+				send(exchange, 404, error("Not found"));
+			} else if (rest.isEmpty()) {
+				if ("GET".equals(method)) {
+					listUsers(exchange);
+				} else if ("POST".equals(method)) {
+					User user = readUser(exchange, null);
+					reply(exchange, batcher.saveUser(user),
+							r -> r != null ? response(201, result(r))
+									: response(409, error("User with key " + user.getEmail() + " already exists")));
+				} else {
+					send(exchange, 405, error("Method not allowed"));
+				}
+			} else if ("_mget".equals(rest) && "POST".equals(method)) {
+				String[] emails = MAPPER.readValue(exchange.getRequestBody(), String[].class);
+				send(exchange, 200, emails.length > 0 ? service.getUsersByEmailsMap(emails) : Collections.emptyMap());
+			} else if ("_bulk".equals(rest) && "POST".equals(method)) {
+				bulkUsers(exchange);
+			} else {
+				String email = decode(rest);
+				switch (method) {
+				case "GET":
+					reply(exchange, batcher.getUser(email),
+							r -> r != null ? response(200, r) : response(404, error("User not found")));
+					break;
+				case "PUT":
+					reply(exchange, batcher.saveOrUpdateUser(readUser(exchange, email)), r -> response(200, result(r)));
+					break;
+				case "DELETE":
+					reply(exchange, batcher.deleteUser(email), r -> r ? response(200, deleted(1))
+							: response(404, deleted(0)));
+					break;
+				default:
+					send(exchange, 405, error("Method not allowed"));
+				}
+			}
+		} catch (JsonProcessingException | IllegalArgumentException e) {
+			send(exchange, 400, error(e.getMessage()));
+		} catch (Exception e) {
+			LOG.error("HTTP request error", e);
+			send(exchange, 500, error(e.getMessage()));
+		}
+	}
+
+	/**
+	 * Writes the response once the batched request completes, on a worker
+	 * thread.
+	 *
+	 * @param <R> the result type
+	 * @param exchange the exchange
+	 * @param future the future result
+	 * @param response the response of the result
+	 */
+	private <R> void reply(HttpExchange exchange, CompletableFuture<R> future,
+			Function<R, Response> response) {
+		future.whenCompleteAsync((result, ex) -> {
+			if (ex != null) {
+				send(exchange, 500, error(ex.getMessage()));
+			} else {
+				Response r = response.apply(result);
+				send(exchange, r.status, r.body);
+			}
+		}, workers);
+	}
+
+	/**
+	 * Streams every user as NDJSON, or answers a page of a name index.
+	 *
+	 * @param exchange
+	 *            the exchange
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void listUsers(HttpExchange exchange) throws IOException {
+		Map<String, String> query = query(exchange);
+		int offset = intParam(query, "offset", 0);
+		int count = intParam(query, "count", DEFAULT_PAGE);
+		if (query.containsKey("lastname")) {
+			send(exchange, 200, service.findUsersByLastnamePrefix(query.get("lastname"), offset, count));
+			return;
+		}
+		if (query.containsKey("firstname")) {
+			send(exchange, 200, service.findUsersByFirstnamePrefix(query.get("firstname"), offset, count));
+			return;
+		}
+
+		exchange.getResponseHeaders().set("Content-Type", NDJSON_TYPE);
+		exchange.sendResponseHeaders(200, 0);
+		try (Stream<User> users = service.streamUsers(redisInstanceSetup.getExportScanCount());
+				OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), BUFFER_SIZE)) {
+			Iterator<User> it = users.iterator();
+			while (it.hasNext()) {
+				out.write(MAPPER.writeValueAsBytes(it.next()));
+				out.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * Writes the users of the NDJSON body, in pipelined chunks of
+	 * <code>http-batch-size</code> users. Malformed lines are counted and
+	 * skipped.
+	 *
+	 * @param exchange
+	 *            the exchange
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void bulkUsers(HttpExchange exchange) throws IOException {
+		int chunkSize = Math.max(1, redisInstanceSetup.getHttpBatchSize());
+		List<User> chunk = new ArrayList<>(chunkSize);
+		long saved = 0;
+		long rejected = 0;
+		try (BufferedReader in = new BufferedReader(
+				new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				try {
+					chunk.add(validate(MAPPER.readValue(line, User.class)));
+				} catch (JsonProcessingException | IllegalArgumentException e) {
+					rejected++;
+					continue;
+				}
+				if (chunk.size() == chunkSize) {
+					service.saveOrUpdateUsers(chunk.toArray(new User[chunk.size()]));
+					saved += chunk.size();
+					chunk.clear();
+				}
+			}
+		}
+		if (!chunk.isEmpty()) {
+			service.saveOrUpdateUsers(chunk.toArray(new User[chunk.size()]));
+			saved += chunk.size();
+		}
+
+		Map<String, Long> body = new HashMap<>();
+		body.put("saved", saved);
+		body.put("rejected", rejected);
+		send(exchange, 200, body);
+	}
+
+	/**
+	 * Reads the user of the request body.
+	 *
+	 * @param exchange
+	 *            the exchange
+	 * @param email
+	 *            the email of the path, null to take the one of the body
+	 * @return the user
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static User readUser(HttpExchange exchange, String email) throws IOException {
+		try (InputStream in = exchange.getRequestBody()) {
+			User user = MAPPER.readValue(in, User.class);
+			if (email != null) {
+				user.setEmail(email);
+			}
+			return validate(user);
+		}
+	}
+
+	/**
+	 * Validates the user.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the user
+	 */
+	private static User validate(User user) {
+		if (user == null || user.getEmail() == null || user.getEmail().indexOf('@') < 0) {
+			throw new IllegalArgumentException("User has no valid email");
+		}
+		return user;
+	}
+
+	/**
+	 * Sends a JSON response and ends the exchange.
+	 *
+	 * @param exchange
+	 *            the exchange
+	 * @param status
+	 *            the status
+	 * @param body
+	 *            the body
+	 */
+	private static void send(HttpExchange exchange, int status, Object body) {
+		try {
+			byte[] bytes = MAPPER.writeValueAsBytes(body);
+			exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+			exchange.sendResponseHeaders(status, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not send HTTP response: {}", e.getMessage());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Parses the query string.
+	 *
+	 * @param exchange
+	 *            the exchange
+	 * @return the parameters
+	 * @throws UnsupportedEncodingException
+	 *             the unsupported encoding exception
+	 */
+	private static Map<String, String> query(HttpExchange exchange) throws UnsupportedEncodingException {
+		Map<String, String> params = new HashMap<>();
+		String raw = exchange.getRequestURI().getRawQuery();
+		if (raw == null) {
+			return params;
+		}
+		for (String pair : raw.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0) {
+				params.put(decode(pair.substring(0, eq)), decode(pair.substring(eq + 1)));
+			} else if (!pair.isEmpty()) {
+				params.put(decode(pair), "");
+			}
+		}
+		return params;
+	}
+
+	/**
+	 * Gets an int parameter.
+	 *
+	 * @param query
+	 *            the query
+	 * @param name
+	 *            the name
+	 * @param defaultValue
+	 *            the default value
+	 * @return the value
+	 */
+	private static int intParam(Map<String, String> query, String name, int defaultValue) {
+		String value = query.get(name);
+		try {
+			return value != null ? Integer.parseInt(value) : defaultValue;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid " + name + " " + value, e);
+		}
+	}
+
+	/**
+	 * Decodes an URL component.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the decoded value
+	 * @throws UnsupportedEncodingException
+	 *             the unsupported encoding exception
+	 */
+	private static String decode(String value) throws UnsupportedEncodingException {
+		return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+	}
+
+	/**
+	 * Builds an error body.
+	 *
+	 * @param message
+	 *            the message
+	 * @return the body
+	 */
+	private static Map<String, String> error(String message) {
+		return Collections.singletonMap("error", message);
+	}
+
+	/**
+	 * Builds a write result body.
+	 *
+	 * @param result
+	 *            the result
+	 * @return the body
+	 */
+	private static Map<String, String> result(String result) {
+		return Collections.singletonMap("result", result);
+	}
+
+	/**
+	 * Builds a delete result body.
+	 *
+	 * @param number
+	 *            the number of deleted users
+	 * @return the body
+	 */
+	private static Map<String, Integer> deleted(int number) {
+		return Collections.singletonMap("deleted", number);
+	}
+
+	/**
+	 * Builds a response.
+	 *
+	 * @param status
+	 *            the status
+	 * @param body
+	 *            the body
+	 * @return the response
+	 */
+	private static Response response(int status, Object body) {
+		return new Response(status, body);
+	}
+
+	/**
+	 * The Class Response.
+	 */
+	private static final class Response {
+
+		/** The status. */
+		private final int status;
+
+		/** The body. */
+		private final Object body;
+
+		/**
+		 * Instantiates a new response.
+		 *
+		 * @param status
+		 *            the status
+		 * @param body
+		 *            the body
+		 */
+		private Response(int status, Object body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+}
@@ -0,0 +1,455 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.http;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.service.UserService;
+
+/**
+ * The Class UserRequestBatcher.
+ * <p>
+ * Coalesces concurrent single user requests into pipelined multi-key
+ * {@link UserService} calls, the way
+ * {@link com.gbmartins.redis.dao.batch.ReadBatcher} does for reads. Callers
+ * enqueue a request and get a future back. Each flusher thread has its own
+ * queue, and the requests on one email always go to the same one. A flusher
+ * waits for a first request, keeps collecting until the batch is full or
+ * the maximum delay has passed, and sends the batch as runs of consecutive
+ * requests of the same kind: reads as one MGET, creates, updates and deletes
+ * as one pipeline of indexed writes. A run is cut before a second write of
+ * the same email, so requests on one user keep their arrival order.
+ * <p>
+ * Futures are completed on the flusher threads: callers must not block in
+ * their continuations.
+ */
+public class UserRequestBatcher implements Closeable {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(UserRequestBatcher.class);
+
+	/** The service. */
+	private final UserService service;
+
+	/** The max batch size. */
+	private final int maxBatchSize;
+
+	/** The max delay in nanos. */
+	private final long maxDelayNanos;
+
+	/** The pending requests of each flusher. */
+	private final List<BlockingQueue<Request>> queues;
+
+	/** The flusher threads. */
+	private final List<Thread> flushers;
+
+	/** The batches. */
+	private final LongAdder batches = new LongAdder();
+
+	/** The requests. */
+	private final LongAdder requests = new LongAdder();
+
+	/** The running. */
+	private volatile boolean running = true;
+
+	/**
+	 * Instantiates a new user request batcher.
+	 *
+	 * @param service
+	 *            the service
+	 * @param maxBatchSize
+	 *            the max batch size
+	 * @param maxDelayMicros
+	 *            the max latency added to a request while its batch fills up
+	 * @param flusherCount
+	 *            the number of batches in flight
+	 */
+	public UserRequestBatcher(UserService service, int maxBatchSize, long maxDelayMicros, int flusherCount) {
+		if (maxBatchSize <= 0 || flusherCount <= 0) {
+			throw new IllegalArgumentException("maxBatchSize and flusherCount must be positive");
+		}
+
+		this.service = service;
+		this.maxBatchSize = maxBatchSize;
+		this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+		this.queues = new ArrayList<>(flusherCount);
+		this.flushers = new ArrayList<>(flusherCount);
+		for (int i = 0; i < flusherCount; i++) {
+			BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+			Thread thread = new Thread(() -> run(queue), "user-request-batcher-" + i);
+			thread.setDaemon(true);
+			queues.add(queue);
+			flushers.add(thread);
+		}
+	}
+
+	/**
+	 * Starts the flushers.
+	 */
+	public void start() {
+		for (Thread thread : flushers) {
+			thread.start();
+		}
+	}
+
+	/**
+	 * Queues the read of a user.
+	 *
+	 * @param email
+	 *            the email
+	 * @return the future user, completed with null when it does not exist
+	 */
+	public CompletableFuture<User> getUser(String email) {
+		return submit(Kind.READ, email, null);
+	}
+
+	/**
+	 * Queues the creation of a user, see {@link UserService#saveUser(User)}.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the future "OK", completed with null when the user exists
+	 */
+	public CompletableFuture<String> saveUser(User user) {
+		return submit(Kind.CREATE, user.getEmail(), user);
+	}
+
+	/**
+	 * Queues the update of a user, see {@link UserService#updateUser(User)}.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the future "OK", completed with null when the user does not
+	 *         exist
+	 */
+	public CompletableFuture<String> updateUser(User user) {
+		return submit(Kind.UPDATE, user.getEmail(), user);
+	}
+
+	/**
+	 * Queues the write of a user, see
+	 * {@link UserService#saveOrUpdateUser(User)}.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the future "OK"
+	 */
+	public CompletableFuture<String> saveOrUpdateUser(User user) {
+		return submit(Kind.UPSERT, user.getEmail(), user);
+	}
+
+	/**
+	 * Queues the deletion of a user.
+	 *
+	 * @param email
+	 *            the email
+	 * @return the future, completed with true when the user existed
+	 */
+	public CompletableFuture<Boolean> deleteUser(String email) {
+		return submit(Kind.DELETE, email, null);
+	}
+
+	/**
+	 * Queues a request on the flusher of its email.
+	 *
+	 * @param <R> the result type
+	 * @param kind the kind
+	 * @param email the email
+	 * @param user the user, null for reads and deletes
+	 * @return the future result
+	 */
+	private <R> CompletableFuture<R> submit(Kind kind, String email, User user) {
+		CompletableFuture<R> future = new CompletableFuture<>();
+		if (!running) {
+			future.completeExceptionally(closed());
+			return future;
+		}
+
+		requests.increment();
+		BlockingQueue<Request> queue = queues.get(Math.floorMod(Objects.hashCode(email), queues.size()));
+		Request request = new Request(kind, email, user, future);
+		queue.add(request);
+		if (!running && queue.remove(request)) {
+			// closed meanwhile, the flusher may have drained the queue already
+			future.completeExceptionally(closed());
+		}
+		return future;
+	}
+
+	/**
+	 * The loop of a flusher.
+	 *
+	 * @param queue
+	 *            the queue of the flusher
+	 */
+	private void run(BlockingQueue<Request> queue) {
+		List<Request> batch = new ArrayList<>(maxBatchSize);
+
+		while (running) {
+			try {
+				Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+
+				batch.add(first);
+				long deadline = System.nanoTime() + maxDelayNanos;
+				while (batch.size() < maxBatchSize) {
+					if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+						continue;
+					}
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						break;
+					}
+					Request next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+
+				flush(batch);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				break;
+			} finally {
+				// no-op for the flushed requests, fails the ones collected
+				// when interrupted
+				for (Request request : batch) {
+					request.future.completeExceptionally(closed());
+				}
+				batch.clear();
+			}
+		}
+
+		failPending(queue);
+	}
+
+	/**
+	 * Fails the requests still queued.
+	 *
+	 * @param queue
+	 *            the queue
+	 */
+	private static void failPending(BlockingQueue<Request> queue) {
+		Request pending;
+		while ((pending = queue.poll()) != null) {
+			pending.future.completeExceptionally(closed());
+		}
+	}
+
+	/**
+	 * Gets the error of the requests made or left pending after close.
+	 *
+	 * @return the exception
+	 */
+	private static IllegalStateException closed() {
+		return new IllegalStateException("UserRequestBatcher is closed");
+	}
+
+	/**
+	 * Flushes the batch, one operation per run of requests of the same kind.
+	 *
+	 * @param batch
+	 *            the batch
+	 */
+	private void flush(List<Request> batch) {
+		batches.increment();
+		int from = 0;
+		Set<String> written = new HashSet<>();
+		for (int i = 1; i <= batch.size(); i++) {
+			if (i < batch.size()) {
+				Request request = batch.get(i);
+				Kind kind = batch.get(from).kind;
+				if (kind != Kind.READ) {
+					written.add(batch.get(i - 1).email);
+				}
+				if (request.kind == kind && (kind == Kind.READ || !written.contains(request.email))) {
+					continue;
+				}
+			}
+			execute(batch.subList(from, i));
+			written.clear();
+			from = i;
+		}
+	}
+
+	/**
+	 * Executes a run of requests of the same kind and completes their
+	 * futures.
+	 *
+	 * @param run
+	 *            the run
+	 */
+	@SuppressWarnings("unchecked")
+	private void execute(List<Request> run) {
+		try {
+			List<?> results;
+			Kind kind = run.get(0).kind;
+			if (kind == Kind.READ || kind == Kind.DELETE) {
+				String[] emails = new String[run.size()];
+				for (int i = 0; i < emails.length; i++) {
+					emails[i] = run.get(i).email;
+				}
+				if (kind == Kind.READ) {
+					Map<String, User> users = service.getUsersByEmailsMap(emails);
+					List<User> aligned = new ArrayList<>(emails.length);
+					for (String email : emails) {
+						aligned.add(users.get(email));
+					}
+					results = aligned;
+				} else {
+					results = service.deleteUsersEach(emails);
+				}
+			} else {
+				List<User> users = new ArrayList<>(run.size());
+				for (Request request : run) {
+					users.add(request.user);
+				}
+				results = kind == Kind.CREATE ? service.saveUsers(users)
+						: kind == Kind.UPDATE ? service.updateUsers(users) : service.saveOrUpdateUsersEach(users);
+			}
+
+			for (int i = 0; i < run.size(); i++) {
+				((CompletableFuture<Object>) run.get(i).future).complete(results.get(i));
+			}
+		} catch (Exception ex) {
+			LOG.error("Error when trying to flush {} requests", run.size(), ex);
+			for (Request request : run) {
+				request.future.completeExceptionally(ex);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		running = false;
+		for (Thread thread : flushers) {
+			thread.interrupt();
+		}
+		for (Thread thread : flushers) {
+			try {
+				thread.join(TimeUnit.SECONDS.toMillis(1));
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		for (BlockingQueue<Request> queue : queues) {
+			failPending(queue);
+		}
+	}
+
+	/**
+	 * Gets the number of batches sent.
+	 *
+	 * @return the batches
+	 */
+	public long getBatches() {
+		return batches.sum();
+	}
+
+	/**
+	 * Gets the number of requests queued.
+	 *
+	 * @return the requests
+	 */
+	public long getRequests() {
+		return requests.sum();
+	}
+
+	/**
+	 * The kind of a request.
+	 */
+	private enum Kind {
+
+		/** A read. */
+		READ,
+
+		/** A create, if absent. */
+		CREATE,
+
+		/** An update, if present. */
+		UPDATE,
+
+		/** An unconditional write. */
+		UPSERT,
+
+		/** A delete. */
+		DELETE
+	}
+
+	/**
+	 * The Class Request.
+	 */
+	private static final class Request {
+
+		/** The kind. */
+		private final Kind kind;
+
+		/** The email. */
+		private final String email;
+
+		/** The user, null for reads and deletes. */
+		private final User user;
+
+		/** The future. */
+		private final CompletableFuture<?> future;
+
+		/**
+		 * Instantiates a new request.
+		 *
+		 * @param kind
+		 *            the kind
+		 * @param email
+		 *            the email
+		 * @param user
+		 *            the user
+		 * @param future
+		 *            the future
+		 */
+		private Request(Kind kind, String email, User user, CompletableFuture<?> future) {
+			this.kind = kind;
+			this.email = email;
+			this.user = user;
+			this.future = future;
+		}
+	}
+
+}
@@ -0,0 +1,242 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.load;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * The Class KeyDistribution.
+ * <p>
+ * Picks the key index, in <code>[0, keys)</code>, of each operation of a load
+ * run. Implementations hold no mutable state and can be shared by the
+ * threads of the run, each passing its own random.
+ */
+public abstract class KeyDistribution {
+
+	/** The number of keys. */
+	protected final int keys;
+
+	/**
+	 * Instantiates a new key distribution.
+	 *
+	 * @param keys
+	 *            the number of keys
+	 */
+	protected KeyDistribution(int keys) {
+		if (keys <= 0) {
+			throw new IllegalArgumentException("keys must be positive");
+		}
+		this.keys = keys;
+	}
+
+	/**
+	 * Picks the next key index.
+	 *
+	 * @param random
+	 *            the random of the calling thread
+	 * @return the key index
+	 */
+	public abstract int next(Random random);
+
+	/**
+	 * Gets the distribution of the name: <code>uniform</code>,
+	 * <code>zipfian</code> or <code>hotspot</code>.
+	 *
+	 * @param name
+	 *            the name
+	 * @param keys
+	 *            the number of keys
+	 * @param zipfTheta
+	 *            the skew of the zipfian distribution, in (0, 1)
+	 * @param hotKeys
+	 *            the fraction of the keys the hotspot distribution makes hot
+	 * @param hotOps
+	 *            the fraction of the operations going to the hot keys
+	 * @return the key distribution
+	 */
+	public static KeyDistribution of(String name, int keys, double zipfTheta, double hotKeys, double hotOps) {
+		switch (name.toLowerCase(Locale.ROOT)) {
+		case "uniform":
+			return new Uniform(keys);
+		case "zipfian":
+			return new Zipfian(keys, zipfTheta);
+		case "hotspot":
+			return new Hotspot(keys, hotKeys, hotOps);
+		default:
+			throw new IllegalArgumentException("Unknown distribution " + name + ", expected uniform, zipfian or hotspot");
+		}
+	}
+
+	/**
+	 * Every key equally likely.
+	 */
+	private static final class Uniform extends KeyDistribution {
+
+		/**
+		 * Instantiates a new uniform distribution.
+		 *
+		 * @param keys
+		 *            the number of keys
+		 */
+		private Uniform(int keys) {
+			super(keys);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.gbmartins.redis.service.load.KeyDistribution#next(java.util.Random)
+		 */
+		@Override
+		public int next(Random random) {
+			return random.nextInt(keys);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "uniform(" + keys + ")";
+		}
+	}
+
+	/**
+	 * Key <code>i</code> picked with a probability proportional to
+	 * <code>1 / (i + 1)^theta</code>, drawn in constant time with the method
+	 * of Gray et al. ("Quickly generating billion-record synthetic
+	 * databases"), the one of YCSB. Key 0 is the hottest.
+	 */
+	private static final class Zipfian extends KeyDistribution {
+
+		/** The skew. */
+		private final double theta;
+
+		/** The zeta of the number of keys. */
+		private final double zetaN;
+
+		/** The alpha. */
+		private final double alpha;
+
+		/** The eta. */
+		private final double eta;
+
+		/**
+		 * Instantiates a new zipfian distribution, in O(keys) to sum zeta.
+		 *
+		 * @param keys
+		 *            the number of keys
+		 * @param theta
+		 *            the skew, in (0, 1)
+		 */
+		private Zipfian(int keys, double theta) {
+			super(keys);
+			if (theta <= 0 || theta >= 1) {
+				throw new IllegalArgumentException("zipf theta must be in (0, 1)");
+			}
+
+			this.theta = theta;
+			double zeta = 0;
+			for (int i = 1; i <= keys; i++) {
+				zeta += 1 / Math.pow(i, theta);
+			}
+			this.zetaN = zeta;
+			this.alpha = 1 / (1 - theta);
+			double zeta2 = 1 + 1 / Math.pow(2, theta);
+			this.eta = (1 - Math.pow(2.0 / keys, 1 - theta)) / (1 - zeta2 / zetaN);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.gbmartins.redis.service.load.KeyDistribution#next(java.util.Random)
+		 */
+		@Override
+		public int next(Random random) {
+			double u = random.nextDouble();
+			double uz = u * zetaN;
+			if (uz < 1) {
+				return 0;
+			}
+			if (uz < 1 + Math.pow(0.5, theta)) {
+				return Math.min(1, keys - 1);
+			}
+			return Math.min((int) (keys * Math.pow(eta * u - eta + 1, alpha)), keys - 1);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "zipfian(" + keys + ", theta=" + theta + ")";
+		}
+	}
+
+	/**
+	 * A fraction of the operations going to a fraction of the keys, uniformly
+	 * within the hot and the cold keys.
+	 */
+	private static final class Hotspot extends KeyDistribution {
+
+		/** The number of hot keys. */
+		private final int hotCount;
+
+		/** The fraction of the operations going to the hot keys. */
+		private final double hotOps;
+
+		/**
+		 * Instantiates a new hotspot distribution.
+		 *
+		 * @param keys
+		 *            the number of keys
+		 * @param hotKeys
+		 *            the fraction of the keys that are hot
+		 * @param hotOps
+		 *            the fraction of the operations going to them
+		 */
+		private Hotspot(int keys, double hotKeys, double hotOps) {
+			super(keys);
+			if (hotKeys <= 0 || hotKeys > 1 || hotOps < 0 || hotOps > 1) {
+				throw new IllegalArgumentException("hot keys must be in (0, 1] and hot ops in [0, 1]");
+			}
+
+			this.hotCount = Math.max(1, (int) (keys * hotKeys));
+			this.hotOps = hotOps;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.gbmartins.redis.service.load.KeyDistribution#next(java.util.Random)
+		 */
+		@Override
+		public int next(Random random) {
+			if (hotCount == keys || random.nextDouble() < hotOps) {
+				return random.nextInt(hotCount);
+			}
+			return hotCount + random.nextInt(keys - hotCount);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "hotspot(" + keys + ", " + hotCount + " hot keys get " + hotOps + " of the operations)";
+		}
+	}
+
+}
@@ -0,0 +1,517 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.load;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.service.UserService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The Class LoadGenerator.
+ * <p>
+ * Drives a mix of reads, writes, updates and deletes through the
+ * {@link UserService} from several threads for a while, the users being
+ * <code>load&lt;i&gt;@load.test</code> with <code>i</code> picked by a
+ * {@link KeyDistribution}. Every interval the throughput and the latency
+ * percentiles of each operation are reported to the console, and to a CSV
+ * file if asked, from HdrHistogram recorders the threads write to without
+ * locking.
+ * <p>
+ * Without a rate each thread sends its next operation as soon as the
+ * previous one returns (closed loop). With a rate each thread has a schedule
+ * of intended start times and the latency of an operation is measured from
+ * its intended start (open loop): when the store stalls, the operations that
+ * should have been sent meanwhile are counted with the time they waited
+ * instead of being omitted.
+ */
+@Service
+public class LoadGenerator {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(LoadGenerator.class);
+
+	/** The Constant MAX_MICROS, the highest latency recorded. */
+	private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+	/** The Constant PRELOAD_CHUNK, the users written per pipelined bulk. */
+	private static final int PRELOAD_CHUNK = 1000;
+
+	/** The Constant VALUES, the distinct firstnames written. */
+	private static final int VALUES = 16;
+
+	/** The Constant CSV_HEADER. */
+	public static final String CSV_HEADER = "elapsed_s,operation,count,ops_per_s,p50_us,p90_us,p99_us,p999_us,max_us,errors";
+
+	/** The service. */
+	private final UserService service;
+
+	/** The metrics of run. */
+	private final OperationMetrics runMetrics;
+
+	/**
+	 * Instantiates a new load generator.
+	 *
+	 * @param service
+	 *            the service
+	 * @param metrics
+	 *            the metrics
+	 */
+	@Autowired
+	public LoadGenerator(UserService service, RedisMetrics metrics) {
+		super();
+		this.service = service;
+		this.runMetrics = metrics.get("user.load");
+	}
+
+	/**
+	 * Gets the email of the user of the key.
+	 *
+	 * @param key
+	 *            the key index
+	 * @return the email
+	 */
+	public static String email(int key) {
+		return "load" + key + "@load.test";
+	}
+
+	/**
+	 * Runs the load, reporting each interval to the console and the CSV file
+	 * of the options, and returns the totals of the run.
+	 *
+	 * @param options
+	 *            the options
+	 * @param console
+	 *            the consumer of the report lines
+	 * @return the summary
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred writing the CSV
+	 *             file
+	 * @throws InterruptedException
+	 *             if interrupted, the threads of the run being stopped
+	 */
+	public LoadSummary run(LoadOptions options, Consumer<String> console) throws IOException, InterruptedException {
+		long start = runMetrics.start();
+		try (Writer csv = options.getCsv() == null ? null
+				: Files.newBufferedWriter(Paths.get(options.getCsv()), StandardCharsets.UTF_8)) {
+			return run(options, console, csv);
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			runMetrics.error();
+			LOG.error("Load run error");
+			throw e;
+		} finally {
+			runMetrics.stop(start);
+		}
+	}
+
+	/**
+	 * Runs the load.
+	 *
+	 * @param options
+	 *            the options
+	 * @param console
+	 *            the console
+	 * @param csv
+	 *            the csv, null if none
+	 * @return the summary
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred
+	 * @throws InterruptedException
+	 *             if interrupted
+	 */
+	private LoadSummary run(LoadOptions options, Consumer<String> console, Writer csv)
+			throws IOException, InterruptedException {
+		KeyDistribution distribution = options.newDistribution();
+		String[] values = values(options.getValueSize());
+		if (options.isPreload()) {
+			preload(options.getKeys(), values, console);
+		}
+
+		Map<LoadOperation, Recorder> recorders = new EnumMap<>(LoadOperation.class);
+		Map<LoadOperation, LongAdder> errors = new EnumMap<>(LoadOperation.class);
+		Interval interval = new Interval(console, csv);
+		for (Map.Entry<LoadOperation, Integer> weight : options.getMix().entrySet()) {
+			if (weight.getValue() > 0) {
+				recorders.put(weight.getKey(), new Recorder(1, MAX_MICROS, 3));
+				errors.put(weight.getKey(), new LongAdder());
+				interval.totals.put(weight.getKey(), new Histogram(1, MAX_MICROS, 3));
+			}
+		}
+		Mix mix = new Mix(options.getMix());
+
+		console.accept(options.toString());
+		if (csv != null) {
+			csv.write(CSV_HEADER);
+			csv.write('\n');
+		}
+
+		int threads = options.getThreads();
+		long period = options.getRate() == 0 ? 0 : Math.max(1, TimeUnit.SECONDS.toNanos(threads) / options.getRate());
+		long begin = System.nanoTime();
+		long end = begin + TimeUnit.SECONDS.toNanos(options.getSeconds());
+		ExecutorService workers = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat("user-load-%d").setDaemon(true).build());
+		try {
+			List<Future<?>> futures = new ArrayList<>(threads);
+			for (int i = 0; i < threads; i++) {
+				long first = begin + period * i / threads;
+				futures.add(workers.submit(
+						() -> drive(distribution, mix, values, recorders, errors, first, end, period)));
+			}
+
+			long intervalNanos = TimeUnit.SECONDS.toNanos(options.getIntervalSeconds());
+			long last = begin;
+			for (long next = begin + intervalNanos; next < end; next += intervalNanos) {
+				TimeUnit.NANOSECONDS.sleep(next - System.nanoTime());
+				interval.report(recorders, errors, begin, last, next);
+				last = next;
+			}
+			workers.shutdown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			long now = System.nanoTime();
+			interval.report(recorders, errors, begin, last, now);
+
+			Map<LoadOperation, Long> totalErrors = new EnumMap<>(LoadOperation.class);
+			for (Map.Entry<LoadOperation, LongAdder> entry : errors.entrySet()) {
+				totalErrors.put(entry.getKey(), entry.getValue().sum());
+			}
+			LoadSummary summary = new LoadSummary(interval.totals, totalErrors,
+					TimeUnit.NANOSECONDS.toMillis(now - begin));
+			console.accept(summary.toString());
+			return summary;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Load thread failed", e.getCause());
+		} finally {
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Runs the operations of one thread until the end.
+	 *
+	 * @param distribution
+	 *            the distribution
+	 * @param mix
+	 *            the mix
+	 * @param values
+	 *            the values
+	 * @param recorders
+	 *            the recorders
+	 * @param errors
+	 *            the errors
+	 * @param first
+	 *            the intended start of the first operation, when open loop
+	 * @param end
+	 *            the end
+	 * @param period
+	 *            the nanos between two intended starts, 0 for a closed loop
+	 */
+	private void drive(KeyDistribution distribution, Mix mix, String[] values, Map<LoadOperation, Recorder> recorders,
+			Map<LoadOperation, LongAdder> errors, long first, long end, long period) {
+		Random random = ThreadLocalRandom.current();
+		long intended = first;
+		while (!Thread.currentThread().isInterrupted()) {
+			long start;
+			if (period > 0) {
+				if (intended >= end) {
+					return;
+				}
+				long wait;
+				while ((wait = intended - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(wait);
+				}
+				start = intended;
+				intended += period;
+			} else {
+				start = System.nanoTime();
+				if (start >= end) {
+					return;
+				}
+			}
+
+			LoadOperation operation = mix.next(random);
+			try {
+				execute(operation, distribution.next(random), values[random.nextInt(values.length)]);
+			} catch (RuntimeException e) {
+				errors.get(operation).increment();
+			}
+			long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+			recorders.get(operation).recordValue(Math.min(Math.max(micros, 1), MAX_MICROS));
+		}
+	}
+
+	/**
+	 * Executes the operation on the user of the key.
+	 *
+	 * @param operation
+	 *            the operation
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the firstname written
+	 */
+	private void execute(LoadOperation operation, int key, String value) {
+		switch (operation) {
+		case READ:
+			service.getUserByEmail(email(key));
+			break;
+		case WRITE:
+			service.saveOrUpdateUser(user(key, value));
+			break;
+		case UPDATE:
+			service.updateUser(user(key, value));
+			break;
+		case DELETE:
+			service.deleteUser(email(key));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown operation " + operation);
+		}
+	}
+
+	/**
+	 * Writes every user of the run, in pipelined bulks.
+	 *
+	 * @param keys
+	 *            the keys
+	 * @param values
+	 *            the values
+	 * @param console
+	 *            the console
+	 */
+	private void preload(int keys, String[] values, Consumer<String> console) {
+		long begin = System.nanoTime();
+		User[] chunk = new User[Math.min(keys, PRELOAD_CHUNK)];
+		int size = 0;
+		for (int key = 0; key < keys; key++) {
+			chunk[size++] = user(key, values[key % values.length]);
+			if (size == chunk.length || key == keys - 1) {
+				service.saveOrUpdateUsers(size == chunk.length ? chunk : Arrays.copyOf(chunk, size));
+				size = 0;
+			}
+		}
+		console.accept(String.format(Locale.ROOT, "Preloaded %d users in %dms", keys,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin)));
+	}
+
+	/**
+	 * Creates the user of the key.
+	 *
+	 * @param key
+	 *            the key
+	 * @param firstname
+	 *            the firstname
+	 * @return the user
+	 */
+	private static User user(int key, String firstname) {
+		User user = new User();
+		user.setEmail(email(key));
+		user.setFirstname(firstname);
+		user.setLastname("Load" + key);
+		return user;
+	}
+
+	/**
+	 * Creates the firstnames written, random letters of the size.
+	 *
+	 * @param size
+	 *            the size
+	 * @return the values
+	 */
+	private static String[] values(int size) {
+		Random random = new Random();
+		String[] values = new String[VALUES];
+		for (int i = 0; i < values.length; i++) {
+			char[] chars = new char[size];
+			for (int c = 0; c < size; c++) {
+				chars[c] = (char) ('a' + random.nextInt(26));
+			}
+			values[i] = new String(chars);
+		}
+		return values;
+	}
+
+	/**
+	 * Picks the operations by their weights.
+	 */
+	private static final class Mix {
+
+		/** The operations. */
+		private final LoadOperation[] operations;
+
+		/** The cumulative weights. */
+		private final int[] cumulative;
+
+		/**
+		 * Instantiates a new mix of the positive weights.
+		 *
+		 * @param weights
+		 *            the weights
+		 */
+		private Mix(Map<LoadOperation, Integer> weights) {
+			List<LoadOperation> kept = new ArrayList<>();
+			List<Integer> sums = new ArrayList<>();
+			int sum = 0;
+			for (Map.Entry<LoadOperation, Integer> weight : weights.entrySet()) {
+				if (weight.getValue() > 0) {
+					sum += weight.getValue();
+					kept.add(weight.getKey());
+					sums.add(sum);
+				}
+			}
+			this.operations = kept.toArray(new LoadOperation[kept.size()]);
+			this.cumulative = sums.stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		/**
+		 * Picks the next operation.
+		 *
+		 * @param random
+		 *            the random
+		 * @return the operation
+		 */
+		private LoadOperation next(Random random) {
+			int pick = random.nextInt(cumulative[cumulative.length - 1]);
+			int index = Arrays.binarySearch(cumulative, pick + 1);
+			return operations[index >= 0 ? index : -index - 1];
+		}
+	}
+
+	/**
+	 * Reports the intervals and sums them in the totals, from the reporting
+	 * thread only.
+	 */
+	private static final class Interval {
+
+		/** The console. */
+		private final Consumer<String> console;
+
+		/** The csv, null if none. */
+		private final Writer csv;
+
+		/** The latencies of the run so far. */
+		private final Map<LoadOperation, Histogram> totals = new EnumMap<>(LoadOperation.class);
+
+		/** The histograms of the last interval, recycled. */
+		private final Map<LoadOperation, Histogram> recycled = new EnumMap<>(LoadOperation.class);
+
+		/** The errors at the end of the last interval. */
+		private final Map<LoadOperation, Long> lastErrors = new EnumMap<>(LoadOperation.class);
+
+		/**
+		 * Instantiates a new interval.
+		 *
+		 * @param console
+		 *            the console
+		 * @param csv
+		 *            the csv
+		 */
+		private Interval(Consumer<String> console, Writer csv) {
+			this.console = console;
+			this.csv = csv;
+		}
+
+		/**
+		 * Reports the interval of each operation that ran in it.
+		 *
+		 * @param recorders
+		 *            the recorders
+		 * @param errors
+		 *            the errors
+		 * @param begin
+		 *            the begin of the run
+		 * @param from
+		 *            the begin of the interval
+		 * @param to
+		 *            the end of the interval
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred
+		 */
+		private void report(Map<LoadOperation, Recorder> recorders, Map<LoadOperation, LongAdder> errors, long begin,
+				long from, long to) throws IOException {
+			double elapsed = (to - begin) / 1e9;
+			double seconds = Math.max(to - from, 1) / 1e9;
+			for (Map.Entry<LoadOperation, Recorder> entry : recorders.entrySet()) {
+				LoadOperation operation = entry.getKey();
+				Histogram histogram = entry.getValue().getIntervalHistogram(recycled.get(operation));
+				recycled.put(operation, histogram);
+				totals.get(operation).add(histogram);
+
+				long errorCount = errors.get(operation).sum();
+				long intervalErrors = errorCount - lastErrors.getOrDefault(operation, 0L);
+				lastErrors.put(operation, errorCount);
+				long count = histogram.getTotalCount();
+				if (count == 0 && intervalErrors == 0) {
+					continue;
+				}
+
+				long p50 = histogram.getValueAtPercentile(50);
+				long p90 = histogram.getValueAtPercentile(90);
+				long p99 = histogram.getValueAtPercentile(99);
+				long p999 = histogram.getValueAtPercentile(99.9);
+				long max = histogram.getMaxValue();
+				console.accept(String.format(Locale.ROOT,
+						"%7.1fs %-6s %8d ops %9.0f ops/s p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus errors=%d",
+						elapsed, operation, count, count / seconds, p50, p90, p99, p999, max, intervalErrors));
+				if (csv != null) {
+					csv.write(String.format(Locale.ROOT, "%.3f,%s,%d,%.1f,%d,%d,%d,%d,%d,%d\n", elapsed,
+							operation.name().toLowerCase(Locale.ROOT), count, count / seconds, p50, p90, p99, p999,
+							max, intervalErrors));
+				}
+			}
+			if (csv != null) {
+				csv.flush();
+			}
+		}
+	}
+
+}
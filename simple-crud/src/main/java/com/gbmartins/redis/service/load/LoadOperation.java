@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.load;
+
+import java.util.Locale;
+
+/**
+ * The operations of a load run, one {@link com.gbmartins.redis.service.UserService}
+ * call each.
+ */
+public enum LoadOperation {
+
+	/** Reads a user, see UserService#getUserByEmail. */
+	READ,
+
+	/** Writes a user, see UserService#saveOrUpdateUser. */
+	WRITE,
+
+	/** Updates a user if it exists, see UserService#updateUser. */
+	UPDATE,
+
+	/** Deletes a user, see UserService#deleteUser. */
+	DELETE;
+
+	/**
+	 * Gets the operation of the name, in any case.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the operation
+	 */
+	public static LoadOperation of(String name) {
+		try {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown operation " + name + ", expected read, write, update or delete",
+					e);
+		}
+	}
+
+}
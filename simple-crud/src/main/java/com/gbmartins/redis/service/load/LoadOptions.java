@@ -0,0 +1,333 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.load;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The Class LoadOptions.
+ * <p>
+ * The settings of a load run, parsed from <code>key=value</code> arguments,
+ * for instance
+ * <code>threads=8 seconds=60 mix=read:90,write:10 distribution=zipfian rate=20000 csv=load.csv</code>.
+ * Every key is optional:
+ * <ul>
+ * <li><code>threads</code>: the client threads, 4</li>
+ * <li><code>seconds</code>: the duration of the run, 30</li>
+ * <li><code>keys</code>: the number of distinct users, 100000</li>
+ * <li><code>mix</code>: the relative weights of the operations,
+ * <code>read:80,write:10,update:5,delete:5</code></li>
+ * <li><code>distribution</code>: <code>uniform</code>, <code>zipfian</code>
+ * or <code>hotspot</code>, <code>zipfian</code></li>
+ * <li><code>theta</code>: the skew of the zipfian distribution, 0.99</li>
+ * <li><code>hotkeys</code> and <code>hotops</code>: the fraction of the keys
+ * that are hot and the fraction of the operations they get in the hotspot
+ * distribution, 0.2 and 0.8</li>
+ * <li><code>rate</code>: the target operations per second of all the
+ * threads, 0 for as fast as possible</li>
+ * <li><code>valuesize</code>: the length of the firstname written, 32</li>
+ * <li><code>interval</code>: the seconds between two reports, 1</li>
+ * <li><code>csv</code>: the file the reports are also written to, none</li>
+ * <li><code>preload</code>: whether the users are written before the run,
+ * true</li>
+ * </ul>
+ */
+public final class LoadOptions {
+
+	/** The threads. */
+	private int threads = 4;
+
+	/** The seconds. */
+	private int seconds = 30;
+
+	/** The keys. */
+	private int keys = 100000;
+
+	/** The weights of the operations. */
+	private final Map<LoadOperation, Integer> mix = new EnumMap<>(LoadOperation.class);
+
+	/** The distribution. */
+	private String distribution = "zipfian";
+
+	/** The zipf theta. */
+	private double zipfTheta = 0.99;
+
+	/** The fraction of the keys that are hot. */
+	private double hotKeys = 0.2;
+
+	/** The fraction of the operations going to the hot keys. */
+	private double hotOps = 0.8;
+
+	/** The target rate, 0 for a closed loop. */
+	private long rate;
+
+	/** The value size. */
+	private int valueSize = 32;
+
+	/** The interval seconds. */
+	private int intervalSeconds = 1;
+
+	/** The csv file. */
+	private String csv;
+
+	/** The preload. */
+	private boolean preload = true;
+
+	/**
+	 * Instantiates new default load options.
+	 */
+	public LoadOptions() {
+		super();
+		mix.put(LoadOperation.READ, 80);
+		mix.put(LoadOperation.WRITE, 10);
+		mix.put(LoadOperation.UPDATE, 5);
+		mix.put(LoadOperation.DELETE, 5);
+	}
+
+	/**
+	 * Parses the <code>key=value</code> arguments over the defaults.
+	 *
+	 * @param args
+	 *            the arguments
+	 * @return the load options
+	 * @throws IllegalArgumentException
+	 *             if an argument is unknown or its value is invalid
+	 */
+	public static LoadOptions parse(String... args) {
+		LoadOptions options = new LoadOptions();
+		for (String arg : args) {
+			if (arg == null || arg.trim().isEmpty()) {
+				continue;
+			}
+
+			int equals = arg.indexOf('=');
+			if (equals <= 0) {
+				throw new IllegalArgumentException("Expected key=value, got " + arg);
+			}
+
+			String key = arg.substring(0, equals).trim().toLowerCase(Locale.ROOT);
+			String value = arg.substring(equals + 1).trim();
+			try {
+				options.set(key, value);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid number for " + key + ": " + value, e);
+			}
+		}
+		options.validate();
+		return options;
+	}
+
+	/**
+	 * Sets the option of the key.
+	 *
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 */
+	private void set(String key, String value) {
+		switch (key) {
+		case "threads":
+			threads = Integer.parseInt(value);
+			break;
+		case "seconds":
+			seconds = Integer.parseInt(value);
+			break;
+		case "keys":
+			keys = Integer.parseInt(value);
+			break;
+		case "mix":
+			mix.clear();
+			for (String weight : value.split(",")) {
+				String[] split = weight.split(":");
+				if (split.length != 2) {
+					throw new IllegalArgumentException("Expected operation:weight in mix, got " + weight);
+				}
+				mix.put(LoadOperation.of(split[0]), Integer.parseInt(split[1].trim()));
+			}
+			break;
+		case "distribution":
+			distribution = value.toLowerCase(Locale.ROOT);
+			break;
+		case "theta":
+			zipfTheta = Double.parseDouble(value);
+			break;
+		case "hotkeys":
+			hotKeys = Double.parseDouble(value);
+			break;
+		case "hotops":
+			hotOps = Double.parseDouble(value);
+			break;
+		case "rate":
+			rate = Long.parseLong(value);
+			break;
+		case "valuesize":
+			valueSize = Integer.parseInt(value);
+			break;
+		case "interval":
+			intervalSeconds = Integer.parseInt(value);
+			break;
+		case "csv":
+			csv = value.isEmpty() ? null : value;
+			break;
+		case "preload":
+			preload = Boolean.parseBoolean(value);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown load option " + key);
+		}
+	}
+
+	/**
+	 * Validates the options, the distribution included.
+	 */
+	private void validate() {
+		if (threads <= 0 || seconds <= 0 || keys <= 0 || intervalSeconds <= 0) {
+			throw new IllegalArgumentException("threads, seconds, keys and interval must be positive");
+		}
+		if (rate < 0 || valueSize <= 0) {
+			throw new IllegalArgumentException("rate must not be negative and valuesize must be positive");
+		}
+		int total = 0;
+		for (int weight : mix.values()) {
+			if (weight < 0) {
+				throw new IllegalArgumentException("mix weights must not be negative");
+			}
+			total += weight;
+		}
+		if (total == 0) {
+			throw new IllegalArgumentException("mix must have a positive weight");
+		}
+		newDistribution();
+	}
+
+	/**
+	 * Creates the key distribution of the options.
+	 *
+	 * @return the key distribution
+	 */
+	public KeyDistribution newDistribution() {
+		return KeyDistribution.of(distribution, keys, zipfTheta, hotKeys, hotOps);
+	}
+
+	/**
+	 * Gets the threads.
+	 *
+	 * @return the threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Gets the seconds.
+	 *
+	 * @return the seconds
+	 */
+	public int getSeconds() {
+		return seconds;
+	}
+
+	/**
+	 * Gets the keys.
+	 *
+	 * @return the keys
+	 */
+	public int getKeys() {
+		return keys;
+	}
+
+	/**
+	 * Gets the weights of the operations, the ones absent weigh 0.
+	 *
+	 * @return the mix
+	 */
+	public Map<LoadOperation, Integer> getMix() {
+		return mix;
+	}
+
+	/**
+	 * Gets the distribution.
+	 *
+	 * @return the distribution
+	 */
+	public String getDistribution() {
+		return distribution;
+	}
+
+	/**
+	 * Gets the target operations per second, 0 for a closed loop.
+	 *
+	 * @return the rate
+	 */
+	public long getRate() {
+		return rate;
+	}
+
+	/**
+	 * Gets the value size.
+	 *
+	 * @return the value size
+	 */
+	public int getValueSize() {
+		return valueSize;
+	}
+
+	/**
+	 * Gets the interval seconds.
+	 *
+	 * @return the interval seconds
+	 */
+	public int getIntervalSeconds() {
+		return intervalSeconds;
+	}
+
+	/**
+	 * Gets the csv file, null if none.
+	 *
+	 * @return the csv
+	 */
+	public String getCsv() {
+		return csv;
+	}
+
+	/**
+	 * Checks if the users are written before the run.
+	 *
+	 * @return true, if preload
+	 */
+	public boolean isPreload() {
+		return preload;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format(
+				"Load [threads=%d, seconds=%d, keys=%d, mix=%s, distribution=%s, rate=%s, valuesize=%d, interval=%ds, csv=%s]",
+				threads, seconds, keys, mix, distribution, rate == 0 ? "unbounded" : rate + "/s", valueSize,
+				intervalSeconds, csv);
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.load;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The Class LoadSummary.
+ * <p>
+ * The outcome of a load run: per operation, the latency histogram of the
+ * whole run, in microseconds, and the errors.
+ */
+public final class LoadSummary {
+
+	/** The latencies of each operation. */
+	private final Map<LoadOperation, Histogram> latencies;
+
+	/** The errors of each operation. */
+	private final Map<LoadOperation, Long> errors;
+
+	/** The elapsed time in milliseconds. */
+	private final long elapsedMillis;
+
+	/**
+	 * Instantiates a new load summary.
+	 *
+	 * @param latencies
+	 *            the latencies of each operation run
+	 * @param errors
+	 *            the errors of each operation run
+	 * @param elapsedMillis
+	 *            the elapsed millis
+	 */
+	public LoadSummary(Map<LoadOperation, Histogram> latencies, Map<LoadOperation, Long> errors,
+			long elapsedMillis) {
+		super();
+		this.latencies = Collections.unmodifiableMap(latencies);
+		this.errors = Collections.unmodifiableMap(errors);
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Gets the operations run, failed ones included.
+	 *
+	 * @return the operations
+	 */
+	public long getOperations() {
+		long operations = 0;
+		for (Histogram histogram : latencies.values()) {
+			operations += histogram.getTotalCount();
+		}
+		return operations;
+	}
+
+	/**
+	 * Gets the operations of the kind run, failed ones included.
+	 *
+	 * @param operation
+	 *            the operation
+	 * @return the count
+	 */
+	public long getCount(LoadOperation operation) {
+		Histogram histogram = latencies.get(operation);
+		return histogram == null ? 0 : histogram.getTotalCount();
+	}
+
+	/**
+	 * Gets the failed operations.
+	 *
+	 * @return the errors
+	 */
+	public long getErrors() {
+		long total = 0;
+		for (long count : errors.values()) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the failed operations of the kind.
+	 *
+	 * @param operation
+	 *            the operation
+	 * @return the errors
+	 */
+	public long getErrors(LoadOperation operation) {
+		Long count = errors.get(operation);
+		return count == null ? 0 : count;
+	}
+
+	/**
+	 * Gets the latency percentile of the operation in microseconds, 0 if it
+	 * did not run.
+	 *
+	 * @param operation
+	 *            the operation
+	 * @param percentile
+	 *            the percentile, 99.9 for instance
+	 * @return the micros
+	 */
+	public long getPercentileMicros(LoadOperation operation, double percentile) {
+		Histogram histogram = latencies.get(operation);
+		return histogram == null ? 0 : histogram.getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * Gets the elapsed time in milliseconds.
+	 *
+	 * @return the elapsed millis
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * Gets the operations run per second.
+	 *
+	 * @return the throughput
+	 */
+	public double getThroughput() {
+		return elapsedMillis == 0 ? getOperations() : getOperations() * 1000.0 / elapsedMillis;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder(String.format(Locale.ROOT,
+				"Load [operations=%d, errors=%d, elapsed=%dms, %.0f ops/s]", getOperations(), getErrors(),
+				elapsedMillis, getThroughput()));
+		for (Map.Entry<LoadOperation, Histogram> entry : latencies.entrySet()) {
+			Histogram histogram = entry.getValue();
+			builder.append(String.format(Locale.ROOT,
+					"%n  %-6s count=%d errors=%d p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus", entry.getKey(),
+					histogram.getTotalCount(), getErrors(entry.getKey()), histogram.getValueAtPercentile(50),
+					histogram.getValueAtPercentile(90), histogram.getValueAtPercentile(99),
+					histogram.getValueAtPercentile(99.9), histogram.getMaxValue()));
+		}
+		return builder.toString();
+	}
+
+}
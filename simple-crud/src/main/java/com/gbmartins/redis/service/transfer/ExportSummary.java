@@ -0,0 +1,109 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.transfer;
+
+/**
+ * The Class ExportSummary.
+ * <p>
+ * The outcome of an export: the users and bytes written and the time taken.
+ */
+public final class ExportSummary {
+
+	/** The users written. */
+	private final long records;
+
+	/** The bytes written. */
+	private final long bytes;
+
+	/** The elapsed time in milliseconds. */
+	private final long elapsedMillis;
+
+	/**
+	 * Instantiates a new export summary.
+	 *
+	 * @param records
+	 *            the users written
+	 * @param bytes
+	 *            the bytes written
+	 * @param elapsedMillis
+	 *            the elapsed millis
+	 */
+	public ExportSummary(long records, long bytes, long elapsedMillis) {
+		super();
+		this.records = records;
+		this.bytes = bytes;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Gets the users written.
+	 *
+	 * @return the records
+	 */
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Gets the bytes written.
+	 *
+	 * @return the bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Gets the elapsed time in milliseconds.
+	 *
+	 * @return the elapsed millis
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * Gets the users written per second.
+	 *
+	 * @return the records per second
+	 */
+	public double getRecordsPerSecond() {
+		return elapsedMillis == 0 ? records : records * 1000.0 / elapsedMillis;
+	}
+
+	/**
+	 * Gets the bytes written per second.
+	 *
+	 * @return the bytes per second
+	 */
+	public double getBytesPerSecond() {
+		return elapsedMillis == 0 ? bytes : bytes * 1000.0 / elapsedMillis;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("Export [records=%d, bytes=%d, elapsed=%dms, %.0f users/s, %.0f bytes/s]", records,
+				bytes, elapsedMillis, getRecordsPerSecond(), getBytesPerSecond());
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.transfer;
+
+/**
+ * The Class ImportSummary.
+ * <p>
+ * The outcome of a bulk import: every line read ends up either imported,
+ * rejected by the parser or lost by a failed write.
+ */
+public final class ImportSummary {
+
+	/** The records read, valid or not. */
+	private final long read;
+
+	/** The users written. */
+	private final long imported;
+
+	/** The malformed records. */
+	private final long rejected;
+
+	/** The users whose write failed. */
+	private final long failed;
+
+	/** The elapsed time in milliseconds. */
+	private final long elapsedMillis;
+
+	/**
+	 * Instantiates a new import summary.
+	 *
+	 * @param read
+	 *            the records read
+	 * @param imported
+	 *            the users written
+	 * @param rejected
+	 *            the malformed records
+	 * @param failed
+	 *            the users whose write failed
+	 * @param elapsedMillis
+	 *            the elapsed millis
+	 */
+	public ImportSummary(long read, long imported, long rejected, long failed, long elapsedMillis) {
+		super();
+		this.read = read;
+		this.imported = imported;
+		this.rejected = rejected;
+		this.failed = failed;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * Gets the records read, valid or not.
+	 *
+	 * @return the read
+	 */
+	public long getRead() {
+		return read;
+	}
+
+	/**
+	 * Gets the users written.
+	 *
+	 * @return the imported
+	 */
+	public long getImported() {
+		return imported;
+	}
+
+	/**
+	 * Gets the malformed records.
+	 *
+	 * @return the rejected
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * Gets the users whose write failed.
+	 *
+	 * @return the failed
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * Gets the elapsed time in milliseconds.
+	 *
+	 * @return the elapsed millis
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * Gets the users written per second.
+	 *
+	 * @return the throughput
+	 */
+	public double getThroughput() {
+		return elapsedMillis == 0 ? imported : imported * 1000.0 / elapsedMillis;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("Import [read=%d, imported=%d, rejected=%d, failed=%d, elapsed=%dms, %.0f users/s]",
+				read, imported, rejected, failed, elapsedMillis, getThroughput());
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.transfer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.service.UserService;
+
+/**
+ * The Class UserExporter.
+ * <p>
+ * Dumps every user to a file, a logical backup that {@link UserImporter}
+ * loads back. Users are read with {@link UserService#streamUsers(int)}, one
+ * SCAN page and its batched value fetch at a time, and written through a
+ * reused buffer, so memory stays flat whatever the keyspace size. The dump
+ * is not a snapshot: users written during the export may or may not be in
+ * it.
+ */
+@Service
+public class UserExporter {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(UserExporter.class);
+
+	/** The service. */
+	private final UserService service;
+
+	/** The keys visited per SCAN call. */
+	private final int scanCount;
+
+	/** The metrics of exportUsers. */
+	private final OperationMetrics exportMetrics;
+
+	/**
+	 * Instantiates a new user exporter.
+	 *
+	 * @param service
+	 *            the service
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 * @param metrics
+	 *            the metrics
+	 */
+	@Autowired
+	public UserExporter(UserService service, RedisInstanceSetup redisInstanceSetup, RedisMetrics metrics) {
+		super();
+		this.service = service;
+		this.scanCount = Math.max(1, redisInstanceSetup.getExportScanCount());
+		this.exportMetrics = metrics.get("user.exportUsers");
+	}
+
+	/**
+	 * Exports the users to the file, in the format of its extension.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the summary
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @see UserFileFormat#of(Path)
+	 */
+	public ExportSummary exportUsers(Path file) throws IOException {
+		return exportUsers(file, UserFileFormat.of(file));
+	}
+
+	/**
+	 * Exports the users to the file, replacing it if it exists.
+	 *
+	 * @param file
+	 *            the file
+	 * @param format
+	 *            the format
+	 * @return the summary
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public ExportSummary exportUsers(Path file, UserFileFormat format) throws IOException {
+		long start = exportMetrics.start();
+		long begin = System.nanoTime();
+		UserFileWriter writer = new UserFileWriter(file, format);
+		try (Stream<User> users = service.streamUsers(scanCount)) {
+			try {
+				Iterator<User> it = users.iterator();
+				while (it.hasNext()) {
+					writer.write(it.next());
+				}
+			} finally {
+				writer.close();
+			}
+			exportMetrics.bytes(writer.getBytes());
+		} catch (IOException ex) {
+			exportMetrics.error();
+			LOG.error("I/O Error when trying to export users", ex);
+			throw ex;
+		} catch (RuntimeException ex) {
+			exportMetrics.error();
+			LOG.error("Error when trying to export users", ex);
+			throw ex;
+		} finally {
+			exportMetrics.stop(start);
+		}
+
+		ExportSummary summary = new ExportSummary(writer.getRecords(), writer.getBytes(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+		LOG.info(file + ": " + summary);
+		return summary;
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.transfer;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+import com.gbmartins.redis.service.UserBinaryCodec;
+
+/**
+ * The Enum UserFileFormat.
+ * <p>
+ * The file formats of the user import and export.
+ */
+public enum UserFileFormat {
+
+	/**
+	 * Comma separated <code>email,firstname,lastname</code>, with an optional
+	 * header naming the columns in any order and RFC 4180 quoting.
+	 */
+	CSV,
+
+	/** One JSON object per line, the bean properties of the user. */
+	NDJSON,
+
+	/**
+	 * The {@link #MAGIC} bytes, then each user as a 4 bytes big endian length
+	 * followed by its {@link UserBinaryCodec} encoding.
+	 */
+	BINARY;
+
+	/** The first bytes of a binary file. */
+	public static final byte[] MAGIC = { 'U', 'S', 'R', 1 };
+
+	/**
+	 * Gets the format from the file extension: <code>.csv</code>,
+	 * <code>.ndjson</code>, <code>.jsonl</code> and <code>.json</code>, or
+	 * <code>.bin</code>.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the user file format
+	 */
+	public static UserFileFormat of(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		if (name.endsWith(".csv")) {
+			return CSV;
+		}
+		if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+			return NDJSON;
+		}
+		if (name.endsWith(".bin")) {
+			return BINARY;
+		}
+		throw new IllegalArgumentException("Unknown format of " + file + ", expected .csv, .ndjson or .bin");
+	}
+
+}
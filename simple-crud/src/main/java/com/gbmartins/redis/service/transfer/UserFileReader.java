@@ -0,0 +1,353 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.transfer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.service.UserBinaryCodec;
+
+/**
+ * The Class UserFileReader.
+ * <p>
+ * Reads users one record at a time, a line or a binary frame, from a file
+ * channel through a large buffer, so a file of any size is parsed in
+ * constant memory. A malformed record fails alone: {@link #read()} throws
+ * and the next call goes on with the following record. Text files are read
+ * as UTF-8, a leading byte order mark is skipped and invalid bytes become
+ * U+FFFD, so a bad byte only spoils its own record.
+ */
+public class UserFileReader implements Closeable {
+
+	/** The read buffer size, in chars. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The max length of a record, in bytes, or in chars for CSV. */
+	private static final int MAX_RECORD = 1 << 20;
+
+	/** The Constant JSON. */
+	private static final ObjectReader JSON = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false).readerFor(User.class);
+
+	/** The default CSV columns, when the file has no header. */
+	private static final String[] DEFAULT_COLUMNS = { "email", "firstname", "lastname" };
+
+	/** The UTF-8 byte order mark, as decoded. */
+	private static final char BOM = '\uFEFF';
+
+	/** The format. */
+	private final UserFileFormat format;
+
+	/** The reader of the text formats. */
+	private final BufferedReader reader;
+
+	/** The input of the binary format. */
+	private final DataInputStream input;
+
+	/** The binary codec. */
+	private final UserBinaryCodec codec = new UserBinaryCodec();
+
+	/** The CSV columns. */
+	private String[] columns = DEFAULT_COLUMNS;
+
+	/** The line, or record, number. */
+	private long lineNumber;
+
+	/** Whether a non-blank line was read, the CSV header is the first one. */
+	private boolean started;
+
+	/**
+	 * Instantiates a new user file reader.
+	 *
+	 * @param file
+	 *            the file
+	 * @param format
+	 *            the format
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public UserFileReader(Path file, UserFileFormat format) throws IOException {
+		super();
+		this.format = format;
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		if (format == UserFileFormat.BINARY) {
+			this.reader = null;
+			this.input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+			byte[] magic = new byte[UserFileFormat.MAGIC.length];
+			try {
+				input.readFully(magic);
+			} catch (EOFException ex) {
+				magic = new byte[0];
+			}
+			if (!Arrays.equals(magic, UserFileFormat.MAGIC)) {
+				input.close();
+				throw new IOException(file + " is not a binary user file");
+			}
+		} else {
+			this.input = null;
+			CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+			this.reader = new BufferedReader(Channels.newReader(channel, decoder, BUFFER_SIZE), BUFFER_SIZE);
+		}
+	}
+
+	/**
+	 * Reads the next user, skipping blank lines and the CSV header, which
+	 * may follow blank lines.
+	 *
+	 * @return the user, null at the end of the file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @throws IllegalArgumentException
+	 *             if the line is malformed, the next call reads the
+	 *             following line
+	 */
+	public User read() throws IOException {
+		if (input != null) {
+			return readBinary();
+		}
+
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == BOM) {
+				line = line.substring(1);
+			}
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			boolean first = !started;
+			started = true;
+			if (format == UserFileFormat.NDJSON) {
+				return validate(parseJson(line));
+			}
+			List<String> fields = splitCsv(line);
+			if (first && isHeader(fields)) {
+				columns = fields.stream().map(f -> f.trim().toLowerCase(Locale.ROOT)).toArray(String[]::new);
+				continue;
+			}
+			return validate(toUser(fields));
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the number of the last line, or binary record, read.
+	 *
+	 * @return the line number
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (input != null) {
+			input.close();
+		} else {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads a binary record. A broken frame length fails the whole read, the
+	 * following records cannot be found anymore.
+	 *
+	 * @return the user, null at the end of the file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private User readBinary() throws IOException {
+		int length;
+		try {
+			length = input.readInt();
+		} catch (EOFException ex) {
+			return null;
+		}
+		lineNumber++;
+		if (length < 0 || length > MAX_RECORD) {
+			throw new IOException("Record " + lineNumber + " has an invalid length " + length);
+		}
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		try {
+			return validate(codec.decode(bytes));
+		} catch (ClassNotFoundException ex) {
+			throw new IllegalArgumentException("Record " + lineNumber + " is not a user", ex);
+		}
+	}
+
+	/**
+	 * Parses a JSON line.
+	 *
+	 * @param line
+	 *            the line
+	 * @return the user
+	 */
+	private User parseJson(String line) {
+		try {
+			return JSON.readValue(line);
+		} catch (IOException ex) {
+			throw new IllegalArgumentException("Line " + lineNumber + " is not a JSON user: " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Maps the CSV fields to a user, by column.
+	 *
+	 * @param fields
+	 *            the fields
+	 * @return the user
+	 */
+	private User toUser(List<String> fields) {
+		if (fields.size() != columns.length) {
+			throw new IllegalArgumentException(
+					"Line " + lineNumber + " has " + fields.size() + " fields, expected " + columns.length);
+		}
+		User user = new User();
+		for (int i = 0; i < columns.length; i++) {
+			switch (columns[i]) {
+			case "email":
+				user.setEmail(fields.get(i).trim());
+				break;
+			case "firstname":
+				user.setFirstname(fields.get(i));
+				break;
+			case "lastname":
+				user.setLastname(fields.get(i));
+				break;
+			default:
+				break;
+			}
+		}
+		return user;
+	}
+
+	/**
+	 * Checks the user has an email, the key it is stored under.
+	 *
+	 * @param user
+	 *            the user
+	 * @return the user
+	 */
+	private User validate(User user) {
+		if (user == null || user.getEmail() == null || user.getEmail().indexOf('@') < 0) {
+			throw new IllegalArgumentException("Record " + lineNumber + " has no valid email");
+		}
+		return user;
+	}
+
+	/**
+	 * Checks if the first non-blank line names the columns.
+	 *
+	 * @param fields
+	 *            the fields
+	 * @return true, if it has an email column
+	 */
+	private static boolean isHeader(List<String> fields) {
+		for (String field : fields) {
+			if ("email".equalsIgnoreCase(field.trim())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Splits a CSV record. Quoted fields may hold commas, doubled quotes and
+	 * line breaks: the record then goes on with the next lines, and each
+	 * break is read back as <code>\n</code>. A quote still open after
+	 * {@link #MAX_RECORD} chars fails the record.
+	 *
+	 * @param line
+	 *            the first line of the record
+	 * @return the fields
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private List<String> splitCsv(String line) throws IOException {
+		List<String> fields = new ArrayList<>(DEFAULT_COLUMNS.length);
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		long first = lineNumber;
+		int length = line.length();
+		int i = 0;
+		while (true) {
+			if (i == line.length()) {
+				String next = quoted && length < MAX_RECORD ? reader.readLine() : null;
+				if (next == null) {
+					break;
+				}
+				lineNumber++;
+				length += next.length();
+				field.append('\n');
+				line = next;
+				i = 0;
+				continue;
+			}
+			char c = line.charAt(i++);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				} else if (i < line.length() && line.charAt(i) == '"') {
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Line " + first + " has an unterminated quote");
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+}
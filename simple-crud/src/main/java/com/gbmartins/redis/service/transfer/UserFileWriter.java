@@ -0,0 +1,216 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.transfer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.service.UserBinaryCodec;
+
+/**
+ * The Class UserFileWriter.
+ * <p>
+ * Writes users to a file channel through one reused buffer, so the memory
+ * used does not depend on the number of users. The files are read back by
+ * {@link UserFileReader}.
+ */
+public class UserFileWriter implements Closeable {
+
+	/** The write buffer size, in bytes. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The Constant JSON. */
+	private static final ObjectWriter JSON = new ObjectMapper().writerFor(User.class);
+
+	/** The CSV header. */
+	private static final byte[] CSV_HEADER = "email,firstname,lastname\n".getBytes(StandardCharsets.UTF_8);
+
+	/** The format. */
+	private final UserFileFormat format;
+
+	/** The channel. */
+	private final FileChannel channel;
+
+	/** The buffer. */
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/** The binary codec. */
+	private final UserBinaryCodec codec = new UserBinaryCodec();
+
+	/** The users written. */
+	private long records;
+
+	/** The bytes written. */
+	private long bytes;
+
+	/**
+	 * Instantiates a new user file writer, replacing the file if it exists.
+	 *
+	 * @param file
+	 *            the file
+	 * @param format
+	 *            the format
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public UserFileWriter(Path file, UserFileFormat format) throws IOException {
+		super();
+		this.format = format;
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+		if (format == UserFileFormat.BINARY) {
+			put(UserFileFormat.MAGIC);
+		} else if (format == UserFileFormat.CSV) {
+			put(CSV_HEADER);
+		}
+	}
+
+	/**
+	 * Writes the user.
+	 *
+	 * @param user
+	 *            the user
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void write(User user) throws IOException {
+		switch (format) {
+		case BINARY:
+			byte[] encoded = codec.encode(user);
+			if (buffer.remaining() < Integer.BYTES) {
+				flush();
+			}
+			buffer.putInt(encoded.length);
+			bytes += Integer.BYTES;
+			put(encoded);
+			break;
+		case NDJSON:
+			put(JSON.writeValueAsBytes(user));
+			put(new byte[] { '\n' });
+			break;
+		default:
+			put((csv(user.getEmail()) + ',' + csv(user.getFirstname()) + ',' + csv(user.getLastname()) + '\n')
+					.getBytes(StandardCharsets.UTF_8));
+			break;
+		}
+		records++;
+	}
+
+	/**
+	 * Gets the users written.
+	 *
+	 * @return the records
+	 */
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Gets the bytes written, headers included.
+	 *
+	 * @return the bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Flushes the buffer, forces the file to the disk and closes it.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+			channel.force(false);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Appends the bytes to the buffer, writing it out when full. Chunks
+	 * larger than the buffer go straight to the channel.
+	 *
+	 * @param chunk
+	 *            the chunk
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void put(byte[] chunk) throws IOException {
+		bytes += chunk.length;
+		if (chunk.length > buffer.remaining()) {
+			flush();
+			if (chunk.length > buffer.capacity()) {
+				ByteBuffer direct = ByteBuffer.wrap(chunk);
+				while (direct.hasRemaining()) {
+					channel.write(direct);
+				}
+				return;
+			}
+		}
+		buffer.put(chunk);
+	}
+
+	/**
+	 * Writes out the buffer.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Quotes a CSV field when it holds a comma, a quote or a line break,
+	 * which {@link UserFileReader} reads back as <code>\n</code>. A null
+	 * field is written empty.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the field
+	 */
+	private static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+				&& value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
+
+}
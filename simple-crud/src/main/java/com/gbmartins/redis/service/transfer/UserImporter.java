@@ -0,0 +1,257 @@
+/*
+ * The MIT License (MIT)
+ * Copyright © 2015-2016 Gerson B. Martins (gbmartins.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this software 
+ * and associated documentation files (the “Software”), to deal in the Software without 
+ * restriction, including without limitation the rights to use, copy, modify, merge, publish, 
+ * distribute, sublicense, and/or sell copies of the Software, and to permit persons to whom the 
+ * Software is furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all copies or 
+ * substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED “AS IS”, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING 
+ * BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND 
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING 
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.gbmartins.redis.service.transfer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.BulkWriteException;
+import com.gbmartins.redis.dao.BulkWriteException.ChunkFailure;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.service.UserService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The Class UserImporter.
+ * <p>
+ * Bulk loads users from a CSV, NDJSON or binary file. The calling thread
+ * parses the file and hands batches of <code>importBatchSize</code> users to
+ * writer threads, which store them with the chunked, pipelined indexed bulk
+ * write. At most <code>importInFlight</code> batches are parsed ahead of the
+ * writes; beyond that the parser waits, so memory stays bounded whatever the
+ * file size.
+ */
+@Service
+public class UserImporter {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = LogManager.getLogger(UserImporter.class);
+
+	/** The malformed records logged per import, the others are only counted. */
+	private static final int LOGGED_REJECTS = 10;
+
+	/** The service. */
+	private final UserService service;
+
+	/** The batch size. */
+	private final int batchSize;
+
+	/** The batches in flight. */
+	private final int inFlight;
+
+	/** The writer executor. */
+	private final ThreadPoolExecutor writers;
+
+	/** The metrics of importUsers. */
+	private final OperationMetrics importMetrics;
+
+	/**
+	 * Instantiates a new user importer.
+	 *
+	 * @param service
+	 *            the service
+	 * @param redisInstanceSetup
+	 *            the redis instance setup
+	 * @param metrics
+	 *            the metrics
+	 */
+	@Autowired
+	public UserImporter(UserService service, RedisInstanceSetup redisInstanceSetup, RedisMetrics metrics) {
+		super();
+		this.service = service;
+		this.batchSize = Math.max(1, redisInstanceSetup.getImportBatchSize());
+		this.inFlight = Math.max(1, redisInstanceSetup.getImportInFlight());
+		this.importMetrics = metrics.get("user.importUsers");
+		this.writers = new ThreadPoolExecutor(inFlight, inFlight, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				new ThreadFactoryBuilder().setNameFormat("user-import-%d").setDaemon(true).build());
+		this.writers.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Destroy.
+	 */
+	@PreDestroy
+	public void destroy() {
+		writers.shutdown();
+	}
+
+	/**
+	 * Imports the users of the file, in the format of its extension.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the summary
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 * @see UserFileFormat#of(Path)
+	 */
+	public ImportSummary importUsers(Path file) throws IOException {
+		return importUsers(file, UserFileFormat.of(file));
+	}
+
+	/**
+	 * Imports the users of the file. Malformed records are counted and
+	 * skipped; a failed write only loses the users of its chunks. Users are
+	 * saved like {@link UserService#saveOrUpdateUser(User)} does, replacing
+	 * existing ones.
+	 *
+	 * @param file
+	 *            the file
+	 * @param format
+	 *            the format
+	 * @return the summary
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred while reading
+	 */
+	public ImportSummary importUsers(Path file, UserFileFormat format) throws IOException {
+		long start = importMetrics.start();
+		long begin = System.nanoTime();
+		Semaphore permits = new Semaphore(inFlight);
+		LongAdder imported = new LongAdder();
+		LongAdder failed = new LongAdder();
+		long read = 0;
+		long rejected = 0;
+
+		try (UserFileReader reader = new UserFileReader(file, format)) {
+			List<User> batch = new ArrayList<>(batchSize);
+			while (true) {
+				User user;
+				try {
+					user = reader.read();
+				} catch (IllegalArgumentException ex) {
+					read++;
+					rejected++;
+					if (rejected <= LOGGED_REJECTS) {
+						LOG.warn("Skipping record of {}: {}", file, ex.getMessage());
+					} else if (rejected == LOGGED_REJECTS + 1) {
+						LOG.warn("More malformed records in {}, counted in the summary only", file);
+					}
+					continue;
+				}
+				if (user == null) {
+					break;
+				}
+				read++;
+				batch.add(user);
+				if (batch.size() == batchSize) {
+					submit(batch, permits, imported, failed);
+					batch = new ArrayList<>(batchSize);
+				}
+			}
+			if (!batch.isEmpty()) {
+				submit(batch, permits, imported, failed);
+			}
+			permits.acquire(inFlight);
+			permits.release(inFlight);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			importMetrics.error();
+			throw new IOException("Import of " + file + " interrupted", ex);
+		} catch (IOException ex) {
+			importMetrics.error();
+			LOG.error("I/O Error when trying to import users", ex);
+			throw ex;
+		} finally {
+			importMetrics.stop(start);
+		}
+
+		ImportSummary summary = new ImportSummary(read, imported.sum(), rejected, failed.sum(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+		LOG.info("{}: {}", file, summary);
+		return summary;
+	}
+
+	/**
+	 * Hands the batch to a writer, waiting for a permit first.
+	 *
+	 * @param batch
+	 *            the batch
+	 * @param permits
+	 *            the batches in flight
+	 * @param imported
+	 *            the imported counter
+	 * @param failed
+	 *            the failed counter
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	private void submit(List<User> batch, Semaphore permits, LongAdder imported, LongAdder failed)
+			throws InterruptedException {
+		permits.acquire();
+		try {
+			writers.execute(() -> {
+				try {
+					write(batch, imported, failed);
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RuntimeException ex) {
+			permits.release();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Writes a batch, counting the users of the failed chunks.
+	 *
+	 * @param batch
+	 *            the batch
+	 * @param imported
+	 *            the imported counter
+	 * @param failed
+	 *            the failed counter
+	 */
+	private void write(List<User> batch, LongAdder imported, LongAdder failed) {
+		try {
+			service.saveOrUpdateUsers(batch.toArray(new User[batch.size()]));
+			imported.add(batch.size());
+		} catch (RuntimeException ex) {
+			long lost = batch.size();
+			if (ex.getCause() instanceof BulkWriteException) {
+				lost = 0;
+				for (ChunkFailure failure : ((BulkWriteException) ex.getCause()).getFailures()) {
+					lost += failure.getKeys().size();
+				}
+			}
+			LOG.error("Error when trying to import a batch of users", ex);
+			imported.add(Math.max(0, batch.size() - lost));
+			failed.add(Math.min(lost, batch.size()));
+		}
+	}
+
+}
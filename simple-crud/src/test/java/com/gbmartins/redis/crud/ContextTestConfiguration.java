@@ -65,6 +65,30 @@ public class ContextTestConfiguration {
 			return new PropertySourcesPlaceholderConfigurer();
 		}
 	}
+
+	@Configuration
+	@Profile({"cluster"})
+	@PropertySource(value = "classpath:redis-cluster-config.properties", ignoreResourceNotFound = true)
+	static class ProfileCluster {
+
+		@Value("${redis-cluster-nodes}")
+		private String clusterNodes;
+
+		@Bean(name="redisSetup")
+		public RedisInstanceSetup redisInstanceSetup() {
+			String seed = clusterNodes.split(",")[0].trim();
+			int colon = seed.lastIndexOf(':');
+			RedisInstanceSetup.createInstance(seed.substring(0, colon), Integer.parseInt(seed.substring(colon + 1)), null);
+			RedisInstanceSetup.getInstance().setClusterNodes(clusterNodes);
+			return RedisInstanceSetup.getInstance();
+		}
+
+		//To resolve ${} in @Value
+		@Bean
+		public static PropertySourcesPlaceholderConfigurer propertyConfigInCluster() {
+			return new PropertySourcesPlaceholderConfigurer();
+		}
+	}
 	
 	
 
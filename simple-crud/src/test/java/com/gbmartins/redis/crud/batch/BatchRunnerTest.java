@@ -0,0 +1,56 @@
+package com.gbmartins.redis.crud.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.service.UserService;
+import com.gbmartins.redis.service.batch.BatchRunner;
+import com.gbmartins.redis.service.batch.BatchSummary;
+
+public class BatchRunnerTest extends AbstractTestBase {
+
+	@Autowired
+	private BatchRunner runner;
+
+	@Autowired
+	private UserService service;
+
+	@Test
+	public void testRun() throws Exception {
+		service.deleteUsers("batch1@example.com", "batch2@example.com", "batch3@example.com");
+		String script = String.join("\n", "# users", "C batch1@example.com John Doe", "C batch2@example.com Jane Roe",
+				"C batch1@example.com Again Doe", "", "R batch1@example.com batch3@example.com",
+				"U batch2@example.com Janet Roe", "U batch3@example.com Nobody Here", "X nonsense",
+				"R batch2@example.com", "D batch1@example.com batch3@example.com", "D batch2@example.com", "Q",
+				"C batch3@example.com Not Run");
+
+		StringWriter out = new StringWriter();
+		BatchSummary summary = runner.run(new BufferedReader(new StringReader(script)), out);
+
+		List<String> lines = Arrays.asList(out.toString().split(System.lineSeparator()));
+		assertEquals(11, lines.size());
+		assertEquals(Arrays.asList("OK", "OK", "User with key batch1@example.com already exists"), lines.subList(0, 3));
+		assertTrue(lines.get(3).contains("John"));
+		assertEquals("not found", lines.get(4));
+		assertEquals(Arrays.asList("OK", "User not found"), lines.subList(5, 7));
+		assertTrue(lines.get(7).contains("is not valid"));
+		assertTrue(lines.get(8).contains("Janet"));
+		assertEquals(Arrays.asList("Number of users deleted: 1", "Number of users deleted: 1"), lines.subList(9, 11));
+
+		assertEquals(9, summary.getCommands());
+		assertEquals(1, summary.getInvalid());
+		assertEquals(0, summary.getFailed());
+		assertEquals(6, summary.getOperations());
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.gbmartins.redis.crud.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.gbmartins.redis.dao.cache.EvictionPolicy;
+import com.gbmartins.redis.dao.cache.NearCache;
+
+public class NearCacheTest {
+
+	private static final byte[] VALUE = { 1, 2, 3 };
+
+	@Test
+	public void testHitAndMissCounters() {
+		NearCache cache = new NearCache(10, 0, EvictionPolicy.LRU);
+
+		assertNull(cache.get("key"));
+		cache.put("key", VALUE, cache.stamp("key"));
+
+		assertArrayEquals(VALUE, cache.get("key"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testLruEviction() {
+		NearCache cache = new NearCache(2, 0, EvictionPolicy.LRU);
+		cache.put("a", VALUE, cache.stamp("a"));
+		cache.put("b", VALUE, cache.stamp("b"));
+		cache.get("a");
+		cache.put("c", VALUE, cache.stamp("c"));
+
+		assertNotNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	public void testLfuEviction() {
+		NearCache cache = new NearCache(2, 0, EvictionPolicy.LFU);
+		cache.put("a", VALUE, cache.stamp("a"));
+		cache.put("b", VALUE, cache.stamp("b"));
+		cache.get("a");
+		cache.get("a");
+		cache.get("b");
+		cache.put("c", VALUE, cache.stamp("c"));
+
+		assertNotNull(cache.get("a"));
+		assertNull(cache.get("b"));
+	}
+
+	@Test
+	public void testTtlExpiration() throws InterruptedException {
+		NearCache cache = new NearCache(10, 5, EvictionPolicy.LRU);
+		cache.put("key", VALUE, cache.stamp("key"));
+
+		Thread.sleep(20);
+
+		assertNull(cache.get("key"));
+	}
+
+	@Test
+	public void testInvalidationDropsStaleRead() {
+		NearCache cache = new NearCache(10, 0, EvictionPolicy.LRU);
+		long stamp = cache.stamp("key");
+
+		cache.invalidate("key");
+		cache.put("key", VALUE, stamp);
+
+		assertNull(cache.get("key"));
+	}
+
+}
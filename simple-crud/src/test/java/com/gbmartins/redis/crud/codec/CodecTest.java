@@ -0,0 +1,134 @@
+package com.gbmartins.redis.crud.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.codec.CodecType;
+import com.gbmartins.redis.dao.codec.JavaSerializationCodec;
+import com.gbmartins.redis.dao.codec.ValueCodec;
+import com.gbmartins.redis.dao.codec.ValueCompressor;
+import com.gbmartins.redis.service.UserBinaryCodec;
+import com.google.common.base.Strings;
+
+public class CodecTest {
+
+	private User newUser(String email, String firstname, String lastname) {
+		User user = new User();
+		user.setEmail(email);
+		user.setFirstname(firstname);
+		user.setLastname(lastname);
+		return user;
+	}
+
+	private void assertUser(User expected, User actual) {
+		assertEquals(expected.getEmail(), actual.getEmail());
+		assertEquals(expected.getFirstname(), actual.getFirstname());
+		assertEquals(expected.getLastname(), actual.getLastname());
+	}
+
+	@Test
+	public void testBinaryCodecRoundTrip() throws Exception {
+		UserBinaryCodec codec = new UserBinaryCodec();
+		User user = newUser("john@example.com", "Jöhn", "Døe 😀");
+
+		byte[] bytes = codec.encode(user);
+
+		assertUser(user, codec.decode(bytes));
+		assertTrue(bytes.length < new JavaSerializationCodec<>(User.class).encode(user).length);
+	}
+
+	@Test
+	public void testBinaryCodecNullFields() throws Exception {
+		UserBinaryCodec codec = new UserBinaryCodec();
+		User user = newUser("john@example.com", null, null);
+
+		User decoded = codec.decode(codec.encode(user));
+
+		assertEquals("john@example.com", decoded.getEmail());
+		assertNull(decoded.getFirstname());
+		assertNull(decoded.getLastname());
+	}
+
+	@Test
+	public void testBinaryCodecReadsJavaSerializedUser() throws Exception {
+		User user = newUser("john@example.com", "John", "Doe");
+		byte[] legacy = new JavaSerializationCodec<>(User.class).encode(user);
+
+		assertUser(user, new UserBinaryCodec().decode(legacy));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBinaryCodecRejectsTruncatedValue() throws Exception {
+		UserBinaryCodec codec = new UserBinaryCodec();
+		byte[] bytes = codec.encode(newUser("john@example.com", "John", "Doe"));
+		byte[] truncated = new byte[bytes.length - 2];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+		codec.decode(truncated);
+	}
+
+	@Test
+	public void testJsonCodecRoundTrip() throws Exception {
+		ValueCodec<User> codec = CodecType.JSON.create(User.class);
+		User user = newUser("john@example.com", "John", "Doe");
+
+		assertUser(user, codec.decode(codec.encode(user)));
+	}
+
+	@Test
+	public void testCompressorRoundTrip() throws Exception {
+		ValueCompressor compressor = new ValueCompressor(true, 64);
+		User user = newUser("john@example.com", Strings.repeat("John ", 100), "Doe");
+		byte[] encoded = new JavaSerializationCodec<>(User.class).encode(user);
+
+		byte[] stored = compressor.compress(encoded);
+
+		assertTrue(ValueCompressor.isCompressed(stored));
+		assertTrue(stored.length < encoded.length);
+		assertArrayEquals(encoded, compressor.decompress(stored));
+		assertEquals(1, compressor.getCompressed());
+		assertTrue(compressor.getRatio() > 1);
+	}
+
+	@Test
+	public void testCompressorKeepsSmallAndIncompressibleValues() throws Exception {
+		ValueCompressor compressor = new ValueCompressor(true, 64);
+		byte[] small = "small".getBytes();
+		byte[] random = new byte[1024];
+		new Random(1).nextBytes(random);
+
+		assertArrayEquals(small, compressor.compress(small));
+		assertArrayEquals(random, compressor.compress(random));
+		assertFalse(ValueCompressor.isCompressed(random));
+		assertEquals(1, compressor.getIncompressible());
+	}
+
+	@Test
+	public void testDisabledCompressorReadsCompressedValues() throws Exception {
+		byte[] encoded = Strings.repeat("value", 100).getBytes();
+		byte[] stored = new ValueCompressor(true, 64).compress(encoded);
+		ValueCompressor disabled = new ValueCompressor(false, 64);
+
+		assertArrayEquals(encoded, disabled.compress(encoded));
+		assertArrayEquals(encoded, disabled.decompress(stored));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCompressorRejectsCorruptedValue() throws Exception {
+		ValueCompressor compressor = new ValueCompressor(true, 64);
+		byte[] stored = compressor.compress(Strings.repeat("value", 100).getBytes());
+		stored[stored.length - 1] ^= 0x7F;
+		stored[4] = 0x7F;
+
+		compressor.decompress(stored);
+	}
+
+}
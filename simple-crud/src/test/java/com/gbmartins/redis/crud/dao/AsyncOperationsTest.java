@@ -0,0 +1,116 @@
+package com.gbmartins.redis.crud.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.codec.CodecRegistry;
+import com.gbmartins.redis.dao.memory.InMemoryOperations;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.service.UserService;
+
+public class AsyncOperationsTest extends AbstractTestBase {
+
+	@Autowired
+	private UserService service;
+
+	@Autowired
+	private CodecRegistry codecs;
+
+	@Autowired
+	private RedisMetrics metrics;
+
+	@Autowired
+	@Qualifier("redisSetup")
+	private RedisInstanceSetup setup;
+
+	@Test
+	public void testCompletion() throws Exception {
+		User user = new User();
+		user.setEmail("async1@example.com");
+		user.setFirstname("John");
+		user.setLastname("Async");
+
+		assertEquals("OK", service.saveOrUpdateUserAsync(user).get(5, TimeUnit.SECONDS));
+		assertEquals(user, service.getUserByEmailAsync(user.getEmail()).get(5, TimeUnit.SECONDS));
+		List<User> users = service.getUsersByEmailsAsync(user.getEmail(), "async2@example.com").get(5,
+				TimeUnit.SECONDS);
+		assertEquals(Arrays.asList(user), users);
+		assertEquals(Long.valueOf(1), service.deleteUsersAsync(user.getEmail()).get(5, TimeUnit.SECONDS));
+		assertNull(service.getUserByEmailAsync(user.getEmail()).get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testExceptionalCompletionAndRejection() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		int threads = setup.getAsyncThreads();
+		int queueSize = setup.getAsyncQueueSize();
+		setup.setAsyncThreads(1);
+		setup.setAsyncQueueSize(1);
+		InMemoryOperations operations;
+		try {
+			operations = new InMemoryOperations(codecs, setup, metrics) {
+				@Override
+				public <T extends Serializable> T getObject(String key, Class<T> type) throws Exception {
+					if ("boom".equals(key)) {
+						throw new IOException("boom");
+					}
+					started.countDown();
+					release.await();
+					return super.getObject(key, type);
+				}
+			};
+		} finally {
+			setup.setAsyncThreads(threads);
+			setup.setAsyncQueueSize(queueSize);
+		}
+
+		try {
+			try {
+				operations.getObjectAsync("boom", User.class).get(5, TimeUnit.SECONDS);
+				fail("The failure of the call must complete the future exceptionally");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IOException);
+			}
+
+			CompletableFuture<User> running = operations.getObjectAsync("blocked", User.class);
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			CompletableFuture<User> queued = operations.getObjectAsync("queued", User.class);
+			CompletableFuture<User> rejected = operations.getObjectAsync("rejected", User.class);
+			assertTrue(rejected.isCompletedExceptionally());
+			try {
+				rejected.get();
+				fail("A full queue must reject the call");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof RejectedExecutionException);
+			}
+
+			release.countDown();
+			assertNull(running.get(5, TimeUnit.SECONDS));
+			assertNull(queued.get(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			operations.destroy();
+		}
+	}
+
+}
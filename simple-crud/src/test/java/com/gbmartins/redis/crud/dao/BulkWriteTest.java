@@ -0,0 +1,112 @@
+package com.gbmartins.redis.crud.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.NotSerializableException;
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.dao.BulkWriteException;
+import com.gbmartins.redis.dao.BulkWriteException.ChunkFailure;
+import com.gbmartins.redis.dao.JedisOperations;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.RedisOperations;
+
+/**
+ * The chunking of bulk writes is specific to the standalone backend.
+ */
+public class BulkWriteTest extends AbstractTestBase {
+
+	@Autowired
+	private RedisOperations operations;
+
+	@Autowired
+	@Qualifier("redisSetup")
+	private RedisInstanceSetup setup;
+
+	@Before
+	public void standaloneOnly() {
+		Assume.assumeTrue(operations instanceof JedisOperations);
+	}
+
+	@Test
+	public void testChunks() throws Exception {
+		int chunkSize = setup.getBulkChunkSize();
+		Map<String, Bean> bulk = bulk(2 * chunkSize + chunkSize / 2, -1);
+
+		operations.saveOrUpdateBulkObject(bulk);
+
+		for (String key : bulk.keySet()) {
+			assertEquals(key, operations.getObject(key, Bean.class).name);
+		}
+		operations.deleteKeys(bulk.keySet().toArray(new String[0]));
+	}
+
+	@Test
+	public void testFailedChunk() throws Exception {
+		int chunkSize = setup.getBulkChunkSize();
+		int poisoned = chunkSize + 1;
+		Map<String, Bean> bulk = bulk(2 * chunkSize + chunkSize / 2, poisoned);
+
+		try {
+			operations.saveOrUpdateBulkObject(bulk);
+			fail("A chunk that cannot be written must be reported");
+		} catch (BulkWriteException e) {
+			assertEquals(3, e.getChunks());
+			assertEquals(1, e.getFailures().size());
+			ChunkFailure failure = e.getFailures().get(0);
+			assertEquals(1, failure.getIndex());
+			assertEquals(chunkSize, failure.getKeys().size());
+			assertTrue(failure.getKeys().contains("bulk:" + poisoned));
+			assertTrue(failure.getCause() instanceof NotSerializableException);
+
+			Set<String> failed = new HashSet<>(failure.getKeys());
+			for (String key : bulk.keySet()) {
+				if (failed.contains(key)) {
+					assertNull(operations.getObject(key, Bean.class));
+				} else {
+					assertNotNull(operations.getObject(key, Bean.class));
+				}
+			}
+		} finally {
+			operations.deleteKeys(bulk.keySet().toArray(new String[0]));
+		}
+	}
+
+	private static Map<String, Bean> bulk(int size, int poisoned) {
+		Map<String, Bean> bulk = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			Bean bean = new Bean("bulk:" + i);
+			if (i == poisoned) {
+				bean.payload = new Object();
+			}
+			bulk.put(bean.name, bean);
+		}
+		return bulk;
+	}
+
+	private static class Bean implements Serializable {
+		private static final long serialVersionUID = 3081532093528764150L;
+		private final String name;
+		private Object payload;
+
+		Bean(String name) {
+			this.name = name;
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.gbmartins.redis.crud.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.gbmartins.redis.dao.batch.ReadBatcher;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
+
+public class ReadBatcherTest {
+
+	@Test
+	public void testCoalescesIntoOneMget() throws Exception {
+		FakeJedis jedis = new FakeJedis(Collections.singletonMap("a", "A"), null);
+		jedis.values.put("c", "C");
+		ReadBatcher batcher = new ReadBatcher(() -> jedis, 10, 0);
+		try {
+			// queued before the flusher starts, so they all go in its first batch
+			CompletableFuture<byte[]> a1 = batcher.get("a");
+			CompletableFuture<byte[]> b = batcher.get("b");
+			CompletableFuture<byte[]> a2 = batcher.get("a");
+			CompletableFuture<byte[]> c = batcher.get("c");
+			batcher.start();
+
+			assertEquals("A", string(a1.get(5, TimeUnit.SECONDS)));
+			assertNull(b.get(5, TimeUnit.SECONDS));
+			assertEquals("A", string(a2.get(5, TimeUnit.SECONDS)));
+			assertEquals("C", string(c.get(5, TimeUnit.SECONDS)));
+
+			assertEquals(1, jedis.calls.size());
+			assertEquals(Arrays.asList("a", "b", "c"), jedis.calls.get(0));
+			assertEquals(1, batcher.getBatches());
+			assertEquals(4, batcher.getRequests());
+		} finally {
+			batcher.close();
+		}
+	}
+
+	@Test
+	public void testErrorFailsTheBatch() throws Exception {
+		JedisConnectionException error = new JedisConnectionException("down");
+		ReadBatcher batcher = new ReadBatcher(() -> new FakeJedis(Collections.emptyMap(), error), 10, 0);
+		try {
+			CompletableFuture<byte[]> a = batcher.get("a");
+			CompletableFuture<byte[]> b = batcher.get("b");
+			batcher.start();
+
+			for (CompletableFuture<byte[]> future : Arrays.asList(a, b)) {
+				try {
+					future.get(5, TimeUnit.SECONDS);
+					fail("The failure of the MGET must fail every read of the batch");
+				} catch (ExecutionException e) {
+					assertSame(error, e.getCause());
+				}
+			}
+		} finally {
+			batcher.close();
+		}
+	}
+
+	@Test
+	public void testCloseFailsPendingReads() throws Exception {
+		FakeJedis jedis = new FakeJedis(Collections.singletonMap("a", "A"), null);
+		// the flusher collects for 10s, so the read is pending when closing
+		ReadBatcher batcher = new ReadBatcher(() -> jedis, 100, TimeUnit.SECONDS.toMicros(10));
+		batcher.start();
+		CompletableFuture<byte[]> pending = batcher.get("a");
+		Thread.sleep(100);
+		batcher.close();
+
+		for (CompletableFuture<byte[]> future : Arrays.asList(pending, batcher.get("b"))) {
+			try {
+				future.get(2, TimeUnit.SECONDS);
+				fail("A closed batcher must fail the reads it did not send");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+		}
+		assertTrue(jedis.calls.isEmpty());
+	}
+
+	private static String string(byte[] bytes) {
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static class FakeJedis extends Jedis {
+
+		private final Map<String, String> values;
+
+		private final RuntimeException error;
+
+		private final List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+
+		FakeJedis(Map<String, String> values, RuntimeException error) {
+			this.values = new HashMap<>(values);
+			this.error = error;
+		}
+
+		@Override
+		public List<byte[]> mget(byte[]... keys) {
+			if (error != null) {
+				throw error;
+			}
+			List<String> names = new ArrayList<>();
+			List<byte[]> reply = new ArrayList<>();
+			for (byte[] key : keys) {
+				String name = new String(key, StandardCharsets.UTF_8);
+				names.add(name);
+				String value = values.get(name);
+				reply.add(value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+			}
+			calls.add(names);
+			return reply;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
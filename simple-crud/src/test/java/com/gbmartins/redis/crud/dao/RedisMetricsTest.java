@@ -0,0 +1,112 @@
+package com.gbmartins.redis.crud.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.dao.RedisOperations;
+import com.gbmartins.redis.dao.metrics.OperationMetrics;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.service.UserService;
+
+public class RedisMetricsTest extends AbstractTestBase {
+
+	@Autowired
+	private RedisMetrics metrics;
+
+	@Autowired
+	private RedisOperations operations;
+
+	@Autowired
+	private UserService service;
+
+	@Test
+	public void testCountsErrorsAndLatency() throws Exception {
+		OperationMetrics getList = metrics.get("redis.getListObject");
+		long calls = getList.getCalls();
+		long errors = getList.getErrors();
+
+		operations.getListObject(Arrays.asList("metrics:1", "metrics:2"), User.class);
+		try {
+			operations.getListObject(Collections.emptyList(), User.class);
+			fail("An empty key list is rejected");
+		} catch (RuntimeException e) {
+			// expected
+		}
+
+		assertEquals(calls + 2, getList.getCalls());
+		assertEquals(errors + 1, getList.getErrors());
+		assertTrue(getList.getMaxMicros() > 0);
+		assertTrue(getList.getP50Micros() <= getList.getMaxMicros());
+
+		OperationMetrics getAsync = metrics.get("redis.getObjectAsync");
+		calls = getAsync.getCalls();
+		operations.getObjectAsync("metrics:1", User.class).get(5, TimeUnit.SECONDS);
+		assertEquals(calls + 1, getAsync.getCalls());
+
+		OperationMetrics getUser = metrics.get("user.getUserByEmail");
+		calls = getUser.getCalls();
+		service.getUserByEmail("metrics@example.com");
+		assertEquals(calls + 1, getUser.getCalls());
+
+		OperationMetrics getUserAsync = metrics.get("user.getUserByEmailAsync");
+		calls = getUserAsync.getCalls();
+		service.getUserByEmailAsync("metrics@example.com").get(5, TimeUnit.SECONDS);
+		assertEquals(calls + 1, getUserAsync.getCalls());
+	}
+
+	@Test
+	public void testPrimitivesAreMeasured() throws Exception {
+		OperationMetrics save = metrics.get("redis.saveOrUpdateObject");
+		OperationMetrics get = metrics.get("redis.getObject");
+		OperationMetrics delete = metrics.get("redis.deleteKeys");
+		OperationMetrics getHash = metrics.get("redis.getHash");
+		OperationMetrics indexRange = metrics.get("redis.indexRange");
+		long saves = save.getCalls();
+		long gets = get.getCalls();
+		long deletes = delete.getCalls();
+		long hashReads = getHash.getCalls();
+		long lookups = indexRange.getCalls();
+
+		User user = new User();
+		user.setEmail("measured@example.com");
+		operations.saveOrUpdateObject("metrics:measured", user);
+		operations.getObject("metrics:measured", User.class);
+		operations.getHash("metrics:measuredHash");
+		operations.indexPrefix("idx:test:measured", "a", 0, 10);
+		operations.deleteKeys("metrics:measured");
+
+		assertEquals(saves + 1, save.getCalls());
+		assertEquals(gets + 1, get.getCalls());
+		assertEquals(deletes + 1, delete.getCalls());
+		assertEquals(hashReads + 1, getHash.getCalls());
+		assertEquals(lookups + 1, indexRange.getCalls());
+	}
+
+	@Test
+	public void testMBeans() throws Exception {
+		OperationMetrics getList = metrics.get("redis.getListObject");
+		operations.getListObject(Arrays.asList("metrics:1"), User.class);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("com.gbmartins.redis:type=Operation,name="
+				+ ObjectName.quote("redis.getListObject"));
+		assertTrue(server.isRegistered(name));
+		assertEquals(getList.getCalls(), server.getAttribute(name, "Calls"));
+		assertTrue(metrics.getAll().contains(getList));
+	}
+
+}
@@ -1,21 +1,32 @@
 package com.gbmartins.redis.crud.dao;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.gbmartins.redis.crud.AbstractTestBase;
 import com.gbmartins.redis.dao.RedisOperations;
+import com.gbmartins.redis.dao.index.WriteCondition;
+import com.gbmartins.redis.dao.scan.ScanPage;
+import com.gbmartins.redis.dao.script.UpsertResult;
+import com.gbmartins.redis.dao.version.Versioned;
+import com.gbmartins.redis.dao.version.VersionedWrite;
 
 public class RedisOperationTest extends AbstractTestBase {
 
@@ -79,6 +90,307 @@ public class RedisOperationTest extends AbstractTestBase {
 		assertNull(bean);
 	}
 
+	@Test
+	public void testMultiGetKeepsPositions() throws Exception {
+		operations.saveOrUpdateObject("mget1", new SimpleBean(1, "one"));
+		operations.deleteKeys("mgetMissing");
+		operations.saveOrUpdateObject("mget3", new SimpleBean(3, "three"));
+
+		List<SimpleBean> values = operations.multiGetObject(Arrays.asList("mget1", "mgetMissing", "mget3"),
+				SimpleBean.class);
+		assertEquals(3, values.size());
+		assertEquals(1, values.get(0).getId());
+		assertNull(values.get(1));
+		assertEquals(3, values.get(2).getId());
+
+		Map<String, SimpleBean> map = operations.getMapObject(Arrays.asList("mget1", "mgetMissing"),
+				SimpleBean.class);
+		assertTrue(map.containsKey("mgetMissing"));
+		assertNull(map.get("mgetMissing"));
+	}
+
+	@Test
+	public void testConditionalSave() throws Exception {
+		String key = "conditionalKey";
+		operations.deleteKeys(key);
+
+		assertNull(operations.updateIfPresent(key, new SimpleBean(1, "name")));
+		assertEquals("OK", operations.saveIfAbsent(key, new SimpleBean(1, "name")));
+		assertNull(operations.saveIfAbsent(key, new SimpleBean(2, "other")));
+		assertEquals("OK", operations.updateIfPresent(key, new SimpleBean(3, "updated")));
+
+		assertEquals(3, operations.getObject(key, SimpleBean.class).getId());
+	}
+
+	@Test
+	public void testHashPartialUpdate() throws Exception {
+		String key = "hashKey";
+		Map<String, String> fields = new HashMap<>();
+		fields.put("firstname", "John");
+		fields.put("lastname", "Doe");
+
+		operations.saveOrUpdateHash(key, fields);
+		operations.updateHashFields(key, Collections.singletonMap("lastname", "Smith"));
+
+		Map<String, String> projected = operations.getHashFields(key, "lastname");
+		assertEquals(1, projected.size());
+		assertEquals("Smith", projected.get("lastname"));
+		assertEquals("John", operations.getHash(key).get("firstname"));
+	}
+
+	@Test
+	public void testUpsertObject() throws Exception {
+		String key = "upsertKey";
+		operations.deleteKeys(key);
+
+		assertEquals(UpsertResult.CREATED, operations.upsertObject(key, new SimpleBean(1, "name")));
+		assertEquals(UpsertResult.UNCHANGED, operations.upsertObject(key, new SimpleBean(1, "name")));
+		assertEquals(UpsertResult.UPDATED, operations.upsertObject(key, new SimpleBean(2, "name")));
+		assertEquals(2, operations.getObject(key, SimpleBean.class).getId());
+
+		operations.saveOrUpdateObject(key, new SimpleBean(2, "name"), 60000);
+		assertEquals(UpsertResult.UPDATED, operations.upsertObject(key, new SimpleBean(3, "name")));
+		assertTrue(operations.getTtlMillis(key) > 0);
+
+		operations.deleteKeys(key);
+		operations.saveVersionedObject(key, new SimpleBean(1, "name"), 0);
+		assertEquals(UpsertResult.UNCHANGED, operations.upsertObject(key, new SimpleBean(1, "name")));
+		assertEquals(UpsertResult.UPDATED, operations.upsertObject(key, new SimpleBean(2, "name")));
+		assertEquals(2, operations.getVersionedObject(key, SimpleBean.class).getVersion());
+		assertTrue(operations.saveVersionedObject(key, new SimpleBean(3, "stale"), 1).isConflict());
+	}
+
+	@Test
+	public void testCompareAndSet() throws Exception {
+		String key = "casKey";
+		operations.deleteKeys(key);
+		SimpleBean first = new SimpleBean(1, "first");
+		SimpleBean second = new SimpleBean(2, "second");
+
+		assertFalse(operations.compareAndSet(key, first, second));
+		assertTrue(operations.compareAndSet(key, null, first));
+		assertFalse(operations.compareAndSet(key, null, second));
+		assertTrue(operations.compareAndSet(key, first, second));
+		assertFalse(operations.compareAndSet(key, first, second));
+		assertEquals(2, operations.getObject(key, SimpleBean.class).getId());
+
+		operations.saveOrUpdateObject(key, first, 60000);
+		assertTrue(operations.compareAndSet(key, first, second));
+		assertTrue(operations.getTtlMillis(key) > 0);
+
+		operations.deleteKeys(key);
+		operations.saveVersionedObject(key, first, 0);
+		assertTrue(operations.compareAndSet(key, first, second));
+		assertEquals(2, operations.getVersionedObject(key, SimpleBean.class).getVersion());
+	}
+
+	@Test
+	public void testDeleteIfEquals() throws Exception {
+		operations.saveOrUpdateObject("deleteIf1", new SimpleBean(1, "one"));
+		operations.saveOrUpdateObject("deleteIf2", new SimpleBean(2, "two"));
+		operations.deleteKeys("deleteIf3");
+
+		Map<String, SimpleBean> expected = new HashMap<>();
+		expected.put("deleteIf1", new SimpleBean(1, "one"));
+		expected.put("deleteIf2", new SimpleBean(2, "changed"));
+		expected.put("deleteIf3", new SimpleBean(3, "three"));
+
+		assertEquals(1, operations.deleteIfEquals(expected));
+		assertNull(operations.getObject("deleteIf1", SimpleBean.class));
+		assertEquals(2, operations.getObject("deleteIf2", SimpleBean.class).getId());
+	}
+
+	@Test
+	public void testDeleteIfEqualsVersioned() throws Exception {
+		String key = "deleteIfVersioned";
+		operations.deleteKeys(key);
+		operations.saveVersionedObject(key, new SimpleBean(1, "one"), 0);
+		operations.upsertObject(key, new SimpleBean(1, "two"));
+
+		assertEquals(0, operations.deleteIfEquals(Collections.singletonMap(key, new SimpleBean(1, "one"))));
+		assertEquals(1, operations.deleteIfEquals(Collections.singletonMap(key, new SimpleBean(1, "two"))));
+		assertNull(operations.getObject(key, SimpleBean.class));
+	}
+
+	@Test
+	public void testVersionedObject() throws Exception {
+		String key = "versionedKey";
+		operations.deleteKeys(key);
+		assertNull(operations.getVersionedObject(key, SimpleBean.class));
+
+		VersionedWrite<SimpleBean> write = operations.saveVersionedObject(key, new SimpleBean(1, "first"), 0);
+		assertTrue(write.isWritten());
+		assertEquals(1, write.getVersion());
+
+		write = operations.saveVersionedObject(key, new SimpleBean(2, "stale"), 0);
+		assertTrue(write.isConflict());
+		assertEquals(1, write.getVersion());
+		assertEquals("first", write.getCurrent().getName());
+
+		Versioned<SimpleBean> versioned = operations.getVersionedObject(key, SimpleBean.class);
+		assertEquals(1, versioned.getVersion());
+		assertEquals(2, operations.saveVersionedObject(key, new SimpleBean(3, "second"), 1).getVersion());
+		assertEquals("second", operations.getObject(key, SimpleBean.class).getName());
+
+		operations.saveOrUpdateObject(key, new SimpleBean(4, "plain"));
+		assertEquals(0, operations.getVersionedObject(key, SimpleBean.class).getVersion());
+		assertEquals("plain", operations.getObject(key, SimpleBean.class).getName());
+		assertTrue(operations.saveVersionedObject(key, new SimpleBean(5, "stale"), 2).isConflict());
+		assertTrue(operations.saveVersionedObject(key, new SimpleBean(5, "again"), 0).isWritten());
+
+		operations.upsertObject(key, new SimpleBean(6, "upsert"));
+		assertEquals(2, operations.getVersionedObject(key, SimpleBean.class).getVersion());
+		operations.saveOrUpdateBulkObject(Collections.singletonMap(key, new SimpleBean(7, "bulk")));
+		assertEquals(0, operations.getVersionedObject(key, SimpleBean.class).getVersion());
+		operations.saveVersionedObject(key, new SimpleBean(8, "again"), 0);
+		operations.saveIndexedObject(key, new SimpleBean(9, "indexed"), WriteCondition.IF_PRESENT,
+				Collections.singletonMap("idx:test:versioned", "indexed"));
+		assertEquals(0, operations.getVersionedObject(key, SimpleBean.class).getVersion());
+		operations.deleteIndexedKeys(Collections.singletonList("idx:test:versioned"), key);
+	}
+
+	@Test
+	public void testVersionedIndexedObject() throws Exception {
+		String index = "idx:test:versioned";
+		String key = "versionedIndexed";
+		operations.deleteIndexedKeys(Collections.singletonList(index), key);
+
+		operations.saveVersionedObject(key, new SimpleBean(1, "alpha"), 0, Collections.singletonMap(index, "alpha"));
+		assertTrue(operations.saveVersionedObject(key, new SimpleBean(1, "beta"), 0,
+				Collections.singletonMap(index, "beta")).isConflict());
+		assertEquals(Arrays.asList(key), operations.indexPrefix(index, "alpha", 0, 10));
+
+		operations.saveVersionedObject(key, new SimpleBean(1, "beta"), 1, Collections.singletonMap(index, "beta"));
+		assertTrue(operations.indexPrefix(index, "alpha", 0, 10).isEmpty());
+		assertEquals(Arrays.asList(key), operations.indexPrefix(index, "beta", 0, 10));
+	}
+
+	@Test
+	public void testIndexedLookups() throws Exception {
+		String index = "idx:test:name";
+		List<String> indexes = Collections.singletonList(index);
+		operations.deleteIndexedKeys(indexes, "indexed1", "indexed2", "indexed3");
+
+		operations.saveIndexedObject("indexed1", new SimpleBean(1, "adams"), WriteCondition.ALWAYS,
+				Collections.singletonMap(index, "adams"));
+		operations.saveIndexedObject("indexed2", new SimpleBean(2, "baker"), WriteCondition.ALWAYS,
+				Collections.singletonMap(index, "baker"));
+		operations.saveIndexedObject("indexed3", new SimpleBean(3, "banks"), WriteCondition.ALWAYS,
+				Collections.singletonMap(index, "banks"));
+
+		assertEquals(Arrays.asList("indexed2", "indexed3"), operations.indexPrefix(index, "ba", 0, 10));
+		assertEquals(Arrays.asList("indexed3"), operations.indexPrefix(index, "ba", 1, 10));
+		assertEquals(Arrays.asList("indexed1", "indexed2"), operations.indexRange(index, "a", "baker", 0, 10));
+		assertEquals(Arrays.asList("indexed3"), operations.indexRange(index, "bal", null, 0, 10));
+
+		operations.saveIndexedObject("indexed1", new SimpleBean(1, "barnes"), WriteCondition.ALWAYS,
+				Collections.singletonMap(index, "barnes"));
+		assertEquals(Arrays.asList("indexed2", "indexed3", "indexed1"), operations.indexPrefix(index, "", 0, 10));
+
+		assertNull(operations.saveIndexedObject("indexed2", new SimpleBean(2, "zeta"), WriteCondition.IF_ABSENT,
+				Collections.singletonMap(index, "zeta")));
+		assertTrue(operations.indexPrefix(index, "z", 0, 10).isEmpty());
+
+		assertEquals(2, operations.deleteIndexedKeys(indexes, "indexed1", "indexed2"));
+		assertNull(operations.getObject("indexed1", SimpleBean.class));
+		assertEquals(Arrays.asList("indexed3"), operations.indexPrefix(index, null, 0, 10));
+	}
+
+	@Test
+	public void testIndexedHash() throws Exception {
+		String index = "idx:test:hash";
+		String key = "indexedHash";
+		operations.deleteIndexedKeys(Collections.singletonList(index), key);
+
+		operations.saveIndexedHash(key, Collections.singletonMap("lastname", "Doe"), true,
+				Collections.singletonMap(index, "doe"));
+		assertTrue(operations.saveIndexedHash(key, Collections.singletonMap("lastname", "Smith"), false,
+				Collections.singletonMap(index, "smith")));
+
+		assertEquals("Smith", operations.getHash(key).get("lastname"));
+		assertTrue(operations.indexPrefix(index, "doe", 0, 10).isEmpty());
+		assertEquals(Arrays.asList(key), operations.indexPrefix(index, "sm", 0, 10));
+
+		String missing = "indexedHashMissing";
+		operations.deleteIndexedKeys(Collections.singletonList(index), missing);
+		assertFalse(operations.saveIndexedHash(missing, Collections.singletonMap("lastname", "Ghost"), false,
+				Collections.singletonMap(index, "ghost")));
+		Map<String, String> ghost = operations.getHash(missing);
+		assertTrue(ghost == null || ghost.isEmpty());
+		assertTrue(operations.indexPrefix(index, "ghost", 0, 10).isEmpty());
+	}
+
+	@Test
+	public void testScanObjects() throws Exception {
+		Map<String, SimpleBean> bulk = new HashMap<>();
+		for (int i = 0; i < 25; i++) {
+			bulk.put("scan:" + i, new SimpleBean(i, "name" + i));
+		}
+		operations.saveOrUpdateBulkObject(bulk);
+		operations.saveOrUpdateHash("scan:hash", Collections.singletonMap("name", "hash"));
+
+		Map<String, SimpleBean> found = new HashMap<>();
+		String cursor = ScanPage.START;
+		do {
+			ScanPage<SimpleBean> page = operations.scanObjects(cursor, "scan:*", 10, SimpleBean.class);
+			found.putAll(page.getItems());
+			cursor = page.getCursor();
+		} while (!ScanPage.START.equals(cursor));
+		assertEquals(bulk.keySet(), found.keySet());
+		assertEquals(7, found.get("scan:7").getId());
+
+		Map<String, SimpleBean> streamed = operations.streamObjects("scan:1?", 5, SimpleBean.class)
+				.collect(Collectors.toMap(Entry::getKey, Entry::getValue, (a, b) -> a));
+		assertEquals(10, streamed.size());
+		assertTrue(streamed.containsKey("scan:15"));
+	}
+
+	@Test
+	public void testExpiry() throws Exception {
+		String key = "ttl:1";
+		operations.saveOrUpdateObject(key, new SimpleBean(1, "name"), 60000);
+		long ttl = operations.getTtlMillis(key);
+		assertTrue(ttl > 0 && ttl <= 60000);
+
+		operations.saveOrUpdateObject(key, new SimpleBean(1, "name"), 50);
+		assertEquals(1, operations.getAndTouchObject(key, SimpleBean.class, 60000).getId());
+		assertTrue(operations.getTtlMillis(key) > 50);
+
+		operations.saveOrUpdateObject(key, new SimpleBean(2, "name"));
+		assertEquals(-1, operations.getTtlMillis(key));
+
+		Map<String, SimpleBean> bulk = new HashMap<>();
+		bulk.put("ttl:2", new SimpleBean(2, "name"));
+		bulk.put("ttl:3", new SimpleBean(3, "name"));
+		operations.saveOrUpdateBulkObject(bulk, 50);
+		operations.saveIndexedObject("ttl:4", new SimpleBean(4, "name"), WriteCondition.ALWAYS,
+				Collections.singletonMap("idx:test:ttl", "expiring"), 50);
+		assertTrue(operations.getTtlMillis("ttl:4") > 0);
+
+		Thread.sleep(150);
+		assertNull(operations.getObject("ttl:2", SimpleBean.class));
+		assertNull(operations.getObject("ttl:4", SimpleBean.class));
+		assertEquals(-2, operations.getTtlMillis("ttl:3"));
+		assertNull(operations.getAndTouchObject("ttl:3", SimpleBean.class, 60000));
+	}
+
+	@Test
+	public void testExpiredIndexEntriesPruned() throws Exception {
+		String index = "idx:test:pruned";
+		operations.deleteIndexedKeys(Collections.singletonList(index), "pruned:1", "pruned:2");
+		operations.saveIndexedObject("pruned:1", new SimpleBean(1, "name"), WriteCondition.ALWAYS,
+				Collections.singletonMap(index, "expiring"), 50);
+		operations.saveIndexedObject("pruned:2", new SimpleBean(2, "name"), WriteCondition.ALWAYS,
+				Collections.singletonMap(index, "expiring"));
+		assertEquals(Arrays.asList("pruned:1", "pruned:2"), operations.indexPrefix(index, "exp", 0, 10));
+
+		Thread.sleep(150);
+		assertEquals(Collections.emptyList(), operations.indexPrefix(index, "exp", 0, 1));
+		assertEquals(Collections.singletonList("pruned:2"), operations.indexPrefix(index, "exp", 0, 1));
+		assertEquals(Collections.singletonList("pruned:2"), operations.indexRange(index, null, null, 0, 10));
+		operations.deleteIndexedKeys(Collections.singletonList(index), "pruned:2");
+	}
+
 	
 	private static class SimpleBean implements Serializable {
 		private static final long serialVersionUID = -5023841794057529771L;
@@ -0,0 +1,94 @@
+package com.gbmartins.redis.crud.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.dao.JedisOperations;
+import com.gbmartins.redis.dao.PoolStats;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.RedisOperations;
+import com.gbmartins.redis.dao.RedisPoolConnection;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * The pool is used by the standalone backend only.
+ */
+public class RedisPoolConnectionTest extends AbstractTestBase {
+
+	@Autowired
+	private RedisOperations operations;
+
+	@Autowired
+	@Qualifier("redisSetup")
+	private RedisInstanceSetup setup;
+
+	@Test
+	public void testPrefillAndStats() throws Exception {
+		Assume.assumeTrue(operations instanceof JedisOperations);
+
+		RedisPoolConnection pool = pool(3, 4);
+		List<Jedis> borrowed = new ArrayList<>();
+		try {
+			PoolStats stats = pool.getStats();
+			assertEquals(3, stats.getIdle());
+			assertEquals(0, stats.getActive());
+
+			for (int i = 0; i < 4; i++) {
+				borrowed.add(pool.getResource());
+			}
+			assertEquals(4, pool.getStats().getActive());
+			assertEquals(0, pool.getStats().getIdle());
+
+			CompletableFuture<Jedis> waiter = CompletableFuture.supplyAsync(pool::getResource);
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (pool.getStats().getWaiters() == 0 && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(1, pool.getStats().getWaiters());
+
+			borrowed.remove(0).close();
+			borrowed.add(waiter.get(5, TimeUnit.SECONDS));
+			assertEquals(0, pool.getStats().getWaiters());
+			assertEquals(4, pool.getStats().getActive());
+			assertTrue(pool.getStats().getMaxBorrowWaitMillis() > 0);
+		} finally {
+			borrowed.forEach(Jedis::close);
+			pool.destroy();
+		}
+	}
+
+	private RedisPoolConnection pool(int minIdle, int maxTotal) {
+		int previousMinIdle = setup.getPoolMinIdle();
+		int previousMaxIdle = setup.getPoolMaxIdle();
+		int previousMaxTotal = setup.getPoolMaxTotal();
+		long previousMaxWait = setup.getPoolMaxWaitMillis();
+		boolean previousPrefill = setup.isPoolPrefill();
+		setup.setPoolMinIdle(minIdle);
+		setup.setPoolMaxIdle(maxTotal);
+		setup.setPoolMaxTotal(maxTotal);
+		setup.setPoolMaxWaitMillis(10000);
+		setup.setPoolPrefill(true);
+		try {
+			return new RedisPoolConnection(setup);
+		} finally {
+			setup.setPoolMinIdle(previousMinIdle);
+			setup.setPoolMaxIdle(previousMaxIdle);
+			setup.setPoolMaxTotal(previousMaxTotal);
+			setup.setPoolMaxWaitMillis(previousMaxWait);
+			setup.setPoolPrefill(previousPrefill);
+		}
+	}
+
+}
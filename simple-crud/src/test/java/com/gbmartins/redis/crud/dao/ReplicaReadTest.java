@@ -0,0 +1,125 @@
+package com.gbmartins.redis.crud.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.dao.JedisOperations;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.RedisOperations;
+import com.gbmartins.redis.dao.RedisPoolConnection;
+import com.gbmartins.redis.dao.codec.CodecRegistry;
+import com.gbmartins.redis.dao.metrics.RedisMetrics;
+import com.gbmartins.redis.dao.replica.ReadYourWrites;
+import com.gbmartins.redis.dao.scan.ScanPage;
+import com.gbmartins.redis.dao.script.ScriptRegistry;
+
+/**
+ * The near cache and the replicas are specific to the standalone backend.
+ * The primary doubles as the replica, what matters is where the read is
+ * routed, told by the read counts of the replica pools.
+ */
+public class ReplicaReadTest extends AbstractTestBase {
+
+	@Autowired
+	private RedisOperations operations;
+
+	@Autowired
+	private CodecRegistry codecs;
+
+	@Autowired
+	private ScriptRegistry scripts;
+
+	@Autowired
+	private RedisMetrics metrics;
+
+	@Autowired
+	@Qualifier("redisSetup")
+	private RedisInstanceSetup setup;
+
+	private RedisPoolConnection pool;
+
+	private JedisOperations replicated;
+
+	@Before
+	public void replicatedNearCache() {
+		Assume.assumeTrue(operations instanceof JedisOperations);
+
+		boolean previousEnabled = setup.isNearCacheEnabled();
+		boolean previousInvalidation = setup.isNearCacheInvalidation();
+		String previousReplicas = setup.getReplicaNodes();
+		long previousWindow = setup.getReadYourWritesMillis();
+		setup.setNearCacheEnabled(true);
+		setup.setNearCacheInvalidation(false);
+		setup.setReplicaNodes(setup.getHostname() + ":" + setup.getPort());
+		setup.setReadYourWritesMillis(0);
+		try {
+			pool = new RedisPoolConnection(setup);
+			replicated = new JedisOperations(pool, codecs, scripts, setup, metrics);
+		} finally {
+			setup.setNearCacheEnabled(previousEnabled);
+			setup.setNearCacheInvalidation(previousInvalidation);
+			setup.setReplicaNodes(previousReplicas);
+			setup.setReadYourWritesMillis(previousWindow);
+		}
+	}
+
+	@After
+	public void close() {
+		if (replicated != null) {
+			replicated.destroy();
+			pool.destroy();
+		}
+	}
+
+	@Test
+	public void testReplicaReadsSkipNearCache() throws Exception {
+		operations.saveOrUpdateObject("near:a", "a");
+		operations.saveOrUpdateObject("near:b", "b");
+		try {
+			assertEquals("a", replicated.getObject("near:a", String.class));
+			assertEquals(Arrays.asList("a", "b"),
+					replicated.multiGetObject(Arrays.asList("near:a", "near:b"), String.class));
+			assertNull(replicated.getNearCache().get("near:a"));
+			assertNull(replicated.getNearCache().get("near:b"));
+
+			try (ReadYourWrites.Pin pin = ReadYourWrites.pinToPrimary()) {
+				assertEquals("a", replicated.getObject("near:a", String.class));
+				assertEquals(Arrays.asList("a", "b"),
+						replicated.multiGetObject(Arrays.asList("near:a", "near:b"), String.class));
+			}
+			assertNotNull(replicated.getNearCache().get("near:a"));
+			assertNotNull(replicated.getNearCache().get("near:b"));
+		} finally {
+			operations.deleteKeys("near:a", "near:b");
+		}
+	}
+
+	@Test
+	public void testScanReadsPrimary() throws Exception {
+		operations.saveOrUpdateObject("scan:replica:a", "a");
+		try {
+			long replicaReads = replicated.getReplicas().getReplicaReads();
+			ScanPage<String> page;
+			String cursor = ScanPage.START;
+			do {
+				page = replicated.scanObjects(cursor, "scan:replica:*", 10, String.class);
+				cursor = page.getCursor();
+			} while (!page.isFinished());
+			assertEquals(replicaReads, replicated.getReplicas().getReplicaReads());
+		} finally {
+			operations.deleteKeys("scan:replica:a");
+		}
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.gbmartins.redis.crud.dao;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.dao.JedisOperations;
+import com.gbmartins.redis.dao.RedisInstanceSetup;
+import com.gbmartins.redis.dao.RedisOperations;
+import com.gbmartins.redis.dao.RedisPoolConnection;
+import com.gbmartins.redis.dao.script.RedisScript;
+import com.gbmartins.redis.dao.script.ScriptRegistry;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * SCRIPT FLUSH needs a plain connection to the server, so the NOSCRIPT
+ * fallback is checked on the standalone backend only.
+ */
+public class ScriptRegistryTest extends AbstractTestBase {
+
+	@Autowired
+	private RedisOperations operations;
+
+	@Autowired
+	@Qualifier("redisSetup")
+	private RedisInstanceSetup setup;
+
+	private RedisPoolConnection pool;
+
+	private Jedis jedis;
+
+	private ScriptRegistry scripts;
+
+	@Before
+	public void connect() {
+		Assume.assumeTrue(operations instanceof JedisOperations);
+		pool = new RedisPoolConnection(setup);
+		jedis = pool.getResource();
+		scripts = new ScriptRegistry();
+	}
+
+	@After
+	public void close() {
+		if (jedis != null) {
+			jedis.del("script:1", "script:2");
+			jedis.close();
+			pool.destroy();
+		}
+	}
+
+	@Test
+	public void testShaMatchesServer() {
+		for (RedisScript script : scripts.getScripts()) {
+			assertEquals(script.getName(), jedis.scriptLoad(script.getSource()), script.getSha());
+		}
+	}
+
+	@Test
+	public void testEvalAfterScriptFlush() {
+		jedis.del("script:1");
+		jedis.scriptFlush();
+
+		assertEquals(1L, scripts.eval(jedis, ScriptRegistry.UPSERT, keys("script:1"), values("a")));
+		assertEquals(1, scripts.getReloads());
+		assertArrayEquals(bytes("a"), jedis.get(bytes("script:1")));
+	}
+
+	@Test
+	public void testEvalAllAfterScriptFlush() {
+		jedis.del("script:1", "script:2");
+		jedis.set("script:2", "b");
+		jedis.scriptFlush();
+
+		List<Object> replies = scripts.evalAll(jedis, ScriptRegistry.UPSERT,
+				Arrays.asList(keys("script:1"), keys("script:2")), Arrays.asList(values("a"), values("b")));
+		assertEquals(Arrays.<Object> asList(1L, 0L), replies);
+		assertEquals(1, scripts.getReloads());
+		assertArrayEquals(bytes("a"), jedis.get(bytes("script:1")));
+
+		scripts.evalAll(jedis, ScriptRegistry.UPSERT, Collections.singletonList(keys("script:1")),
+				Collections.singletonList(values("c")));
+		assertEquals(1, scripts.getReloads());
+	}
+
+	private static List<byte[]> keys(String key) {
+		return Collections.singletonList(bytes(key));
+	}
+
+	private static List<byte[]> values(String value) {
+		return Collections.singletonList(bytes(value));
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}
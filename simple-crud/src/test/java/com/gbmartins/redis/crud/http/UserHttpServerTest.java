@@ -0,0 +1,174 @@
+package com.gbmartins.redis.crud.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.service.UserService;
+import com.gbmartins.redis.service.http.UserHttpServer;
+import com.gbmartins.redis.service.http.UserRequestBatcher;
+
+public class UserHttpServerTest extends AbstractTestBase {
+
+	@Autowired
+	private UserHttpServer server;
+
+	@Autowired
+	private UserService service;
+
+	@Before
+	public void setUp() throws Exception {
+		server.start(new InetSocketAddress("127.0.0.1", 0));
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void testCrud() throws Exception {
+		service.deleteUsers("http1@example.com", "http2@example.com");
+
+		assertEquals(201, call("POST", "/users", "{\"email\":\"http1@example.com\",\"firstname\":\"Ann\",\"lastname\":\"Httpson\"}").status);
+		assertEquals(409, call("POST", "/users", "{\"email\":\"http1@example.com\",\"firstname\":\"Bob\",\"lastname\":\"Httpson\"}").status);
+		Reply reply = call("GET", "/users/http1@example.com", null);
+		assertEquals(200, reply.status);
+		assertTrue(reply.body.contains("\"firstname\":\"Ann\""));
+
+		assertEquals(200, call("PUT", "/users/http1@example.com", "{\"firstname\":\"Anna\",\"lastname\":\"Httpson\"}").status);
+		assertEquals("Anna", service.getUserByEmail("http1@example.com").getFirstname());
+		assertEquals(400, call("POST", "/users", "{\"firstname\":\"NoEmail\"}").status);
+
+		reply = call("POST", "/users/_bulk", "{\"email\":\"http2@example.com\",\"lastname\":\"Httpson\"}\n{broken\n");
+		assertTrue(reply.body.contains("\"saved\":1"));
+		assertTrue(reply.body.contains("\"rejected\":1"));
+
+		reply = call("POST", "/users/_mget", "[\"http1@example.com\",\"http3@example.com\"]");
+		assertTrue(reply.body.contains("\"http3@example.com\":null"));
+		reply = call("GET", "/users?lastname=httpson", null);
+		assertTrue(reply.body.contains("http1@example.com") && reply.body.contains("http2@example.com"));
+		reply = call("GET", "/users", null);
+		assertTrue(reply.body.contains("{\"email\":\"http2@example.com\""));
+
+		assertEquals(200, call("DELETE", "/users/http1@example.com", null).status);
+		assertEquals(404, call("DELETE", "/users/http1@example.com", null).status);
+		assertEquals(404, call("GET", "/users/http1@example.com", null).status);
+	}
+
+	@Test
+	public void testConcurrentReads() throws Exception {
+		service.deleteUser("http4@example.com");
+		call("POST", "/users", "{\"email\":\"http4@example.com\",\"firstname\":\"Cy\",\"lastname\":\"Doe\"}");
+
+		List<CompletableFuture<Reply>> replies = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			replies.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return call("GET", "/users/http4@example.com", null);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}));
+		}
+		for (CompletableFuture<Reply> reply : replies) {
+			assertEquals(200, reply.get().status);
+		}
+	}
+
+	@Test
+	public void testBatcherKeepsOrderPerUser() throws Exception {
+		UserRequestBatcher batcher = new UserRequestBatcher(service, 10, 1000, 4);
+		batcher.start();
+		try {
+			List<CompletableFuture<String>> writes = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				User user = new User();
+				user.setEmail("http5@example.com");
+				user.setFirstname("Name" + i);
+				user.setLastname("Doe");
+				writes.add(batcher.saveOrUpdateUser(user));
+			}
+			for (CompletableFuture<String> write : writes) {
+				write.get(5, TimeUnit.SECONDS);
+			}
+			assertEquals("Name49", batcher.getUser("http5@example.com").get(5, TimeUnit.SECONDS).getFirstname());
+		} finally {
+			batcher.close();
+			service.deleteUser("http5@example.com");
+		}
+	}
+
+	@Test
+	public void testBatcherCloseFailsPendingRequests() throws Exception {
+		// the flusher collects for 10s, so the read is pending when closing
+		UserRequestBatcher batcher = new UserRequestBatcher(service, 100, TimeUnit.SECONDS.toMicros(10), 1);
+		batcher.start();
+		CompletableFuture<User> pending = batcher.getUser("http6@example.com");
+		Thread.sleep(100);
+		batcher.close();
+
+		for (CompletableFuture<User> future : Arrays.asList(pending, batcher.getUser("http6@example.com"))) {
+			try {
+				future.get(2, TimeUnit.SECONDS);
+				fail("A closed batcher must fail the requests it did not send");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+		}
+	}
+
+	private Reply call(String method, String path, String body) throws Exception {
+		URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod(method);
+		if (body != null) {
+			connection.setDoOutput(true);
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		int status = connection.getResponseCode();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			byte[] buffer = new byte[4096];
+			int n;
+			while (in != null && (n = in.read(buffer)) > 0) {
+				bytes.write(buffer, 0, n);
+			}
+		}
+		return new Reply(status, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	private static final class Reply {
+		private final int status;
+		private final String body;
+
+		private Reply(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.gbmartins.redis.crud.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.service.UserService;
+import com.gbmartins.redis.service.load.KeyDistribution;
+import com.gbmartins.redis.service.load.LoadGenerator;
+import com.gbmartins.redis.service.load.LoadOperation;
+import com.gbmartins.redis.service.load.LoadOptions;
+import com.gbmartins.redis.service.load.LoadSummary;
+
+public class LoadGeneratorTest extends AbstractTestBase {
+
+	@Autowired
+	private LoadGenerator generator;
+
+	@Autowired
+	private UserService service;
+
+	@Test
+	public void testDistributions() {
+		Random random = new Random(42);
+		int[] zipfian = new int[1000];
+		KeyDistribution distribution = KeyDistribution.of("zipfian", zipfian.length, 0.99, 0, 0);
+		for (int i = 0; i < 100000; i++) {
+			zipfian[distribution.next(random)]++;
+		}
+		assertTrue(zipfian[0] > zipfian[1] && zipfian[1] > zipfian[10] && zipfian[10] > zipfian[500]);
+		assertTrue(zipfian[0] > 100000 / 20);
+
+		int hot = 0;
+		distribution = KeyDistribution.of("hotspot", 1000, 0, 0.1, 0.9);
+		for (int i = 0; i < 100000; i++) {
+			int key = distribution.next(random);
+			assertTrue(key >= 0 && key < 1000);
+			hot += key < 100 ? 1 : 0;
+		}
+		assertEquals(0.9, hot / 100000.0, 0.01);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidOptions() {
+		LoadOptions.parse("threads=2", "mix=read:1,scan:1");
+	}
+
+	@Test
+	public void testRun() throws Exception {
+		Path csv = Files.createTempFile("load", ".csv");
+		try {
+			List<String> console = new ArrayList<>();
+			LoadSummary summary = generator.run(LoadOptions.parse("threads=2", "seconds=2", "keys=200",
+					"mix=read:70,write:10,update:10,delete:10", "rate=500", "csv=" + csv), console::add);
+
+			assertEquals(0, summary.getErrors());
+			assertTrue(summary.getOperations() > 500);
+			assertTrue(summary.getCount(LoadOperation.READ) > summary.getCount(LoadOperation.DELETE));
+			assertTrue(summary.getPercentileMicros(LoadOperation.READ, 99) > 0);
+			assertTrue(console.get(console.size() - 1).startsWith("Load [operations=" + summary.getOperations()));
+
+			List<String> lines = Files.readAllLines(csv, StandardCharsets.UTF_8);
+			assertEquals(LoadGenerator.CSV_HEADER, lines.get(0));
+			assertTrue(lines.size() > 4);
+			assertEquals(summary.getOperations(), lines.stream().skip(1)
+					.mapToLong(line -> Long.parseLong(line.split(",")[2])).sum());
+		} finally {
+			Files.delete(csv);
+			service.deleteUsers(IntStream.range(0, 200).mapToObj(LoadGenerator::email).toArray(String[]::new));
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.gbmartins.redis.crud.replica;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.gbmartins.redis.dao.replica.ReadYourWrites;
+import com.gbmartins.redis.dao.replica.ReplicaSelection;
+
+public class ReadYourWritesTest {
+
+	private static final long WINDOW = TimeUnit.SECONDS.toNanos(60);
+
+	@Test
+	public void testNestedPins() {
+		assertFalse(ReadYourWrites.isPinned(0));
+		try (ReadYourWrites.Pin outer = ReadYourWrites.pinToPrimary()) {
+			try (ReadYourWrites.Pin inner = ReadYourWrites.pinToPrimary()) {
+				assertTrue(ReadYourWrites.isPinned(0));
+			}
+			assertTrue(ReadYourWrites.isPinned(0));
+		}
+		assertFalse(ReadYourWrites.isPinned(0));
+	}
+
+	@Test
+	public void testWindowAfterWrite() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			boolean pinned = executor.submit(() -> {
+				ReadYourWrites.recordWrite();
+				return ReadYourWrites.isPinned(WINDOW) && !ReadYourWrites.isPinned(0);
+			}).get();
+			assertTrue(pinned);
+
+			assertFalse(executor.submit(() -> ReadYourWrites.isPinned(1)).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testPropagate() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			try (ReadYourWrites.Pin pin = ReadYourWrites.pinToPrimary()) {
+				assertTrue(executor.submit(ReadYourWrites.propagate(() -> ReadYourWrites.isPinned(0))).get());
+			}
+			assertFalse(executor.submit(() -> ReadYourWrites.isPinned(0)).get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testPropagateHandsBackWrites() throws Exception {
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		ExecutorService worker = Executors.newSingleThreadExecutor();
+		try {
+			boolean pinned = caller.submit(() -> {
+				worker.submit(ReadYourWrites.propagate(() -> {
+					ReadYourWrites.recordWrite();
+					return null;
+				})).get();
+				return ReadYourWrites.isPinned(WINDOW);
+			}).get();
+			assertTrue(pinned);
+
+			assertFalse(worker.submit(() -> ReadYourWrites.isPinned(WINDOW)).get());
+		} finally {
+			caller.shutdown();
+			worker.shutdown();
+		}
+	}
+
+	@Test
+	public void testSelectionNames() {
+		assertEquals(ReplicaSelection.ROUND_ROBIN, ReplicaSelection.fromName(null));
+		assertEquals(ReplicaSelection.LEAST_LOADED, ReplicaSelection.fromName("least-loaded"));
+	}
+}
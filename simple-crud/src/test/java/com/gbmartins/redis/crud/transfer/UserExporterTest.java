@@ -0,0 +1,56 @@
+package com.gbmartins.redis.crud.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.service.UserService;
+import com.gbmartins.redis.service.transfer.ExportSummary;
+import com.gbmartins.redis.service.transfer.ImportSummary;
+import com.gbmartins.redis.service.transfer.UserExporter;
+import com.gbmartins.redis.service.transfer.UserImporter;
+
+public class UserExporterTest extends AbstractTestBase {
+
+	@Autowired
+	private UserExporter exporter;
+
+	@Autowired
+	private UserImporter importer;
+
+	@Autowired
+	private UserService service;
+
+	@Test
+	public void testExportRoundTrip() throws Exception {
+		for (String suffix : new String[] { ".bin", ".ndjson", ".csv" }) {
+			User user = new User();
+			user.setEmail("export" + suffix + "@example.com");
+			user.setFirstname("Ex, \"port\"\non two lines");
+			user.setLastname("Örtega");
+			service.saveOrUpdateUser(user);
+
+			Path file = Files.createTempFile("export", suffix);
+			ExportSummary exported = exporter.exportUsers(file);
+			assertTrue(exported.getRecords() > 0);
+			assertEquals(Files.size(file), exported.getBytes());
+
+			service.deleteUser(user.getEmail());
+			assertNull(service.getUserByEmail(user.getEmail()));
+
+			ImportSummary imported = importer.importUsers(file);
+			Files.delete(file);
+			assertEquals(exported.getRecords(), imported.getImported());
+			assertEquals(user, service.getUserByEmail(user.getEmail()));
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.gbmartins.redis.crud.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.gbmartins.redis.crud.AbstractTestBase;
+import com.gbmartins.redis.crud.dto.User;
+import com.gbmartins.redis.service.UserService;
+import com.gbmartins.redis.service.transfer.ImportSummary;
+import com.gbmartins.redis.service.transfer.UserImporter;
+
+public class UserImporterTest extends AbstractTestBase {
+
+	@Autowired
+	private UserImporter importer;
+
+	@Autowired
+	private UserService service;
+
+	@Test
+	public void testImportCsv() throws Exception {
+		Path file = Files.createTempFile("users", ".csv");
+		Files.write(file, Arrays.asList("lastname,email,firstname", "Doe,csv1@example.com,John",
+				"\"O'Neil, Jr\",csv2@example.com,\"Jane \"\"JJ\"\"\"", "no-email,,x", "", "Roe,csv3@example.com",
+				"\"Two", "", "Lines\",csv4@example.com,Al"), StandardCharsets.UTF_8);
+
+		ImportSummary summary = importer.importUsers(file);
+		Files.delete(file);
+
+		assertEquals(5, summary.getRead());
+		assertEquals(3, summary.getImported());
+		assertEquals(2, summary.getRejected());
+		assertEquals(0, summary.getFailed());
+		User user = service.getUserByEmail("csv2@example.com");
+		assertEquals("O'Neil, Jr", user.getLastname());
+		assertEquals("Jane \"JJ\"", user.getFirstname());
+		assertNull(service.getUserByEmail("csv3@example.com"));
+		assertEquals("Two\n\nLines", service.getUserByEmail("csv4@example.com").getLastname());
+	}
+
+	@Test
+	public void testImportCsvWithBomAndBadBytes() throws Exception {
+		Path file = Files.createTempFile("users", ".csv");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF });
+		bytes.write("\n\nlastname,email,firstname\nDoe,bom1@example.com,J".getBytes(StandardCharsets.UTF_8));
+		bytes.write(0xFF);
+		bytes.write("ohn\nRoe,bom2@example.com,Ann\n".getBytes(StandardCharsets.UTF_8));
+		Files.write(file, bytes.toByteArray());
+
+		ImportSummary summary = importer.importUsers(file);
+		Files.delete(file);
+
+		assertEquals(2, summary.getRead());
+		assertEquals(2, summary.getImported());
+		User user = service.getUserByEmail("bom1@example.com");
+		assertEquals("Doe", user.getLastname());
+		assertEquals("J\uFFFDohn", user.getFirstname());
+		assertEquals("Roe", service.getUserByEmail("bom2@example.com").getLastname());
+	}
+
+	@Test
+	public void testImportNdjson() throws Exception {
+		Path file = Files.createTempFile("users", ".ndjson");
+		Files.write(file, Arrays.asList("{\"email\":\"json1@example.com\",\"firstname\":\"Ann\",\"lastname\":\"Lee\"}",
+				"{not json", "{\"email\":\"json2@example.com\",\"lastname\":\"Kim\",\"age\":3}"),
+				StandardCharsets.UTF_8);
+
+		ImportSummary summary = importer.importUsers(file);
+		Files.delete(file);
+
+		assertEquals(3, summary.getRead());
+		assertEquals(2, summary.getImported());
+		assertEquals(1, summary.getRejected());
+		assertEquals("Kim", service.getUserByEmail("json2@example.com").getLastname());
+		assertEquals(1, service.findUsersByLastnamePrefix("lee", 0, 10).stream()
+				.filter(u -> "json1@example.com".equals(u.getEmail())).count());
+	}
+
+}
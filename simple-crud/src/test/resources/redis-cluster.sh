@@ -0,0 +1,25 @@
+#!/bin/sh
+# Starts a local 3 masters Redis Cluster on ports 7000-7002, the one of
+# redis-cluster-config.properties, for: mvn test -Pcluster
+# Needs redis-server and redis-cli 5 or later. Stop it with: redis-cluster.sh stop
+DIR=${TMPDIR:-/tmp}/simple-crud-cluster
+PORTS="7000 7001 7002"
+
+if [ "$1" = "stop" ]; then
+	for port in $PORTS; do
+		redis-cli -p $port shutdown nosave
+	done
+	rm -rf "$DIR"
+	exit 0
+fi
+
+NODES=""
+for port in $PORTS; do
+	mkdir -p "$DIR/$port"
+	redis-server --port $port --dir "$DIR/$port" --cluster-enabled yes --cluster-config-file nodes.conf \
+		--appendonly no --save "" --daemonize yes
+	NODES="$NODES 127.0.0.1:$port"
+done
+
+sleep 1
+redis-cli --cluster create $NODES --cluster-replicas 0 --cluster-yes